@@ -0,0 +1,57 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.codegen;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Model field decoded from JSON and written to Parcel.
+ * Supported field types are int, long, double, boolean, String and LazyText.
+ * Annotation is kept in class files, so that Parcelable adapters can be generated
+ * for models compiled in other modules.
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.FIELD)
+public @interface JsonField {
+
+    /**
+     * @return JSON field name, empty for fields which are only written to Parcel
+     */
+    String value() default "";
+
+    /**
+     * @return true to decode String value as canonical instance from shared StringPool
+     */
+    boolean pooled() default false;
+
+    /**
+     * @return true if String field is used to filter decoded objects. Generated stream parser
+     *         then takes set of accepted values and abandons the object as soon as the field
+     *         value does not match. Fields preceding it are kept encoded meanwhile, so that
+     *         abandoned objects are never decoded.
+     */
+    boolean filter() default false;
+
+    /**
+     * @return Model property accessed by generated Parcelable adapters through its public
+     *         getter and setter, derived from field name (mPosterPath gives posterPath) when empty
+     */
+    String property() default "";
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.codegen;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks model class for which JSON parsers are generated.
+ * For model class Outer.Model, class Outer_ModelCodec is generated in the same package with:
+ * <ul>
+ *     <li>PROJECTION of JSON field names for ProjectingJsonReader</li>
+ *     <li>readObject(ProjectingJsonReader) stream parser</li>
+ *     <li>fromJson(JSONObject) parser</li>
+ * </ul>
+ * Model needs a non-private no-argument constructor, annotated fields must not be private.
+ * Parcelable code is generated separately, see ParcelAdapter.
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface JsonModel {
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.codegen;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Requests Parcelable adapters of @JsonModel classes, models themselves stay free
+ * of Android dependencies. For model class Outer.Model, class Outer_ModelParcel is generated
+ * in the model package with:
+ * <ul>
+ *     <li>constructor wrapping the model and getModel()</li>
+ *     <li>null-safe wrap() / unwrap() of single model and wrapList() / unwrapList() of lists</li>
+ *     <li>writeToParcel() writing all @JsonField fields and CREATOR</li>
+ * </ul>
+ * Adapters live in another module than models, so models must be public with public
+ * no-argument constructor and public getter and setter of each @JsonField property.
+ * Annotated type only holds the list of models, it can be any class of the Android module.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface ParcelAdapter {
+
+    /**
+     * @return Model classes annotated with @JsonModel
+     */
+    Class<?>[] value();
+}
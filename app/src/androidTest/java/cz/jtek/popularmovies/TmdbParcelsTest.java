@@ -0,0 +1,158 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.nio.charset.Charset;
+
+import cz.jtek.popularmovies.utilities.LazyText;
+
+import static org.junit.Assert.*;
+
+/**
+ * Round trips generated Parcel adapters through real Parcel. Lazy text has to keep its
+ * state: decoded text stays decoded, encoded text stays encoded until it is used.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TmdbParcelsTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static <T extends Parcelable> T roundTrip(T parcelable, Parcelable.Creator<T> creator) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcelable.writeToParcel(parcel, 0);
+            parcel.setDataPosition(0);
+            return creator.createFromParcel(parcel);
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    private static TmdbData.Movie movie(LazyText overview) {
+        TmdbData.Movie movie = new TmdbData.Movie(278, "The Shawshank Redemption",
+                "https://image.tmdb.org/t/p/w185/9O7gLzmreU0nGkIB6K3BsJbzvNv.jpg", null,
+                "1994-09-23", 8.7);
+        movie.setLazyOverview(overview);
+        return movie;
+    }
+
+    private static TmdbData.Movie roundTrip(TmdbData.Movie movie) {
+        return roundTrip(TmdbData_MovieParcel.wrap(movie), TmdbData_MovieParcel.CREATOR).getModel();
+    }
+
+    private static TmdbData.Review review(LazyText content) {
+        TmdbData.Review review = new TmdbData.Review();
+        review.setId("5723a329");
+        review.setAuthor("Ren\u00e9");
+        review.setLazyContent(content);
+        review.setUrl("https://www.themoviedb.org/review/5723a329");
+        return review;
+    }
+
+    private static TmdbData.Review roundTrip(TmdbData.Review review) {
+        return roundTrip(TmdbData_ReviewParcel.wrap(review), TmdbData_ReviewParcel.CREATOR).getModel();
+    }
+
+    private static void assertMovieEquals(TmdbData.Movie expected, TmdbData.Movie actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getTitle(), actual.getTitle());
+        assertEquals(expected.getPosterFile(), actual.getPosterFile());
+        // Poster base URL is pooled again
+        assertSame(expected.getPosterBaseUrl(), actual.getPosterBaseUrl());
+        assertEquals(expected.getReleaseDate(), actual.getReleaseDate());
+        assertEquals(expected.getVoteAverage(), actual.getVoteAverage(), 0);
+    }
+
+    private static void assertReviewEquals(TmdbData.Review expected, TmdbData.Review actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getAuthor(), actual.getAuthor());
+        assertEquals(expected.getUrl(), actual.getUrl());
+    }
+
+    @Test
+    public void movieWithDecodedOverview() {
+        TmdbData.Movie movie = movie(LazyText.of("Framed in the 1940s \u2014 Andy Dufresne"));
+
+        TmdbData.Movie restored = roundTrip(movie);
+
+        assertMovieEquals(movie, restored);
+        assertTrue(restored.getLazyOverview().isDecoded());
+        assertEquals("Framed in the 1940s \u2014 Andy Dufresne", restored.getOverview());
+    }
+
+    @Test
+    public void movieWithEncodedOverview() {
+        byte[] encoded = "Framed \\u2014 Andy\\nDufresne".getBytes(UTF_8);
+        TmdbData.Movie movie = movie(LazyText.fromEncoded(encoded, true));
+
+        TmdbData.Movie restored = roundTrip(movie);
+
+        assertMovieEquals(movie, restored);
+        LazyText overview = restored.getLazyOverview();
+        assertFalse(overview.isDecoded());
+        assertTrue(overview.isEscaped());
+        assertArrayEquals(encoded, overview.getEncoded());
+        assertEquals("Framed \u2014 Andy\nDufresne", overview.toString());
+        // Original is still encoded, parceling did not decode it
+        assertFalse(movie.getLazyOverview().isDecoded());
+    }
+
+    @Test
+    public void movieWithoutOverview() {
+        TmdbData.Movie movie = movie(null);
+
+        TmdbData.Movie restored = roundTrip(movie);
+
+        assertMovieEquals(movie, restored);
+        assertNull(restored.getLazyOverview());
+        assertNull(restored.getOverview());
+    }
+
+    @Test
+    public void reviewWithDecodedContent() {
+        TmdbData.Review review = review(LazyText.of("Two great hours \ud83c\udfac"));
+
+        TmdbData.Review restored = roundTrip(review);
+
+        assertReviewEquals(review, restored);
+        assertTrue(restored.getLazyContent().isDecoded());
+        assertEquals("Two great hours \ud83c\udfac", restored.getContent());
+    }
+
+    @Test
+    public void reviewWithEncodedContent() {
+        byte[] encoded = "Two great hours \ud83c\udfac".getBytes(UTF_8);
+        TmdbData.Review review = review(LazyText.fromEncoded(encoded, false));
+
+        TmdbData.Review restored = roundTrip(review);
+
+        assertReviewEquals(review, restored);
+        LazyText content = restored.getLazyContent();
+        assertFalse(content.isDecoded());
+        assertFalse(content.isEscaped());
+        assertArrayEquals(encoded, content.getEncoded());
+        assertEquals("Two great hours \ud83c\udfac", content.toString());
+        assertFalse(review.getLazyContent().isDecoded());
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import cz.jtek.popularmovies.data.MovieContract.MovieEntry;
+
+import static org.junit.Assert.*;
+
+/**
+ * Measures latency of favorite list reads while another thread keeps writing, with
+ * write-ahead logging and with rollback journal. Scratch databases are used, stored
+ * favorites are not touched. Percentiles are written to logcat, e.g.
+ * adb logcat -s MovieDbReadLatencyBenchmark
+ */
+@RunWith(AndroidJUnit4.class)
+public class MovieDbReadLatencyBenchmark {
+
+    private static final String TAG = MovieDbReadLatencyBenchmark.class.getSimpleName();
+
+    private static final String DB_NAME_WAL = "benchmark_wal.db";
+    private static final String DB_NAME_ROLLBACK = "benchmark_rollback.db";
+
+    private static final int STORED_MOVIES = 500;
+    private static final int WARMUP_READS = 50;
+    private static final int MEASURED_READS = 500;
+    // Rows written by one writer transaction
+    private static final int WRITE_BATCH_SIZE = 20;
+
+    @Test
+    public void writeAheadLogging() throws Exception {
+        measure(DB_NAME_WAL, true);
+    }
+
+    @Test
+    public void rollbackJournal() throws Exception {
+        measure(DB_NAME_ROLLBACK, false);
+    }
+
+    private void measure(String dbName, boolean writeAheadLogging) throws Exception {
+        Context context = InstrumentationRegistry.getTargetContext();
+        context.deleteDatabase(dbName);
+        MovieDbHelper helper = new MovieDbHelper(context, dbName, writeAheadLogging);
+
+        try {
+            final SQLiteDatabase db = helper.getWritableDatabase();
+            insertMovies(db, 0, STORED_MOVIES);
+
+            String mode = writeAheadLogging ? "WAL" : "rollback";
+            report(mode + ", idle", readLatencies(db));
+
+            // Writer keeps updating stored movies in small transactions
+            final AtomicBoolean writing = new AtomicBoolean(true);
+            final AtomicInteger writeCount = new AtomicInteger();
+            Thread writer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    int offset = 0;
+                    while (writing.get()) {
+                        insertMovies(db, offset, WRITE_BATCH_SIZE);
+                        offset = (offset + WRITE_BATCH_SIZE) % STORED_MOVIES;
+                        writeCount.incrementAndGet();
+                    }
+                }
+            }, TAG + "-writer");
+
+            writer.start();
+            long[] latencies;
+            try {
+                latencies = readLatencies(db);
+            } finally {
+                writing.set(false);
+                writer.join();
+            }
+
+            report(mode + ", " + writeCount.get() + " concurrent write transactions", latencies);
+        } finally {
+            helper.close();
+            context.deleteDatabase(dbName);
+        }
+    }
+
+    /**
+     * Reads favorite list the way favorites loader does, cursor window is filled
+     *
+     * @return Read latencies in microseconds, sorted
+     */
+    private static long[] readLatencies(SQLiteDatabase db) {
+        long[] latencies = new long[MEASURED_READS];
+
+        for (int i = -WARMUP_READS; i < MEASURED_READS; i++) {
+            long startNs = System.nanoTime();
+            Cursor cursor = db.query(MovieEntry.TABLE_NAME, null,
+                    MovieEntry.COL_FAVORITE + " = ?", new String[] { "1" },
+                    null, null, null);
+            try {
+                assertEquals(STORED_MOVIES, cursor.getCount());
+            } finally {
+                cursor.close();
+            }
+            if (i >= 0) {
+                latencies[i] = (System.nanoTime() - startNs) / 1000;
+            }
+        }
+
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private static void insertMovies(SQLiteDatabase db, int firstId, int count) {
+        SQLiteStatement statement = db.compileStatement("INSERT INTO " + MovieEntry.TABLE_NAME
+                + " (" + MovieEntry.COL_MOVIE_ID + "," + MovieEntry.COL_TITLE + ","
+                + MovieEntry.COL_OVERVIEW + "," + MovieEntry.COL_POSTER_PATH + ","
+                + MovieEntry.COL_RELEASE_DATE + "," + MovieEntry.COL_VOTE_AVERAGE + ","
+                + MovieEntry.COL_FAVORITE + ") VALUES (?,?,?,?,?,?,1)");
+
+        db.beginTransaction();
+        try {
+            for (int id = firstId; id < firstId + count; id++) {
+                statement.bindLong(1, id);
+                statement.bindString(2, "Benchmark movie " + id);
+                statement.bindString(3, "Overview of benchmark movie " + id);
+                statement.bindString(4, "/benchmark" + id + ".jpg");
+                statement.bindString(5, "2018-01-01");
+                statement.bindDouble(6, 5.0 + (id % 50) / 10.0);
+                statement.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            statement.close();
+        }
+    }
+
+    private static void report(String label, long[] sortedLatencies) {
+        Log.i(TAG, String.format(Locale.US, "%s: p50 %d us, p90 %d us, p99 %d us, max %d us",
+                label,
+                percentile(sortedLatencies, 50),
+                percentile(sortedLatencies, 90),
+                percentile(sortedLatencies, 99),
+                sortedLatencies[sortedLatencies.length - 1]));
+    }
+
+    private static long percentile(long[] sortedValues, int percent) {
+        int index = (int) Math.ceil(sortedValues.length * percent / 100.0) - 1;
+        return sortedValues[Math.max(index, 0)];
+    }
+}
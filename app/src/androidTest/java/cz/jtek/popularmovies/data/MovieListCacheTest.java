@@ -0,0 +1,236 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.data;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.Cursor;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import cz.jtek.popularmovies.TmdbData;
+import cz.jtek.popularmovies.data.MovieContract.ListEntry;
+import cz.jtek.popularmovies.data.MovieContract.ListPage;
+
+import static org.junit.Assert.*;
+
+/**
+ * Writes pages of a test list through MovieProvider and checks stored rows. Rows of
+ * the test list are removed before and after each test, cached real lists are not touched.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MovieListCacheTest {
+
+    private static final String LIST = "test_list";
+
+    private static final String[] ENTRY_PROJECTION = {
+            ListEntry._ID,
+            ListEntry.COL_RANK,
+            ListEntry.COL_MOVIE_ID,
+            ListEntry.COL_TITLE,
+            ListEntry.COL_OVERVIEW,
+            ListEntry.COL_POSTER_PATH,
+            ListEntry.COL_RELEASE_DATE,
+            ListEntry.COL_VOTE_AVERAGE
+    };
+
+    private Context mContext;
+
+    /**
+     * Stored list entry
+     */
+    private static final class Row {
+        final long mId;
+        final int mRank;
+        final int mMovieId;
+        final String mTitle;
+        final String mOverview;
+        final String mPosterPath;
+        final String mReleaseDate;
+        final double mVoteAverage;
+
+        Row(Cursor cursor) {
+            mId = cursor.getLong(0);
+            mRank = cursor.getInt(1);
+            mMovieId = cursor.getInt(2);
+            mTitle = cursor.getString(3);
+            mOverview = cursor.getString(4);
+            mPosterPath = cursor.getString(5);
+            mReleaseDate = cursor.getString(6);
+            mVoteAverage = cursor.getDouble(7);
+        }
+
+        void assertMovie(int rank, TmdbData.Movie movie) {
+            assertEquals(rank, mRank);
+            assertEquals(movie.getId(), mMovieId);
+            assertEquals(movie.getTitle(), mTitle);
+            assertEquals(movie.getOverview(), mOverview);
+            assertEquals(movie.getPosterPath(), mPosterPath);
+            assertEquals(movie.getReleaseDate(), mReleaseDate);
+            assertEquals(movie.getVoteAverage(), mVoteAverage, 0);
+        }
+    }
+
+    private static TmdbData.Movie movie(int id, String title, double voteAverage) {
+        return new TmdbData.Movie(id, title, "https://image.tmdb.org/t/p/w185/" + id + ".jpg",
+                "Overview of " + title, "2018-04-0" + (id % 9 + 1), voteAverage);
+    }
+
+    @Before
+    public void setUp() {
+        mContext = InstrumentationRegistry.getTargetContext();
+        deleteTestList();
+    }
+
+    @After
+    public void tearDown() {
+        deleteTestList();
+    }
+
+    private void deleteTestList() {
+        ContentResolver resolver = mContext.getContentResolver();
+        resolver.delete(ListEntry.CONTENT_URI, ListEntry.COL_LIST + " = ?", new String[] { LIST });
+        resolver.delete(ListPage.CONTENT_URI, ListPage.COL_LIST + " = ?", new String[] { LIST });
+    }
+
+    private List<Row> readRows(int page) {
+        Cursor cursor = mContext.getContentResolver().query(ListEntry.CONTENT_URI,
+                ENTRY_PROJECTION,
+                ListEntry.COL_LIST + " = ? AND " + ListEntry.COL_PAGE + " = ?",
+                new String[] { LIST, String.valueOf(page) },
+                ListEntry.COL_RANK);
+        assertNotNull(cursor);
+        List<Row> rows = new ArrayList<>();
+        try {
+            while (cursor.moveToNext()) {
+                rows.add(new Row(cursor));
+            }
+        } finally {
+            cursor.close();
+        }
+        return rows;
+    }
+
+    private long readFetchedAt(int page) {
+        Cursor cursor = mContext.getContentResolver().query(ListPage.CONTENT_URI,
+                new String[] { ListPage.COL_FETCHED_AT },
+                ListPage.COL_LIST + " = ? AND " + ListPage.COL_PAGE + " = ?",
+                new String[] { LIST, String.valueOf(page) },
+                null);
+        assertNotNull(cursor);
+        try {
+            // Exactly one page row, it is replaced on every store
+            assertEquals(1, cursor.getCount());
+            cursor.moveToFirst();
+            return cursor.getLong(0);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static void assertRows(List<TmdbData.Movie> movies, List<Row> rows) {
+        assertEquals(movies.size(), rows.size());
+        for (int rank = 0; rank < movies.size(); rank++) {
+            rows.get(rank).assertMovie(rank, movies.get(rank));
+        }
+    }
+
+    @Test
+    public void storePageWritesOnlyChanges() throws Exception {
+        List<TmdbData.Movie> original = Arrays.asList(
+                movie(1, "Alpha", 7.1),
+                movie(2, "Beta", 6.4),
+                movie(3, "Gamma", 8.0));
+        List<TmdbData.Movie> otherPage = Arrays.asList(movie(21, "Other", 5.0));
+
+        // Empty cache, every entry is inserted
+        assertEquals(3, MovieListCache.storePage(mContext, LIST, 1, original, 1000));
+        assertEquals(1, MovieListCache.storePage(mContext, LIST, 2, otherPage, 1000));
+        List<Row> stored = readRows(1);
+        assertRows(original, stored);
+        assertEquals(1000, readFetchedAt(1));
+
+        // Same page again, nothing is written but the fetch time
+        assertEquals(0, MovieListCache.storePage(mContext, LIST, 1, original, 2000));
+        assertRows(original, readRows(1));
+        assertEquals(2000, readFetchedAt(1));
+
+        // Changed title and vote average of rank 1, different movie at rank 2, new rank 3
+        List<TmdbData.Movie> changed = Arrays.asList(
+                movie(1, "Alpha", 7.1),
+                movie(2, "Beta Reloaded", 6.5),
+                movie(4, "Delta", 7.7),
+                movie(5, "Epsilon", 5.9));
+        assertEquals(3, MovieListCache.storePage(mContext, LIST, 1, changed, 3000));
+        List<Row> updated = readRows(1);
+        assertRows(changed, updated);
+        assertEquals(3000, readFetchedAt(1));
+        // Changed entries are updated in place, not replaced
+        for (int rank = 0; rank < stored.size(); rank++) {
+            assertEquals(stored.get(rank).mId, updated.get(rank).mId);
+        }
+
+        // Shorter page, entries past its end are deleted
+        List<TmdbData.Movie> shorter = changed.subList(0, 2);
+        assertEquals(2, MovieListCache.storePage(mContext, LIST, 1, shorter, 4000));
+        assertRows(shorter, readRows(1));
+        assertEquals(4000, readFetchedAt(1));
+
+        // Other pages of the list are not touched
+        assertRows(otherPage, readRows(2));
+        assertEquals(1000, readFetchedAt(2));
+    }
+
+    @Test
+    public void storeEmptyPageDeletesEntries() throws Exception {
+        List<TmdbData.Movie> original = Arrays.asList(movie(1, "Alpha", 7.1), movie(2, "Beta", 6.4));
+        MovieListCache.storePage(mContext, LIST, 1, original, 1000);
+
+        List<TmdbData.Movie> empty = new ArrayList<>();
+        assertEquals(2, MovieListCache.storePage(mContext, LIST, 1, empty, 2000));
+        assertTrue(readRows(1).isEmpty());
+        assertEquals(2000, readFetchedAt(1));
+    }
+
+    @Test
+    public void storedPagesAreLoaded() throws Exception {
+        List<TmdbData.Movie> movies = Arrays.asList(movie(1, "Alpha", 7.1), movie(2, "Beta", 6.4));
+        long now = System.currentTimeMillis();
+        MovieListCache.storePage(mContext, LIST, 1, movies, now);
+
+        List<TmdbData.Movie> loaded = MovieListCache.loadPages(mContext, LIST).get(1);
+        assertNotNull(loaded);
+        assertEquals(2, loaded.size());
+        for (int i = 0; i < movies.size(); i++) {
+            assertEquals(movies.get(i).getId(), loaded.get(i).getId());
+            assertEquals(movies.get(i).getPosterPath(), loaded.get(i).getPosterPath());
+        }
+
+        // Pages fetched too long ago are not loaded
+        MovieListCache.storePage(mContext, LIST, 1, movies, 1000);
+        assertEquals(0, MovieListCache.loadPages(mContext, LIST).size());
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.data;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Locale;
+
+import cz.jtek.popularmovies.data.MovieContract.MovieEntry;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares insert throughput of MovieProvider: single row inserts, bulkInsert and applyBatch.
+ * Provider instance of the benchmark works on a scratch database, stored favorites are not
+ * touched. Rows per second are written to logcat, e.g.
+ * adb logcat -s MovieProviderInsertBenchmark
+ */
+@RunWith(AndroidJUnit4.class)
+public class MovieProviderInsertBenchmark {
+
+    private static final String TAG = MovieProviderInsertBenchmark.class.getSimpleName();
+
+    // One cached result page and a large favorites import
+    private static final int[] ROW_COUNTS = { 20, 500 };
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int MEASURED_ROUNDS = 5;
+
+    private static final String DB_NAME = "benchmark_insert.db";
+
+    private Context mContext;
+    private MovieDbHelper mHelper;
+    private MovieProvider mProvider;
+
+    private interface InsertPath {
+        void insert(ContentValues[] rows) throws Exception;
+    }
+
+    @Before
+    public void setUp() {
+        mContext = InstrumentationRegistry.getTargetContext();
+        mContext.deleteDatabase(DB_NAME);
+        mHelper = new MovieDbHelper(mContext, DB_NAME, true);
+        mProvider = new MovieProvider(mHelper);
+        mProvider.attachInfo(mContext, null);
+    }
+
+    @After
+    public void tearDown() {
+        mHelper.close();
+        mContext.deleteDatabase(DB_NAME);
+    }
+
+    @Test
+    public void singleInsert() throws Exception {
+        measure("insert", new InsertPath() {
+            @Override
+            public void insert(ContentValues[] rows) {
+                for (ContentValues row : rows) {
+                    mProvider.insert(MovieEntry.CONTENT_URI, row);
+                }
+            }
+        });
+    }
+
+    @Test
+    public void bulkInsert() throws Exception {
+        measure("bulkInsert", new InsertPath() {
+            @Override
+            public void insert(ContentValues[] rows) {
+                mProvider.bulkInsert(MovieEntry.CONTENT_URI, rows);
+            }
+        });
+    }
+
+    @Test
+    public void applyBatch() throws Exception {
+        measure("applyBatch", new InsertPath() {
+            @Override
+            public void insert(ContentValues[] rows) throws Exception {
+                ArrayList<ContentProviderOperation> operations = new ArrayList<>(rows.length);
+                for (ContentValues row : rows) {
+                    operations.add(ContentProviderOperation.newInsert(MovieEntry.CONTENT_URI)
+                            .withValues(row)
+                            .build());
+                }
+                mProvider.applyBatch(operations);
+            }
+        });
+    }
+
+    private void measure(String pathName, InsertPath path) throws Exception {
+        for (int rowCount : ROW_COUNTS) {
+            ContentValues[] rows = createRows(rowCount);
+
+            for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                path.insert(rows);
+                deleteBenchmarkRows();
+            }
+
+            long totalMs = 0;
+            for (int i = 0; i < MEASURED_ROUNDS; i++) {
+                long startMs = SystemClock.elapsedRealtime();
+                path.insert(rows);
+                totalMs += SystemClock.elapsedRealtime() - startMs;
+
+                assertEquals(rowCount, countBenchmarkRows());
+                deleteBenchmarkRows();
+            }
+
+            double rowsPerSecond = (double) rowCount * MEASURED_ROUNDS * 1000 / Math.max(totalMs, 1);
+            Log.i(TAG, String.format(Locale.US, "%s, %d rows: %.0f rows/s (%.1f ms per call)",
+                    pathName, rowCount, rowsPerSecond, (double) totalMs / MEASURED_ROUNDS));
+        }
+    }
+
+    private static ContentValues[] createRows(int rowCount) {
+        ContentValues[] rows = new ContentValues[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            ContentValues values = new ContentValues();
+            values.put(MovieEntry.COL_MOVIE_ID, i);
+            values.put(MovieEntry.COL_TITLE, "Benchmark movie " + i);
+            values.put(MovieEntry.COL_OVERVIEW, "Overview of benchmark movie " + i);
+            values.put(MovieEntry.COL_POSTER_PATH, "/benchmark" + i + ".jpg");
+            values.put(MovieEntry.COL_RELEASE_DATE, "2018-01-01");
+            values.put(MovieEntry.COL_VOTE_AVERAGE, 5.0 + (i % 50) / 10.0);
+            values.put(MovieEntry.COL_FAVORITE, 1);
+            rows[i] = values;
+        }
+        return rows;
+    }
+
+    private int countBenchmarkRows() {
+        Cursor cursor = mProvider.query(MovieEntry.CONTENT_URI,
+                new String[] { MovieEntry.COL_MOVIE_ID }, null, null, null);
+        assertNotNull(cursor);
+        try {
+            return cursor.getCount();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private void deleteBenchmarkRows() {
+        mProvider.delete(MovieEntry.CONTENT_URI, null, null);
+    }
+}
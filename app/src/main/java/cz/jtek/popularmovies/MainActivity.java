@@ -33,7 +33,9 @@ import android.os.Bundle;
 import android.support.v7.preference.PreferenceManager;
 import android.support.v7.widget.GridLayoutManager;
 import android.support.v7.widget.RecyclerView;
+import android.text.TextUtils;
 import android.util.Log;
+import android.util.SparseArray;
 import android.view.Menu;
 import android.view.MenuInflater;
 import android.view.MenuItem;
@@ -44,18 +46,24 @@ import android.widget.TextView;
 import java.io.IOException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.HashSet;
 
 import cz.jtek.popularmovies.data.MovieContract;
 import cz.jtek.popularmovies.data.MovieContract.MovieEntry;
+import cz.jtek.popularmovies.data.MovieListCache;
+import cz.jtek.popularmovies.network.ConnectivityMonitor;
+import cz.jtek.popularmovies.network.TmdbClient;
 import cz.jtek.popularmovies.utilities.NetworkUtils;
 import cz.jtek.popularmovies.utilities.NetworkUtils.AsyncTaskResult;
+import cz.jtek.popularmovies.utilities.NetworkUtils.LoadingThread;
 import cz.jtek.popularmovies.utilities.TmdbJsonUtils;
 import cz.jtek.popularmovies.utilities.UIUtils;
 
 public class MainActivity
         extends AppCompatActivity
         implements MovieGridAdapter.MovieGridOnClickHandler,
-        SharedPreferences.OnSharedPreferenceChangeListener {
+        SharedPreferences.OnSharedPreferenceChangeListener,
+        ConnectivityMonitor.Listener {
 
     private static final String TAG = MainActivity.class.getSimpleName();
 
@@ -86,12 +94,35 @@ public class MainActivity
 
     // AsyncLoader
     private static final int LOADER_ID_CONFIG     = 0;
-    private static final int LOADER_ID_MOVIE_LIST = 1;
     private static final int LOADER_ID_CURSOR     = 2;
+    private static final int LOADER_ID_CACHED_LIST = 3;
+    // Movie list page loaders use consecutive ids starting with this one
+    private static final int LOADER_ID_MOVIE_LIST = 10;
     private static final String LOADER_BUNDLE_KEY_PAGE = "page";
     private static final String LOADER_BUNDLE_KEY_SORT_ORDER = "sort-order";
     private int mApiResultsPageToLoad = 1;
 
+    // Result pages needed to fill the first screen are loaded concurrently
+    private static final int MAX_PREFETCH_PAGES = 5;
+    private int mPrefetchPageCount = 1;
+    // Loaded pages waiting for previous pages to arrive, by page number
+    private final SparseArray<ArrayList<TmdbData.Movie>> mPendingPages = new SparseArray<>();
+    // Pages loaded from network and merged in page order, by page number
+    private final SparseArray<ArrayList<TmdbData.Movie>> mMergedPages = new SparseArray<>();
+    private final HashSet<Integer> mMergedMovieIds = new HashSet<>();
+    private int mNextPageToMerge;
+    private int mLastPageToMerge;
+
+    // Pages of the same list persisted by previous runs, shown until network pages replace them
+    private SparseArray<ArrayList<TmdbData.Movie>> mCachedPages = new SparseArray<>();
+    // Sort order of the list being loaded, null when favorites are shown
+    private String mListSortOrder;
+    private boolean mCachedListLoaded = false;
+    private boolean mListShown = false;
+
+    // Network loading waits for connectivity
+    private boolean mWaitingForNetwork = false;
+
     // Instance State bundle keys
     private static final String KEY_CONFIG = "config";
     private static final String KEY_MOVIE_LIST = "movie-list";
@@ -132,6 +163,16 @@ public class MainActivity
             optimalHeight = (int) ((double) TmdbData.Config.getPosterHeight() * resizeFactor);
         }
 
+        // Number of result pages needed to fill the first screen, partially visible row included
+        int displayHeight = UIUtils.getDisplayHeight(this);
+        if (displayHeight > 0 && optimalHeight > 0) {
+            int visibleRows = (displayHeight + optimalHeight - 1) / optimalHeight;
+            int visiblePosters = visibleRows * gridColumns;
+            mPrefetchPageCount = (visiblePosters + TmdbClient.MOVIE_LIST_PAGE_SIZE - 1)
+                    / TmdbClient.MOVIE_LIST_PAGE_SIZE;
+            mPrefetchPageCount = Math.max(1, Math.min(mPrefetchPageCount, MAX_PREFETCH_PAGES));
+        }
+
         // Shared Preferences and preference change listener
         SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(this);
         sp.registerOnSharedPreferenceChangeListener(this);
@@ -159,11 +200,15 @@ public class MainActivity
             }
 
             // Retrieving Config and movie list from saved instance state
-            mTmdbConfig = savedInstanceState.getParcelable(KEY_CONFIG);
-            mTmdbMovieList = savedInstanceState.getParcelableArrayList(KEY_MOVIE_LIST);
+            mTmdbConfig = TmdbData_ConfigParcel.unwrap(
+                    savedInstanceState.<TmdbData_ConfigParcel>getParcelable(KEY_CONFIG));
+            mTmdbMovieList = TmdbData_MovieParcel.unwrapList(
+                    savedInstanceState.<TmdbData_MovieParcel>getParcelableArrayList(KEY_MOVIE_LIST));
 
             mMovieGridAdapter.setMovieData(mTmdbMovieList);
             showMovieDataView();
+            mCachedListLoaded = true;
+            mListShown = true;
         }
         else {
             // Using loaders to obtain config and movie list
@@ -173,15 +218,8 @@ public class MainActivity
             }
             else if (mPrefSortOrder.equals(getResources().getString(R.string.pref_sort_order_most_popular)) ||
                         mPrefSortOrder.equals(getResources().getString(R.string.pref_sort_order_top_rated))) {
-                // Check for network availability
-                if (!NetworkUtils.isNetworkAvailable(this)) {
-                    // Network is not available
-                    showErrorMessage(getResources().getString(R.string.error_msg_no_network));
-                }
-                else {
-                    // Initialize config loader (which in turn runs movie list loader)
-                    getSupportLoaderManager().initLoader(LOADER_ID_CONFIG, null, configLoaderListener);
-                }
+                startCachedListLoader(mPrefSortOrder);
+                startNetworkLoaders();
             }
         }
     }
@@ -210,6 +248,7 @@ public class MainActivity
 
             // Restart loading results from page 1
             mApiResultsPageToLoad = 1;
+            mWaitingForNetwork = false;
 
             // Shared Preferences and preference change listener
             SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(this);
@@ -224,17 +263,85 @@ public class MainActivity
             }
             else if (prefSortOrder.equals(getResources().getString(R.string.pref_sort_order_most_popular)) ||
                     prefSortOrder.equals(getResources().getString(R.string.pref_sort_order_top_rated))) {
-                // Check for network availability
-                if (!NetworkUtils.isNetworkAvailable(this)) {
-                    // Network is not available
-                    showErrorMessage(getResources().getString(R.string.error_msg_no_network));
-                }
-                else {
-                    // Initialize config loader (which in turn runs movie list loader)
-                    getSupportLoaderManager().initLoader(LOADER_ID_CONFIG, null, configLoaderListener);
-                }
+                startCachedListLoader(prefSortOrder);
+                startNetworkLoaders();
             }
         }
+
+        // Listen for connectivity changes to resume pending loading
+        ConnectivityMonitor monitor = ConnectivityMonitor.getInstance();
+        if (monitor != null) {
+            monitor.addListener(this);
+        }
+
+        if (mWaitingForNetwork && NetworkUtils.isNetworkAvailable(this)) {
+            // Connectivity returned while this activity was stopped
+            startNetworkLoaders();
+        }
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+
+        ConnectivityMonitor monitor = ConnectivityMonitor.getInstance();
+        if (monitor != null) {
+            monitor.removeListener(this);
+        }
+    }
+
+    /**
+     * Starts loading cached pages of movie list from database. Cached movies are shown
+     * right away and replaced page by page as the list is revalidated from network.
+     *
+     * @param sortOrder Results sort order, popular or top rated
+     */
+    private void startCachedListLoader(String sortOrder) {
+        mListSortOrder = sortOrder;
+        mCachedListLoaded = false;
+        mListShown = false;
+        mCachedPages = new SparseArray<>();
+        mMergedPages.clear();
+        mPendingPages.clear();
+        mNextPageToMerge = mApiResultsPageToLoad;
+        mLastPageToMerge = mApiResultsPageToLoad - 1;
+
+        Bundle loaderArgsBundle = new Bundle();
+        loaderArgsBundle.putString(LOADER_BUNDLE_KEY_SORT_ORDER, sortOrder);
+        getSupportLoaderManager().restartLoader(LOADER_ID_CACHED_LIST, loaderArgsBundle,
+                cachedListLoaderListener);
+    }
+
+    /**
+     * Starts loading config and movie list from network. If network is not available,
+     * loading is started automatically as soon as connectivity returns.
+     */
+    private void startNetworkLoaders() {
+        // Check for network availability
+        if (!NetworkUtils.isNetworkAvailable(this)) {
+            // Network is not available, cached movies stay shown if there are any
+            if (mCachedListLoaded && !mListShown) {
+                showErrorMessage(getResources().getString(R.string.error_msg_no_network));
+            }
+            mWaitingForNetwork = true;
+        }
+        else {
+            mWaitingForNetwork = false;
+            // Initialize config loader (which in turn runs movie list loader)
+            getSupportLoaderManager().initLoader(LOADER_ID_CONFIG, null, configLoaderListener);
+        }
+    }
+
+    /**
+     * Connectivity change listener. Resumes loading which was waiting for network.
+     *
+     * @param state Current connectivity state
+     */
+    @Override
+    public void onConnectivityChanged(@NonNull ConnectivityMonitor.State state) {
+        if (state.isConnected() && mWaitingForNetwork) {
+            startNetworkLoaders();
+        }
     }
 
     @Override
@@ -250,10 +357,10 @@ public class MainActivity
     @Override
     protected void onSaveInstanceState(Bundle outState) {
         // Store Config
-        outState.putParcelable(KEY_CONFIG, mTmdbConfig);
+        outState.putParcelable(KEY_CONFIG, TmdbData_ConfigParcel.wrap(mTmdbConfig));
 
         // Store movie list
-        outState.putParcelableArrayList(KEY_MOVIE_LIST, mTmdbMovieList);
+        outState.putParcelableArrayList(KEY_MOVIE_LIST, TmdbData_MovieParcel.wrapList(mTmdbMovieList));
 
         // Store recycler view state
         mLayoutManagerSaveState = mLayoutManager.onSaveInstanceState();
@@ -317,7 +424,7 @@ public class MainActivity
     @Override
     public void onClick(int itemId) {
         Intent intent = new Intent(this, MovieDetailActivity.class);
-        intent.putExtra(EXTRA_MOVIE, mTmdbMovieList.get(itemId));
+        intent.putExtra(EXTRA_MOVIE, TmdbData_MovieParcel.wrap(mTmdbMovieList.get(itemId)));
         startActivity(intent);
     }
 
@@ -346,6 +453,91 @@ public class MainActivity
         }
     }
 
+    /**
+     * Starts loaders of all prefetched result pages at once, pages are loaded concurrently.
+     * Any loaders still running for previous sort order are replaced.
+     *
+     * @param sortOrder Results sort order
+     */
+    private void startMovieListLoaders(String sortOrder) {
+        mPendingPages.clear();
+        mNextPageToMerge = mApiResultsPageToLoad;
+        mLastPageToMerge = mApiResultsPageToLoad + mPrefetchPageCount - 1;
+
+        for (int i = 0; i < mPrefetchPageCount; i++) {
+            Bundle loaderArgsBundle = new Bundle();
+            // Store results page into loader args bundle
+            loaderArgsBundle.putInt(LOADER_BUNDLE_KEY_PAGE, mApiResultsPageToLoad + i);
+            // Store results sort order into loader args bundle
+            loaderArgsBundle.putString(LOADER_BUNDLE_KEY_SORT_ORDER, sortOrder);
+
+            getSupportLoaderManager().restartLoader(LOADER_ID_MOVIE_LIST + i, loaderArgsBundle,
+                    movieListLoaderListener);
+        }
+    }
+
+    /**
+     * Merges loaded pages into displayed movie list in page order. A page which arrives before
+     * its previous pages waits until they are merged.
+     */
+    private void mergePendingPages() {
+        boolean merged = false;
+        while (mNextPageToMerge <= mLastPageToMerge) {
+            ArrayList<TmdbData.Movie> movies = mPendingPages.get(mNextPageToMerge);
+            if (movies == null) {
+                // Waiting for this page
+                break;
+            }
+            mPendingPages.remove(mNextPageToMerge);
+            mMergedPages.put(mNextPageToMerge, movies);
+            mNextPageToMerge++;
+            merged = true;
+        }
+
+        if (merged) {
+            mLoadingIndicator.setVisibility(View.INVISIBLE);
+            showMergedMovies();
+        }
+    }
+
+    /**
+     * Shows merged network pages followed by cached pages not loaded from network yet.
+     * Only movies which changed against displayed list are refreshed in the grid.
+     */
+    private void showMergedMovies() {
+        int lastCachedPage = mCachedPages.size() > 0 ? mCachedPages.keyAt(mCachedPages.size() - 1) : 0;
+        int lastMergedPage = mMergedPages.size() > 0 ? mMergedPages.keyAt(mMergedPages.size() - 1) : 0;
+        int lastPage = Math.max(lastCachedPage, lastMergedPage);
+
+        ArrayList<TmdbData.Movie> movieList =
+                new ArrayList<>(lastPage * TmdbClient.MOVIE_LIST_PAGE_SIZE);
+        mMergedMovieIds.clear();
+        for (int page = mApiResultsPageToLoad; page <= lastPage; page++) {
+            ArrayList<TmdbData.Movie> movies = mMergedPages.get(page);
+            if (movies == null) {
+                movies = mCachedPages.get(page);
+            }
+            if (movies == null) {
+                continue;
+            }
+            for (TmdbData.Movie movie : movies) {
+                // Movie may move to next page while pages are loading, only first one is shown
+                if (mMergedMovieIds.add(movie.getId())) {
+                    movieList.add(movie);
+                }
+            }
+        }
+
+        if (movieList.isEmpty()) {
+            return;
+        }
+
+        mTmdbMovieList = movieList;
+        mMovieGridAdapter.updateMovieData(mTmdbMovieList);
+        showMovieDataView();
+        mListShown = true;
+    }
+
     /**
      * Loader callbacks for config loader
      */
@@ -365,6 +557,11 @@ public class MainActivity
 
                     if (data.hasException()) {
                         mLoadingIndicator.setVisibility(View.INVISIBLE);
+                        if (mListShown) {
+                            // Cached movies stay shown, list is revalidated next time
+                            Log.w(TAG, "Config loading failed, showing cached movies.");
+                            return;
+                        }
                         // There was an error during data loading
                         Exception ex = data.getException();
                         if (ex instanceof TmdbData.TmdbStatusException) {
@@ -377,17 +574,11 @@ public class MainActivity
                         // Valid results received
                         mTmdbConfig = data.getResult();
 
-                        // Initialize movie list loader
-                        SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(mContext);
-                        Bundle loaderArgsBundle = new Bundle();
-                        // Store results page into loader args bundle
-                        loaderArgsBundle.putInt(LOADER_BUNDLE_KEY_PAGE, mApiResultsPageToLoad);
-                        // Store results sort order into loader args bundle
-                        String defaultSortOrder = getResources().getString(R.string.pref_sort_order_most_popular);
-                        String prefSortOrder = sp.getString(PREF_KEY_SORT_ORDER, defaultSortOrder);
-                        loaderArgsBundle.putString(LOADER_BUNDLE_KEY_SORT_ORDER, prefSortOrder);
-
-                        getSupportLoaderManager().initLoader(LOADER_ID_MOVIE_LIST, loaderArgsBundle, movieListLoaderListener);
+                        // Initialize movie list loaders for the list whose cached pages are shown
+                        // Favorites might have been selected meanwhile
+                        if (mListSortOrder != null) {
+                            startMovieListLoaders(mListSortOrder);
+                        }
 
                         // Destroy this loader (otherwise is gets called twice for some reason)
                         getSupportLoaderManager().destroyLoader(LOADER_ID_CONFIG);
@@ -417,9 +608,26 @@ public class MainActivity
                 public void onLoadFinished(@NonNull Loader<AsyncTaskResult<ArrayList<TmdbData.Movie>>> loader,
                                            AsyncTaskResult<ArrayList<TmdbData.Movie>> data) {
 
-                    mLoadingIndicator.setVisibility(View.INVISIBLE);
+                    int page = ((TmdbMovieListLoader) loader).getPage();
+                    if (page < mNextPageToMerge || page > mLastPageToMerge) {
+                        // Page is not expected any more, e.g. previous page failed
+                        return;
+                    }
 
                     if (data.hasException()) {
+                        // Pages after failed page are dropped, so that merged results stay in order
+                        mLastPageToMerge = page - 1;
+                        if (page > mApiResultsPageToLoad) {
+                            Log.w(TAG, "Prefetch of page " + page + " failed.");
+                            return;
+                        }
+
+                        mLoadingIndicator.setVisibility(View.INVISIBLE);
+                        if (mListShown) {
+                            // Cached movies stay shown, list is revalidated next time
+                            Log.w(TAG, "Loading of page " + page + " failed, showing cached movies.");
+                            return;
+                        }
                         // There was an error during data loading
                         Exception ex = data.getException();
                         if (ex instanceof TmdbData.TmdbStatusException) {
@@ -429,22 +637,28 @@ public class MainActivity
                             showErrorMessage(getResources().getString(R.string.error_msg_no_data));
                         }
                     } else {
-                        // Valid results received
                         // Patching poster path to include poster base URL
+                        // Base URL is pooled, so all movies share one instance of it
                         String posterBaseUrl = mTmdbConfig.getSecureBaseUrl() + TmdbData.Config.getPosterSize();
-
-                        mTmdbMovieList = data.getResult();
-
-                        for (TmdbData.Movie movie : mTmdbMovieList) {
-                            String posterPath = posterBaseUrl + movie.getPosterPath();
-                            movie.setPosterPath(posterPath);
+                        ArrayList<TmdbData.Movie> movies = data.getResult();
+                        ArrayList<TmdbData.Movie> patchedMovies = new ArrayList<>(movies.size());
+                        for (TmdbData.Movie movie : movies) {
+                            // Loader results may be shared with response cache, patched copies are used
+                            // Overview stays encoded until the movie is opened
+                            patchedMovies.add(movie.withPosterBaseUrl(posterBaseUrl));
                         }
 
-                        mMovieGridAdapter.setMovieData(mTmdbMovieList);
-                        showMovieDataView();
+                        // Valid results received, merged as soon as all previous pages are merged
+                        mPendingPages.put(page, patchedMovies);
+                        mergePendingPages();
+
+                        // Changes against cached page are written in background
+                        String movieList = NetworkUtils.getMovieList(mContext,
+                                ((TmdbMovieListLoader) loader).getSortOrder());
+                        MovieListCache.storePageAsync(mContext, movieList, page, patchedMovies);
 
                         // Destroy this loader (otherwise is gets called twice for some reason)
-                        getSupportLoaderManager().destroyLoader(LOADER_ID_MOVIE_LIST);
+                        getSupportLoaderManager().destroyLoader(loader.getId());
                     }
                 }
 
@@ -454,6 +668,46 @@ public class MainActivity
                 }
             };
 
+    /**
+     * Loader callbacks for cached movie list loader
+     */
+    private LoaderManager.LoaderCallbacks<SparseArray<ArrayList<TmdbData.Movie>>> cachedListLoaderListener =
+            new LoaderManager.LoaderCallbacks<SparseArray<ArrayList<TmdbData.Movie>>>() {
+
+                @NonNull
+                @Override
+                public Loader<SparseArray<ArrayList<TmdbData.Movie>>> onCreateLoader(int id, @Nullable Bundle args) {
+                    return new CachedMovieListLoader(mContext, args);
+                }
+
+                @Override
+                public void onLoadFinished(@NonNull Loader<SparseArray<ArrayList<TmdbData.Movie>>> loader,
+                                           SparseArray<ArrayList<TmdbData.Movie>> data) {
+
+                    // Destroy this loader (otherwise is gets called twice for some reason)
+                    getSupportLoaderManager().destroyLoader(LOADER_ID_CACHED_LIST);
+
+                    if (!TextUtils.equals(((CachedMovieListLoader) loader).getSortOrder(), mListSortOrder)) {
+                        // Sort order changed while cached pages were loading
+                        return;
+                    }
+
+                    mCachedListLoaded = true;
+                    mCachedPages = data;
+                    showMergedMovies();
+
+                    if (!mListShown && mWaitingForNetwork) {
+                        // Nothing cached and nothing to revalidate it with
+                        showErrorMessage(getResources().getString(R.string.error_msg_no_network));
+                    }
+                }
+
+                @Override
+                public void onLoaderReset(@NonNull Loader<SparseArray<ArrayList<TmdbData.Movie>>> loader) {
+                    // Not used
+                }
+            };
+
     /**
      * Loader callbacks for favorite list loader
      */
@@ -475,10 +729,16 @@ public class MainActivity
                 @Override
                 public void onLoadFinished(@NonNull Loader<Cursor> loader, Cursor data) {
 
+                    // Movie list pages still loading are not merged into favorites
+                    mLastPageToMerge = mNextPageToMerge - 1;
+                    // Cached list pages still loading are not shown either
+                    mListSortOrder = null;
+
                     // Copy data from cursor to array list
                     mTmdbMovieList = new ArrayList<>();
 
                     while(data.moveToNext()) {
+                        // Stored poster URL is split to pooled base URL and file path
                         TmdbData.Movie movie = new TmdbData.Movie(
                                 data.getInt(data.getColumnIndex(MovieEntry.COL_MOVIE_ID)),
                                 data.getString(data.getColumnIndex(MovieEntry.COL_TITLE)),
@@ -512,6 +772,7 @@ public class MainActivity
         final PackageManager mPackageManager;
         AsyncTaskResult<ArrayList<TmdbData.Movie>> mResult;
         final Bundle mArgs;
+        private final LoadingThread mLoadingThread = new LoadingThread();
 
         private TmdbMovieListLoader(Context context, Bundle args) {
             super(context);
@@ -519,6 +780,16 @@ public class MainActivity
             mArgs = args;
         }
 
+        /**
+         * @return API results page loaded by this loader
+         */
+        int getPage() { return mArgs.getInt(LOADER_BUNDLE_KEY_PAGE, 1); }
+
+        /**
+         * @return Results sort order loaded by this loader
+         */
+        String getSortOrder() { return mArgs.getString(LOADER_BUNDLE_KEY_SORT_ORDER); }
+
         @Override
         protected void onStartLoading() {
             if (mResult != null && (mResult.hasResult() || mResult.hasException())) {
@@ -538,6 +809,12 @@ public class MainActivity
             cancelLoad();
         }
 
+        @Override
+        public void cancelLoadInBackground() {
+            // Caller stops waiting, shared API request is cancelled once nobody waits for it
+            mLoadingThread.interrupt();
+        }
+
         /**
          * This AsyncTaskLoader method will load and parse the TMDb JSON data in the background
          *
@@ -548,34 +825,89 @@ public class MainActivity
         public AsyncTaskResult<ArrayList<TmdbData.Movie>> loadInBackground() {
 
             // Get API results page to load from bundle
-            int movieResultPage = mArgs.getInt(LOADER_BUNDLE_KEY_PAGE, 1);
+            int movieResultPage = getPage();
             // Get sort order from bundle
-            String sortOrder = mArgs.getString(LOADER_BUNDLE_KEY_SORT_ORDER);
+            String sortOrder = getSortOrder();
 
             if (sortOrder == null) {
                 throw new IllegalArgumentException("Sort order cannot be null");
             }
 
+            mLoadingThread.enter();
             try {
-                // Example mock request used for debugging to avoid sending network queries
-                // String jsonMovies = MockDataUtils.getMockJson(getContext(), "mock_popular");
+                // Offline mock API server can be enabled by USE_MOCK_API field in app/build.gradle
 
                 // Load movie result page
                 URL movieUrl = NetworkUtils.buildMovieUrl(getContext(), sortOrder, movieResultPage);
-                String jsonMovies = NetworkUtils.getResponseFromHttpUrl(movieUrl);
 
                 TmdbJsonUtils.TmdbJsonResult<ArrayList<TmdbData.Movie>> movieResult =
-                        TmdbJsonUtils.getMovieListFromJson(jsonMovies);
+                        TmdbClient.getParsedResponseFromHttpUrl(movieUrl,
+                                TmdbClient.MOVIE_LIST_PARSER);
                 mResult = new AsyncTaskResult<>(movieResult.getResult(), movieResult.getException());
             } catch (IOException iex) {
+                if (isLoadInBackgroundCanceled()) {
+                    // Result of cancelled load is not delivered, next start loads again
+                    mResult = null;
+                    return null;
+                }
                 Log.e(TAG, "IOException when fetching API data.");
                 iex.printStackTrace();
                 mResult = new AsyncTaskResult<>(null, iex);
+            } finally {
+                mLoadingThread.exit();
             }
             return mResult;
         }
     }
 
+    /**
+     * Cached movie list pages async task loader
+     */
+    public static class CachedMovieListLoader
+            extends AsyncTaskLoader<SparseArray<ArrayList<TmdbData.Movie>>> {
+
+        SparseArray<ArrayList<TmdbData.Movie>> mResult;
+        final Bundle mArgs;
+
+        private CachedMovieListLoader(Context context, Bundle args) {
+            super(context);
+            mArgs = args;
+        }
+
+        /**
+         * @return Results sort order loaded by this loader
+         */
+        String getSortOrder() { return mArgs.getString(LOADER_BUNDLE_KEY_SORT_ORDER); }
+
+        @Override
+        protected void onStartLoading() {
+            if (mResult != null) {
+                // If there are already data available, deliver them
+                deliverResult(mResult);
+            } else {
+                // Start background task
+                forceLoad();
+            }
+        }
+
+        @Override
+        protected void onStopLoading() {
+            cancelLoad();
+        }
+
+        @Override
+        public SparseArray<ArrayList<TmdbData.Movie>> loadInBackground() {
+            String sortOrder = getSortOrder();
+            if (sortOrder == null) {
+                throw new IllegalArgumentException("Sort order cannot be null");
+            }
+
+            mResult = MovieListCache.loadPages(getContext(),
+                    NetworkUtils.getMovieList(getContext(), sortOrder));
+            return mResult;
+        }
+    }
+
     /**
      * TMDb API configuration async task loader
      */
@@ -585,6 +917,7 @@ public class MainActivity
         final PackageManager mPackageManager;
         AsyncTaskResult<TmdbData.Config> mResult;
         final Bundle mArgs;
+        private final LoadingThread mLoadingThread = new LoadingThread();
 
         private TmdbConfigLoader(Context context, Bundle args) {
             super(context);
@@ -608,23 +941,36 @@ public class MainActivity
             cancelLoad();
         }
 
+        @Override
+        public void cancelLoadInBackground() {
+            // Caller stops waiting, shared API request is cancelled once nobody waits for it
+            mLoadingThread.interrupt();
+        }
+
         @Override
         public AsyncTaskResult<TmdbData.Config> loadInBackground() {
+            mLoadingThread.enter();
             try {
-                // Example mock request used for debugging to avoid sending network queries
-                // String jsonConfig = MockDataUtils.getMockJson(getContext(), "mock_configuration");
+                // Offline mock API server can be enabled by USE_MOCK_API field in app/build.gradle
 
                 // Load current API configuration
                 URL configUrl = NetworkUtils.buildConfigurationUrl();
-                String jsonConfig = NetworkUtils.getResponseFromHttpUrl(configUrl);
 
                 TmdbJsonUtils.TmdbJsonResult<TmdbData.Config> configResult =
-                        TmdbJsonUtils.getConfigFromJson(jsonConfig);
+                        TmdbClient.getParsedResponseFromHttpUrl(configUrl,
+                                TmdbClient.CONFIG_PARSER);
                 mResult = new AsyncTaskResult<>(configResult.getResult(), configResult.getException());
             } catch (IOException iex) {
+                if (isLoadInBackgroundCanceled()) {
+                    // Result of cancelled load is not delivered, next start loads again
+                    mResult = null;
+                    return null;
+                }
                 Log.e(TAG, "IOException when fetching API configuration.");
                 iex.printStackTrace();
                 mResult = new AsyncTaskResult<>(null, iex);
+            } finally {
+                mLoadingThread.exit();
             }
             return mResult;
         }
@@ -51,7 +51,8 @@ public class MovieDetailActivity extends AppCompatActivity {
                 }
 
                 if (startingIntent.hasExtra(MainActivity.EXTRA_MOVIE)) {
-                    TmdbData.Movie movie = startingIntent.getParcelableExtra(MainActivity.EXTRA_MOVIE);
+                    TmdbData.Movie movie = TmdbData_MovieParcel.unwrap(startingIntent
+                            .<TmdbData_MovieParcel>getParcelableExtra(MainActivity.EXTRA_MOVIE));
                     if (movie != null) {
                         movieId = movie.getId();
                     }
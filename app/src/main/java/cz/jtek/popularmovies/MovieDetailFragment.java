@@ -17,17 +17,15 @@
 package cz.jtek.popularmovies;
 
 import android.app.Activity;
-import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.Context;
-import android.database.Cursor;
 import android.net.Uri;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.v4.app.Fragment;
 import android.support.v4.app.LoaderManager;
-import android.support.v4.content.CursorLoader;
+import android.support.v4.content.AsyncTaskLoader;
 import android.support.v4.content.Loader;
 import android.text.SpannableString;
 import android.text.style.LeadingMarginSpan;
@@ -86,13 +84,15 @@ public class MovieDetailFragment extends Fragment {
 
         if (savedInstanceState != null) {
             // Restore movie object
-            mMovie = savedInstanceState.getParcelable(KEY_MOVIE);
+            mMovie = TmdbData_MovieParcel.unwrap(
+                    savedInstanceState.<TmdbData_MovieParcel>getParcelable(KEY_MOVIE));
         }
         else {
             // Get movie object from arguments
             Bundle args = getArguments();
             if (args != null && args.containsKey(MainActivity.EXTRA_MOVIE)) {
-                mMovie = args.getParcelable(MainActivity.EXTRA_MOVIE);
+                mMovie = TmdbData_MovieParcel.unwrap(
+                        args.<TmdbData_MovieParcel>getParcelable(MainActivity.EXTRA_MOVIE));
             }
         }
 
@@ -166,7 +166,7 @@ public class MovieDetailFragment extends Fragment {
     @Override
     public void onSaveInstanceState(@NonNull Bundle outState) {
         // Store movie
-        outState.putParcelable(KEY_MOVIE, mMovie);
+        outState.putParcelable(KEY_MOVIE, TmdbData_MovieParcel.wrap(mMovie));
         // Store favorite toggle status
         outState.putBoolean(KEY_FAVORITE, mFavoriteToggle.isChecked());
 
@@ -192,11 +192,13 @@ public class MovieDetailFragment extends Fragment {
             values.put(MovieContract.MovieEntry.COL_VOTE_AVERAGE, movie.getVoteAverage());
             values.put(MovieContract.MovieEntry.COL_FAVORITE, 1);
 
-            mContext.getContentResolver().insert(MovieContract.MovieEntry.CONTENT_URI, values);
+            // Upsert keeps already stored movie row, only changed columns are written
+            mContext.getContentResolver().update(
+                    MovieContract.MovieEntry.buildMovieUpsertUri(movie.getId()), values, null, null);
         }
         else {
             // Currently there's no need for non favorite movies to be stored
-            Uri currentMovieUri = ContentUris.withAppendedId(MovieContract.MovieEntry.CONTENT_URI, movie.getId());
+            Uri currentMovieUri = MovieContract.MovieEntry.buildMovieUri(movie.getId());
             int rowsDeleted = mContext.getContentResolver().delete(currentMovieUri, null, null);
             if (rowsDeleted == 0) {
                 Log.e(TAG, "processFavoriteMovie: Error deleting movie id " + movie.getId() );
@@ -207,53 +209,77 @@ public class MovieDetailFragment extends Fragment {
     /**
      * Loader callbacks for favorite item loader
      */
-    private LoaderManager.LoaderCallbacks<Cursor> favoriteItemLoaderListener =
-            new LoaderManager.LoaderCallbacks<Cursor>() {
+    private LoaderManager.LoaderCallbacks<Boolean> favoriteItemLoaderListener =
+            new LoaderManager.LoaderCallbacks<Boolean>() {
 
                 @NonNull
                 @Override
-                public Loader<Cursor> onCreateLoader(int id, @Nullable Bundle args) {
+                public Loader<Boolean> onCreateLoader(int id, @Nullable Bundle args) {
                     if (args == null) {
                         throw new NullPointerException("Argument bundle cannot be null");
                     }
 
-                    int movieId = args.getInt(LOADER_BUNDLE_MOVIE_ID, 0);
-
-                    String[] projection = {
-                            MovieContract.MovieEntry._ID,
-                            MovieContract.MovieEntry.COL_MOVIE_ID
-                    };
-                    String selection = MovieContract.MovieEntry.COL_MOVIE_ID + " = ?";
-                    selection += " AND " + MovieContract.MovieEntry.COL_FAVORITE + " = ?";
-                    String[] selectionArgs = new String[]{ String.valueOf(movieId), "1"};
-
-                    return new CursorLoader(mContext,
-                            MovieContract.MovieEntry.CONTENT_URI,
-                            projection,
-                            selection,
-                            selectionArgs,
-                            null
-                    );
+                    return new FavoriteStatusLoader(mContext, args.getInt(LOADER_BUNDLE_MOVIE_ID, 0));
                 }
 
                 @Override
-                public void onLoadFinished(@NonNull Loader<Cursor> loader, Cursor data) {
-                    if (data.getCount() > 0) {
-                        // Non zero rows on favorite query cursor = this movie is favorite
-                        mFavoriteToggle.setChecked(true);
-                    }
-                    else {
-                        mFavoriteToggle.setChecked(false);
-                    }
+                public void onLoadFinished(@NonNull Loader<Boolean> loader, Boolean isFavorite) {
+                    mFavoriteToggle.setChecked(isFavorite != null && isFavorite);
 
                     // Destroy this loader (otherwise is gets called twice for some reason)
                     getLoaderManager().destroyLoader(LOADER_ID_FAVORITE_ITEM);
                 }
 
                 @Override
-                public void onLoaderReset(@NonNull Loader<Cursor> loader) {
+                public void onLoaderReset(@NonNull Loader<Boolean> loader) {
                     // Not implemented
                 }
             };
 
+    /**
+     * Favorite status async task loader, status is checked by content provider call
+     * without creating a cursor
+     */
+    public static class FavoriteStatusLoader extends AsyncTaskLoader<Boolean> {
+
+        private final int mMovieId;
+        private Boolean mResult;
+
+        private FavoriteStatusLoader(Context context, int movieId) {
+            super(context);
+            mMovieId = movieId;
+        }
+
+        @Override
+        protected void onStartLoading() {
+            if (mResult != null) {
+                // If there are already data available, deliver them
+                deliverResult(mResult);
+            } else {
+                // Start loader
+                forceLoad();
+            }
+        }
+
+        /**
+         * Handles a request to stop the Loader.
+         */
+        @Override
+        protected void onStopLoading() {
+            cancelLoad();
+        }
+
+        @Override
+        public Boolean loadInBackground() {
+            Bundle result = getContext().getContentResolver().call(
+                    MovieContract.MovieEntry.CONTENT_URI,
+                    MovieContract.METHOD_IS_FAVORITE,
+                    String.valueOf(mMovieId),
+                    null);
+
+            mResult = result != null && result.getBoolean(MovieContract.KEY_FAVORITE);
+            return mResult;
+        }
+    }
+
 }
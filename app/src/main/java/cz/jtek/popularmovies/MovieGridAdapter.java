@@ -18,7 +18,9 @@ package cz.jtek.popularmovies;
 
 import android.content.Context;
 import android.support.annotation.NonNull;
+import android.support.v7.util.DiffUtil;
 import android.support.v7.widget.RecyclerView;
+import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -147,4 +149,42 @@ public class MovieGridAdapter
         }
     }
 
+    /**
+     * This method replaces movie data and refreshes only grid items which differ from
+     * the previously set movie list.
+     *
+     * @param movieList New movie list
+     */
+    void updateMovieData(final List<TmdbData.Movie> movieList) {
+        if (movieList == null) { return; }
+        final List<TmdbData.Movie> oldList = mMovieList;
+        if (oldList == null) {
+            setMovieData(movieList);
+            return;
+        }
+
+        DiffUtil.DiffResult diff = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() { return oldList.size(); }
+
+            @Override
+            public int getNewListSize() { return movieList.size(); }
+
+            @Override
+            public boolean areItemsTheSame(int oldPosition, int newPosition) {
+                return oldList.get(oldPosition).getId() == movieList.get(newPosition).getId();
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                TmdbData.Movie oldMovie = oldList.get(oldPosition);
+                TmdbData.Movie newMovie = movieList.get(newPosition);
+                return TextUtils.equals(oldMovie.getPosterPath(), newMovie.getPosterPath())
+                        && TextUtils.equals(oldMovie.getTitle(), newMovie.getTitle());
+            }
+        });
+        mMovieList = movieList;
+        diff.dispatchUpdatesTo(this);
+    }
+
 }
@@ -24,17 +24,19 @@ import android.widget.ProgressBar;
 import android.widget.TextView;
 
 import java.io.IOException;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
 
+import cz.jtek.popularmovies.network.ConnectivityMonitor;
 import cz.jtek.popularmovies.utilities.NetworkUtils;
 import cz.jtek.popularmovies.utilities.NetworkUtils.AsyncTaskResult;
+import cz.jtek.popularmovies.utilities.NetworkUtils.LoadingThread;
 import cz.jtek.popularmovies.utilities.TmdbJsonUtils;
 import cz.jtek.popularmovies.utilities.UIUtils;
 
 public class MovieReviewFragment extends Fragment
-        implements AdapterView.OnItemClickListener {
+        implements AdapterView.OnItemClickListener,
+        ConnectivityMonitor.Listener {
 
     @SuppressWarnings("unused")
     private static final String TAG = MovieReviewFragment.class.getSimpleName();
@@ -50,6 +52,11 @@ public class MovieReviewFragment extends Fragment
 
     private int mViewWidth;
 
+    // Movie whose reviews are loaded
+    private int mMovieId;
+    // Network loading waits for connectivity
+    private boolean mWaitingForNetwork = false;
+
     // AsyncLoader
     private static final int LOADER_ID_REVIEW_LIST = 33;
     private static final String LOADER_BUNDLE_MOVIE_ID = "movie-id";
@@ -83,7 +90,8 @@ public class MovieReviewFragment extends Fragment
 
         if (savedInstanceState != null) {
             // Restoring review list from saved instance state
-            mReviewList = savedInstanceState.getParcelableArrayList(KEY_REVIEW_LIST);
+            mReviewList = TmdbData_ReviewParcel.unwrapList(
+                    savedInstanceState.<TmdbData_ReviewParcel>getParcelableArrayList(KEY_REVIEW_LIST));
         }
         else {
             mReviewList = new ArrayList<>();
@@ -109,26 +117,75 @@ public class MovieReviewFragment extends Fragment
                 }
             }
 
-            // Check for network availability
-            if (NetworkUtils.isNetworkAvailable(mContext)) {
-                // Store movie id into loader args bundle
-                Bundle loaderArgsBundle = new Bundle();
-                loaderArgsBundle.putInt(LOADER_BUNDLE_MOVIE_ID, movieId);
-                // Loader initialization
-                getLoaderManager().initLoader(LOADER_ID_REVIEW_LIST, loaderArgsBundle, reviewLoaderListener);
-            } else {
-                // Network is not available
-                showErrorMessage(getResources().getString(R.string.error_msg_no_network));
-            }
+            mMovieId = movieId;
+            startNetworkLoader();
         }
 
         return(view);
     }
 
+    @Override
+    public void onStart() {
+        super.onStart();
+
+        // Listen for connectivity changes to resume pending loading
+        ConnectivityMonitor monitor = ConnectivityMonitor.getInstance();
+        if (monitor != null) {
+            monitor.addListener(this);
+        }
+
+        if (mWaitingForNetwork && NetworkUtils.isNetworkAvailable(mContext)) {
+            // Connectivity returned while this fragment was stopped
+            startNetworkLoader();
+        }
+    }
+
+    @Override
+    public void onStop() {
+        super.onStop();
+
+        ConnectivityMonitor monitor = ConnectivityMonitor.getInstance();
+        if (monitor != null) {
+            monitor.removeListener(this);
+        }
+    }
+
+    /**
+     * Starts review list loader. If network is not available, loading is started
+     * automatically as soon as connectivity returns.
+     */
+    private void startNetworkLoader() {
+        // Check for network availability
+        if (NetworkUtils.isNetworkAvailable(mContext)) {
+            mWaitingForNetwork = false;
+            // Store movie id into loader args bundle
+            Bundle loaderArgsBundle = new Bundle();
+            loaderArgsBundle.putInt(LOADER_BUNDLE_MOVIE_ID, mMovieId);
+            // Loader initialization
+            getLoaderManager().initLoader(LOADER_ID_REVIEW_LIST, loaderArgsBundle, reviewLoaderListener);
+        } else {
+            // Network is not available
+            showErrorMessage(getResources().getString(R.string.error_msg_no_network));
+            mWaitingForNetwork = true;
+        }
+    }
+
+    /**
+     * Connectivity change listener. Resumes loading which was waiting for network.
+     *
+     * @param state Current connectivity state
+     */
+    @Override
+    public void onConnectivityChanged(@NonNull ConnectivityMonitor.State state) {
+        if (state.isConnected() && mWaitingForNetwork && isAdded()) {
+            startNetworkLoader();
+        }
+    }
+
     @Override
     public void onSaveInstanceState(@NonNull Bundle outState) {
         // Store review list
-        outState.putParcelableArrayList(KEY_REVIEW_LIST, mReviewList);
+        outState.putParcelableArrayList(KEY_REVIEW_LIST, TmdbData_ReviewParcel.wrapList(mReviewList));
 
         super.onSaveInstanceState(outState);
     }
@@ -277,6 +334,7 @@ public class MovieReviewFragment extends Fragment
         final PackageManager mPackageManager;
         AsyncTaskResult<ArrayList<TmdbData.Review>> mResult;
         final Bundle mArgs;
+        private final LoadingThread mLoadingThread = new LoadingThread();
 
         private TmdbMovieReviewLoader(Context context, Bundle args) {
             super(context);
@@ -298,28 +356,45 @@ public class MovieReviewFragment extends Fragment
         @Override
         protected void onStopLoading() { cancelLoad(); }
 
+        @Override
+        public void cancelLoadInBackground() {
+            // Caller stops waiting, shared API request is cancelled once nobody waits for it
+            mLoadingThread.interrupt();
+        }
+
         @Override
         public AsyncTaskResult<ArrayList<TmdbData.Review>> loadInBackground() {
             // Get movie id from argument bundle
             int movieId = mArgs.getInt(LOADER_BUNDLE_MOVIE_ID, 1);
 
+            mLoadingThread.enter();
             try {
-                // Load movie review list
-                URL movieReviewsUrl = NetworkUtils.buildMovieReviewsUrl(movieId);
-                String jsonMovieReviews = NetworkUtils.getResponseFromHttpUrl(movieReviewsUrl);
-
-                // Example mock request used for debugging to avoid sending network queries
-                // String jsonMovieReviews = MockDataUtils.getMockJson(getContext(), "mock_reviews");
-
-                // Use only videos of type "Trailer"
-                TmdbJsonUtils.TmdbJsonResult<ArrayList<TmdbData.Review>> reviewResult =
-                        TmdbJsonUtils.getReviewListFromJson(jsonMovieReviews);
-
-                mResult = new AsyncTaskResult<>(reviewResult.getResult(), reviewResult.getException());
+                // Reviews are loaded together with videos by single movie detail request
+                // shared with video fragment
+                TmdbJsonUtils.TmdbJsonResult<TmdbData.MovieDetail> detailResult =
+                        NetworkUtils.getMovieDetail(movieId);
+
+                // Offline mock API server can be enabled by USE_MOCK_API field in app/build.gradle
+
+                if (detailResult.getException() != null) {
+                    mResult = new AsyncTaskResult<>(null, detailResult.getException());
+                } else {
+                    // Copy, as the parse result is shared
+                    ArrayList<TmdbData.Review> reviews =
+                            new ArrayList<>(detailResult.getResult().getReviews());
+                    mResult = new AsyncTaskResult<>(reviews, null);
+                }
             } catch (IOException iex) {
+                if (isLoadInBackgroundCanceled()) {
+                    // Result of cancelled load is not delivered, next start loads again
+                    mResult = null;
+                    return null;
+                }
                 Log.e(TAG, "IOException when fetching API data.");
                 iex.printStackTrace();
                 mResult = new AsyncTaskResult<>(null, iex);
+            } finally {
+                mLoadingThread.exit();
             }
             return mResult;
         }
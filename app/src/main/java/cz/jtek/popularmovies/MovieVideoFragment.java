@@ -37,19 +37,20 @@ import android.widget.ProgressBar;
 import android.widget.TextView;
 
 import java.io.IOException;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
 
-import cz.jtek.popularmovies.utilities.MockDataUtils;
+import cz.jtek.popularmovies.network.ConnectivityMonitor;
 import cz.jtek.popularmovies.utilities.NetworkUtils;
 import cz.jtek.popularmovies.utilities.NetworkUtils.AsyncTaskResult;
+import cz.jtek.popularmovies.utilities.NetworkUtils.LoadingThread;
 import cz.jtek.popularmovies.utilities.TmdbJsonUtils;
 import cz.jtek.popularmovies.utilities.UIUtils;
 
 public class MovieVideoFragment extends Fragment
     implements LoaderManager.LoaderCallbacks<AsyncTaskResult<ArrayList<TmdbData.Video>>>,
-    AdapterView.OnItemClickListener
+    AdapterView.OnItemClickListener,
+    ConnectivityMonitor.Listener
 {
     private static final String TAG = MovieVideoFragment.class.getSimpleName();
 
@@ -64,6 +65,11 @@ public class MovieVideoFragment extends Fragment
 
     private int mViewWidth;
 
+    // Movie whose videos are loaded
+    private int mMovieId;
+    // Network loading waits for connectivity
+    private boolean mWaitingForNetwork = false;
+
     // AsyncLoader
     private static final int LOADER_ID_VIDEO_LIST = 22;
     private static final String LOADER_BUNDLE_MOVIE_ID = "movie-id";
@@ -95,7 +101,8 @@ public class MovieVideoFragment extends Fragment
 
         if (savedInstanceState != null) {
             // Restoring video list from saved instance state
-            mVideoList = savedInstanceState.getParcelableArrayList(KEY_VIDEO_LIST);
+            mVideoList = TmdbData_VideoParcel.unwrapList(
+                    savedInstanceState.<TmdbData_VideoParcel>getParcelableArrayList(KEY_VIDEO_LIST));
         }
         else {
             mVideoList = new ArrayList<>();
@@ -121,17 +128,8 @@ public class MovieVideoFragment extends Fragment
                 }
             }
 
-            // Check for network availability
-            if (NetworkUtils.isNetworkAvailable(mContext)) {
-                // Store movie id into loader args bundle
-                Bundle loaderArgsBundle = new Bundle();
-                loaderArgsBundle.putInt(LOADER_BUNDLE_MOVIE_ID, movieId);
-                // Loader initialization
-                getLoaderManager().initLoader(LOADER_ID_VIDEO_LIST, loaderArgsBundle, MovieVideoFragment.this);
-            } else {
-                // Network is not available
-                showErrorMessage(getResources().getString(R.string.error_msg_no_network));
-            }
+            mMovieId = movieId;
+            startNetworkLoader();
         }
 
         return(view);
@@ -154,10 +152,68 @@ public class MovieVideoFragment extends Fragment
         }
     }
 
+    @Override
+    public void onStart() {
+        super.onStart();
+
+        // Listen for connectivity changes to resume pending loading
+        ConnectivityMonitor monitor = ConnectivityMonitor.getInstance();
+        if (monitor != null) {
+            monitor.addListener(this);
+        }
+
+        if (mWaitingForNetwork && NetworkUtils.isNetworkAvailable(mContext)) {
+            // Connectivity returned while this fragment was stopped
+            startNetworkLoader();
+        }
+    }
+
+    @Override
+    public void onStop() {
+        super.onStop();
+
+        ConnectivityMonitor monitor = ConnectivityMonitor.getInstance();
+        if (monitor != null) {
+            monitor.removeListener(this);
+        }
+    }
+
+    /**
+     * Starts video list loader. If network is not available, loading is started
+     * automatically as soon as connectivity returns.
+     */
+    private void startNetworkLoader() {
+        // Check for network availability
+        if (NetworkUtils.isNetworkAvailable(mContext)) {
+            mWaitingForNetwork = false;
+            // Store movie id into loader args bundle
+            Bundle loaderArgsBundle = new Bundle();
+            loaderArgsBundle.putInt(LOADER_BUNDLE_MOVIE_ID, mMovieId);
+            // Loader initialization
+            getLoaderManager().initLoader(LOADER_ID_VIDEO_LIST, loaderArgsBundle, MovieVideoFragment.this);
+        } else {
+            // Network is not available
+            showErrorMessage(getResources().getString(R.string.error_msg_no_network));
+            mWaitingForNetwork = true;
+        }
+    }
+
+    /**
+     * Connectivity change listener. Resumes loading which was waiting for network.
+     *
+     * @param state Current connectivity state
+     */
+    @Override
+    public void onConnectivityChanged(@NonNull ConnectivityMonitor.State state) {
+        if (state.isConnected() && mWaitingForNetwork && isAdded()) {
+            startNetworkLoader();
+        }
+    }
+
     @Override
     public void onSaveInstanceState(@NonNull Bundle outState) {
         // Store video list
-        outState.putParcelableArrayList(KEY_VIDEO_LIST, mVideoList);
+        outState.putParcelableArrayList(KEY_VIDEO_LIST, TmdbData_VideoParcel.wrapList(mVideoList));
 
         super.onSaveInstanceState(outState);
     }
@@ -271,6 +327,7 @@ public class MovieVideoFragment extends Fragment
         final PackageManager mPackageManager;
         AsyncTaskResult<ArrayList<TmdbData.Video>> mResult;
         final Bundle mArgs;
+        private final LoadingThread mLoadingThread = new LoadingThread();
 
         private TmdbMovieVideoLoader(Context context, Bundle args) {
             super(context);
@@ -292,28 +349,45 @@ public class MovieVideoFragment extends Fragment
         @Override
         protected void onStopLoading() { cancelLoad(); }
 
+        @Override
+        public void cancelLoadInBackground() {
+            // Caller stops waiting, shared API request is cancelled once nobody waits for it
+            mLoadingThread.interrupt();
+        }
+
         @Override
         public AsyncTaskResult<ArrayList<TmdbData.Video>> loadInBackground() {
             // Get movie id
             int movieId = mArgs.getInt(LOADER_BUNDLE_MOVIE_ID, 1);
 
+            mLoadingThread.enter();
             try {
-                // Load movie video list
-                URL movieVideosUrl = NetworkUtils.buildMovieVideosUrl(movieId);
-                String jsonMovieVideos = NetworkUtils.getResponseFromHttpUrl(movieVideosUrl);
-
-                // Example mock request used for debugging to avoid sending network queries
-                // String jsonMovieVideos = MockDataUtils.getMockJson(getContext(), "mock_videos");
-
-                // Use only videos of type "Trailer"
-                TmdbJsonUtils.TmdbJsonResult<ArrayList<TmdbData.Video>> videoResult =
-                        TmdbJsonUtils.getVideoListFromJson(jsonMovieVideos, TmdbData.Video.TYPE_TRAILER);
-
-                mResult = new AsyncTaskResult<>(videoResult.getResult(), videoResult.getException());
+                // Videos are loaded together with reviews by single movie detail request
+                // shared with review fragment
+                TmdbJsonUtils.TmdbJsonResult<TmdbData.MovieDetail> detailResult =
+                        NetworkUtils.getMovieDetail(movieId);
+
+                // Offline mock API server can be enabled by USE_MOCK_API field in app/build.gradle
+
+                if (detailResult.getException() != null) {
+                    mResult = new AsyncTaskResult<>(null, detailResult.getException());
+                } else {
+                    // Use only videos of type "Trailer"
+                    ArrayList<TmdbData.Video> trailers = TmdbData.Video.filterByType(
+                            detailResult.getResult().getVideos(), TmdbData.Video.TYPE_TRAILER);
+                    mResult = new AsyncTaskResult<>(trailers, null);
+                }
             } catch (IOException iex) {
+                if (isLoadInBackgroundCanceled()) {
+                    // Result of cancelled load is not delivered, next start loads again
+                    mResult = null;
+                    return null;
+                }
                 Log.e(TAG, "IOException when fetching API data.");
                 iex.printStackTrace();
                 mResult = new AsyncTaskResult<>(null, iex);
+            } finally {
+                mLoadingThread.exit();
             }
             return mResult;
         }
@@ -1,19 +1,91 @@
 package cz.jtek.popularmovies;
 
 import android.app.Application;
+import android.util.Log;
 
 import com.facebook.stetho.Stetho;
 import com.facebook.stetho.okhttp3.StethoInterceptor;
 
-import okhttp3.OkHttpClient;
+import java.io.File;
+
+import cz.jtek.popularmovies.network.ConnectivityMonitor;
+import cz.jtek.popularmovies.network.MockTmdbTransport;
+import cz.jtek.popularmovies.network.NetworkProfile;
+import cz.jtek.popularmovies.data.MovieListCache;
+import cz.jtek.popularmovies.network.ResponseCache;
+import cz.jtek.popularmovies.network.TmdbHttpClient;
+import cz.jtek.popularmovies.network.TransferStats;
+import cz.jtek.popularmovies.utilities.MockDataUtils;
+import cz.jtek.popularmovies.utilities.ParserStats;
+import cz.jtek.popularmovies.utilities.StringPool;
+import cz.jtek.popularmovies.utilities.TmdbLog;
 
 public class PopularMoviesApplication extends Application {
+
+    private static final String TAG = PopularMoviesApplication.class.getSimpleName();
+
+    // API response cache
+    private static final String RESPONSE_CACHE_DIR = "api-responses";
+
     public void onCreate() {
         super.onCreate();
 
+        // TMDb client library logs to logcat
+        TmdbLog.setSink(new TmdbLog.Sink() {
+            @Override
+            public void log(int priority, String tag, String msg) {
+                Log.println(priority, tag, msg);
+            }
+        });
+
+        // Cached connectivity state with change notifications
+        ConnectivityMonitor.init(this);
+
+        // On-disk cache of TMDb API responses
+        ResponseCache.init(new File(getCacheDir(), RESPONSE_CACHE_DIR),
+                ResponseCache.DEFAULT_MAX_SIZE_BYTES);
+
+        // Pre-seed cached movie lists from catalog snapshot, if one is bundled in assets
+        MovieListCache.importSnapshotAsync(this);
+
+        if (BuildConfig.USE_MOCK_API) {
+            // Serve API requests by offline mock server, see app/build.gradle
+            TmdbHttpClient.setTransport(new MockTmdbTransport(
+                    MockDataUtils.getMockJsonSource(this), NetworkProfile.MOBILE));
+        }
+
         if (BuildConfig.DEBUG) {
             // Initialize Stetho
             Stetho.initializeWithDefaults(this);
+            // Inspect API traffic of the shared HTTP client
+            TmdbHttpClient.addNetworkInterceptor(new StethoInterceptor());
+            // Log compressed vs. uncompressed response sizes
+            TransferStats.setListener(new TransferStats.Listener() {
+                @Override
+                public void onResponseTransferred(String label, String contentEncoding,
+                                                  long compressedBytes, long uncompressedBytes) {
+                    Log.d(TAG, label + ": " + compressedBytes + " B received ("
+                            + (contentEncoding != null ? contentEncoding : "identity") + "), "
+                            + uncompressedBytes + " B decoded");
+                }
+            });
+            // Log how much of each reply was decoded into models, and how many duplicate
+            // strings the shared pool has saved so far
+            ParserStats.setListener(new ParserStats.Listener() {
+                @Override
+                public void onParsed(String label, long totalBytes, long materializedBytes,
+                                     long deferredBytes, int materializedFields,
+                                     int skippedFields) {
+                    Log.d(TAG, label + ": " + materializedBytes + " of " + totalBytes
+                            + " B materialized, " + deferredBytes + " B deferred ("
+                            + materializedFields + " values, "
+                            + skippedFields + " fields skipped)");
+                    StringPool pool = StringPool.getShared();
+                    Log.d(TAG, "String pool: " + pool.getHitCount() + " hits, "
+                            + pool.getMissCount() + " misses, "
+                            + pool.getSavedBytes() + " B saved");
+                }
+            });
         }
 
     }
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies;
+
+import cz.jtek.popularmovies.codegen.ParcelAdapter;
+
+/**
+ * Parcelable adapters of TMDb models, used to keep models in saved instance state and
+ * intent extras. TMDb client library has no Android dependency, so adapter classes
+ * TmdbData_ConfigParcel, TmdbData_MovieParcel, ... are generated in this module.
+ */
+@ParcelAdapter({
+        TmdbData.Config.class,
+        TmdbData.Movie.class,
+        TmdbData.Video.class,
+        TmdbData.Review.class})
+final class TmdbParcels {
+
+    private TmdbParcels() {}
+}
@@ -16,6 +16,7 @@
 
 package cz.jtek.popularmovies.data;
 
+import android.content.ContentUris;
 import android.net.Uri;
 import android.provider.BaseColumns;
 
@@ -25,6 +26,12 @@ public class MovieContract {
             "vnd.android.cursor.item/vnd.cz.jtek.popularmovies.movie";
     public static final String MIME_TYPE_DIR =
             "vnd.android.cursor.dir/vnd.cz.jtek.popularmovies.movie";
+    public static final String MIME_TYPE_LIST_ENTRY_ITEM =
+            "vnd.android.cursor.item/vnd.cz.jtek.popularmovies.movie_list";
+    public static final String MIME_TYPE_LIST_ENTRY_DIR =
+            "vnd.android.cursor.dir/vnd.cz.jtek.popularmovies.movie_list";
+    public static final String MIME_TYPE_LIST_PAGE_DIR =
+            "vnd.android.cursor.dir/vnd.cz.jtek.popularmovies.movie_list_page";
 
     // Content provider name
     public static final String CONTENT_AUTHORITY = "cz.jtek.popularmovies";
@@ -33,6 +40,13 @@ public class MovieContract {
 
     // Content provider paths
     public static final String PATH_MOVIES = "movie";
+    public static final String PATH_LIST_ENTRIES = "movie_list";
+    public static final String PATH_LIST_PAGES = "movie_list_page";
+
+    // Content provider call() method checking favorite status without a cursor,
+    // argument is movie id, result bundle holds KEY_FAVORITE boolean
+    public static final String METHOD_IS_FAVORITE = "is-favorite";
+    public static final String KEY_FAVORITE = "favorite";
 
     // This class describes item of the movie table
     public static final class MovieEntry implements BaseColumns {
@@ -51,6 +65,75 @@ public class MovieContract {
         public static final String COL_VOTE_AVERAGE = "vote_average";
         public static final String COL_FAVORITE = "favorite";
 
+        // Update of movie item URI with this query parameter set to true is an upsert:
+        // only changed columns of stored movie are written, missing movie is inserted.
+        // Upsert does not accept selection.
+        public static final String QUERY_UPSERT = "upsert";
+
+        /**
+         * @param movieId   Movie id
+         * @return Movie item URI
+         */
+        public static Uri buildMovieUri(long movieId) {
+            return ContentUris.withAppendedId(CONTENT_URI, movieId);
+        }
+
+        /**
+         * @param movieId   Movie id
+         * @return Movie item URI for upsert by update()
+         */
+        public static Uri buildMovieUpsertUri(long movieId) {
+            return buildMovieUri(movieId).buildUpon()
+                    .appendQueryParameter(QUERY_UPSERT, Boolean.TRUE.toString())
+                    .build();
+        }
+
+    }
+
+    // This class describes item of the cached movie list table, one row per movie of
+    // a result page of popular or top rated list
+    public static final class ListEntry implements BaseColumns {
+
+        public static final Uri CONTENT_URI = BASE_CONTENT_URI.buildUpon()
+                .appendPath(PATH_LIST_ENTRIES)
+                .build();
+
+        public static final String TABLE_NAME = "movie_list";
+
+        // Movie list, TmdbClient.MOVIE_LIST_POPULAR or MOVIE_LIST_TOP_RATED
+        public static final String COL_LIST = "list";
+        public static final String COL_PAGE = "page";
+        // Position of the movie on its page, starting at 0
+        public static final String COL_RANK = "rank";
+        public static final String COL_MOVIE_ID = "movie_id";
+        public static final String COL_TITLE = "title";
+        public static final String COL_OVERVIEW = "overview";
+        public static final String COL_POSTER_PATH = "poster_path";
+        public static final String COL_RELEASE_DATE = "release_date";
+        public static final String COL_VOTE_AVERAGE = "vote_average";
+
+        /**
+         * @param id    Row id
+         * @return List entry item URI
+         */
+        public static Uri buildEntryUri(long id) {
+            return ContentUris.withAppendedId(CONTENT_URI, id);
+        }
+    }
+
+    // This class describes item of the cached result page table, one row per page
+    // with the time the page was last fetched or revalidated
+    public static final class ListPage implements BaseColumns {
+
+        public static final Uri CONTENT_URI = BASE_CONTENT_URI.buildUpon()
+                .appendPath(PATH_LIST_PAGES)
+                .build();
+
+        public static final String TABLE_NAME = "movie_list_page";
 
+        public static final String COL_LIST = "list";
+        public static final String COL_PAGE = "page";
+        // Milliseconds since epoch
+        public static final String COL_FETCHED_AT = "fetched_at";
     }
 }
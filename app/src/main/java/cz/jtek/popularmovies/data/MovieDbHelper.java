@@ -16,10 +16,14 @@
 
 package cz.jtek.popularmovies.data;
 
+import android.annotation.TargetApi;
 import android.content.Context;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Build;
 
+import cz.jtek.popularmovies.data.MovieContract.ListEntry;
+import cz.jtek.popularmovies.data.MovieContract.ListPage;
 import cz.jtek.popularmovies.data.MovieContract.MovieEntry;
 
 import static cz.jtek.popularmovies.data.MovieContract.MovieEntry.TABLE_NAME;
@@ -31,10 +35,85 @@ public class MovieDbHelper extends SQLiteOpenHelper {
 
     // This db version should be updated on every db schema change to trigger
     // onUpgrade method to run
-    private static final int DB_VERSION = 1;
+    // Version 2: cached movie list tables
+    private static final int DB_VERSION = 2;
+
+    // Page cache of the primary connection, which does all writes, in KiB
+    private static final int PAGE_CACHE_SIZE_KIB = 1024;
+    // Compiled statements cached per connection, provider uses a handful of distinct ones.
+    // Unlike pragmas this setting is applied to every pooled connection.
+    private static final int MAX_SQL_CACHE_SIZE = 50;
+
+    private final boolean mWriteAheadLogging;
 
     MovieDbHelper(Context context) {
-        super(context, DB_NAME, null, DB_VERSION);
+        this(context, DB_NAME, true);
+    }
+
+    /**
+     * Favorite writes run concurrently with cursor loader reads. With write-ahead logging
+     * readers use pooled connections of their own and are not blocked by a writer.
+     * Size of the reader pool is set by the platform, it is larger than the number of
+     * loaders reading at the same time.
+     *
+     * @param context           Context
+     * @param dbName            Database file name
+     * @param writeAheadLogging true to enable write-ahead logging, rollback journal otherwise
+     */
+    MovieDbHelper(Context context, String dbName, boolean writeAheadLogging) {
+        super(context, dbName, null, DB_VERSION);
+        mWriteAheadLogging = writeAheadLogging;
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            setWriteAheadLoggingEnabled(writeAheadLogging);
+        }
+    }
+
+    /**
+     * Called when the database is being configured, before tables are created or upgraded.
+     * Available on API 16+, older platforms are configured in onOpen.
+     * Statements executed here run on the primary connection only, pooled read-only
+     * connections opened later for WAL readers keep SQLite defaults.
+     *
+     * @param db The database.
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        super.onConfigure(db);
+        configure(db);
+    }
+
+    @Override
+    public void onOpen(SQLiteDatabase db) {
+        super.onOpen(db);
+
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN && !db.isReadOnly()) {
+            if (mWriteAheadLogging) {
+                db.enableWriteAheadLogging();
+            }
+            configure(db);
+        }
+    }
+
+    /**
+     * Tunes primary connection for small, frequently read and rarely written database.
+     * Pragmas are per connection and execSQL() runs on the primary connection, so they
+     * do not reach pooled reader connections. Synchronous mode only matters for writes,
+     * which all go through the primary connection; reader connections use the default
+     * page cache size.
+     *
+     * @param db The database.
+     */
+    private void configure(SQLiteDatabase db) {
+        if (mWriteAheadLogging) {
+            // Commit does not wait for fsync, committed transactions survive app crash
+            // and database is never corrupted, only last commits may be lost on power loss
+            db.execSQL("PRAGMA synchronous = NORMAL");
+        }
+        // Negative value sets cache size in KiB instead of pages
+        db.execSQL("PRAGMA cache_size = -" + PAGE_CACHE_SIZE_KIB);
+        db.setMaxSqlCacheSize(MAX_SQL_CACHE_SIZE);
     }
 
     /**
@@ -59,13 +138,52 @@ public class MovieDbHelper extends SQLiteOpenHelper {
                 " );";
 
         sqLiteDatabase.execSQL(SQL_CREATE_MOVIE_TABLE);
+
+        createListTables(sqLiteDatabase);
+    }
+
+    /**
+     * Creates tables of cached movie lists. Entries are looked up by list and page,
+     * unique index over list, page and rank serves these lookups.
+     *
+     * @param db The database.
+     */
+    private static void createListTables(SQLiteDatabase db) {
+        final String SQL_CREATE_LIST_ENTRY_TABLE =
+                "CREATE TABLE " + ListEntry.TABLE_NAME + " (" +
+                ListEntry._ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                ListEntry.COL_LIST + " TEXT NOT NULL, " +
+                ListEntry.COL_PAGE + " INTEGER NOT NULL, " +
+                ListEntry.COL_RANK + " INTEGER NOT NULL, " +
+                ListEntry.COL_MOVIE_ID + " INTEGER NOT NULL, " +
+                ListEntry.COL_TITLE + " TEXT, " +
+                ListEntry.COL_OVERVIEW + " TEXT, " +
+                ListEntry.COL_POSTER_PATH + " TEXT, " +
+                ListEntry.COL_RELEASE_DATE + " TEXT, " +
+                ListEntry.COL_VOTE_AVERAGE + " REAL NOT NULL, " +
+                " UNIQUE (" + ListEntry.COL_LIST + ", " + ListEntry.COL_PAGE + ", " +
+                ListEntry.COL_RANK + ") ON CONFLICT REPLACE " +
+                " );";
+
+        final String SQL_CREATE_LIST_PAGE_TABLE =
+                "CREATE TABLE " + ListPage.TABLE_NAME + " (" +
+                ListPage._ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                ListPage.COL_LIST + " TEXT NOT NULL, " +
+                ListPage.COL_PAGE + " INTEGER NOT NULL, " +
+                ListPage.COL_FETCHED_AT + " INTEGER NOT NULL, " +
+                " UNIQUE (" + ListPage.COL_LIST + ", " + ListPage.COL_PAGE + ") ON CONFLICT REPLACE " +
+                " );";
+
+        db.execSQL(SQL_CREATE_LIST_ENTRY_TABLE);
+        db.execSQL(SQL_CREATE_LIST_PAGE_TABLE);
     }
 
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        // Warning: this drops old table on upgrade
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_NAME);
-        onCreate(db);
+        if (oldVersion < 2) {
+            // Favorites are kept, cached list tables are added
+            createListTables(db);
+        }
     }
 
 
@@ -0,0 +1,425 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.data;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.OperationApplicationException;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.os.RemoteException;
+import android.support.annotation.NonNull;
+import android.support.v7.preference.PreferenceManager;
+import android.text.TextUtils;
+import android.util.Log;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import cz.jtek.popularmovies.CatalogSnapshot;
+import cz.jtek.popularmovies.TmdbData;
+import cz.jtek.popularmovies.data.MovieContract.ListEntry;
+import cz.jtek.popularmovies.data.MovieContract.ListPage;
+import cz.jtek.popularmovies.network.TmdbClient;
+
+/**
+ * Persisted result pages of popular and top rated movie lists.
+ * Cached pages are shown right away on cold start or offline, pages fetched from network
+ * afterwards are written back. Only entries which differ from the cached ones are written.
+ * Catalog snapshot written by the catalog crawler can be bundled in assets to pre-seed the cache.
+ */
+public final class MovieListCache {
+
+    private static final String TAG = MovieListCache.class.getSimpleName();
+
+    // Pages fetched longer ago are not shown any more
+    private static final long MAX_AGE_MS = 7L * 24 * 60 * 60 * 1000;
+
+    // Page writes run one after another, so that a page is never compared with
+    // cached entries which are being written
+    private static final ExecutorService sWriteExecutor = Executors.newSingleThreadExecutor();
+
+    // Optional catalog snapshot in app assets, see catalog crawler
+    private static final String SNAPSHOT_ASSET = "catalog.snapshot";
+    // Creation time of last imported snapshot
+    private static final String PREF_KEY_SNAPSHOT_CREATED_AT = "pref_key_catalog_snapshot_created_at";
+
+    private static final String[] ENTRY_PROJECTION = {
+            ListEntry._ID,
+            ListEntry.COL_PAGE,
+            ListEntry.COL_RANK,
+            ListEntry.COL_MOVIE_ID,
+            ListEntry.COL_TITLE,
+            ListEntry.COL_OVERVIEW,
+            ListEntry.COL_POSTER_PATH,
+            ListEntry.COL_RELEASE_DATE,
+            ListEntry.COL_VOTE_AVERAGE
+    };
+    private static final int INDEX_ID = 0;
+    private static final int INDEX_PAGE = 1;
+    private static final int INDEX_RANK = 2;
+    private static final int INDEX_MOVIE_ID = 3;
+    private static final int INDEX_TITLE = 4;
+    private static final int INDEX_OVERVIEW = 5;
+    private static final int INDEX_POSTER_PATH = 6;
+    private static final int INDEX_RELEASE_DATE = 7;
+    private static final int INDEX_VOTE_AVERAGE = 8;
+
+    private MovieListCache() {}
+
+    /**
+     * Reads cached pages of movie list, pages older than MAX_AGE_MS are skipped
+     *
+     * @param context   Context
+     * @param list      Movie list, TmdbClient.MOVIE_LIST_POPULAR or MOVIE_LIST_TOP_RATED
+     * @return Movies in rank order by page number, empty when no page is cached
+     */
+    @NonNull
+    public static SparseArray<ArrayList<TmdbData.Movie>> loadPages(@NonNull Context context,
+                                                                   @NonNull String list) {
+        ContentResolver resolver = context.getContentResolver();
+        SparseArray<ArrayList<TmdbData.Movie>> pages = new SparseArray<>();
+
+        // Pages which are recent enough
+        SparseBooleanArray freshPages = new SparseBooleanArray();
+        long minFetchedAt = System.currentTimeMillis() - MAX_AGE_MS;
+        Cursor pageCursor = resolver.query(ListPage.CONTENT_URI,
+                new String[] { ListPage.COL_PAGE },
+                ListPage.COL_LIST + " = ? AND " + ListPage.COL_FETCHED_AT + " >= ?",
+                new String[] { list, String.valueOf(minFetchedAt) },
+                null);
+        if (pageCursor == null) {
+            return pages;
+        }
+        try {
+            while (pageCursor.moveToNext()) {
+                freshPages.put(pageCursor.getInt(0), true);
+            }
+        } finally {
+            pageCursor.close();
+        }
+
+        if (freshPages.size() == 0) {
+            return pages;
+        }
+
+        Cursor entryCursor = resolver.query(ListEntry.CONTENT_URI,
+                ENTRY_PROJECTION,
+                ListEntry.COL_LIST + " = ?",
+                new String[] { list },
+                ListEntry.COL_PAGE + ", " + ListEntry.COL_RANK);
+        if (entryCursor == null) {
+            return pages;
+        }
+        try {
+            while (entryCursor.moveToNext()) {
+                int page = entryCursor.getInt(INDEX_PAGE);
+                if (!freshPages.get(page)) {
+                    continue;
+                }
+
+                ArrayList<TmdbData.Movie> movies = pages.get(page);
+                if (movies == null) {
+                    movies = new ArrayList<>();
+                    pages.put(page, movies);
+                }
+                // Stored poster URL is split to pooled base URL and file path
+                movies.add(new TmdbData.Movie(
+                        entryCursor.getInt(INDEX_MOVIE_ID),
+                        entryCursor.getString(INDEX_TITLE),
+                        entryCursor.getString(INDEX_POSTER_PATH),
+                        entryCursor.getString(INDEX_OVERVIEW),
+                        entryCursor.getString(INDEX_RELEASE_DATE),
+                        entryCursor.getDouble(INDEX_VOTE_AVERAGE)));
+            }
+        } finally {
+            entryCursor.close();
+        }
+
+        return pages;
+    }
+
+    /**
+     * Writes fetched page in background, see storePage
+     *
+     * @param context   Context
+     * @param list      Movie list
+     * @param page      Page number
+     * @param movies    Movies of the page in rank order, poster paths are complete URLs
+     */
+    public static void storePageAsync(@NonNull Context context, @NonNull final String list,
+                                      final int page, @NonNull List<TmdbData.Movie> movies) {
+        final Context appContext = context.getApplicationContext();
+        final ArrayList<TmdbData.Movie> pageMovies = new ArrayList<>(movies);
+        final long fetchedAt = System.currentTimeMillis();
+
+        sWriteExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    int changedEntries = storePage(appContext, list, page, pageMovies, fetchedAt);
+                    Log.d(TAG, "Page " + page + " of " + list + " cached, "
+                            + changedEntries + " entries changed.");
+                } catch (RemoteException | OperationApplicationException ex) {
+                    Log.e(TAG, "Cannot cache page " + page + " of " + list + ": " + ex.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * Writes fetched page to cache in one transaction. Cached entries of the page are
+     * compared with fetched movies, only changed columns of changed entries are written.
+     * Fetch time of the page is updated even if nothing changed.
+     *
+     * @param context   Context
+     * @param list      Movie list
+     * @param page      Page number
+     * @param movies    Movies of the page in rank order
+     * @param fetchedAt Fetch time, milliseconds since epoch
+     * @return Number of inserted, updated and deleted entries
+     * @throws RemoteException                  When content provider fails
+     * @throws OperationApplicationException    When cache cannot be written
+     */
+    static int storePage(@NonNull Context context, @NonNull String list, int page,
+                         @NonNull List<TmdbData.Movie> movies, long fetchedAt)
+            throws RemoteException, OperationApplicationException {
+        ContentResolver resolver = context.getContentResolver();
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+
+        // Cached entries of the page by rank
+        SparseArray<ContentValues> cachedEntries = new SparseArray<>();
+        SparseArray<Long> cachedEntryIds = new SparseArray<>();
+        Cursor cursor = resolver.query(ListEntry.CONTENT_URI,
+                ENTRY_PROJECTION,
+                ListEntry.COL_LIST + " = ? AND " + ListEntry.COL_PAGE + " = ?",
+                new String[] { list, String.valueOf(page) },
+                null);
+        if (cursor != null) {
+            try {
+                while (cursor.moveToNext()) {
+                    int rank = cursor.getInt(INDEX_RANK);
+                    cachedEntries.put(rank, readEntry(cursor));
+                    cachedEntryIds.put(rank, cursor.getLong(INDEX_ID));
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+
+        for (int rank = 0; rank < movies.size(); rank++) {
+            ContentValues values = toValues(movies.get(rank));
+            ContentValues cachedValues = cachedEntries.get(rank);
+
+            if (cachedValues == null) {
+                values.put(ListEntry.COL_LIST, list);
+                values.put(ListEntry.COL_PAGE, page);
+                values.put(ListEntry.COL_RANK, rank);
+                operations.add(ContentProviderOperation.newInsert(ListEntry.CONTENT_URI)
+                        .withValues(values)
+                        .build());
+            } else {
+                ContentValues changedValues = getChangedValues(cachedValues, values);
+                if (changedValues.size() > 0) {
+                    operations.add(ContentProviderOperation
+                            .newUpdate(ListEntry.buildEntryUri(cachedEntryIds.get(rank)))
+                            .withValues(changedValues)
+                            .build());
+                }
+            }
+        }
+
+        // Page got shorter
+        for (int i = 0; i < cachedEntryIds.size(); i++) {
+            if (cachedEntryIds.keyAt(i) >= movies.size()) {
+                operations.add(ContentProviderOperation
+                        .newDelete(ListEntry.buildEntryUri(cachedEntryIds.valueAt(i)))
+                        .build());
+            }
+        }
+        int changedEntries = operations.size();
+
+        // Page was revalidated, existing page row is replaced
+        operations.add(ContentProviderOperation.newInsert(ListPage.CONTENT_URI)
+                .withValue(ListPage.COL_LIST, list)
+                .withValue(ListPage.COL_PAGE, page)
+                .withValue(ListPage.COL_FETCHED_AT, fetchedAt)
+                .build());
+
+        resolver.applyBatch(MovieContract.CONTENT_AUTHORITY, operations);
+        return changedEntries;
+    }
+
+    /**
+     * Imports catalog snapshot bundled in assets in background, each snapshot only once.
+     * Nothing is done when there is no snapshot in assets.
+     *
+     * @param context   Context
+     */
+    public static void importSnapshotAsync(@NonNull Context context) {
+        final Context appContext = context.getApplicationContext();
+
+        sWriteExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                CatalogSnapshot snapshot;
+                try {
+                    InputStream in = appContext.getAssets().open(SNAPSHOT_ASSET);
+                    try {
+                        snapshot = CatalogSnapshot.read(in);
+                    } finally {
+                        in.close();
+                    }
+                } catch (FileNotFoundException fnfe) {
+                    // No snapshot bundled
+                    return;
+                } catch (IOException iex) {
+                    Log.e(TAG, "Cannot read catalog snapshot: " + iex.getMessage());
+                    return;
+                }
+
+                SharedPreferences sp = PreferenceManager.getDefaultSharedPreferences(appContext);
+                if (sp.getLong(PREF_KEY_SNAPSHOT_CREATED_AT, 0) == snapshot.getCreatedAt()) {
+                    return;
+                }
+
+                try {
+                    int importedPages = importSnapshot(appContext, snapshot);
+                    sp.edit().putLong(PREF_KEY_SNAPSHOT_CREATED_AT, snapshot.getCreatedAt()).apply();
+                    Log.d(TAG, "Catalog snapshot imported, " + importedPages + " pages written.");
+                } catch (RemoteException | OperationApplicationException ex) {
+                    Log.e(TAG, "Cannot import catalog snapshot: " + ex.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * Imports movie lists of catalog snapshot. Lists are split to result pages of
+     * TmdbClient.MOVIE_LIST_PAGE_SIZE movies and each page is written by storePage with
+     * snapshot creation time as its fetch time. Pages cached after the snapshot was created
+     * are kept.
+     *
+     * @param context   Context
+     * @param snapshot  Catalog snapshot, poster paths are complete URLs
+     * @return Number of written pages
+     * @throws RemoteException                  When content provider fails
+     * @throws OperationApplicationException    When cache cannot be written
+     */
+    static int importSnapshot(@NonNull Context context, @NonNull CatalogSnapshot snapshot)
+            throws RemoteException, OperationApplicationException {
+        ContentResolver resolver = context.getContentResolver();
+        long createdAt = snapshot.getCreatedAt();
+        int importedPages = 0;
+
+        for (String list : snapshot.getLists()) {
+            // Fetch times of cached pages by page number
+            SparseArray<Long> cachedPages = new SparseArray<>();
+            Cursor cursor = resolver.query(ListPage.CONTENT_URI,
+                    new String[] { ListPage.COL_PAGE, ListPage.COL_FETCHED_AT },
+                    ListPage.COL_LIST + " = ?",
+                    new String[] { list },
+                    null);
+            if (cursor != null) {
+                try {
+                    while (cursor.moveToNext()) {
+                        cachedPages.put(cursor.getInt(0), cursor.getLong(1));
+                    }
+                } finally {
+                    cursor.close();
+                }
+            }
+
+            List<TmdbData.Movie> movies = snapshot.get(list);
+            int pageSize = TmdbClient.MOVIE_LIST_PAGE_SIZE;
+            for (int start = 0; movies != null && start < movies.size(); start += pageSize) {
+                int page = start / pageSize + 1;
+                Long fetchedAt = cachedPages.get(page);
+                if (fetchedAt != null && fetchedAt >= createdAt) {
+                    continue;
+                }
+
+                storePage(context, list, page,
+                        movies.subList(start, Math.min(start + pageSize, movies.size())), createdAt);
+                importedPages++;
+            }
+        }
+        return importedPages;
+    }
+
+    private static ContentValues toValues(TmdbData.Movie movie) {
+        ContentValues values = new ContentValues();
+        values.put(ListEntry.COL_MOVIE_ID, movie.getId());
+        values.put(ListEntry.COL_TITLE, movie.getTitle());
+        values.put(ListEntry.COL_OVERVIEW, movie.getOverview());
+        values.put(ListEntry.COL_POSTER_PATH, movie.getPosterPath());
+        values.put(ListEntry.COL_RELEASE_DATE, movie.getReleaseDate());
+        values.put(ListEntry.COL_VOTE_AVERAGE, movie.getVoteAverage());
+        return values;
+    }
+
+    private static ContentValues readEntry(Cursor cursor) {
+        ContentValues values = new ContentValues();
+        values.put(ListEntry.COL_MOVIE_ID, cursor.getInt(INDEX_MOVIE_ID));
+        values.put(ListEntry.COL_TITLE, cursor.getString(INDEX_TITLE));
+        values.put(ListEntry.COL_OVERVIEW, cursor.getString(INDEX_OVERVIEW));
+        values.put(ListEntry.COL_POSTER_PATH, cursor.getString(INDEX_POSTER_PATH));
+        values.put(ListEntry.COL_RELEASE_DATE, cursor.getString(INDEX_RELEASE_DATE));
+        values.put(ListEntry.COL_VOTE_AVERAGE, cursor.getDouble(INDEX_VOTE_AVERAGE));
+        return values;
+    }
+
+    /**
+     * @return Values which differ from cached values
+     */
+    private static ContentValues getChangedValues(ContentValues cachedValues, ContentValues values) {
+        ContentValues changedValues = new ContentValues();
+
+        if (!values.getAsInteger(ListEntry.COL_MOVIE_ID)
+                .equals(cachedValues.getAsInteger(ListEntry.COL_MOVIE_ID))) {
+            changedValues.put(ListEntry.COL_MOVIE_ID, values.getAsInteger(ListEntry.COL_MOVIE_ID));
+        }
+        if (!values.getAsDouble(ListEntry.COL_VOTE_AVERAGE)
+                .equals(cachedValues.getAsDouble(ListEntry.COL_VOTE_AVERAGE))) {
+            changedValues.put(ListEntry.COL_VOTE_AVERAGE, values.getAsDouble(ListEntry.COL_VOTE_AVERAGE));
+        }
+
+        String[] textColumns = {
+                ListEntry.COL_TITLE,
+                ListEntry.COL_OVERVIEW,
+                ListEntry.COL_POSTER_PATH,
+                ListEntry.COL_RELEASE_DATE
+        };
+        for (String column : textColumns) {
+            String value = values.getAsString(column);
+            if (!TextUtils.equals(value, cachedValues.getAsString(column))) {
+                changedValues.put(column, value);
+            }
+        }
+
+        return changedValues;
+    }
+}
@@ -17,30 +17,61 @@
 package cz.jtek.popularmovies.data;
 
 import android.content.ContentProvider;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.Context;
+import android.content.OperationApplicationException;
 import android.content.UriMatcher;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteConstraintException;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
+import android.database.sqlite.SQLiteStatement;
 import android.net.Uri;
+import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.text.TextUtils;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 
 public class MovieProvider extends ContentProvider {
 
-    @SuppressWarnings("unused")
     private static final String TAG = MovieProvider.class.getSimpleName();
 
     // Constant to be used to match URIs using the UriMatcher class
     public static final int CODE_MOVIES = 100;
     public static final int CODE_MOVIE_ID = 101;
+    public static final int CODE_LIST_ENTRIES = 200;
+    public static final int CODE_LIST_ENTRY_ID = 201;
+    public static final int CODE_LIST_PAGES = 300;
 
      // The URI Matcher used by this content provider.
     private static final UriMatcher sUriMatcher = buildUriMatcher();
 
     private MovieDbHelper mOpenHelper;
 
+    // Favorite flag lookup by movie id, compiled once and shared by all calls
+    private static final String SQL_SELECT_FAVORITE =
+            "SELECT " + MovieContract.MovieEntry.COL_FAVORITE
+            + " FROM " + MovieContract.MovieEntry.TABLE_NAME
+            + " WHERE " + MovieContract.MovieEntry.COL_MOVIE_ID + " = ?";
+    private SQLiteStatement mFavoriteStatement;
+
+    // Collection update notifies changed items separately up to this count,
+    // larger updates notify the whole collection
+    private static final int MAX_ITEM_NOTIFICATIONS = 16;
+
+    // Batch of operations run by applyBatch on current thread
+    private final ThreadLocal<Batch> mBatch = new ThreadLocal<>();
+
     public static UriMatcher buildUriMatcher() {
 
         final UriMatcher matcher = new UriMatcher(UriMatcher.NO_MATCH);
@@ -48,13 +79,30 @@ public class MovieProvider extends ContentProvider {
 
         matcher.addURI(authority, MovieContract.PATH_MOVIES, CODE_MOVIES);
         matcher.addURI(authority, MovieContract.PATH_MOVIES + "/#", CODE_MOVIE_ID);
+        matcher.addURI(authority, MovieContract.PATH_LIST_ENTRIES, CODE_LIST_ENTRIES);
+        matcher.addURI(authority, MovieContract.PATH_LIST_ENTRIES + "/#", CODE_LIST_ENTRY_ID);
+        matcher.addURI(authority, MovieContract.PATH_LIST_PAGES, CODE_LIST_PAGES);
 
         return matcher;
     }
 
+    public MovieProvider() {
+    }
+
+    /**
+     * Provider instance on given database, used by benchmarks to keep stored data untouched
+     *
+     * @param openHelper Database helper
+     */
+    MovieProvider(MovieDbHelper openHelper) {
+        mOpenHelper = openHelper;
+    }
+
     @Override
     public boolean onCreate() {
-        mOpenHelper = new MovieDbHelper(getContext());
+        if (mOpenHelper == null) {
+            mOpenHelper = new MovieDbHelper(getContext());
+        }
         return true;
     }
 
@@ -86,6 +134,42 @@ public class MovieProvider extends ContentProvider {
                 break;
             }
 
+            case CODE_MOVIE_ID: {
+                // Selecting one movie by movie id, lookup uses unique movie id index
+                // Given selection further restricts the movie row
+                String itemSelection = MovieContract.MovieEntry.COL_MOVIE_ID + " = ?";
+                String[] itemSelectionArgs = { String.valueOf(ContentUris.parseId(uri)) };
+                if (!TextUtils.isEmpty(selection)) {
+                    itemSelection += " AND (" + selection + ")";
+                    itemSelectionArgs = DatabaseUtils.appendSelectionArgs(itemSelectionArgs, selectionArgs);
+                }
+
+                cursor = mOpenHelper.getReadableDatabase().query(
+                        MovieContract.MovieEntry.TABLE_NAME,
+                        projection,
+                        itemSelection,
+                        itemSelectionArgs,
+                        null,
+                        null,
+                        null,
+                        "1");
+                break;
+            }
+
+            case CODE_LIST_ENTRIES:
+            case CODE_LIST_PAGES: {
+                // Selecting cached list entries or pages
+                cursor = mOpenHelper.getReadableDatabase().query(
+                        getTableName(uri),
+                        projection,
+                        selection,
+                        selectionArgs,
+                        null,
+                        null,
+                        sortOrder);
+                break;
+            }
+
             default:
                 throw new UnsupportedOperationException("Unknown uri: " + uri);
         }
@@ -94,6 +178,53 @@ public class MovieProvider extends ContentProvider {
         return cursor;
     }
 
+    /**
+     * Provider methods which need no cursor, see MovieContract.METHOD_IS_FAVORITE
+     */
+    @Nullable
+    @Override
+    public Bundle call(@NonNull String method, @Nullable String arg, @Nullable Bundle extras) {
+        if (MovieContract.METHOD_IS_FAVORITE.equals(method)) {
+            if (arg == null) {
+                throw new IllegalArgumentException("Movie id cannot be null");
+            }
+
+            Bundle result = new Bundle();
+            result.putBoolean(MovieContract.KEY_FAVORITE, isFavorite(Long.parseLong(arg)));
+            return result;
+        }
+
+        return super.call(method, arg, extras);
+    }
+
+    /**
+     * Checks favorite flag of stored movie with compiled statement, no cursor is created
+     *
+     * @param movieId   Movie id
+     * @return true if movie is stored as favorite
+     */
+    private boolean isFavorite(long movieId) {
+        SQLiteStatement statement = getFavoriteStatement();
+
+        // Compiled statement holds its bindings, it cannot be used by two threads at once
+        synchronized (statement) {
+            statement.bindLong(1, movieId);
+            try {
+                return statement.simpleQueryForLong() != 0;
+            } catch (SQLiteDoneException sde) {
+                // Movie is not stored
+                return false;
+            }
+        }
+    }
+
+    private synchronized SQLiteStatement getFavoriteStatement() {
+        if (mFavoriteStatement == null) {
+            mFavoriteStatement = mOpenHelper.getReadableDatabase().compileStatement(SQL_SELECT_FAVORITE);
+        }
+        return mFavoriteStatement;
+    }
+
     @Nullable
     @Override
     public String getType(@NonNull Uri uri) {
@@ -104,6 +235,15 @@ public class MovieProvider extends ContentProvider {
             case CODE_MOVIE_ID:
                 return MovieContract.MIME_TYPE_ITEM;
 
+            case CODE_LIST_ENTRIES:
+                return MovieContract.MIME_TYPE_LIST_ENTRY_DIR;
+
+            case CODE_LIST_ENTRY_ID:
+                return MovieContract.MIME_TYPE_LIST_ENTRY_ITEM;
+
+            case CODE_LIST_PAGES:
+                return MovieContract.MIME_TYPE_LIST_PAGE_DIR;
+
             default:
                 throw new IllegalArgumentException("Unknown URI " + uri);
         }
@@ -118,28 +258,127 @@ public class MovieProvider extends ContentProvider {
             throw new IllegalArgumentException("Context cannot be null");
         }
 
-        if (sUriMatcher.match(uri) != CODE_MOVIES) {
+        String tableName = getTableName(uri);
+        if (tableName == null) {
             throw new UnsupportedOperationException("Unknown URI " + uri);
         }
 
-        if (contentValues == null) {
-            throw new IllegalArgumentException("ContentValues cannot be null");
+        checkInsertValues(uri, contentValues);
+
+        long rowId;
+        Batch batch = mBatch.get();
+        if (batch != null) {
+            // Insert within applyBatch reuses compiled statement
+            rowId = batch.mInsertStatements.insert(tableName, contentValues);
+        } else {
+            final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
+            rowId = db.insert(tableName, null, contentValues);
         }
 
-        if (!contentValues.containsKey(MovieContract.MovieEntry.COL_MOVIE_ID)) {
-            throw new IllegalArgumentException("ContentValues must contain key "  + MovieContract.MovieEntry.COL_MOVIE_ID);
+        if (rowId > 0) {
+            notifyChange(context, uri);
+            return ContentUris.withAppendedId(uri, rowId);
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Inserts all rows in one transaction. Rows with the same set of columns share one
+     * compiled insert statement, observers are notified once.
+     *
+     * @param uri       Collection URI
+     * @param values    Rows to insert
+     * @return Number of inserted rows
+     */
+    @Override
+    public int bulkInsert(@NonNull Uri uri, @NonNull ContentValues[] values) {
+        Context context = getContext();
+
+        if (context == null) {
+            throw new IllegalArgumentException("Context cannot be null");
+        }
+
+        String tableName = getTableName(uri);
+        if (tableName == null) {
+            throw new UnsupportedOperationException("Unknown URI " + uri);
+        }
+
+        for (ContentValues contentValues : values) {
+            checkInsertValues(uri, contentValues);
         }
 
         final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
+        InsertStatements statements = new InsertStatements(db);
+        int rowsInserted = 0;
+
+        db.beginTransaction();
+        try {
+            for (ContentValues contentValues : values) {
+                if (statements.insert(tableName, contentValues) > 0) {
+                    rowsInserted++;
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            statements.close();
+        }
 
-        long rowId = db.insert(MovieContract.MovieEntry.TABLE_NAME, null, contentValues);
+        if (rowsInserted > 0) {
+            notifyChange(context, uri);
+        }
 
-        if (rowId > 0) {
-            context.getContentResolver().notifyChange(uri, null);
-            return ContentUris.withAppendedId(MovieContract.MovieEntry.CONTENT_URI, rowId);
-        } else {
-            return null;
+        return rowsInserted;
+    }
+
+    /**
+     * Applies all operations in one transaction, either all of them succeed or none.
+     * Inserts use compiled statements, change notifications are coalesced and sent after
+     * the transaction is committed.
+     *
+     * @param operations    Operations to apply
+     * @return Operation results
+     * @throws OperationApplicationException When an operation fails
+     */
+    @NonNull
+    @Override
+    public ContentProviderResult[] applyBatch(@NonNull ArrayList<ContentProviderOperation> operations)
+            throws OperationApplicationException {
+        Context context = getContext();
+
+        if (context == null) {
+            throw new IllegalArgumentException("Context cannot be null");
+        }
+
+        final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
+        Batch batch = new Batch(db);
+        ContentProviderResult[] results;
+
+        mBatch.set(batch);
+        db.beginTransaction();
+        try {
+            results = super.applyBatch(operations);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            mBatch.remove();
+            batch.mInsertStatements.close();
+        }
+
+        // One notification per changed table: of the changed item, or of the whole collection
+        HashMap<String, Uri> changedTables = new HashMap<>();
+        for (Uri changedUri : batch.mChangedUris) {
+            String path = changedUri.getPathSegments().get(0);
+            changedTables.put(path, changedTables.containsKey(path)
+                    ? MovieContract.BASE_CONTENT_URI.buildUpon().appendPath(path).build()
+                    : changedUri);
+        }
+        for (Uri changedUri : changedTables.values()) {
+            context.getContentResolver().notifyChange(changedUri, null);
         }
+
+        return results;
     }
 
     @Override
@@ -173,21 +412,357 @@ public class MovieProvider extends ContentProvider {
 
                 rowsDeleted = db.delete(MovieContract.MovieEntry.TABLE_NAME, selection, selectionArgs);
                 break;
+            case CODE_LIST_ENTRIES:
+            case CODE_LIST_PAGES:
+                rowsDeleted = db.delete(getTableName(uri), selection, selectionArgs);
+                break;
+            case CODE_LIST_ENTRY_ID:
+                selection = MovieContract.ListEntry._ID + " = ?";
+                selectionArgs = new String[] { String.valueOf(ContentUris.parseId(uri)) };
+
+                rowsDeleted = db.delete(MovieContract.ListEntry.TABLE_NAME, selection, selectionArgs);
+                break;
             default:
                 throw new UnsupportedOperationException("Unknown URI: " + uri);
         }
 
         // If some rows were deleted, notify all listeners
         if (rowsDeleted != 0) {
-            context.getContentResolver().notifyChange(uri, null);
+            notifyChange(context, uri);
         }
 
         return rowsDeleted;
     }
 
     @Override
-    public int update(@NonNull Uri uri, @Nullable ContentValues contentValues, @Nullable String s, @Nullable String[] strings) {
-        // Not implemented
-        return 0;
+    public int update(@NonNull Uri uri, @Nullable ContentValues contentValues,
+                      @Nullable String selection, @Nullable String[] selectionArgs) {
+        Context context = getContext();
+
+        if (context == null) {
+            throw new NullPointerException("Context cannot be null");
+        }
+
+        if (contentValues == null || contentValues.size() == 0) {
+            throw new IllegalArgumentException("ContentValues cannot be empty");
+        }
+
+        final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
+
+        switch (sUriMatcher.match(uri)) {
+            case CODE_MOVIES:
+                return updateMovies(context, db, contentValues, selection, selectionArgs);
+
+            case CODE_MOVIE_ID: {
+                long movieId = ContentUris.parseId(uri);
+                Object valuesMovieId = contentValues.get(MovieContract.MovieEntry.COL_MOVIE_ID);
+                if (valuesMovieId != null && !String.valueOf(movieId).equals(valuesMovieId.toString())) {
+                    throw new IllegalArgumentException("Movie id cannot be changed: " + uri);
+                }
+
+                int rowsUpdated;
+                if (uri.getBooleanQueryParameter(MovieContract.MovieEntry.QUERY_UPSERT, false)) {
+                    // Upsert compares and writes the whole movie, it cannot be restricted
+                    if (!TextUtils.isEmpty(selection)) {
+                        throw new IllegalArgumentException("Selection is not supported by upsert: " + uri);
+                    }
+                    rowsUpdated = upsertMovie(db, movieId, contentValues);
+                } else {
+                    String itemSelection = MovieContract.MovieEntry.COL_MOVIE_ID + " = ?";
+                    String[] itemSelectionArgs = { String.valueOf(movieId) };
+                    if (!TextUtils.isEmpty(selection)) {
+                        itemSelection += " AND (" + selection + ")";
+                        itemSelectionArgs = DatabaseUtils.appendSelectionArgs(itemSelectionArgs, selectionArgs);
+                    }
+                    rowsUpdated = db.update(MovieContract.MovieEntry.TABLE_NAME, contentValues,
+                            itemSelection, itemSelectionArgs);
+                }
+
+                // Only observers of this movie and of the collection are notified
+                if (rowsUpdated != 0) {
+                    notifyChange(context, MovieContract.MovieEntry.buildMovieUri(movieId));
+                }
+                return rowsUpdated;
+            }
+
+            case CODE_LIST_ENTRIES:
+            case CODE_LIST_PAGES:
+            case CODE_LIST_ENTRY_ID: {
+                String tableName;
+                if (sUriMatcher.match(uri) == CODE_LIST_ENTRY_ID) {
+                    tableName = MovieContract.ListEntry.TABLE_NAME;
+                    selection = MovieContract.ListEntry._ID + " = ?";
+                    selectionArgs = new String[] { String.valueOf(ContentUris.parseId(uri)) };
+                } else {
+                    tableName = getTableName(uri);
+                }
+
+                int rowsUpdated = db.update(tableName, contentValues, selection, selectionArgs);
+                if (rowsUpdated != 0) {
+                    notifyChange(context, uri);
+                }
+                return rowsUpdated;
+            }
+
+            default:
+                throw new UnsupportedOperationException("Unknown URI: " + uri);
+        }
+    }
+
+    /**
+     * Updates all movies matching selection. Ids of updated movies are read in the same
+     * transaction, so that only their item URIs are notified.
+     */
+    private int updateMovies(Context context, SQLiteDatabase db, ContentValues contentValues,
+                             @Nullable String selection, @Nullable String[] selectionArgs) {
+        ArrayList<Long> movieIds = new ArrayList<>();
+        int rowsUpdated;
+
+        db.beginTransaction();
+        try {
+            Cursor cursor = db.query(MovieContract.MovieEntry.TABLE_NAME,
+                    new String[] { MovieContract.MovieEntry.COL_MOVIE_ID },
+                    selection, selectionArgs, null, null, null,
+                    String.valueOf(MAX_ITEM_NOTIFICATIONS + 1));
+            try {
+                while (cursor.moveToNext()) {
+                    movieIds.add(cursor.getLong(0));
+                }
+            } finally {
+                cursor.close();
+            }
+
+            rowsUpdated = db.update(MovieContract.MovieEntry.TABLE_NAME, contentValues,
+                    selection, selectionArgs);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        if (rowsUpdated == 0) {
+            return 0;
+        }
+
+        if (movieIds.size() <= MAX_ITEM_NOTIFICATIONS
+                && !contentValues.containsKey(MovieContract.MovieEntry.COL_MOVIE_ID)) {
+            for (long movieId : movieIds) {
+                notifyChange(context, MovieContract.MovieEntry.buildMovieUri(movieId));
+            }
+        } else {
+            notifyChange(context, MovieContract.MovieEntry.CONTENT_URI);
+        }
+        return rowsUpdated;
+    }
+
+    /**
+     * Writes only those columns of stored movie which differ from given values, row id and
+     * indexes of the movie are kept. Movie which is not stored yet is inserted, in this case
+     * values have to contain all columns.
+     *
+     * @param db            Writable database
+     * @param movieId       Movie id
+     * @param contentValues New column values
+     * @return 1 when movie was inserted or changed, 0 when stored movie is up to date
+     */
+    private int upsertMovie(SQLiteDatabase db, long movieId, ContentValues contentValues) {
+        ArrayList<String> columns = new ArrayList<>(contentValues.keySet());
+        columns.remove(MovieContract.MovieEntry.COL_MOVIE_ID);
+
+        // Bit mask of changed columns: (column IS NOT ?) for each column
+        StringBuilder sql = new StringBuilder("SELECT 0");
+        for (int i = 0; i < columns.size(); i++) {
+            sql.append(" | ((").append(columns.get(i)).append(" IS NOT ?) << ").append(i).append(')');
+        }
+        sql.append(" FROM ").append(MovieContract.MovieEntry.TABLE_NAME)
+                .append(" WHERE ").append(MovieContract.MovieEntry.COL_MOVIE_ID).append(" = ?");
+
+        db.beginTransaction();
+        try {
+            int rowsChanged;
+            SQLiteStatement statement = db.compileStatement(sql.toString());
+            try {
+                for (int i = 0; i < columns.size(); i++) {
+                    bind(statement, i + 1, contentValues.get(columns.get(i)));
+                }
+                statement.bindLong(columns.size() + 1, movieId);
+
+                long changedMask = statement.simpleQueryForLong();
+                ContentValues changedValues = new ContentValues();
+                for (int i = 0; i < columns.size(); i++) {
+                    if ((changedMask & (1L << i)) != 0) {
+                        String column = columns.get(i);
+                        putValue(changedValues, column, contentValues.get(column));
+                    }
+                }
+
+                rowsChanged = (changedValues.size() == 0) ? 0
+                        : db.update(MovieContract.MovieEntry.TABLE_NAME, changedValues,
+                                MovieContract.MovieEntry.COL_MOVIE_ID + " = ?",
+                                new String[] { String.valueOf(movieId) });
+            } catch (SQLiteDoneException sde) {
+                // Movie is not stored yet
+                ContentValues insertValues = new ContentValues(contentValues);
+                insertValues.put(MovieContract.MovieEntry.COL_MOVIE_ID, movieId);
+                rowsChanged = (db.insert(MovieContract.MovieEntry.TABLE_NAME, null, insertValues) > 0) ? 1 : 0;
+            } finally {
+                statement.close();
+            }
+
+            db.setTransactionSuccessful();
+            return rowsChanged;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // Copies single value keeping its type, ContentValues has no generic put
+    private static void putValue(ContentValues values, String column, Object value) {
+        if (value == null) {
+            values.putNull(column);
+        } else if (value instanceof Double || value instanceof Float) {
+            values.put(column, ((Number) value).doubleValue());
+        } else if (value instanceof Number) {
+            values.put(column, ((Number) value).longValue());
+        } else if (value instanceof Boolean) {
+            values.put(column, (Boolean) value);
+        } else if (value instanceof byte[]) {
+            values.put(column, (byte[]) value);
+        } else {
+            values.put(column, value.toString());
+        }
+    }
+
+    /**
+     * Binds ContentValues value to compiled statement with its own type
+     */
+    private static void bind(SQLiteStatement statement, int index, Object value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else if (value instanceof Double || value instanceof Float) {
+            statement.bindDouble(index, ((Number) value).doubleValue());
+        } else if (value instanceof Number) {
+            statement.bindLong(index, ((Number) value).longValue());
+        } else if (value instanceof Boolean) {
+            statement.bindLong(index, (Boolean) value ? 1 : 0);
+        } else if (value instanceof byte[]) {
+            statement.bindBlob(index, (byte[]) value);
+        } else {
+            statement.bindString(index, value.toString());
+        }
+    }
+
+    /**
+     * @param uri   Collection URI
+     * @return Table of the collection, null for other URIs
+     */
+    @Nullable
+    private static String getTableName(@NonNull Uri uri) {
+        switch (sUriMatcher.match(uri)) {
+            case CODE_MOVIES:
+                return MovieContract.MovieEntry.TABLE_NAME;
+            case CODE_LIST_ENTRIES:
+                return MovieContract.ListEntry.TABLE_NAME;
+            case CODE_LIST_PAGES:
+                return MovieContract.ListPage.TABLE_NAME;
+            default:
+                return null;
+        }
+    }
+
+    private static void checkInsertValues(@NonNull Uri uri, @Nullable ContentValues contentValues) {
+        if (contentValues == null) {
+            throw new IllegalArgumentException("ContentValues cannot be null");
+        }
+
+        if (sUriMatcher.match(uri) != CODE_LIST_PAGES
+                && !contentValues.containsKey(MovieContract.MovieEntry.COL_MOVIE_ID)) {
+            throw new IllegalArgumentException("ContentValues must contain key "  + MovieContract.MovieEntry.COL_MOVIE_ID);
+        }
+    }
+
+    /**
+     * Notifies observers of changed URI, changes made within applyBatch are collected
+     * and notified after the batch
+     */
+    private void notifyChange(@NonNull Context context, @NonNull Uri uri) {
+        Batch batch = mBatch.get();
+        if (batch != null) {
+            batch.mChangedUris.add(uri);
+        } else {
+            context.getContentResolver().notifyChange(uri, null);
+        }
+    }
+
+    /**
+     * State of applyBatch call
+     */
+    private static final class Batch {
+        final InsertStatements mInsertStatements;
+        final LinkedHashSet<Uri> mChangedUris = new LinkedHashSet<>();
+
+        Batch(SQLiteDatabase db) {
+            mInsertStatements = new InsertStatements(db);
+        }
+    }
+
+    /**
+     * Compiled insert statements, one for every table and set of inserted columns.
+     * Statements have to be closed after use.
+     */
+    private static final class InsertStatements {
+        private final SQLiteDatabase mDb;
+        private final HashMap<String, SQLiteStatement> mStatements = new HashMap<>();
+
+        InsertStatements(SQLiteDatabase db) {
+            mDb = db;
+        }
+
+        /**
+         * Inserts row, conflicting row with the same unique key is replaced. Row violating
+         * other constraint is skipped, same as SQLiteDatabase.insert does.
+         *
+         * @param tableName     Table name
+         * @param contentValues Column values
+         * @return Row id of inserted row, -1 when the row was skipped
+         */
+        long insert(String tableName, ContentValues contentValues) {
+            String[] columns = contentValues.keySet().toArray(new String[contentValues.size()]);
+            // Same columns in any order share one statement
+            Arrays.sort(columns);
+            String columnList = TextUtils.join(",", columns);
+            String key = tableName + ":" + columnList;
+
+            SQLiteStatement statement = mStatements.get(key);
+            if (statement == null) {
+                StringBuilder sql = new StringBuilder("INSERT INTO ")
+                        .append(tableName)
+                        .append(" (").append(columnList).append(") VALUES (");
+                for (int i = 0; i < columns.length; i++) {
+                    sql.append(i > 0 ? ",?" : "?");
+                }
+                sql.append(')');
+
+                statement = mDb.compileStatement(sql.toString());
+                mStatements.put(key, statement);
+            }
+
+            statement.clearBindings();
+            for (int i = 0; i < columns.length; i++) {
+                bind(statement, i + 1, contentValues.get(columns[i]));
+            }
+            try {
+                return statement.executeInsert();
+            } catch (SQLiteConstraintException sce) {
+                Log.w(TAG, "Row not inserted into " + tableName, sce);
+                return -1;
+            }
+        }
+
+        void close() {
+            for (SQLiteStatement statement : mStatements.values()) {
+                statement.close();
+            }
+            mStatements.clear();
+        }
     }
 }
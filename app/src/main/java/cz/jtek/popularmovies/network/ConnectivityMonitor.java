@@ -0,0 +1,217 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.network;
+
+import android.annotation.TargetApi;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkInfo;
+import android.net.NetworkRequest;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.v4.net.ConnectivityManagerCompat;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Event driven connectivity state cache.
+ * Registers for connectivity changes once and keeps current state, so that reading it
+ * is cheap and does not query ConnectivityManager. Listeners are notified on main thread
+ * whenever the state changes.
+ */
+public final class ConnectivityMonitor {
+
+    @SuppressWarnings("unused")
+    private static final String TAG = ConnectivityMonitor.class.getSimpleName();
+
+    /**
+     * Transport type of active network
+     */
+    public enum TransportType { NONE, WIFI, CELLULAR, ETHERNET, OTHER }
+
+    /**
+     * Immutable connectivity state snapshot
+     */
+    public static class State {
+        static final State DISCONNECTED = new State(false, false, TransportType.NONE);
+
+        final boolean mConnected;
+        final boolean mMetered;
+        final TransportType mTransportType;
+
+        State(boolean connected, boolean metered, TransportType transportType) {
+            mConnected = connected;
+            mMetered = metered;
+            mTransportType = transportType;
+        }
+
+        public boolean isConnected() { return mConnected; }
+        public boolean isMetered() { return mMetered; }
+        public TransportType getTransportType() { return mTransportType; }
+
+        boolean sameAs(State other) {
+            return mConnected == other.mConnected
+                    && mMetered == other.mMetered
+                    && mTransportType == other.mTransportType;
+        }
+    }
+
+    /**
+     * Connectivity change listener
+     */
+    public interface Listener {
+        void onConnectivityChanged(@NonNull State state);
+    }
+
+    private static ConnectivityMonitor sInstance;
+
+    private final ConnectivityManager mConnectivityManager;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final CopyOnWriteArrayList<Listener> mListeners = new CopyOnWriteArrayList<>();
+
+    private volatile State mState = State.DISCONNECTED;
+
+    private ConnectivityMonitor(Context context) {
+        mConnectivityManager =
+                (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        refresh();
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            registerNetworkCallback();
+        } else {
+            registerConnectivityReceiver(context);
+        }
+    }
+
+    /**
+     * Initializes shared connectivity monitor
+     *
+     * @param context Context, application context is retained
+     */
+    public static synchronized void init(@NonNull Context context) {
+        if (sInstance == null) {
+            sInstance = new ConnectivityMonitor(context.getApplicationContext());
+        }
+    }
+
+    /**
+     * @return Shared connectivity monitor, null if not initialized
+     */
+    public static synchronized ConnectivityMonitor getInstance() { return sInstance; }
+
+    /**
+     * @return Current connectivity state
+     */
+    @NonNull
+    public State getState() { return mState; }
+
+    /**
+     * @return true if network connection is available
+     */
+    public boolean isConnected() { return mState.mConnected; }
+
+    public void addListener(@NonNull Listener listener) { mListeners.addIfAbsent(listener); }
+
+    public void removeListener(@NonNull Listener listener) { mListeners.remove(listener); }
+
+    /**
+     * Reads current state from ConnectivityManager and notifies listeners on change
+     */
+    private synchronized void refresh() {
+        State state = State.DISCONNECTED;
+
+        if (mConnectivityManager != null) {
+            NetworkInfo netInfo = mConnectivityManager.getActiveNetworkInfo();
+            if (netInfo != null && netInfo.isConnected()) {
+                state = new State(true,
+                        ConnectivityManagerCompat.isActiveNetworkMetered(mConnectivityManager),
+                        toTransportType(netInfo.getType()));
+            }
+        }
+
+        State previous = mState;
+        mState = state;
+
+        if (!state.sameAs(previous)) {
+            final State changed = state;
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    for (Listener listener : mListeners) {
+                        listener.onConnectivityChanged(changed);
+                    }
+                }
+            });
+        }
+    }
+
+    private static TransportType toTransportType(int networkType) {
+        switch (networkType) {
+            case ConnectivityManager.TYPE_WIFI:
+                return TransportType.WIFI;
+            case ConnectivityManager.TYPE_MOBILE:
+                return TransportType.CELLULAR;
+            case ConnectivityManager.TYPE_ETHERNET:
+                return TransportType.ETHERNET;
+            default:
+                return TransportType.OTHER;
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private void registerNetworkCallback() {
+        if (mConnectivityManager == null) {
+            return;
+        }
+
+        NetworkRequest request = new NetworkRequest.Builder()
+                .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+                .build();
+
+        mConnectivityManager.registerNetworkCallback(request,
+                new ConnectivityManager.NetworkCallback() {
+                    @Override
+                    public void onAvailable(Network network) { refresh(); }
+
+                    @Override
+                    public void onLost(Network network) { refresh(); }
+
+                    @Override
+                    public void onCapabilitiesChanged(Network network,
+                                                      NetworkCapabilities capabilities) {
+                        refresh();
+                    }
+                });
+    }
+
+    @SuppressWarnings("deprecation")
+    private void registerConnectivityReceiver(Context context) {
+        context.registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                refresh();
+            }
+        }, new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+    }
+}
@@ -17,11 +17,15 @@
 package cz.jtek.popularmovies.utilities;
 
 import android.content.Context;
+import android.support.annotation.NonNull;
 import android.util.Log;
 
 import java.io.IOException;
 import java.io.InputStream;
 
+import cz.jtek.popularmovies.network.MockTmdbTransport;
+import cz.jtek.popularmovies.network.ResponseReader;
+
 /**
  * These utilities can be used for application testing without the need of network
  * connection.
@@ -38,23 +42,15 @@ public class MockDataUtils {
      * @return File contents
      */
     private static String readFile(InputStream inputStream) {
-        StringBuilder sb = new StringBuilder();
-        int readLen;
-
-        byte[] buffer = new byte[1024];
-
         try {
-            while ((readLen = inputStream.read(buffer)) != -1) {
-                sb.append(new String(buffer, 0, readLen));
-            }
+            String contents = ResponseReader.readString(inputStream, inputStream.available());
             inputStream.close();
+            return contents != null ? contents : "";
         } catch (IOException ex) {
             Log.e(TAG, "IOException reading file.");
             ex.printStackTrace();
             return "";
         }
-
-        return sb.toString();
     }
 
     /**
@@ -73,4 +69,23 @@ public class MockDataUtils {
 
         return readFile(inputStream);
     }
+
+    /**
+     * Provides mock JSON files from /res/raw directory to offline mock API server
+     *
+     * @param context    Current context
+     * @return Mock JSON source
+     */
+    public static MockTmdbTransport.JsonSource getMockJsonSource(Context context) {
+        final Context appContext = context.getApplicationContext();
+
+        return new MockTmdbTransport.JsonSource() {
+            @Override
+            public InputStream open(@NonNull String name) {
+                return appContext.getResources().openRawResource(
+                        appContext.getResources().getIdentifier(name, "raw", appContext.getPackageName())
+                );
+            }
+        };
+    }
 }
@@ -27,72 +27,34 @@ import android.net.Uri;
 import android.support.annotation.NonNull;
 import android.util.Log;
 
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.List;
-import java.util.Scanner;
 
 import cz.jtek.popularmovies.BuildConfig;
 import cz.jtek.popularmovies.R;
+import cz.jtek.popularmovies.TmdbData;
+import cz.jtek.popularmovies.network.ConnectivityMonitor;
+import cz.jtek.popularmovies.network.TmdbClient;
 
 /**
- * Utilities for TMDb API network communication
+ * Android side of TMDb API network communication.
+ * Requests are built and executed by TmdbClient, this class supplies API key,
+ * maps preferences to API parameters and checks network state.
  */
 public final class NetworkUtils {
 
     @SuppressWarnings("unused")
     private static final String TAG = NetworkUtils.class.getSimpleName();
 
-    /*
-     Relevant TMDb API docs:
-     Configuration - https://developers.themoviedb.org/3/configuration/get-api-configuration
-     Popular movies - https://developers.themoviedb.org/3/movies/get-popular-movies
-     Top rated movies - https://developers.themoviedb.org/3/movies/get-top-rated-movies
-     */
-
-    private static final String TMDB_API_AUTHORITY = "api.themoviedb.org";
-    private static final String API_SCHEME = "https";
-
-    private static final String API_PATH_VERSION = "3";
-    private static final String API_PATH_CONFIGURATION = "configuration";
-    private static final String API_PATH_MOVIE = "movie";
-    private static final String API_PATH_POPULAR = "popular";
-    private static final String API_PATH_TOP_RATED = "top_rated";
-    private static final String API_PATH_VIDEOS = "videos";
-    private static final String API_PATH_REVIEWS = "reviews";
-
-    private static final String API_PARAM_API_KEY = "api_key";
-    private static final String API_PARAM_PAGE = "page";
-
-
     /**
      * Creates valid TMDb API /configuration URL for network requests
      *
      * @return TMDb API configuration URL
      */
     public static URL buildConfigurationUrl() {
-
-        // Build TMDb configuration Uri
-        Uri.Builder uriBuilder = new Uri.Builder();
-        uriBuilder.scheme(API_SCHEME)
-                .authority(TMDB_API_AUTHORITY)
-                .appendPath(API_PATH_VERSION)
-                .appendPath(API_PATH_CONFIGURATION)
-                // API token comes from grade.properties file, see README
-                .appendQueryParameter(API_PARAM_API_KEY, BuildConfig.TMDB_API_TOKEN);
-
-        Uri tmdbConfigUri = uriBuilder.build();
-
-        try {
-            return new URL(tmdbConfigUri.toString());
-        } catch (MalformedURLException e) {
-            e.printStackTrace();
-            throw new RuntimeException(e);
-        }
+        // API token comes from grade.properties file, see README
+        return TmdbClient.buildConfigurationUrl(BuildConfig.TMDB_API_TOKEN);
     }
 
     /**
@@ -121,34 +83,30 @@ public final class NetworkUtils {
             page = 1;
         }
 
-        // Build TMDb movie Uri
-        Uri.Builder uriBuilder = new Uri.Builder();
-        uriBuilder.scheme(API_SCHEME)
-                .authority(TMDB_API_AUTHORITY)
-                .appendPath(API_PATH_VERSION)
-                .appendPath(API_PATH_MOVIE);
+        String movieList = getMovieList(context, sortOrder);
+
+        // API token comes from grade.properties file, see README
+        return TmdbClient.buildMovieListUrl(BuildConfig.TMDB_API_TOKEN, movieList, page);
+    }
 
+    /**
+     * Maps sort order preference to TMDb API movie list
+     *
+     * @param context   Context
+     * @param sortOrder Sort order preference value, popular or top rated
+     *
+     * @return  TmdbClient.MOVIE_LIST_POPULAR or MOVIE_LIST_TOP_RATED
+     */
+    public static String getMovieList(@NonNull Context context, @NonNull String sortOrder) {
         // Possible sortOrder parameter values are listed in array.xml array 'sort-order-values'
         if (sortOrder.equals(context.getResources().getString(R.string.pref_sort_order_most_popular))) {
-            uriBuilder.appendPath(API_PATH_POPULAR);
+            return TmdbClient.MOVIE_LIST_POPULAR;
         } else if (sortOrder.equals(context.getResources().getString(R.string.pref_sort_order_top_rated))) {
-            uriBuilder.appendPath(API_PATH_TOP_RATED);
+            return TmdbClient.MOVIE_LIST_TOP_RATED;
         } else {
-            Log.e(TAG, "buildMovieUrl: unknown sort order parameter.");
+            Log.e(TAG, "getMovieList: unknown sort order parameter.");
             throw new IllegalArgumentException("Unknown sort order parameter");
         }
-
-        // API token comes from grade.properties file, see README
-        uriBuilder.appendQueryParameter(API_PARAM_API_KEY, BuildConfig.TMDB_API_TOKEN)
-                .appendQueryParameter(API_PARAM_PAGE, page.toString());
-
-        Uri tmdbMovieUri = uriBuilder.build();
-        try {
-            return new URL(tmdbMovieUri.toString());
-        } catch (MalformedURLException e) {
-            e.printStackTrace();
-            throw new RuntimeException(e);
-        }
     }
 
     /**
@@ -159,27 +117,7 @@ public final class NetworkUtils {
      * @return  TMDb movie videos URL
      */
     public static URL buildMovieVideosUrl(int movieId) {
-
-        // Build TMDb movie videos Uri
-        Uri.Builder uriBuilder = new Uri.Builder();
-        uriBuilder.scheme(API_SCHEME)
-                .authority(TMDB_API_AUTHORITY)
-                .appendPath(API_PATH_VERSION)
-                .appendPath(API_PATH_MOVIE)
-                .appendPath(String.valueOf(movieId))
-                .appendPath(API_PATH_VIDEOS);
-
-        // API token comes from grade.properties file, see README
-        uriBuilder.appendQueryParameter(API_PARAM_API_KEY, BuildConfig.TMDB_API_TOKEN);
-
-        Uri videosUri = uriBuilder.build();
-
-        try {
-            return new URL(videosUri.toString());
-        } catch (MalformedURLException e) {
-            e.printStackTrace();
-            throw new RuntimeException(e);
-        }
+        return TmdbClient.buildMovieVideosUrl(BuildConfig.TMDB_API_TOKEN, movieId);
     }
 
     /**
@@ -190,76 +128,35 @@ public final class NetworkUtils {
      * @return  TMDb movie reviews URL
      */
     public static URL buildMovieReviewsUrl(int movieId) {
-        // Build TMDb movie reviews Uri
-        Uri.Builder uriBuilder = new Uri.Builder();
-        uriBuilder.scheme(API_SCHEME)
-                .authority(TMDB_API_AUTHORITY)
-                .appendPath(API_PATH_VERSION)
-                .appendPath(API_PATH_MOVIE)
-                .appendPath(String.valueOf(movieId))
-                .appendPath(API_PATH_REVIEWS);
-
-        // API token comes from grade.properties file, see README
-        uriBuilder.appendQueryParameter(API_PARAM_API_KEY, BuildConfig.TMDB_API_TOKEN);
-
-        Uri reviewsUri = uriBuilder.build();
-
-        try {
-            return new URL(reviewsUri.toString());
-        } catch (MalformedURLException e) {
-            e.printStackTrace();
-            throw new RuntimeException(e);
-        }
+        return TmdbClient.buildMovieReviewsUrl(BuildConfig.TMDB_API_TOKEN, movieId);
     }
 
     /**
-     * This method returns the entire result from the HTTP response.
+     * Loads movie detail with videos and reviews by single API request.
+     * Concurrent callers (e.g. video and review fragments of one detail screen) share
+     * the request and its parse result, which must not be modified.
      *
-     * @param url The URL to fetch the HTTP response from.
-     * @return The contents of the HTTP response, null if no response
+     * @param movieId Movie id
+     * @return Parse result
      * @throws IOException Related to network and stream reading
      */
-    public static String getResponseFromHttpUrl(URL url) throws IOException {
-        HttpURLConnection urlConnection = (HttpURLConnection) url.openConnection();
-        try {
-            InputStream in = urlConnection.getInputStream();
-
-            Scanner scanner = new Scanner(in);
-            scanner.useDelimiter("\\A");
-
-            boolean hasInput = scanner.hasNext();
-            String response = null;
-            if (hasInput) {
-                response = scanner.next();
-            }
-            scanner.close();
-            return response;
-        } catch (FileNotFoundException fnfe) {
-          // We read error response from API to be processed later with JSON parsing utilities
-            InputStream errorStream = urlConnection.getErrorStream();
-
-            Scanner scanner = new Scanner(errorStream);
-            scanner.useDelimiter("\\A");
-
-            boolean hasInput = scanner.hasNext();
-            String response = null;
-            if (hasInput) {
-                response = scanner.next();
-            }
-            scanner.close();
-            return response;
-
-        } finally {
-            urlConnection.disconnect();
-        }
+    public static TmdbJsonUtils.TmdbJsonResult<TmdbData.MovieDetail> getMovieDetail(int movieId)
+            throws IOException {
+        return TmdbClient.getMovieDetail(BuildConfig.TMDB_API_TOKEN, movieId);
     }
 
     /**
      * This method tests for network availability
+     * Uses cached connectivity state when connectivity monitor is running
      *
      * @return true if network connection available
      */
     public static boolean isNetworkAvailable(@NonNull Context context) {
+        ConnectivityMonitor monitor = ConnectivityMonitor.getInstance();
+        if (monitor != null) {
+            return monitor.isConnected();
+        }
+
         ConnectivityManager cm = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
 
         if (cm != null) {
@@ -292,6 +189,37 @@ public final class NetworkUtils {
         public boolean hasResult() { return result != null; }
     }
 
+    /**
+     * Thread running loadInBackground of an API loader. AsyncTaskLoader.cancelLoad() does not
+     * interrupt the loading thread; API loaders interrupt it from cancelLoadInBackground(),
+     * so that a cancelled load stops waiting for its (possibly shared) API request.
+     */
+    public static class LoadingThread {
+        private Thread mThread;
+
+        /**
+         * Called by loadInBackground before loading
+         */
+        public synchronized void enter() { mThread = Thread.currentThread(); }
+
+        /**
+         * Called by loadInBackground after loading, clears interrupt of the pool thread
+         */
+        public synchronized void exit() {
+            mThread = null;
+            Thread.interrupted();
+        }
+
+        /**
+         * Interrupts running load, if any
+         */
+        public synchronized void interrupt() {
+            if (mThread != null) {
+                mThread.interrupt();
+            }
+        }
+    }
+
     /**
      * Intent to open YouTube video
      * Tries to use YoutTube app, if it fails, it uses web browser
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.utilities;
+
+import android.os.Parcel;
+
+/**
+ * Parcel helpers for types which are not Parcelable themselves
+ */
+public final class ParcelUtils {
+
+    // Parcel representation of lazy text
+    private static final int PARCEL_TEXT_NULL = 0;
+    private static final int PARCEL_TEXT_DECODED = 1;
+    private static final int PARCEL_TEXT_ENCODED = 2;
+    private static final int PARCEL_TEXT_ENCODED_ESCAPED = 3;
+
+    /**
+     * Writes lazy text to parcel, text which was not decoded yet stays encoded
+     *
+     * @param parcel    Destination parcel
+     * @param text      Lazy text, may be null
+     */
+    public static void writeLazyText(Parcel parcel, LazyText text) {
+        byte[] encoded = (text != null) ? text.getEncoded() : null;
+
+        if (text == null) {
+            parcel.writeInt(PARCEL_TEXT_NULL);
+        } else if (encoded == null) {
+            parcel.writeInt(PARCEL_TEXT_DECODED);
+            parcel.writeString(text.toString());
+        } else {
+            parcel.writeInt(text.isEscaped() ? PARCEL_TEXT_ENCODED_ESCAPED : PARCEL_TEXT_ENCODED);
+            parcel.writeByteArray(encoded);
+        }
+    }
+
+    /**
+     * Reads lazy text written by writeLazyText()
+     *
+     * @param in Source parcel
+     * @return Lazy text or null
+     */
+    public static LazyText readLazyText(Parcel in) {
+        switch (in.readInt()) {
+            case PARCEL_TEXT_DECODED:
+                return LazyText.of(in.readString());
+            case PARCEL_TEXT_ENCODED:
+                return LazyText.fromEncoded(in.createByteArray(), false);
+            case PARCEL_TEXT_ENCODED_ESCAPED:
+                return LazyText.fromEncoded(in.createByteArray(), true);
+            default:
+                return null;
+        }
+    }
+
+    private ParcelUtils() {}
+}
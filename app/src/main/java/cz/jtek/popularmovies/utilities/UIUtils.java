@@ -43,6 +43,37 @@ public class UIUtils {
         return width;
     }
 
+    /**
+     * This method returns device display height
+     * Uses deprecated API for SDK_INT < 13 only
+     *
+     * @param context Context
+     * @return Display height
+     */
+    @SuppressLint("ObsoleteSdkInt")
+    @SuppressWarnings("deprecation")
+    public static int getDisplayHeight(Context context) {
+
+        int height = 0;
+        Display display;
+
+        WindowManager wm = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+
+        if (wm != null) {
+            display = wm.getDefaultDisplay();
+
+            if (android.os.Build.VERSION.SDK_INT >= 13) {
+                Point size = new Point();
+                display.getSize(size);
+                height = size.y;
+            } else {
+                height = display.getHeight();  // deprecated API
+            }
+        }
+
+        return height;
+    }
+
     /**
      * Calculates correct full ListView height and sets layout height to this value
      * Useful for ListViews inside ScrollView
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import cz.jtek.popularmovies.network.MockTmdbTransport;
+import cz.jtek.popularmovies.network.NetworkProfile;
+import cz.jtek.popularmovies.network.TmdbClient;
+import cz.jtek.popularmovies.network.TmdbHttpClient;
+
+/**
+ * Loads the start screen through the whole client load path: rate limiting, retries,
+ * hedging, coalescing and stream parsing, with offline mock API server simulating network
+ * profile. Configuration is loaded first, then first result pages concurrently as the app
+ * prefetches them, then detail of one movie.
+ * Every load is one sample. Iteration counts keep requests of one fork within the API
+ * request burst budget, so that the rate limiter does not throttle the measured loads.
+ * Operation result is the number of successful requests, failures under FLAKY profile
+ * are part of the measured behavior.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LoadPathBenchmark {
+
+    private static final String API_KEY = "mock";
+    private static final int PREFETCHED_PAGES = 3;
+    private static final int DETAIL_MOVIE_ID = 278;
+
+    @Param({"IDEAL", "MOBILE", "FLAKY"})
+    public String profile;
+
+    private ExecutorService mExecutor;
+
+    @Setup
+    public void setup() {
+        TmdbHttpClient.setTransport(new MockTmdbTransport(new MockTmdbTransport.JsonSource() {
+            @Override
+            public InputStream open(String name) throws IOException {
+                InputStream in = LoadPathBenchmark.class.getResourceAsStream("/" + name + ".json");
+                if (in == null) {
+                    throw new IOException("Mock reply not found: " + name);
+                }
+                return in;
+            }
+        }, getProfile(profile)));
+        mExecutor = Executors.newFixedThreadPool(PREFETCHED_PAGES);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mExecutor.shutdownNow();
+    }
+
+    private static NetworkProfile getProfile(String name) {
+        switch (name) {
+            case "IDEAL":
+                return NetworkProfile.IDEAL;
+            case "MOBILE":
+                return NetworkProfile.MOBILE;
+            case "FLAKY":
+                return NetworkProfile.FLAKY;
+            default:
+                throw new IllegalArgumentException("Unknown network profile " + name);
+        }
+    }
+
+    @Benchmark
+    public int loadStartScreen() throws InterruptedException {
+        int loaded = load(TmdbClient.buildConfigurationUrl(API_KEY), TmdbClient.CONFIG_PARSER);
+
+        List<Future<Integer>> pages = new ArrayList<>(PREFETCHED_PAGES);
+        for (int page = 1; page <= PREFETCHED_PAGES; page++) {
+            final URL url = TmdbClient.buildMovieListUrl(API_KEY, TmdbClient.MOVIE_LIST_POPULAR, page);
+            pages.add(mExecutor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    return load(url, TmdbClient.MOVIE_LIST_PARSER);
+                }
+            }));
+        }
+        for (Future<Integer> page : pages) {
+            try {
+                loaded += page.get();
+            } catch (ExecutionException ee) {
+                throw new IllegalStateException("Page load failed", ee.getCause());
+            }
+        }
+
+        try {
+            if (TmdbClient.getMovieDetail(API_KEY, DETAIL_MOVIE_ID).getException() == null) {
+                loaded++;
+            }
+        } catch (IOException iex) {
+            // Failed request, not counted
+        }
+        return loaded;
+    }
+
+    /**
+     * @return 1 if the response was loaded and parsed, 0 if the request failed
+     */
+    private static <T> int load(URL url, TmdbClient.ResponseParser<T> parser) {
+        try {
+            return TmdbClient.getParsedResponseFromHttpUrl(url, parser).getException() == null ? 1 : 0;
+        } catch (IOException iex) {
+            return 0;
+        }
+    }
+}
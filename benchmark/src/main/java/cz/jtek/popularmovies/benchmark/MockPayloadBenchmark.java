@@ -0,0 +1,132 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import cz.jtek.popularmovies.TmdbData;
+import cz.jtek.popularmovies.utilities.TmdbJsonUtils;
+import cz.jtek.popularmovies.utilities.TmdbJsonUtils.TmdbJsonResult;
+
+/**
+ * Parses bundled mock API replies.
+ * DOM parsers (get*FromJson) start from decoded reply string, stream parsers
+ * (get*FromStream) start from UTF-8 bytes as received from network.
+ * Sample time mode reports latency percentiles (p0.99), GC profiler reports allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MockPayloadBenchmark {
+
+    private String mConfiguration;
+    private String mPopular;
+    private String mVideos;
+    private String mReviews;
+
+    private byte[] mConfigurationBytes;
+    private byte[] mPopularBytes;
+    private byte[] mVideosBytes;
+    private byte[] mReviewsBytes;
+
+    @Setup
+    public void setup() throws IOException {
+        mConfiguration = Payloads.read(Payloads.CONFIGURATION);
+        mPopular = Payloads.read(Payloads.POPULAR);
+        mVideos = Payloads.read(Payloads.VIDEOS);
+        mReviews = Payloads.read(Payloads.REVIEWS);
+
+        mConfigurationBytes = Payloads.encode(mConfiguration);
+        mPopularBytes = Payloads.encode(mPopular);
+        mVideosBytes = Payloads.encode(mVideos);
+        mReviewsBytes = Payloads.encode(mReviews);
+
+        // Fail fast instead of measuring error paths
+        check(configDom());
+        check(configStream());
+        check(movieListDom());
+        check(movieListStream());
+        check(videoListDom());
+        check(videoListStream());
+        check(reviewListDom());
+        check(reviewListStream());
+    }
+
+    static void check(TmdbJsonResult<?> result) {
+        if (result.getException() != null) {
+            throw new IllegalStateException("Benchmark payload not parsed", result.getException());
+        }
+    }
+
+    @Benchmark
+    public TmdbJsonResult<TmdbData.Config> configDom() {
+        return TmdbJsonUtils.getConfigFromJson(mConfiguration);
+    }
+
+    @Benchmark
+    public TmdbJsonResult<TmdbData.Config> configStream() {
+        return TmdbJsonUtils.getConfigFromStream(new ByteArrayInputStream(mConfigurationBytes));
+    }
+
+    @Benchmark
+    public TmdbJsonResult<ArrayList<TmdbData.Movie>> movieListDom() {
+        return TmdbJsonUtils.getMovieListFromJson(mPopular);
+    }
+
+    @Benchmark
+    public TmdbJsonResult<ArrayList<TmdbData.Movie>> movieListStream() {
+        return TmdbJsonUtils.getMovieListFromStream(new ByteArrayInputStream(mPopularBytes));
+    }
+
+    @Benchmark
+    public TmdbJsonResult<ArrayList<TmdbData.Video>> videoListDom() {
+        return TmdbJsonUtils.getVideoListFromJson(mVideos, null);
+    }
+
+    @Benchmark
+    public TmdbJsonResult<ArrayList<TmdbData.Video>> videoListStream() {
+        return TmdbJsonUtils.getVideoListFromStream(new ByteArrayInputStream(mVideosBytes),
+                (String) null);
+    }
+
+    @Benchmark
+    public TmdbJsonResult<ArrayList<TmdbData.Review>> reviewListDom() {
+        return TmdbJsonUtils.getReviewListFromJson(mReviews);
+    }
+
+    @Benchmark
+    public TmdbJsonResult<ArrayList<TmdbData.Review>> reviewListStream() {
+        return TmdbJsonUtils.getReviewListFromStream(new ByteArrayInputStream(mReviewsBytes));
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.benchmark;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import cz.jtek.popularmovies.network.ResponseReader;
+
+/**
+ * Benchmark payloads, bundled mock API replies and their scaled-up variants
+ */
+final class Payloads {
+
+    static final String CONFIGURATION = "mock_configuration.json";
+    static final String POPULAR = "mock_popular.json";
+    static final String TOP_RATED = "mock_top_rated.json";
+    static final String VIDEOS = "mock_videos.json";
+    static final String REVIEWS = "mock_reviews.json";
+
+    private static final String RESULTS = "results";
+    private static final String ID = "id";
+
+    private Payloads() {}
+
+    /**
+     * Reads bundled mock reply
+     *
+     * @param name  Mock reply file name
+     * @return Reply body
+     * @throws IOException When mock reply is missing
+     */
+    static String read(String name) throws IOException {
+        InputStream in = Payloads.class.getResourceAsStream("/" + name);
+        if (in == null) {
+            throw new IOException("Mock reply not found: " + name);
+        }
+        try {
+            return ResponseReader.readString(in, -1);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Creates reply with given number of results. Results of the mock reply are repeated
+     * in original order, every copy gets an unique id.
+     *
+     * @param name          Mock reply file name, reply has to contain "results" array
+     * @param resultCount   Number of results in created reply
+     * @param numericId     True if result id is a number, false if it is a string
+     * @return Reply body
+     * @throws IOException When mock reply is missing or it has no results
+     */
+    static String scale(String name, int resultCount, boolean numericId) throws IOException {
+        try {
+            JSONObject reply = new JSONObject(read(name));
+            JSONArray templates = reply.getJSONArray(RESULTS);
+            if (templates.length() == 0) {
+                throw new IOException("Mock reply has no results: " + name);
+            }
+
+            JSONArray results = new JSONArray();
+            for (int i = 0; i < resultCount; i++) {
+                // Copy of template result
+                JSONObject result = new JSONObject(
+                        templates.getJSONObject(i % templates.length()).toString());
+                if (numericId) {
+                    result.put(ID, i + 1);
+                } else {
+                    result.put(ID, Integer.toHexString(i + 1));
+                }
+                results.put(result);
+            }
+            reply.put(RESULTS, results);
+
+            return reply.toString();
+        } catch (JSONException ex) {
+            throw new IOException("Invalid mock reply: " + name, ex);
+        }
+    }
+
+    /**
+     * Encodes reply as it is received from network
+     *
+     * @param reply Reply body
+     * @return UTF-8 encoded reply
+     */
+    static byte[] encode(String reply) {
+        return reply.getBytes(ResponseReader.UTF_8);
+    }
+}
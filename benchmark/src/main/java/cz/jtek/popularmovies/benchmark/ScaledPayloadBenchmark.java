@@ -0,0 +1,110 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import cz.jtek.popularmovies.TmdbData;
+import cz.jtek.popularmovies.utilities.TmdbJsonUtils;
+import cz.jtek.popularmovies.utilities.TmdbJsonUtils.TmdbJsonResult;
+
+/**
+ * Parses synthetic replies with mock results repeated up to given result count
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class ScaledPayloadBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int resultCount;
+
+    private String mMovies;
+    private String mVideos;
+    private String mReviews;
+
+    private byte[] mMoviesBytes;
+    private byte[] mVideosBytes;
+    private byte[] mReviewsBytes;
+
+    @Setup
+    public void setup() throws IOException {
+        mMovies = Payloads.scale(Payloads.POPULAR, resultCount, true);
+        mVideos = Payloads.scale(Payloads.VIDEOS, resultCount, false);
+        mReviews = Payloads.scale(Payloads.REVIEWS, resultCount, false);
+
+        mMoviesBytes = Payloads.encode(mMovies);
+        mVideosBytes = Payloads.encode(mVideos);
+        mReviewsBytes = Payloads.encode(mReviews);
+
+        MockPayloadBenchmark.check(movieListDom());
+        MockPayloadBenchmark.check(movieListStream());
+        MockPayloadBenchmark.check(videoListDom());
+        MockPayloadBenchmark.check(videoListStream());
+        MockPayloadBenchmark.check(reviewListDom());
+        MockPayloadBenchmark.check(reviewListStream());
+    }
+
+    @Benchmark
+    public TmdbJsonResult<ArrayList<TmdbData.Movie>> movieListDom() {
+        return TmdbJsonUtils.getMovieListFromJson(mMovies);
+    }
+
+    @Benchmark
+    public TmdbJsonResult<ArrayList<TmdbData.Movie>> movieListStream() {
+        return TmdbJsonUtils.getMovieListFromStream(new ByteArrayInputStream(mMoviesBytes));
+    }
+
+    @Benchmark
+    public TmdbJsonResult<ArrayList<TmdbData.Video>> videoListDom() {
+        return TmdbJsonUtils.getVideoListFromJson(mVideos, null);
+    }
+
+    @Benchmark
+    public TmdbJsonResult<ArrayList<TmdbData.Video>> videoListStream() {
+        return TmdbJsonUtils.getVideoListFromStream(new ByteArrayInputStream(mVideosBytes),
+                (String) null);
+    }
+
+    @Benchmark
+    public TmdbJsonResult<ArrayList<TmdbData.Review>> reviewListDom() {
+        return TmdbJsonUtils.getReviewListFromJson(mReviews);
+    }
+
+    @Benchmark
+    public TmdbJsonResult<ArrayList<TmdbData.Review>> reviewListStream() {
+        return TmdbJsonUtils.getReviewListFromStream(new ByteArrayInputStream(mReviewsBytes));
+    }
+}
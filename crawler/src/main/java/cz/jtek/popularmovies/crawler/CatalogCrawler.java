@@ -0,0 +1,425 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.crawler;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import cz.jtek.popularmovies.CatalogSnapshot;
+import cz.jtek.popularmovies.TmdbData;
+import cz.jtek.popularmovies.network.MockTmdbTransport;
+import cz.jtek.popularmovies.network.NetworkProfile;
+import cz.jtek.popularmovies.network.RecordReplayTransport;
+import cz.jtek.popularmovies.network.TmdbClient;
+import cz.jtek.popularmovies.network.TmdbHttpClient;
+import cz.jtek.popularmovies.network.Transport;
+import cz.jtek.popularmovies.utilities.TmdbJsonUtils;
+
+/**
+ * Command line crawler of TMDb movie lists.
+ * Pages 1..N of every list are fetched concurrently with at most given number of requests
+ * in flight, merged in page order with duplicate movies removed and written to
+ * catalog snapshot file. Poster paths are completed by configured poster base URL,
+ * so that the snapshot can be imported by the app as it is.
+ * A page which fails even after retries is reported and left out, the crawl goes on.
+ *
+ * Requests go through the same client as the app, so rate limiting, retries and response
+ * cache apply. With --mock option requests are served by offline mock API server.
+ * Responses can be recorded with --record and the same crawl repeated offline with --replay.
+ */
+public final class CatalogCrawler {
+
+    private static final int DEFAULT_PAGES = 10;
+    private static final int DEFAULT_CONCURRENCY = 4;
+    // TMDb does not serve movie list pages above this one
+    private static final int MAX_PAGES = 1000;
+
+    private static final String MOCK_API_KEY = "mock";
+    private static final String ENV_API_KEY = "TMDB_API_KEY";
+
+    private static final String USAGE =
+            "Usage: CatalogCrawler --out FILE [options]\n"
+            + "  --out FILE             Snapshot file to write\n"
+            + "  --api-key KEY          TMDb API key, defaults to " + ENV_API_KEY + " variable\n"
+            + "  --lists LIST[,LIST]    Movie lists to crawl, default "
+                    + TmdbClient.MOVIE_LIST_POPULAR + "," + TmdbClient.MOVIE_LIST_TOP_RATED + "\n"
+            + "  --pages N              Pages per list, default " + DEFAULT_PAGES + "\n"
+            + "  --concurrency N        Maximum requests in flight, default " + DEFAULT_CONCURRENCY + "\n"
+            + "  --mock                 Use offline mock API server\n"
+            + "  --profile NAME         Mock network profile: ideal, mobile or flaky, default ideal\n"
+            + "  --record DIR           Record responses to directory\n"
+            + "  --replay DIR           Serve recorded responses from directory, no network access\n";
+
+    private CatalogCrawler() {}
+
+    /**
+     * Crawler options
+     */
+    static final class Options {
+        File mOut;
+        String mApiKey = System.getenv(ENV_API_KEY);
+        List<String> mLists = Arrays.asList(
+                TmdbClient.MOVIE_LIST_POPULAR, TmdbClient.MOVIE_LIST_TOP_RATED);
+        int mPages = DEFAULT_PAGES;
+        int mConcurrency = DEFAULT_CONCURRENCY;
+        boolean mMock;
+        NetworkProfile mProfile = NetworkProfile.IDEAL;
+        File mRecordDir;
+        File mReplayDir;
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                switch (arg) {
+                    case "--out":
+                        options.mOut = new File(value(args, ++i, arg));
+                        break;
+                    case "--api-key":
+                        options.mApiKey = value(args, ++i, arg);
+                        break;
+                    case "--lists":
+                        options.mLists = Arrays.asList(value(args, ++i, arg).split(","));
+                        break;
+                    case "--pages":
+                        options.mPages = intValue(args, ++i, arg, 1, MAX_PAGES);
+                        break;
+                    case "--concurrency":
+                        options.mConcurrency = intValue(args, ++i, arg, 1, 64);
+                        break;
+                    case "--mock":
+                        options.mMock = true;
+                        break;
+                    case "--profile":
+                        options.mProfile = profileValue(value(args, ++i, arg));
+                        break;
+                    case "--record":
+                        options.mRecordDir = new File(value(args, ++i, arg));
+                        break;
+                    case "--replay":
+                        options.mReplayDir = new File(value(args, ++i, arg));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + arg);
+                }
+            }
+
+            if (options.mOut == null) {
+                throw new IllegalArgumentException("Missing --out option");
+            }
+            if (options.mReplayDir != null && (options.mRecordDir != null || options.mMock)) {
+                throw new IllegalArgumentException("--replay cannot be combined with --record or --mock");
+            }
+            if (options.mMock || options.mReplayDir != null) {
+                // Recordings are keyed without API key
+                options.mApiKey = MOCK_API_KEY;
+            } else if (options.mApiKey == null || options.mApiKey.isEmpty()) {
+                throw new IllegalArgumentException("Missing --api-key option");
+            }
+            for (String list : options.mLists) {
+                if (!list.equals(TmdbClient.MOVIE_LIST_POPULAR)
+                        && !list.equals(TmdbClient.MOVIE_LIST_TOP_RATED)) {
+                    throw new IllegalArgumentException("Unknown movie list " + list);
+                }
+            }
+            return options;
+        }
+
+        private static String value(String[] args, int i, String option) {
+            if (i >= args.length) {
+                throw new IllegalArgumentException("Missing value of " + option);
+            }
+            return args[i];
+        }
+
+        private static int intValue(String[] args, int i, String option, int min, int max) {
+            String value = value(args, i, option);
+            try {
+                int number = Integer.parseInt(value);
+                if (number >= min && number <= max) {
+                    return number;
+                }
+            } catch (NumberFormatException nfe) {
+                // Reported below
+            }
+            throw new IllegalArgumentException(
+                    "Value of " + option + " has to be in range " + min + ".." + max + ": " + value);
+        }
+
+        private static NetworkProfile profileValue(String name) {
+            switch (name) {
+                case "ideal":
+                    return NetworkProfile.IDEAL;
+                case "mobile":
+                    return NetworkProfile.MOBILE;
+                case "flaky":
+                    return NetworkProfile.FLAKY;
+                default:
+                    throw new IllegalArgumentException("Unknown network profile " + name);
+            }
+        }
+    }
+
+    /**
+     * Statistics of one crawled movie list
+     */
+    static final class ListStats {
+        int mPages;
+        int mMovies;
+        int mDuplicates;
+        // Numbers of pages which could not be fetched
+        final List<Integer> mFailedPages = new ArrayList<>();
+    }
+
+    public static void main(String[] args) {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException iae) {
+            System.err.println(iae.getMessage());
+            System.err.print(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        int status = 0;
+        try {
+            crawl(options);
+        } catch (IOException iex) {
+            System.err.println("Crawl failed: " + iex.getMessage());
+            status = 1;
+        } catch (InterruptedException ie) {
+            System.err.println("Crawl interrupted");
+            status = 1;
+        }
+        // Idle HTTP client threads would keep JVM running
+        System.exit(status);
+    }
+
+    /**
+     * Crawls movie lists and writes snapshot file
+     *
+     * @param options   Crawler options
+     * @return Written snapshot
+     * @throws IOException          When configuration cannot be fetched or snapshot cannot
+     *                              be written
+     * @throws InterruptedException When crawl is interrupted
+     */
+    static CatalogSnapshot crawl(Options options) throws IOException, InterruptedException {
+        Transport transport = options.mMock
+                ? new MockTmdbTransport(getMockJsonSource(), options.mProfile)
+                : Transport.HTTP;
+        if (options.mRecordDir != null) {
+            transport = new RecordReplayTransport(options.mRecordDir,
+                    RecordReplayTransport.Mode.RECORD, transport);
+        } else if (options.mReplayDir != null) {
+            transport = new RecordReplayTransport(options.mReplayDir,
+                    RecordReplayTransport.Mode.REPLAY, transport);
+        }
+        TmdbHttpClient.setTransport(transport);
+
+        long startMs = System.currentTimeMillis();
+        CatalogSnapshot snapshot = new CatalogSnapshot(startMs);
+        ExecutorService executor = Executors.newFixedThreadPool(options.mConcurrency);
+
+        try {
+            String posterBaseUrl = fetchPosterBaseUrl(options.mApiKey);
+
+            // All pages of all lists are queued up front, executor limits requests in flight
+            LinkedHashMap<String, List<Future<ArrayList<TmdbData.Movie>>>> pages =
+                    new LinkedHashMap<>();
+            for (String list : options.mLists) {
+                pages.put(list, submitPages(executor, options.mApiKey, list, options.mPages));
+            }
+
+            for (String list : pages.keySet()) {
+                ListStats stats = new ListStats();
+                List<TmdbData.Movie> movies = mergePages(list, pages.get(list), stats);
+                snapshot.put(list, withPosterBaseUrl(movies, posterBaseUrl));
+                System.out.println(String.format(Locale.US,
+                        "%s: %d pages, %d movies, %d duplicates removed",
+                        list, stats.mPages, stats.mMovies, stats.mDuplicates));
+                if (!stats.mFailedPages.isEmpty()) {
+                    System.err.println(String.format(Locale.US, "%s: pages %s failed, left out",
+                            list, stats.mFailedPages));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        writeSnapshot(snapshot, options.mOut);
+        System.out.println(String.format(Locale.US, "Snapshot %s written in %d ms (%d bytes)",
+                options.mOut.getPath(), System.currentTimeMillis() - startMs, options.mOut.length()));
+        return snapshot;
+    }
+
+    /**
+     * @param apiKey    TMDb API key
+     * @return Base URL of poster images in the size used by the app
+     * @throws IOException When configuration cannot be fetched
+     */
+    private static String fetchPosterBaseUrl(String apiKey) throws IOException {
+        TmdbJsonUtils.TmdbJsonResult<TmdbData.Config> result =
+                TmdbClient.getParsedResponseFromHttpUrl(
+                        TmdbClient.buildConfigurationUrl(apiKey), TmdbClient.CONFIG_PARSER);
+        if (result.getException() != null) {
+            throw new IOException("Configuration failed: " + result.getException(),
+                    result.getException());
+        }
+        return result.getResult().getSecureBaseUrl() + TmdbData.Config.getPosterSize();
+    }
+
+    /**
+     * @return Copies of movies with poster path completed by poster base URL
+     */
+    private static List<TmdbData.Movie> withPosterBaseUrl(List<TmdbData.Movie> movies,
+                                                          String posterBaseUrl) {
+        List<TmdbData.Movie> patched = new ArrayList<>(movies.size());
+        for (TmdbData.Movie movie : movies) {
+            // Movie without poster keeps null poster path
+            patched.add(movie.getPosterPath() != null
+                    ? movie.withPosterBaseUrl(posterBaseUrl) : movie);
+        }
+        return patched;
+    }
+
+    private static List<Future<ArrayList<TmdbData.Movie>>> submitPages(
+            ExecutorService executor, final String apiKey, final String list, int pageCount) {
+        List<Future<ArrayList<TmdbData.Movie>>> futures = new ArrayList<>(pageCount);
+        for (int page = 1; page <= pageCount; page++) {
+            final URL url = TmdbClient.buildMovieListUrl(apiKey, list, page);
+            futures.add(executor.submit(new Callable<ArrayList<TmdbData.Movie>>() {
+                @Override
+                public ArrayList<TmdbData.Movie> call() throws Exception {
+                    TmdbJsonUtils.TmdbJsonResult<ArrayList<TmdbData.Movie>> result =
+                            TmdbClient.getParsedResponseFromHttpUrl(url,
+                                    TmdbClient.MOVIE_LIST_PARSER);
+                    if (result.getException() != null) {
+                        throw result.getException();
+                    }
+                    return result.getResult();
+                }
+            }));
+        }
+        return futures;
+    }
+
+    /**
+     * Merges fetched pages in page order. A movie which moved to another page while the list
+     * was being crawled keeps its first (best) rank.
+     * Empty page marks the end of the list, remaining pages are cancelled.
+     * Page which failed (after retries of the client) is recorded in statistics and skipped.
+     *
+     * @param list      Movie list name
+     * @param futures   Page results, in page order
+     * @param stats     Statistics of the list, filled by this method
+     * @return Movies in rank order
+     * @throws InterruptedException When crawl is interrupted
+     */
+    static List<TmdbData.Movie> mergePages(String list,
+                                           List<Future<ArrayList<TmdbData.Movie>>> futures,
+                                           ListStats stats)
+            throws InterruptedException {
+        LinkedHashMap<Integer, TmdbData.Movie> movies = new LinkedHashMap<>();
+
+        for (int i = 0; i < futures.size(); i++) {
+            ArrayList<TmdbData.Movie> page;
+            try {
+                page = futures.get(i).get();
+            } catch (ExecutionException ee) {
+                System.err.println("Page " + (i + 1) + " of " + list + " failed: " + ee.getCause());
+                stats.mFailedPages.add(i + 1);
+                continue;
+            }
+
+            if (page == null || page.isEmpty()) {
+                cancel(futures, i + 1);
+                break;
+            }
+
+            stats.mPages++;
+            for (TmdbData.Movie movie : page) {
+                if (movies.containsKey(movie.getId())) {
+                    stats.mDuplicates++;
+                } else {
+                    movies.put(movie.getId(), movie);
+                }
+            }
+        }
+
+        stats.mMovies = movies.size();
+        return new ArrayList<>(movies.values());
+    }
+
+    private static void cancel(List<Future<ArrayList<TmdbData.Movie>>> futures, int from) {
+        for (int i = from; i < futures.size(); i++) {
+            futures.get(i).cancel(true);
+        }
+    }
+
+    /**
+     * Writes snapshot to temporary file first, so that existing snapshot is never left
+     * half-written
+     */
+    private static void writeSnapshot(CatalogSnapshot snapshot, File file) throws IOException {
+        File tmpFile = new File(file.getPath() + ".tmp");
+        OutputStream out = new FileOutputStream(tmpFile);
+        try {
+            snapshot.write(out);
+        } finally {
+            out.close();
+        }
+
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Cannot replace " + file.getPath());
+        }
+        if (!tmpFile.renameTo(file)) {
+            throw new IOException("Cannot rename " + tmpFile.getPath() + " to " + file.getPath());
+        }
+    }
+
+    /**
+     * Provides mock JSON files bundled on the classpath to offline mock API server
+     */
+    private static MockTmdbTransport.JsonSource getMockJsonSource() {
+        return new MockTmdbTransport.JsonSource() {
+            @Override
+            public InputStream open(String name) throws IOException {
+                InputStream in = CatalogCrawler.class.getResourceAsStream("/" + name + ".json");
+                if (in == null) {
+                    throw new IOException("Mock reply not found: " + name);
+                }
+                return in;
+            }
+        };
+    }
+}
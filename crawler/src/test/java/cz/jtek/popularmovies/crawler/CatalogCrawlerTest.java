@@ -0,0 +1,238 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.crawler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import cz.jtek.popularmovies.CatalogSnapshot;
+import cz.jtek.popularmovies.TmdbData;
+import cz.jtek.popularmovies.network.MockTmdbTransport;
+import cz.jtek.popularmovies.network.TmdbClient;
+import cz.jtek.popularmovies.network.TmdbHttpClient;
+import cz.jtek.popularmovies.network.Transport;
+import cz.jtek.popularmovies.utilities.TmdbJsonUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CatalogCrawlerTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private Transport mTransport;
+
+    @Before
+    public void saveTransport() {
+        mTransport = TmdbHttpClient.getTransport();
+    }
+
+    @After
+    public void restoreTransport() {
+        TmdbHttpClient.setTransport(mTransport);
+    }
+
+    @Test
+    public void crawlMockMergesPagesAndRoundTrips() throws Exception {
+        File out = new File(mFolder.getRoot(), "catalog.snapshot");
+        CatalogCrawler.Options options = CatalogCrawler.Options.parse(new String[] {
+                "--mock", "--pages", "3", "--concurrency", "2",
+                "--lists", TmdbClient.MOVIE_LIST_POPULAR, "--out", out.getPath() });
+
+        CatalogSnapshot crawled = CatalogCrawler.crawl(options);
+
+        // Mock server shifts movie ids of every following page
+        List<Integer> firstPage = ids(readMockList("/mock_popular.json"));
+        List<Integer> expected = new ArrayList<>();
+        for (int page = 0; page < 3; page++) {
+            for (int id : firstPage) {
+                expected.add(id + page * MockTmdbTransport.PAGE_ID_OFFSET);
+            }
+        }
+        List<TmdbData.Movie> movies = crawled.get(TmdbClient.MOVIE_LIST_POPULAR);
+        assertNotNull(movies);
+        assertEquals(expected, ids(movies));
+        assertEquals(movies.size(), new HashSet<>(ids(movies)).size());
+        assertTrue(movies.get(0).getPosterPath().startsWith("https://"));
+
+        CatalogSnapshot read;
+        InputStream in = new FileInputStream(out);
+        try {
+            read = CatalogSnapshot.read(in);
+        } finally {
+            in.close();
+        }
+        assertEquals(crawled.getCreatedAt(), read.getCreatedAt());
+        assertEquals(crawled.getLists(), read.getLists());
+
+        List<TmdbData.Movie> readMovies = read.get(TmdbClient.MOVIE_LIST_POPULAR);
+        assertNotNull(readMovies);
+        assertEquals(movies.size(), readMovies.size());
+        for (int i = 0; i < movies.size(); i++) {
+            TmdbData.Movie movie = movies.get(i);
+            TmdbData.Movie readMovie = readMovies.get(i);
+            assertEquals(movie.getId(), readMovie.getId());
+            assertEquals(movie.getTitle(), readMovie.getTitle());
+            assertEquals(movie.getPosterPath(), readMovie.getPosterPath());
+            assertEquals(movie.getReleaseDate(), readMovie.getReleaseDate());
+            assertEquals(movie.getVoteAverage(), readMovie.getVoteAverage(), 0);
+            assertEquals(movie.getOverview(), readMovie.getOverview());
+        }
+    }
+
+    @Test
+    public void recordedCrawlIsReplayed() throws Exception {
+        File recordings = mFolder.newFolder("recordings");
+        File recorded = new File(mFolder.getRoot(), "recorded.snapshot");
+        CatalogSnapshot expected = CatalogCrawler.crawl(CatalogCrawler.Options.parse(new String[] {
+                "--mock", "--pages", "2", "--record", recordings.getPath(),
+                "--out", recorded.getPath() }));
+
+        // Replay needs no mock server, every request is served from recordings
+        File replayed = new File(mFolder.getRoot(), "replayed.snapshot");
+        CatalogSnapshot actual = CatalogCrawler.crawl(CatalogCrawler.Options.parse(new String[] {
+                "--pages", "2", "--replay", recordings.getPath(), "--out", replayed.getPath() }));
+
+        assertEquals(expected.getLists(), actual.getLists());
+        for (String list : expected.getLists()) {
+            assertEquals(ids(expected.get(list)), ids(actual.get(list)));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void replayCannotBeRecorded() {
+        CatalogCrawler.Options.parse(new String[] {
+                "--replay", "recordings", "--record", "recordings", "--out", "catalog.snapshot" });
+    }
+
+    @Test
+    public void mergePagesKeepsPageOrderAndFirstRank() throws Exception {
+        TmdbData.Movie a = movie(1), b = movie(2), c = movie(3), d = movie(4);
+        List<Future<ArrayList<TmdbData.Movie>>> futures = Arrays.asList(
+                page(a, b), page(b, c), page(d));
+
+        // Last page completes first
+        ((FutureTask<?>) futures.get(2)).run();
+        ((FutureTask<?>) futures.get(1)).run();
+        ((FutureTask<?>) futures.get(0)).run();
+
+        CatalogCrawler.ListStats stats = new CatalogCrawler.ListStats();
+        List<TmdbData.Movie> movies = CatalogCrawler.mergePages("test", futures, stats);
+
+        assertEquals(Arrays.asList(1, 2, 3, 4), ids(movies));
+        assertEquals(3, stats.mPages);
+        assertEquals(4, stats.mMovies);
+        assertEquals(1, stats.mDuplicates);
+        assertTrue(stats.mFailedPages.isEmpty());
+    }
+
+    @Test
+    public void mergePagesSkipsFailedPage() throws Exception {
+        List<Future<ArrayList<TmdbData.Movie>>> futures = Arrays.asList(
+                page(movie(1)), failedPage(), page(movie(3)));
+        for (Future<ArrayList<TmdbData.Movie>> future : futures) {
+            ((FutureTask<?>) future).run();
+        }
+
+        CatalogCrawler.ListStats stats = new CatalogCrawler.ListStats();
+        List<TmdbData.Movie> movies = CatalogCrawler.mergePages("test", futures, stats);
+
+        assertEquals(Arrays.asList(1, 3), ids(movies));
+        assertEquals(2, stats.mPages);
+        assertEquals(Arrays.asList(2), stats.mFailedPages);
+    }
+
+    @Test
+    public void mergePagesStopsAtEmptyPage() throws Exception {
+        List<Future<ArrayList<TmdbData.Movie>>> futures = Arrays.asList(
+                page(movie(1)), page(), page(movie(3)));
+        ((FutureTask<?>) futures.get(0)).run();
+        ((FutureTask<?>) futures.get(1)).run();
+
+        CatalogCrawler.ListStats stats = new CatalogCrawler.ListStats();
+        List<TmdbData.Movie> movies = CatalogCrawler.mergePages("test", futures, stats);
+
+        assertEquals(Arrays.asList(1), ids(movies));
+        assertEquals(1, stats.mPages);
+        assertTrue(futures.get(2).isCancelled());
+        assertFalse(futures.get(0).isCancelled());
+    }
+
+    private static TmdbData.Movie movie(int id) {
+        return new TmdbData.Movie(id, "Movie " + id, "/poster" + id + ".jpg",
+                "Overview " + id, "2018-01-01", 7.5);
+    }
+
+    private static FutureTask<ArrayList<TmdbData.Movie>> page(TmdbData.Movie... movies) {
+        final ArrayList<TmdbData.Movie> page = new ArrayList<>(Arrays.asList(movies));
+        return new FutureTask<>(new Callable<ArrayList<TmdbData.Movie>>() {
+            @Override
+            public ArrayList<TmdbData.Movie> call() {
+                return page;
+            }
+        });
+    }
+
+    private static FutureTask<ArrayList<TmdbData.Movie>> failedPage() {
+        return new FutureTask<>(new Callable<ArrayList<TmdbData.Movie>>() {
+            @Override
+            public ArrayList<TmdbData.Movie> call() throws IOException {
+                throw new IOException("Simulated failure");
+            }
+        });
+    }
+
+    private static List<Integer> ids(List<TmdbData.Movie> movies) {
+        List<Integer> ids = new ArrayList<>(movies.size());
+        for (TmdbData.Movie movie : movies) {
+            ids.add(movie.getId());
+        }
+        return ids;
+    }
+
+    private static List<TmdbData.Movie> readMockList(String resource) throws IOException {
+        InputStream in = CatalogCrawlerTest.class.getResourceAsStream(resource);
+        assertNotNull(resource, in);
+        try {
+            TmdbJsonUtils.TmdbJsonResult<ArrayList<TmdbData.Movie>> result =
+                    TmdbJsonUtils.getMovieListFromStream(in);
+            assertNull(result.getException());
+            return result.getResult();
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,782 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.codegen.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.MirroredTypesException;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+import cz.jtek.popularmovies.codegen.JsonField;
+import cz.jtek.popularmovies.codegen.JsonModel;
+import cz.jtek.popularmovies.codegen.ParcelAdapter;
+
+/**
+ * Generates reflection-free JSON parsers for classes annotated with @JsonModel and
+ * Parcelable adapters for models listed by @ParcelAdapter.
+ * See JsonModel and ParcelAdapter for description of generated classes.
+ */
+@SupportedAnnotationTypes({
+        "cz.jtek.popularmovies.codegen.JsonModel",
+        "cz.jtek.popularmovies.codegen.ParcelAdapter"})
+public class ModelCodecProcessor extends AbstractProcessor {
+
+    // Runtime classes used by generated code
+    private static final String PROJECTING_JSON_READER =
+            "cz.jtek.popularmovies.utilities.ProjectingJsonReader";
+    private static final String LAZY_TEXT = "cz.jtek.popularmovies.utilities.LazyText";
+    private static final String STRING_POOL = "cz.jtek.popularmovies.utilities.StringPool";
+    private static final String PARCEL_UTILS = "cz.jtek.popularmovies.utilities.ParcelUtils";
+    private static final String PARCEL = "android.os.Parcel";
+    private static final String PARCELABLE = "android.os.Parcelable";
+
+    /**
+     * Supported field types
+     */
+    private enum Kind { INT, LONG, DOUBLE, BOOLEAN, STRING, LAZY_TEXT }
+
+    /**
+     * Annotated model field
+     */
+    private static final class FieldInfo {
+        final String mName;
+        final Kind mKind;
+        final String mJsonName;
+        final boolean mPooled;
+        final boolean mFilter;
+        final String mProperty;
+        final TypeMirror mType;
+        // Public accessors resolved for Parcelable adapters
+        String mGetter;
+        String mSetter;
+
+        FieldInfo(String name, Kind kind, String jsonName, boolean pooled, boolean filter,
+                  String property, TypeMirror type) {
+            mName = name;
+            mKind = kind;
+            mJsonName = jsonName;
+            mPooled = pooled;
+            mFilter = filter;
+            mProperty = property;
+            mType = type;
+        }
+
+        boolean isJson() { return !mJsonName.isEmpty(); }
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(JsonModel.class)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                error(element, "@JsonModel can only be applied to classes");
+                continue;
+            }
+
+            TypeElement model = (TypeElement) element;
+            List<FieldInfo> fields = collectFields(model);
+            if (fields == null || !checkModel(model)) {
+                continue;
+            }
+
+            try {
+                writeCodec(model, fields);
+            } catch (IOException iex) {
+                error(model, "Cannot write codec: " + iex.getMessage());
+            }
+        }
+
+        for (Element element : roundEnv.getElementsAnnotatedWith(ParcelAdapter.class)) {
+            for (TypeElement model : adaptedModels(element)) {
+                // Model may come from class path, its annotations are kept in class files
+                if (model.getAnnotation(JsonModel.class) == null) {
+                    error(element, model.getQualifiedName() + " is not a @JsonModel class");
+                    continue;
+                }
+                List<FieldInfo> fields = collectFields(model);
+                if (fields == null || !checkModel(model) || !resolveAccessors(model, fields, element)) {
+                    continue;
+                }
+
+                try {
+                    writeParcelAdapter(model, fields, element);
+                } catch (IOException iex) {
+                    error(element, "Cannot write Parcelable adapter: " + iex.getMessage());
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return Model classes listed by @ParcelAdapter
+     */
+    private List<TypeElement> adaptedModels(Element element) {
+        List<TypeElement> models = new ArrayList<>();
+        List<? extends TypeMirror> types;
+        try {
+            // Class values are accessible only as type mirrors during compilation
+            element.getAnnotation(ParcelAdapter.class).value();
+            return models;
+        } catch (MirroredTypesException ex) {
+            types = ex.getTypeMirrors();
+        }
+
+        for (TypeMirror type : types) {
+            if (type instanceof DeclaredType) {
+                models.add((TypeElement) ((DeclaredType) type).asElement());
+            } else {
+                error(element, "@ParcelAdapter lists unsupported type " + type);
+            }
+        }
+        return models;
+    }
+
+    /**
+     * @return Annotated fields in declaration order, null on error
+     */
+    private List<FieldInfo> collectFields(TypeElement model) {
+        List<FieldInfo> fields = new ArrayList<>();
+        Set<String> jsonNames = new HashSet<>();
+        boolean valid = true;
+        boolean hasFilter = false;
+
+        for (Element member : model.getEnclosedElements()) {
+            JsonField annotation = member.getAnnotation(JsonField.class);
+            if (member.getKind() != ElementKind.FIELD || annotation == null) {
+                continue;
+            }
+
+            VariableElement field = (VariableElement) member;
+            Set<Modifier> modifiers = field.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.STATIC)
+                    || modifiers.contains(Modifier.FINAL)) {
+                error(field, "@JsonField must not be private, static or final");
+                valid = false;
+                continue;
+            }
+
+            Kind kind = kindOf(field.asType());
+            if (kind == null) {
+                error(field, "Unsupported @JsonField type " + field.asType());
+                valid = false;
+                continue;
+            }
+
+            String jsonName = annotation.value();
+            if (!jsonName.isEmpty() && !jsonNames.add(jsonName)) {
+                error(field, "Duplicate JSON field name \"" + jsonName + "\"");
+                valid = false;
+            }
+            if (annotation.pooled() && kind != Kind.STRING) {
+                error(field, "Only String fields can be pooled");
+                valid = false;
+            }
+            if (annotation.filter()) {
+                if (kind != Kind.STRING || jsonName.isEmpty() || hasFilter) {
+                    error(field, "Filter must be single String field decoded from JSON");
+                    valid = false;
+                }
+                hasFilter = true;
+            }
+
+            String name = field.getSimpleName().toString();
+            String property = annotation.property().isEmpty()
+                    ? propertyName(name) : annotation.property();
+            fields.add(new FieldInfo(name, kind, jsonName, annotation.pooled(), annotation.filter(),
+                    property, field.asType()));
+        }
+
+        return valid ? fields : null;
+    }
+
+    private Kind kindOf(TypeMirror type) {
+        switch (type.getKind()) {
+            case INT:
+                return Kind.INT;
+            case LONG:
+                return Kind.LONG;
+            case DOUBLE:
+                return Kind.DOUBLE;
+            case BOOLEAN:
+                return Kind.BOOLEAN;
+            case DECLARED:
+                String name = type.toString();
+                if (name.equals(String.class.getName())) { return Kind.STRING; }
+                if (name.equals(LAZY_TEXT)) { return Kind.LAZY_TEXT; }
+                return null;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Checks that generated codec can instantiate the model
+     */
+    private boolean checkModel(TypeElement model) {
+        Set<Modifier> modifiers = model.getModifiers();
+        if (modifiers.contains(Modifier.ABSTRACT) || modifiers.contains(Modifier.PRIVATE)
+                || (model.getNestingKind().isNested() && !modifiers.contains(Modifier.STATIC))) {
+            error(model, "@JsonModel class must be non-abstract, non-private and static if nested");
+            return false;
+        }
+
+        for (Element member : model.getEnclosedElements()) {
+            if (member.getKind() == ElementKind.CONSTRUCTOR
+                    && ((ExecutableElement) member).getParameters().isEmpty()
+                    && !member.getModifiers().contains(Modifier.PRIVATE)) {
+                return true;
+            }
+        }
+        error(model, "@JsonModel class needs non-private no-argument constructor");
+        return false;
+    }
+
+    /**
+     * Resolves public accessors of model properties. Parcelable adapters are generated
+     * in the module requesting them, so they cannot rely on package-private model members.
+     */
+    private boolean resolveAccessors(TypeElement model, List<FieldInfo> fields, Element origin) {
+        String type = model.getQualifiedName().toString();
+        for (Element element = model; element.getKind().isClass() || element.getKind().isInterface();
+             element = element.getEnclosingElement()) {
+            if (!element.getModifiers().contains(Modifier.PUBLIC)) {
+                error(origin, type + " must be public to get Parcelable adapter");
+                return false;
+            }
+        }
+
+        boolean hasConstructor = false;
+        Map<String, ExecutableElement> methods = new HashMap<>();
+        for (Element member : processingEnv.getElementUtils().getAllMembers(model)) {
+            if (!member.getModifiers().contains(Modifier.PUBLIC)
+                    || member.getModifiers().contains(Modifier.STATIC)) {
+                continue;
+            }
+            if (member.getKind() == ElementKind.CONSTRUCTOR) {
+                hasConstructor |= ((ExecutableElement) member).getParameters().isEmpty();
+            } else if (member.getKind() == ElementKind.METHOD) {
+                // Keyed by name and arity, e.g. "setTitle/1"
+                ExecutableElement method = (ExecutableElement) member;
+                methods.put(method.getSimpleName() + "/" + method.getParameters().size(), method);
+            }
+        }
+        if (!hasConstructor) {
+            error(origin, type + " needs public no-argument constructor to get Parcelable adapter");
+            return false;
+        }
+
+        Types types = processingEnv.getTypeUtils();
+        boolean valid = true;
+        for (FieldInfo field : fields) {
+            String suffix = Character.toUpperCase(field.mProperty.charAt(0))
+                    + field.mProperty.substring(1);
+            ExecutableElement getter = methods.get("get" + suffix + "/0");
+            if (getter == null && field.mKind == Kind.BOOLEAN) {
+                getter = methods.get("is" + suffix + "/0");
+            }
+            ExecutableElement setter = methods.get("set" + suffix + "/1");
+
+            if (getter == null || !types.isSameType(getter.getReturnType(), field.mType)) {
+                error(origin, type + " needs public getter of property \"" + field.mProperty
+                        + "\" returning " + field.mType);
+                valid = false;
+            } else {
+                field.mGetter = getter.getSimpleName().toString();
+            }
+            if (setter == null
+                    || !types.isSameType(setter.getParameters().get(0).asType(), field.mType)) {
+                error(origin, type + " needs public setter of property \"" + field.mProperty
+                        + "\" taking " + field.mType);
+                valid = false;
+            } else {
+                field.mSetter = setter.getSimpleName().toString();
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * @return Generated class simple name, e.g. TmdbData_MovieCodec for nested class
+     *         TmdbData.Movie and suffix "Codec"
+     */
+    private static String generatedName(TypeElement model, String suffix) {
+        StringBuilder name = new StringBuilder(model.getSimpleName());
+        Element enclosing = model.getEnclosingElement();
+        while (enclosing instanceof TypeElement) {
+            name.insert(0, enclosing.getSimpleName() + "_");
+            enclosing = enclosing.getEnclosingElement();
+        }
+        return name.append(suffix).toString();
+    }
+
+    private String packageOf(TypeElement model) {
+        return processingEnv.getElementUtils().getPackageOf(model).getQualifiedName().toString();
+    }
+
+    private void writeSource(String packageName, String className, CodeWriter out,
+                             Element origin) throws IOException {
+        JavaFileObject file = processingEnv.getFiler().createSourceFile(
+                packageName.isEmpty() ? className : packageName + "." + className, origin);
+        try (Writer writer = file.openWriter()) {
+            writer.write(out.toString());
+        }
+    }
+
+    private void writeCodec(TypeElement model, List<FieldInfo> fields) throws IOException {
+        String packageName = packageOf(model);
+        String codecName = generatedName(model, "Codec");
+        String type = model.getQualifiedName().toString();
+
+        FieldInfo filter = null;
+        List<FieldInfo> jsonFields = new ArrayList<>();
+        for (FieldInfo field : fields) {
+            if (field.isJson()) { jsonFields.add(field); }
+            if (field.mFilter) { filter = field; }
+        }
+
+        CodeWriter out = new CodeWriter();
+        out.line("// Generated by " + getClass().getSimpleName() + " from " + type + ", do not edit");
+        if (!packageName.isEmpty()) {
+            out.line("package " + packageName + ";");
+        }
+        out.line();
+        out.line("final class " + codecName + " {");
+        out.indent();
+        out.line();
+
+        // Projection of decoded JSON fields
+        StringBuilder names = new StringBuilder();
+        for (FieldInfo field : jsonFields) {
+            if (names.length() > 0) { names.append(", "); }
+            names.append(quote(field.mJsonName));
+        }
+        out.line("static final " + PROJECTING_JSON_READER + ".Projection PROJECTION =");
+        out.line("        new " + PROJECTING_JSON_READER + ".Projection(" + names + ");");
+        out.line();
+        out.line("private " + codecName + "() {}");
+
+        writeStreamParser(out, type, jsonFields, filter);
+        writeObjectParser(out, type, jsonFields);
+
+        out.outdent();
+        out.line("}");
+
+        writeSource(packageName, codecName, out, model);
+    }
+
+    private void writeStreamParser(CodeWriter out, String type, List<FieldInfo> fields,
+                                   FieldInfo filter) {
+        out.line();
+        out.line("// Reads object from JSON stream, fields outside of projection are skipped");
+        if (filter != null) {
+            out.line("// Fields preceding \"" + filter.mJsonName + "\" are kept encoded until it is read,"
+                    + " they are decoded");
+            out.line("// only if the object passes the filter, null filter accepts all");
+            out.line("static " + type + " readObject(" + PROJECTING_JSON_READER
+                    + " reader, java.util.Set<String> filter)");
+        } else {
+            out.line("static " + type + " readObject(" + PROJECTING_JSON_READER + " reader)");
+        }
+        out.line("        throws java.io.IOException {");
+        out.indent();
+        out.line(type + " model = new " + type + "();");
+        if (filter != null) {
+            out.line("boolean accepted = (filter == null);");
+            for (FieldInfo field : fields) {
+                if (field != filter) {
+                    out.line("int " + slotName(field) + " = -1;");
+                }
+            }
+        }
+        out.line("reader.beginObject();");
+        out.line("String name;");
+        out.line("while ((name = reader.nextField(PROJECTION)) != null) {");
+        out.indent();
+        out.line("switch (name) {");
+        out.indent();
+        for (FieldInfo field : fields) {
+            out.line("case " + quote(field.mJsonName) + ":");
+            out.indent();
+            if (filter == null || field == filter) {
+                out.line("model." + field.mName + " = " + streamRead(field) + ";");
+            } else {
+                out.line("if (accepted) {");
+                out.line("    model." + field.mName + " = " + streamRead(field) + ";");
+                out.line("} else {");
+                out.line("    " + slotName(field) + " = reader.deferValue();");
+                out.line("}");
+            }
+            if (field == filter) {
+                out.line("if (!accepted) {");
+                out.indent();
+                out.line("if (!filter.contains(model." + field.mName + ")) {");
+                out.indent();
+                out.line("reader.discardDeferred();");
+                out.line("reader.skipRemainingFields();");
+                out.line("reader.endObject();");
+                out.line("return null;");
+                out.outdent();
+                out.line("}");
+                out.line("accepted = true;");
+                for (FieldInfo deferred : fields) {
+                    if (deferred == filter) { continue; }
+                    out.line("if (" + slotName(deferred) + " != -1) {");
+                    out.line("    model." + deferred.mName + " = "
+                            + deferredRead(deferred, slotName(deferred)) + ";");
+                    out.line("}");
+                }
+                out.line("reader.clearDeferred();");
+                out.outdent();
+                out.line("}");
+            }
+            out.line("break;");
+            out.outdent();
+        }
+        out.outdent();
+        out.line("}");
+        out.outdent();
+        out.line("}");
+        out.line("reader.endObject();");
+        if (filter != null) {
+            out.line("if (!accepted) {");
+            out.line("    // Object without \"" + filter.mJsonName + "\" does not pass the filter");
+            out.line("    reader.discardDeferred();");
+            out.line("    return null;");
+            out.line("}");
+        }
+        out.line("return model;");
+        out.outdent();
+        out.line("}");
+    }
+
+    private static String slotName(FieldInfo field) {
+        return propertyName(field.mName) + "Slot";
+    }
+
+    /**
+     * @return Property name of model field, e.g. "posterPath" for field mPosterPath
+     */
+    private static String propertyName(String fieldName) {
+        if (fieldName.length() > 1 && fieldName.charAt(0) == 'm'
+                && Character.isUpperCase(fieldName.charAt(1))) {
+            return Character.toLowerCase(fieldName.charAt(1)) + fieldName.substring(2);
+        }
+        return fieldName;
+    }
+
+    private static String streamRead(FieldInfo field) {
+        switch (field.mKind) {
+            case INT:
+                return "reader.nextInt()";
+            case LONG:
+                return "reader.nextLong()";
+            case DOUBLE:
+                return "reader.nextDouble()";
+            case BOOLEAN:
+                return "reader.nextBoolean()";
+            case LAZY_TEXT:
+                return "reader.nextLazyText()";
+            default:
+                return field.mPooled
+                        ? "reader.nextPooledString(" + STRING_POOL + ".getShared())"
+                        : "reader.nextString()";
+        }
+    }
+
+    private static String deferredRead(FieldInfo field, String slot) {
+        switch (field.mKind) {
+            case INT:
+                return "reader.deferredInt(" + slot + ")";
+            case LONG:
+                return "reader.deferredLong(" + slot + ")";
+            case DOUBLE:
+                return "reader.deferredDouble(" + slot + ")";
+            case BOOLEAN:
+                return "reader.deferredBoolean(" + slot + ")";
+            case LAZY_TEXT:
+                return "reader.deferredLazyText(" + slot + ")";
+            default:
+                return field.mPooled
+                        ? "reader.deferredPooledString(" + slot + ", " + STRING_POOL + ".getShared())"
+                        : "reader.deferredString(" + slot + ")";
+        }
+    }
+
+    private void writeObjectParser(CodeWriter out, String type, List<FieldInfo> fields) {
+        out.line();
+        out.line("// Converts JSON object to model, null values are treated as missing");
+        out.line("static " + type + " fromJson(org.json.JSONObject json)");
+        out.line("        throws org.json.JSONException {");
+        out.indent();
+        out.line(type + " model = new " + type + "();");
+        out.line("java.util.Iterator<?> names = json.keys();");
+        out.line("while (names.hasNext()) {");
+        out.indent();
+        out.line("String name = (String) names.next();");
+        out.line("if (json.isNull(name)) {");
+        out.line("    continue;");
+        out.line("}");
+        out.line("switch (name) {");
+        out.indent();
+        for (FieldInfo field : fields) {
+            out.line("case " + quote(field.mJsonName) + ":");
+            out.indent();
+            out.line("model." + field.mName + " = " + objectRead(field) + ";");
+            out.line("break;");
+            out.outdent();
+        }
+        out.outdent();
+        out.line("}");
+        out.outdent();
+        out.line("}");
+        out.line("return model;");
+        out.outdent();
+        out.line("}");
+    }
+
+    private static String objectRead(FieldInfo field) {
+        switch (field.mKind) {
+            case INT:
+                return "json.getInt(name)";
+            case LONG:
+                return "json.getLong(name)";
+            case DOUBLE:
+                return "json.getDouble(name)";
+            case BOOLEAN:
+                return "json.getBoolean(name)";
+            case LAZY_TEXT:
+                return LAZY_TEXT + ".of(json.getString(name))";
+            default:
+                return field.mPooled
+                        ? STRING_POOL + ".getShared().intern(json.getString(name))"
+                        : "json.getString(name)";
+        }
+    }
+
+    private void writeParcelAdapter(TypeElement model, List<FieldInfo> fields, Element origin)
+            throws IOException {
+        String packageName = packageOf(model);
+        String adapter = generatedName(model, "Parcel");
+        String type = model.getQualifiedName().toString();
+
+        CodeWriter out = new CodeWriter();
+        out.line("// Generated by " + getClass().getSimpleName() + " from " + type + ", do not edit");
+        if (!packageName.isEmpty()) {
+            out.line("package " + packageName + ";");
+        }
+        out.line();
+        out.line("public final class " + adapter + " implements " + PARCELABLE + " {");
+        out.indent();
+        out.line();
+        out.line("private final " + type + " mModel;");
+        out.line();
+        out.line("public " + adapter + "(" + type + " model) {");
+        out.line("    mModel = model;");
+        out.line("}");
+        out.line();
+        out.line("public " + type + " getModel() { return mModel; }");
+
+        out.line();
+        out.line("public static " + adapter + " wrap(" + type + " model) {");
+        out.line("    return (model != null) ? new " + adapter + "(model) : null;");
+        out.line("}");
+        out.line();
+        out.line("public static " + type + " unwrap(" + adapter + " parcel) {");
+        out.line("    return (parcel != null) ? parcel.mModel : null;");
+        out.line("}");
+        out.line();
+        out.line("public static java.util.ArrayList<" + adapter + "> wrapList(java.util.List<"
+                + type + "> models) {");
+        out.indent();
+        out.line("if (models == null) {");
+        out.line("    return null;");
+        out.line("}");
+        out.line("java.util.ArrayList<" + adapter + "> parcels = new java.util.ArrayList<>(models.size());");
+        out.line("for (" + type + " model : models) {");
+        out.line("    parcels.add(wrap(model));");
+        out.line("}");
+        out.line("return parcels;");
+        out.outdent();
+        out.line("}");
+        out.line();
+        out.line("public static java.util.ArrayList<" + type + "> unwrapList(java.util.List<"
+                + adapter + "> parcels) {");
+        out.indent();
+        out.line("if (parcels == null) {");
+        out.line("    return null;");
+        out.line("}");
+        out.line("java.util.ArrayList<" + type + "> models = new java.util.ArrayList<>(parcels.size());");
+        out.line("for (" + adapter + " parcel : parcels) {");
+        out.line("    models.add(unwrap(parcel));");
+        out.line("}");
+        out.line("return models;");
+        out.outdent();
+        out.line("}");
+
+        out.line();
+        out.line("@Override");
+        out.line("public int describeContents() {");
+        out.line("    // No file descriptors in class members");
+        out.line("    return 0;");
+        out.line("}");
+
+        out.line();
+        out.line("@Override");
+        out.line("public void writeToParcel(" + PARCEL + " parcel, int flags) {");
+        out.indent();
+        for (FieldInfo field : fields) {
+            String value = "mModel." + field.mGetter + "()";
+            switch (field.mKind) {
+                case INT:
+                    out.line("parcel.writeInt(" + value + ");");
+                    break;
+                case LONG:
+                    out.line("parcel.writeLong(" + value + ");");
+                    break;
+                case DOUBLE:
+                    out.line("parcel.writeDouble(" + value + ");");
+                    break;
+                case BOOLEAN:
+                    out.line("parcel.writeByte((byte) (" + value + " ? 1 : 0));");
+                    break;
+                case LAZY_TEXT:
+                    out.line(PARCEL_UTILS + ".writeLazyText(parcel, " + value + ");");
+                    break;
+                default:
+                    out.line("parcel.writeString(" + value + ");");
+            }
+        }
+        out.outdent();
+        out.line("}");
+
+        out.line();
+        out.line("public static final " + PARCELABLE + ".Creator<" + adapter + "> CREATOR");
+        out.line("        = new " + PARCELABLE + ".Creator<" + adapter + ">() {");
+        out.line();
+        out.indent();
+        out.line("@Override");
+        out.line("public " + adapter + " createFromParcel(" + PARCEL + " in) {");
+        out.indent();
+        out.line(type + " model = new " + type + "();");
+        for (FieldInfo field : fields) {
+            String read;
+            switch (field.mKind) {
+                case INT:
+                    read = "in.readInt()";
+                    break;
+                case LONG:
+                    read = "in.readLong()";
+                    break;
+                case DOUBLE:
+                    read = "in.readDouble()";
+                    break;
+                case BOOLEAN:
+                    read = "in.readByte() != 0";
+                    break;
+                case LAZY_TEXT:
+                    read = PARCEL_UTILS + ".readLazyText(in)";
+                    break;
+                default:
+                    read = field.mPooled
+                            ? STRING_POOL + ".getShared().intern(in.readString())"
+                            : "in.readString()";
+            }
+            out.line("model." + field.mSetter + "(" + read + ");");
+        }
+        out.line("return new " + adapter + "(model);");
+        out.outdent();
+        out.line("}");
+        out.line();
+        out.line("@Override");
+        out.line("public " + adapter + "[] newArray(int size) {");
+        out.line("    return new " + adapter + "[size];");
+        out.line("}");
+        out.outdent();
+        out.line("};");
+
+        out.outdent();
+        out.line("}");
+
+        writeSource(packageName, adapter, out, origin);
+    }
+
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20 || c > 0x7E) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    /**
+     * Source code builder with indentation
+     */
+    private static final class CodeWriter {
+        private final StringBuilder mCode = new StringBuilder();
+        private int mIndent;
+
+        void indent() { mIndent++; }
+        void outdent() { mIndent--; }
+
+        void line() { mCode.append('\n'); }
+
+        void line(String code) {
+            for (int i = 0; i < mIndent; i++) { mCode.append("    "); }
+            mCode.append(code).append('\n');
+        }
+
+        @Override
+        public String toString() { return mCode.toString(); }
+    }
+}
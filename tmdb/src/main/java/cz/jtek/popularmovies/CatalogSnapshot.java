@@ -0,0 +1,223 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import cz.jtek.popularmovies.network.ResponseReader;
+import cz.jtek.popularmovies.utilities.LazyText;
+
+/**
+ * Offline copy of TMDb movie lists, e.g. whole popular and top rated catalogs.
+ * Snapshot is written by catalog crawler and imported by the app to pre-seed devices.
+ *
+ * File is a gzipped binary stream: format version, creation time and movie lists,
+ * each list in rank order. Overviews are stored as encoded JSON string bytes, so that
+ * they stay lazily decoded after import.
+ */
+public final class CatalogSnapshot {
+
+    private static final int FORMAT_MAGIC = 0x544d4353; // "TMCS"
+    private static final int FORMAT_VERSION = 1;
+
+    private final long mCreatedAt;
+
+    // List name -> movies in rank order
+    private final LinkedHashMap<String, List<TmdbData.Movie>> mLists = new LinkedHashMap<>();
+
+    /**
+     * @param createdAt Creation time, milliseconds since epoch
+     */
+    public CatalogSnapshot(long createdAt) {
+        mCreatedAt = createdAt;
+    }
+
+    public long getCreatedAt() { return mCreatedAt; }
+
+    /**
+     * @return Names of stored movie lists, in insertion order
+     */
+    public Set<String> getLists() { return Collections.unmodifiableSet(mLists.keySet()); }
+
+    /**
+     * @param list  Movie list name, e.g. TmdbClient.MOVIE_LIST_POPULAR
+     * @return Movies of the list in rank order, null when list is not stored
+     */
+    @Nullable
+    public List<TmdbData.Movie> get(@NonNull String list) {
+        List<TmdbData.Movie> movies = mLists.get(list);
+        return movies != null ? Collections.unmodifiableList(movies) : null;
+    }
+
+    /**
+     * Stores movie list, replacing previous list of the same name
+     *
+     * @param list      Movie list name
+     * @param movies    Movies in rank order
+     */
+    public void put(@NonNull String list, @NonNull List<TmdbData.Movie> movies) {
+        mLists.put(list, new ArrayList<>(movies));
+    }
+
+    /**
+     * Writes snapshot to stream, stream is not closed
+     *
+     * @param out   Output stream
+     * @throws IOException When stream cannot be written
+     */
+    public void write(@NonNull OutputStream out) throws IOException {
+        GZIPOutputStream gzip = new GZIPOutputStream(out);
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(gzip));
+
+        data.writeInt(FORMAT_MAGIC);
+        data.writeInt(FORMAT_VERSION);
+        data.writeLong(mCreatedAt);
+        data.writeInt(mLists.size());
+
+        for (String list : mLists.keySet()) {
+            List<TmdbData.Movie> movies = mLists.get(list);
+            data.writeUTF(list);
+            data.writeInt(movies.size());
+            for (TmdbData.Movie movie : movies) {
+                writeMovie(data, movie);
+            }
+        }
+
+        data.flush();
+        gzip.finish();
+    }
+
+    /**
+     * Reads snapshot from stream, stream is not closed
+     *
+     * @param in    Input stream
+     * @return Snapshot
+     * @throws IOException When stream cannot be read or it does not contain a snapshot
+     */
+    @NonNull
+    public static CatalogSnapshot read(@NonNull InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(new GZIPInputStream(in)));
+
+        if (data.readInt() != FORMAT_MAGIC) {
+            throw new IOException("Not a catalog snapshot");
+        }
+        int version = data.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported catalog snapshot version " + version);
+        }
+
+        CatalogSnapshot snapshot = new CatalogSnapshot(data.readLong());
+        int listCount = data.readInt();
+        for (int i = 0; i < listCount; i++) {
+            String list = data.readUTF();
+            int movieCount = data.readInt();
+            ArrayList<TmdbData.Movie> movies = new ArrayList<>(movieCount);
+            for (int j = 0; j < movieCount; j++) {
+                movies.add(readMovie(data));
+            }
+            snapshot.mLists.put(list, movies);
+        }
+        return snapshot;
+    }
+
+    private static void writeMovie(DataOutputStream data, TmdbData.Movie movie) throws IOException {
+        data.writeInt(movie.getId());
+        data.writeDouble(movie.getVoteAverage());
+        writeString(data, movie.getTitle());
+        writeString(data, movie.getPosterBaseUrl());
+        writeString(data, movie.getPosterFile());
+        writeString(data, movie.getReleaseDate());
+        writeText(data, movie.getLazyOverview());
+    }
+
+    private static TmdbData.Movie readMovie(DataInputStream data) throws IOException {
+        TmdbData.Movie movie = new TmdbData.Movie();
+        movie.setId(data.readInt());
+        movie.setVoteAverage(data.readDouble());
+        movie.setTitle(readString(data));
+        movie.setPosterBaseUrl(readString(data));
+        movie.setPosterFile(readString(data));
+        movie.setReleaseDate(readString(data));
+        movie.setLazyOverview(readText(data));
+        return movie;
+    }
+
+    // Strings are written with presence flag, as writeUTF does not allow null
+    private static void writeString(DataOutputStream data, String value) throws IOException {
+        data.writeBoolean(value != null);
+        if (value != null) {
+            data.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream data) throws IOException {
+        return data.readBoolean() ? data.readUTF() : null;
+    }
+
+    /**
+     * Writes lazy text as encoded bytes, text which was not decoded yet is not decoded
+     */
+    private static void writeText(DataOutputStream data, LazyText text) throws IOException {
+        if (text == null) {
+            data.writeInt(-1);
+            return;
+        }
+
+        byte[] encoded;
+        boolean escaped;
+        synchronized (text) {
+            encoded = text.getEncoded();
+            escaped = text.isEscaped();
+        }
+        if (encoded == null) {
+            // Already decoded, store as plain UTF-8 without escape sequences
+            encoded = text.toString().getBytes(ResponseReader.UTF_8);
+            escaped = false;
+        }
+
+        data.writeInt(encoded.length);
+        data.writeBoolean(escaped);
+        data.write(encoded);
+    }
+
+    private static LazyText readText(DataInputStream data) throws IOException {
+        int length = data.readInt();
+        if (length < 0) {
+            return null;
+        }
+        boolean escaped = data.readBoolean();
+        byte[] encoded = new byte[length];
+        data.readFully(encoded);
+        return LazyText.fromEncoded(encoded, escaped);
+    }
+}
@@ -0,0 +1,584 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import cz.jtek.popularmovies.codegen.JsonField;
+import cz.jtek.popularmovies.codegen.JsonModel;
+import cz.jtek.popularmovies.utilities.LazyText;
+import cz.jtek.popularmovies.utilities.ProjectingJsonReader;
+import cz.jtek.popularmovies.utilities.StringPool;
+
+public class TmdbData {
+
+    @SuppressWarnings("unused")
+    private static final String TAG = TmdbData.class.getSimpleName();
+
+    /**
+     * Custom exception for TMDb API request results
+     */
+    public static class TmdbStatusException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        public TmdbStatusException(int statusCode, String statusMessage) {
+            super("TMDb status: " + statusCode + " (" + statusMessage + ")");
+        }
+    }
+
+    /**
+     * TMDb Status object
+     */
+    public static class Status {
+        // API Status
+        // https://www.themoviedb.org/documentation/api/status-codes
+        public static final String CODE = "status_code";
+        public static final String MSG = "status_message";
+
+        int mCode;
+        String mMessage;
+
+        Status() {}
+
+        // Code
+        public void setCode(int code) { mCode = code; }
+        public int getCode() { return mCode; }
+
+        // Message
+        public void setMessage(String msg) { mMessage = msg; }
+        public String getMessage() { return mMessage; }
+
+        // Constructor converting JSON object to object instance
+        public static Status fromJson(JSONObject jsonObject)
+                throws JSONException {
+            Status s = new Status();
+
+            if (jsonObject.has(CODE)) {
+                s.mCode = jsonObject.getInt(CODE);
+            }
+
+            if (jsonObject.has(MSG)) {
+                s.mMessage = jsonObject.getString(MSG);
+            }
+
+            return s;
+        }
+
+        /**
+         * Check whether status code is present in JSON object
+         * It would mean that API request failed
+         *
+         * @param jsonObject JSON object to check
+         *
+         * @return true if status code is present
+         */
+        public static boolean isPresent(JSONObject jsonObject) {
+            return jsonObject.has(CODE);
+        }
+    }
+
+    /**
+     * TMDb Configuration object
+     */
+    @JsonModel
+    public static class Config {
+        // API Configuration
+        // https://developers.themoviedb.org/3/configuration/get-api-configuration
+        public static final String IMAGES = "images";
+        static final String SECURE_BASE_URL = "secure_base_url";
+
+        // These values are currently hardcoded
+        static final String DEFAULT_IMAGE_SIZE = "w185";
+        static final int DEFAULT_MOVIE_POSTER_WIDTH = 185;
+        static final int DEFAULT_MOVIE_POSTER_HEIGHT = 278;
+
+        @JsonField(SECURE_BASE_URL)
+        String mSecureBaseUrl;
+
+        public static String getPosterSize() { return DEFAULT_IMAGE_SIZE; }
+
+        public static int getPosterWidth() { return DEFAULT_MOVIE_POSTER_WIDTH; }
+        public static int getPosterHeight() { return DEFAULT_MOVIE_POSTER_HEIGHT; }
+
+        public String getSecureBaseUrl() { return mSecureBaseUrl; }
+        public void setSecureBaseUrl(String url) { mSecureBaseUrl = url; }
+
+        public Config() {}
+
+        // Constructor converting JSON object to object instance
+        public static Config fromJson(JSONObject jsonObject)
+                throws JSONException {
+            Config c = new Config();
+
+            // Currently we are only interested in "secure base URL" string from "images" object
+            if (jsonObject.has(IMAGES)) {
+                c = TmdbData_ConfigCodec.fromJson(jsonObject.getJSONObject(IMAGES));
+            }
+            return c;
+        }
+
+        // Constructor reading "images" object value from JSON stream
+        public static Config fromJson(ProjectingJsonReader reader) throws IOException {
+            return TmdbData_ConfigCodec.readObject(reader);
+        }
+    }
+
+    /**
+     *
+     */
+    @JsonModel
+    public static class Movie {
+        // API Movie
+        // https://developers.themoviedb.org/3/movies/get-popular-movies
+        // https://developers.themoviedb.org/3/movies/get-top-rated-movies
+        public static final String RESULTS = "results";
+        static final String MOVIE_ID = "id";
+        static final String TITLE = "title";
+        static final String RELEASE_DATE = "release_date";
+        static final String POSTER_PATH = "poster_path";
+        static final String VOTE_AVERAGE = "vote_average";
+        static final String OVERVIEW = "overview";
+
+        // Movie API properties
+        // Only annotated fields are decoded, other result fields (backdrop_path, genre_ids,
+        // original_title, popularity, vote_count, adult, ...) are skipped
+        // int mVoteCount;
+        @JsonField(MOVIE_ID)
+        int mId;
+        // boolean mVideo;
+        @JsonField(VOTE_AVERAGE)
+        double mVoteAverage;
+        @JsonField(TITLE)
+        String mTitle;
+        // double mPopularity;
+        // Poster base URL is pooled and shared by all movies, poster path is relative to it.
+        // Base URL is null when poster path is not patched yet.
+        @JsonField(pooled = true)
+        String mPosterBaseUrl;
+        @JsonField(value = POSTER_PATH, property = "posterFile")
+        String mPosterPath;
+        // String mOriginalLanguage;
+        // String mOriginalTitle;
+        // int[] mGenreIds;
+        // String mBackdropPath;
+        // boolean mAdult;
+        // Overview is decoded only when movie detail is displayed
+        @JsonField(value = OVERVIEW, property = "lazyOverview")
+        LazyText mOverview;
+        @JsonField(RELEASE_DATE)
+        String mReleaseDate;
+
+        // Id
+        public int getId() { return mId; }
+        public void setId(int id) { mId = id; }
+
+        // Title
+        public String getTitle() { return mTitle; }
+        public void setTitle(String title) { mTitle = title; }
+
+        // Release date
+        public String getReleaseDate() { return mReleaseDate; }
+        public void setReleaseDate(String releaseDate) { mReleaseDate = releaseDate; }
+
+        // Poster path
+        public String getPosterPath() {
+            return (mPosterBaseUrl != null) ? mPosterBaseUrl + mPosterPath : mPosterPath;
+        }
+        public void setPosterPath(String posterPath) { setPosterUrl(posterPath); }
+
+        // Poster base URL and file path relative to it, as kept by the model
+        public String getPosterBaseUrl() { return mPosterBaseUrl; }
+        public void setPosterBaseUrl(String posterBaseUrl) {
+            mPosterBaseUrl = StringPool.getShared().intern(posterBaseUrl);
+        }
+        public String getPosterFile() { return mPosterPath; }
+        public void setPosterFile(String posterFile) { mPosterPath = posterFile; }
+
+        /**
+         * Sets poster path, complete poster URL is split to pooled base URL and file path
+         *
+         * @param posterPath Poster path or complete poster URL
+         */
+        private void setPosterUrl(String posterPath) {
+            int fileStart = (posterPath != null && posterPath.contains("://"))
+                    ? posterPath.lastIndexOf('/') : -1;
+            if (fileStart > 0) {
+                mPosterBaseUrl = StringPool.getShared().intern(posterPath.substring(0, fileStart));
+                mPosterPath = posterPath.substring(fileStart);
+            } else {
+                mPosterBaseUrl = null;
+                mPosterPath = posterPath;
+            }
+        }
+
+        // Vote average
+        public double getVoteAverage() { return mVoteAverage; }
+        public void setVoteAverage(double voteAverage) { mVoteAverage = voteAverage; }
+
+        // Overview
+        public String getOverview() { return LazyText.toString(mOverview); }
+        //public void setOverview(String overview) { mOverview = overview; }
+
+        // Overview kept encoded until it is displayed
+        public LazyText getLazyOverview() { return mOverview; }
+        public void setLazyOverview(LazyText overview) { mOverview = overview; }
+
+        public Movie() { }
+
+        public Movie(
+                int id,
+                String title,
+                String posterPath,
+                String overview,
+                String releaseDate,
+                double voteAverage ) {
+            mId = id;
+            mTitle = title;
+            setPosterUrl(posterPath);
+            mOverview = LazyText.of(overview);
+            mReleaseDate = releaseDate;
+            mVoteAverage = voteAverage;
+        }
+
+        /**
+         * Creates copy of this movie with poster path patched by poster base URL,
+         * overview is not decoded
+         *
+         * @param posterBaseUrl Poster base URL, it is pooled
+         * @return Movie copy
+         */
+        public Movie withPosterBaseUrl(String posterBaseUrl) {
+            Movie m = new Movie(mId, mTitle, null, null, mReleaseDate, mVoteAverage);
+            m.mPosterBaseUrl = StringPool.getShared().intern(posterBaseUrl);
+            m.mPosterPath = mPosterPath;
+            m.mOverview = mOverview;
+            return m;
+        }
+
+        // Factory method reading JSON array from stream to list of object instances
+        public static ArrayList<Movie> fromJson(ProjectingJsonReader reader) throws IOException {
+            ArrayList<Movie> movies = new ArrayList<>();
+
+            reader.beginArray();
+            while (reader.hasNext()) {
+                movies.add(TmdbData_MovieCodec.readObject(reader));
+            }
+            reader.endArray();
+
+            return movies;
+        }
+
+        // Factory method for converting JSON object array to list of object instances
+        public static ArrayList<Movie> fromJson(JSONArray jsonArray)
+                throws JSONException {
+            JSONObject movieJson;
+
+            int objectCount = jsonArray.length();
+            ArrayList<Movie> movies = new ArrayList<>(objectCount);
+            for (int i = 0; i < objectCount; i++) {
+                movieJson = jsonArray.getJSONObject(i);
+                movies.add(TmdbData_MovieCodec.fromJson(movieJson));
+            }
+            return movies;
+        }
+    }
+
+    /**
+     *
+     */
+    @JsonModel
+    public static class Video {
+        // API Movie Videos
+        // https://developers.themoviedb.org/3/movies/get-movie-videos
+        public static final String RESULTS = "results";
+        static final String VIDEO_ID = "id";
+        static final String KEY = "key";
+        static final String NAME = "name";
+        static final String SITE = "site";
+        static final String TYPE = "type";
+
+        // Available Video types
+        public static final String TYPE_TRAILER = "Trailer";
+        //static final String TYPE_TEASER = "Teaser";
+        //static final String TYPE_CLIP = "Clip";
+        //static final String TYPE_FEATURETTE = "Featurette";
+
+        @JsonField(VIDEO_ID)
+        String mId;
+        @JsonField(NAME)
+        String mName;
+        @JsonField(KEY)
+        String mKey;
+        // Site and type values repeat across videos, canonical pooled instances are used.
+        // Stream decoder abandons the video as soon as its type does not match the filter,
+        // fields preceding the type (TMDb sends it last) are not decoded until it matches.
+        @JsonField(value = SITE, pooled = true)
+        String mSite;
+        @JsonField(value = TYPE, pooled = true, filter = true)
+        String mType;
+
+        // Id
+        public String getId() { return mId; }
+        public void setId(String id) { mId = id; }
+
+        // Name
+        public String getName() { return mName; }
+        public void setName(String name) { mName = name; }
+
+        // Key
+        public String getKey() { return mKey; }
+        public void setKey(String key) { mKey = key; }
+
+        // Site
+        public String getSite() { return mSite; }
+        public void setSite(String site) { mSite = StringPool.getShared().intern(site); }
+
+        // Type
+        public String getType() { return mType; }
+        public void setType(String type) { mType = StringPool.getShared().intern(type); }
+
+        public Video() { }
+
+        // Factory method reading JSON array from stream to list of object instances
+        public static ArrayList<Video> fromJson(ProjectingJsonReader reader, String filterType)
+                throws IOException {
+            return fromJson(reader, filterType != null ? typeFilter(filterType) : null);
+        }
+
+        // Factory method reading JSON array from stream to list of object instances,
+        // keeping only videos of any of the filter types, null filter accepts all types
+        public static ArrayList<Video> fromJson(ProjectingJsonReader reader, Set<String> filterTypes)
+                throws IOException {
+            ArrayList<Video> videos = new ArrayList<>();
+
+            reader.beginArray();
+            while (reader.hasNext()) {
+                Video video = TmdbData_VideoCodec.readObject(reader, filterTypes);
+                if (video != null) {
+                    videos.add(video);
+                }
+            }
+            reader.endArray();
+
+            return videos;
+        }
+
+        /**
+         * Creates video type filter set for stream decoding
+         *
+         * @param types Accepted video types
+         * @return Immutable set of types
+         */
+        public static Set<String> typeFilter(String... types) {
+            return Collections.unmodifiableSet(new HashSet<>(Arrays.asList(types)));
+        }
+
+        /**
+         * Returns videos of given type only
+         *
+         * @param videos        Video list to filter
+         * @param filterType    Video type to keep, null keeps all videos
+         * @return New list containing videos of given type
+         */
+        public static ArrayList<Video> filterByType(List<Video> videos, String filterType) {
+            ArrayList<Video> filtered = new ArrayList<>(videos.size());
+            for (Video video : videos) {
+                if (filterType == null || filterType.equals(video.mType)) {
+                    filtered.add(video);
+                }
+            }
+            return filtered;
+        }
+
+        // Factory method for converting JSON object array to list of object instances
+        public static ArrayList<Video> fromJson(JSONArray jsonArray, String filterType)
+                throws JSONException {
+            JSONObject videoJson;
+
+            int objectCount = jsonArray.length();
+            ArrayList<Video> videos = new ArrayList<>(objectCount);
+            for (int i = 0; i < objectCount; i++) {
+                videoJson = jsonArray.getJSONObject(i);
+                Video video = TmdbData_VideoCodec.fromJson(videoJson);
+                if (filterType == null || filterType.equals(video.mType)) {
+                    videos.add(video);
+                }
+            }
+            return videos;
+        }
+    }
+
+    /**
+     *
+     */
+    @JsonModel
+    public static class Review {
+        // API Movie Reviews
+        // https://developers.themoviedb.org/3/movies/get-movie-reviews
+        public static final String RESULTS = "results";
+
+        static final String REVIEW_ID = "id";
+        static final String AUTHOR = "author";
+        static final String CONTENT = "content";
+        static final String URL = "url";
+
+        @JsonField(REVIEW_ID)
+        String mId;
+        @JsonField(AUTHOR)
+        String mAuthor;
+        // Content is decoded only when review is displayed
+        @JsonField(value = CONTENT, property = "lazyContent")
+        LazyText mContent;
+        @JsonField(URL)
+        String mUrl;
+
+        // Id
+        public String getId() { return mId; }
+        public void setId(String id) { mId = id; }
+
+        // Author
+        public String getAuthor() { return mAuthor; }
+        public void setAuthor(String author) { mAuthor = author; }
+
+        // Content
+        public String getContent() { return LazyText.toString(mContent); }
+        public void setContent(String content) { mContent = LazyText.of(content); }
+
+        // Content kept encoded until it is displayed
+        public LazyText getLazyContent() { return mContent; }
+        public void setLazyContent(LazyText content) { mContent = content; }
+
+        // URL
+        public String getUrl() { return mUrl; }
+        public void setUrl(String url) { mUrl = url; }
+
+        public Review() {}
+
+        // Factory method reading JSON array from stream to list of object instances
+        public static ArrayList<Review> fromJson(ProjectingJsonReader reader) throws IOException {
+            ArrayList<Review> reviews = new ArrayList<>();
+
+            reader.beginArray();
+            while (reader.hasNext()) {
+                reviews.add(TmdbData_ReviewCodec.readObject(reader));
+            }
+            reader.endArray();
+
+            return reviews;
+        }
+
+        // Factory method for converting JSON object array to list of object instances
+        public static ArrayList<Review> fromJson(JSONArray jsonArray)
+                throws JSONException {
+            JSONObject reviewJson;
+
+            int objectCount = jsonArray.length();
+            ArrayList<Review> reviews = new ArrayList<>(objectCount);
+            for (int i = 0; i < objectCount; i++) {
+                reviewJson = jsonArray.getJSONObject(i);
+                reviews.add(TmdbData_ReviewCodec.fromJson(reviewJson));
+            }
+            return reviews;
+        }
+    }
+
+    /**
+     * Movie detail with appended videos and reviews, obtained by single API request
+     */
+    public static class MovieDetail {
+        // API Movie Details with append_to_response
+        // https://developers.themoviedb.org/3/getting-started/append-to-response
+        public static final String VIDEOS = "videos";
+        public static final String REVIEWS = "reviews";
+
+        // Video types used by detail screen views. Videos of other types are abandoned
+        // by the decoder, views pick their own types with Video.filterByType().
+        static final Set<String> VIDEO_TYPES = Video.typeFilter(Video.TYPE_TRAILER);
+
+        ArrayList<Video> mVideos = new ArrayList<>();
+        ArrayList<Review> mReviews = new ArrayList<>();
+
+        // Videos
+        public ArrayList<Video> getVideos() { return mVideos; }
+
+        // Reviews
+        public ArrayList<Review> getReviews() { return mReviews; }
+
+        public MovieDetail() {}
+
+        // Constructor converting JSON object to object instance
+        public static MovieDetail fromJson(JSONObject jsonObject)
+                throws JSONException {
+            MovieDetail d = new MovieDetail();
+
+            // Appended responses have the same structure as separate /videos and /reviews replies
+            if (jsonObject.has(VIDEOS)) {
+                JSONObject videosObject = jsonObject.getJSONObject(VIDEOS);
+                if (videosObject.has(Video.RESULTS)) {
+                    d.mVideos = Video.fromJson(videosObject.getJSONArray(Video.RESULTS), null);
+                }
+            }
+
+            if (jsonObject.has(REVIEWS)) {
+                JSONObject reviewsObject = jsonObject.getJSONObject(REVIEWS);
+                if (reviewsObject.has(Review.RESULTS)) {
+                    d.mReviews = Review.fromJson(reviewsObject.getJSONArray(Review.RESULTS));
+                }
+            }
+
+            return d;
+        }
+
+        /**
+         * Reads appended "videos" or "reviews" object value from JSON stream
+         *
+         * @param name      Appended response name
+         * @param reader    JSON stream reader positioned at the value
+         * @return true if the value was consumed
+         * @throws IOException On stream reading or JSON syntax error
+         */
+        public boolean readAppended(String name, ProjectingJsonReader reader) throws IOException {
+            if (!name.equals(VIDEOS) && !name.equals(REVIEWS)) {
+                return false;
+            }
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String field = reader.nextName();
+                if (field.equals(Video.RESULTS) && name.equals(VIDEOS)) {
+                    mVideos = Video.fromJson(reader, VIDEO_TYPES);
+                } else if (field.equals(Review.RESULTS) && name.equals(REVIEWS)) {
+                    mReviews = Review.fromJson(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return true;
+        }
+    }
+}
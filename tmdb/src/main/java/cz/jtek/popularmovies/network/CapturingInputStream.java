@@ -0,0 +1,106 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.network;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Input stream keeping copy of all bytes read through it.
+ * Lets a consumer parse response body while it is being downloaded and still have
+ * the complete body for the response cache afterwards.
+ */
+public class CapturingInputStream extends FilterInputStream {
+
+    // Initial buffer size used when content length is unknown
+    private static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+
+    // Do not trust announced content length beyond this value when pre-sizing
+    private static final int MAX_PRESIZED_BUFFER = 4 * 1024 * 1024;
+
+    private byte[] mBuffer;
+    private int mLength;
+
+    /**
+     * @param in             Stream to read from
+     * @param contentLength  Expected body length, -1 if unknown
+     */
+    public CapturingInputStream(InputStream in, long contentLength) {
+        super(in);
+        int capacity = (contentLength > 0 && contentLength <= MAX_PRESIZED_BUFFER)
+                ? (int) contentLength
+                : DEFAULT_BUFFER_SIZE;
+        mBuffer = new byte[capacity];
+    }
+
+    private void capture(byte[] buffer, int offset, int length) {
+        if (mLength + length > mBuffer.length) {
+            mBuffer = Arrays.copyOf(mBuffer, Math.max(mBuffer.length * 2, mLength + length));
+        }
+        System.arraycopy(buffer, offset, mBuffer, mLength, length);
+        mLength += length;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b != -1) {
+            capture(new byte[] { (byte) b }, 0, 1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int readLen = super.read(buffer, offset, length);
+        if (readLen > 0) {
+            capture(buffer, offset, readLen);
+        }
+        return readLen;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        // Skipped bytes have to be captured as well
+        byte[] buffer = new byte[(int) Math.min(n, DEFAULT_BUFFER_SIZE)];
+        int readLen = read(buffer, 0, buffer.length);
+        return readLen == -1 ? 0 : readLen;
+    }
+
+    @Override
+    public boolean markSupported() { return false; }
+
+    /**
+     * Reads rest of the stream, e.g. trailing whitespace left after parser finished
+     *
+     * @throws IOException Related to stream reading
+     */
+    public void drain() throws IOException {
+        byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
+        //noinspection StatementWithEmptyBody
+        while (read(buffer, 0, buffer.length) != -1) { }
+    }
+
+    /**
+     * @return Copy of bytes read so far
+     */
+    public byte[] getBytes() {
+        return mLength == mBuffer.length ? mBuffer : Arrays.copyOf(mBuffer, mLength);
+    }
+}
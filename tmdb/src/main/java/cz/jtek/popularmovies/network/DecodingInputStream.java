@@ -0,0 +1,154 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.network;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Response body stream decoding gzip or deflate Content-Encoding on the fly.
+ * Counts both compressed (network) and uncompressed (decoded) bytes and records them
+ * to TransferStats when the stream is closed.
+ */
+public class DecodingInputStream extends FilterInputStream {
+
+    public static final String ENCODING_GZIP = "gzip";
+    public static final String ENCODING_DEFLATE = "deflate";
+    public static final String ACCEPT_ENCODING = ENCODING_GZIP + ", " + ENCODING_DEFLATE;
+
+    private final CountingInputStream mRawStream;
+    private final String mContentEncoding;
+    private final String mLabel;
+
+    private long mDecodedBytes;
+    private boolean mClosed;
+
+    private DecodingInputStream(InputStream decoded, CountingInputStream raw,
+                                String contentEncoding, String label) {
+        super(decoded);
+        mRawStream = raw;
+        mContentEncoding = contentEncoding;
+        mLabel = label;
+    }
+
+    /**
+     * Wraps raw response body stream with decoder matching its Content-Encoding
+     *
+     * @param raw               Raw body stream as received from network
+     * @param contentEncoding   Content-Encoding header value, null for identity
+     * @param label             Label used for transfer statistics
+     * @return Decoded body stream
+     * @throws IOException On invalid compressed stream header
+     */
+    public static DecodingInputStream wrap(InputStream raw, String contentEncoding, String label)
+            throws IOException {
+        CountingInputStream counting = new CountingInputStream(raw);
+        InputStream decoded;
+
+        if (ENCODING_GZIP.equalsIgnoreCase(contentEncoding)) {
+            decoded = new GZIPInputStream(counting);
+        } else if (ENCODING_DEFLATE.equalsIgnoreCase(contentEncoding)) {
+            decoded = new InflaterInputStream(counting);
+        } else {
+            decoded = counting;
+        }
+
+        return new DecodingInputStream(decoded, counting, contentEncoding, label);
+    }
+
+    /**
+     * @return true if body is transferred compressed
+     */
+    public boolean isCompressed() {
+        return ENCODING_GZIP.equalsIgnoreCase(mContentEncoding)
+                || ENCODING_DEFLATE.equalsIgnoreCase(mContentEncoding);
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b != -1) { mDecodedBytes++; }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int readLen = super.read(buffer, offset, length);
+        if (readLen > 0) { mDecodedBytes += readLen; }
+        return readLen;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        mDecodedBytes += skipped;
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        // Byte counting does not support rewinding
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!mClosed) {
+            mClosed = true;
+            TransferStats.record(mLabel, mContentEncoding, mRawStream.getCount(), mDecodedBytes);
+        }
+        super.close();
+    }
+
+    /**
+     * Input stream counting bytes read through it
+     */
+    public static class CountingInputStream extends FilterInputStream {
+        private long mCount;
+
+        public CountingInputStream(InputStream in) { super(in); }
+
+        public long getCount() { return mCount; }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) { mCount++; }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int readLen = super.read(buffer, offset, length);
+            if (readLen > 0) { mCount += readLen; }
+            return readLen;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            mCount += skipped;
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() { return false; }
+    }
+}
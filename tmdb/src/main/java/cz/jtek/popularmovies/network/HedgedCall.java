@@ -0,0 +1,222 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.network;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Hedged request execution.
+ * Primary request is sent first; if it does not answer within hedge delay, identical
+ * second request is sent and whichever answers first is used. The other one is cancelled.
+ * Retryable server error response wins only when the other request has failed as well.
+ */
+public final class HedgedCall {
+
+    @SuppressWarnings("unused")
+    private static final String TAG = HedgedCall.class.getSimpleName();
+
+    // Calls are executed on own threads rather than enqueued to OkHttp dispatcher, so that
+    // time spent in dispatcher queue does not count towards hedge delay
+    private static final ExecutorService sExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+        private int mThreadCount;
+
+        @Override
+        public synchronized Thread newThread(@NonNull Runnable runnable) {
+            Thread thread = new Thread(runnable, TAG + " #" + (++mThreadCount));
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final OkHttpClient mClient;
+    private final Request mRequest;
+    private final BlockingQueue<Outcome> mOutcomes = new LinkedBlockingQueue<>();
+    private final CountDownLatch mPrimaryStarted = new CountDownLatch(1);
+
+    private Call mPrimaryCall;
+    private Call mHedgeCall;
+    private boolean mFinished;
+    // Server error response kept until the other call completes
+    private Outcome mHeld;
+
+    /**
+     * Result of one of the calls
+     */
+    private static class Outcome {
+        final Call mCall;
+        final Response mResponse;
+        final IOException mException;
+
+        Outcome(Call call, Response response, IOException exception) {
+            mCall = call;
+            mResponse = response;
+            mException = exception;
+        }
+    }
+
+    /**
+     * Listener invoked before the hedged request is sent, e.g. to take rate limiter token
+     */
+    public interface HedgeListener {
+        void onHedge() throws IOException;
+    }
+
+    public HedgedCall(@NonNull OkHttpClient client, @NonNull Request request) {
+        mClient = client;
+        mRequest = request;
+    }
+
+    /**
+     * Executes request, hedging it after given delay since the primary request started
+     *
+     * @param hedgeDelayMs  Delay after which hedged request is sent
+     * @param listener      Listener invoked before hedged request is sent, may be null
+     * @return The first successful response, retryable server error response when
+     *         no request succeeded
+     * @throws IOException When all sent requests fail
+     */
+    public Response execute(long hedgeDelayMs, HedgeListener listener) throws IOException {
+        try {
+            mPrimaryCall = submit(mPrimaryStarted);
+            int pending = 1;
+
+            mPrimaryStarted.await();
+            Outcome outcome = mOutcomes.poll(hedgeDelayMs, TimeUnit.MILLISECONDS);
+            if (outcome == null) {
+                // Primary request is slow, send hedged one
+                if (listener != null) {
+                    listener.onHedge();
+                }
+                mHedgeCall = submit(null);
+                pending++;
+            }
+
+            IOException lastException = null;
+            while (pending > 0) {
+                if (outcome == null) {
+                    outcome = mOutcomes.take();
+                }
+                pending--;
+
+                if (outcome.mResponse != null) {
+                    if (pending > 0 && TmdbClient.isRetryableStatus(outcome.mResponse.code())) {
+                        // Other request may still succeed
+                        mHeld = outcome;
+                    } else {
+                        finish(outcome.mCall);
+                        return outcome.mResponse;
+                    }
+                } else {
+                    lastException = outcome.mException;
+                }
+                outcome = null;
+            }
+
+            if (mHeld != null) {
+                Outcome held = mHeld;
+                finish(held.mCall);
+                return held.mResponse;
+            }
+            throw lastException;
+        } catch (InterruptedException ie) {
+            finish(null);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Request cancelled");
+        } catch (IOException | RuntimeException ex) {
+            finish(null);
+            throw ex;
+        }
+    }
+
+    /**
+     * Executes new call on executor thread, its outcome is added to the queue
+     *
+     * @param started Latch counted down once the call is about to execute, may be null
+     * @return Submitted call
+     */
+    private Call submit(final CountDownLatch started) {
+        final Call call = mClient.newCall(mRequest);
+        sExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (started != null) {
+                    started.countDown();
+                }
+
+                Response response;
+                try {
+                    response = call.execute();
+                } catch (IOException iex) {
+                    mOutcomes.add(new Outcome(call, null, iex));
+                    return;
+                }
+
+                synchronized (HedgedCall.this) {
+                    if (mFinished) {
+                        // Loser of the race
+                        response.close();
+                        return;
+                    }
+                    mOutcomes.add(new Outcome(call, response, null));
+                }
+            }
+        });
+        return call;
+    }
+
+    /**
+     * Cancels outstanding calls and closes responses which were not used
+     *
+     * @param winner Call whose response is used, null if none
+     */
+    private void finish(Call winner) {
+        synchronized (this) {
+            mFinished = true;
+        }
+
+        if (mPrimaryCall != null && mPrimaryCall != winner) { mPrimaryCall.cancel(); }
+        if (mHedgeCall != null && mHedgeCall != winner) { mHedgeCall.cancel(); }
+
+        if (mHeld != null && mHeld.mCall != winner) {
+            mHeld.mResponse.close();
+        }
+        mHeld = null;
+
+        // Responses delivered after the winner was taken
+        Outcome outcome;
+        while ((outcome = mOutcomes.poll()) != null) {
+            if (outcome.mResponse != null) {
+                outcome.mResponse.close();
+            }
+        }
+    }
+}
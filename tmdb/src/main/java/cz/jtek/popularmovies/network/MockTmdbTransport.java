@@ -0,0 +1,262 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.network;
+
+import android.support.annotation.NonNull;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.util.List;
+
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * In-process stand-in of TMDb API server.
+ * Requests never leave the device, responses are served from bundled mock_*.json files
+ * with latency, bandwidth and errors given by network profile.
+ * Movie list pages past the first one repeat the mock results with ids shifted by
+ * PAGE_ID_OFFSET per page, so that every page has distinct movies.
+ */
+public class MockTmdbTransport implements Transport {
+
+    @SuppressWarnings("unused")
+    private static final String TAG = MockTmdbTransport.class.getSimpleName();
+
+    // Mock JSON file names
+    public static final String MOCK_CONFIGURATION = "mock_configuration";
+    public static final String MOCK_POPULAR = "mock_popular";
+    public static final String MOCK_TOP_RATED = "mock_top_rated";
+    public static final String MOCK_VIDEOS = "mock_videos";
+    public static final String MOCK_REVIEWS = "mock_reviews";
+
+    // Movie ids of page N are mock ids + (N - 1) * PAGE_ID_OFFSET, all mock ids are lower
+    public static final int PAGE_ID_OFFSET = 1000000;
+
+    private static final String PARAM_PAGE = "page";
+    private static final String KEY_PAGE = "page";
+    private static final String KEY_TOTAL_PAGES = "total_pages";
+    private static final String KEY_RESULTS = "results";
+    private static final String KEY_ID = "id";
+
+    static final MediaType MEDIA_TYPE_JSON = MediaType.parse("application/json;charset=utf-8");
+
+    private static final String STATUS_NOT_FOUND =
+            "{\"status_code\":34,\"status_message\":\"The resource you requested could not be found.\"}";
+    private static final String STATUS_RATE_LIMITED =
+            "{\"status_code\":25,\"status_message\":\"Your request count (#) is over the allowed limit of (40).\"}";
+    private static final String STATUS_SERVER_ERROR =
+            "{\"status_code\":11,\"status_message\":\"Internal error: Something went wrong, contact TMDb.\"}";
+
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    /**
+     * Source of mock JSON files, e.g. Android raw resources or files on plain JVM
+     */
+    public interface JsonSource {
+        InputStream open(@NonNull String name) throws IOException;
+    }
+
+    private final JsonSource mJsonSource;
+    private volatile NetworkProfile mProfile;
+
+    public MockTmdbTransport(@NonNull JsonSource jsonSource, @NonNull NetworkProfile profile) {
+        mJsonSource = jsonSource;
+        mProfile = profile;
+    }
+
+    public void setProfile(@NonNull NetworkProfile profile) { mProfile = profile; }
+
+    @NonNull
+    @Override
+    public Response execute(@NonNull Interceptor.Chain chain) throws IOException {
+        Request request = chain.request();
+        NetworkProfile profile = mProfile;
+
+        switch (profile.nextOutcome()) {
+            case CONNECTION_ERROR:
+                simulateDelay(profile.nextDelayMs(0));
+                throw new IOException("Simulated connection failure");
+            case SERVER_ERROR:
+                return respond(request, profile, HttpURLConnection.HTTP_UNAVAILABLE,
+                        STATUS_SERVER_ERROR.getBytes(ResponseReader.UTF_8));
+            case RATE_LIMITED:
+                return respond(request, profile, 429,
+                        STATUS_RATE_LIMITED.getBytes(ResponseReader.UTF_8));
+            default:
+                break;
+        }
+
+        byte[] body = getMockBody(request.url());
+        if (body == null) {
+            return respond(request, profile, HttpURLConnection.HTTP_NOT_FOUND,
+                    STATUS_NOT_FOUND.getBytes(ResponseReader.UTF_8));
+        }
+        return respond(request, profile, HttpURLConnection.HTTP_OK, body);
+    }
+
+    /**
+     * Maps API URL to mock JSON contents
+     *
+     * @param url Request URL, e.g. with path /3/movie/278/videos
+     * @return Mock response body, null for unknown path
+     * @throws IOException When mock file cannot be read
+     */
+    private byte[] getMockBody(HttpUrl url) throws IOException {
+        // Skip API version segment
+        List<String> segments = url.pathSegments();
+        List<String> path = segments.subList(1, segments.size());
+
+        if (path.size() == 1 && path.get(0).equals("configuration")) {
+            return readMock(MOCK_CONFIGURATION);
+        }
+
+        if (path.size() < 2 || !path.get(0).equals("movie")) {
+            return null;
+        }
+
+        if (path.size() == 2) {
+            switch (path.get(1)) {
+                case "popular":
+                    return buildMovieListPage(MOCK_POPULAR, getPage(url));
+                case "top_rated":
+                    return buildMovieListPage(MOCK_TOP_RATED, getPage(url));
+                default:
+                    // Movie detail with appended videos and reviews
+                    return buildMovieDetail(path.get(1));
+            }
+        }
+
+        if (path.size() == 3) {
+            switch (path.get(2)) {
+                case "videos":
+                    return readMock(MOCK_VIDEOS);
+                case "reviews":
+                    return readMock(MOCK_REVIEWS);
+                default:
+                    return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return Requested page number, missing or invalid page parameter requests the first page
+     */
+    private static int getPage(HttpUrl url) {
+        String page = url.queryParameter(PARAM_PAGE);
+        if (page == null) {
+            return 1;
+        }
+        try {
+            return Math.max(Integer.parseInt(page), 1);
+        } catch (NumberFormatException nfe) {
+            return 1;
+        }
+    }
+
+    /**
+     * Builds movie list page from mock first page. Pages past the total page count
+     * of the mock reply are empty.
+     *
+     * @param name  Mock JSON file name
+     * @param page  Page number
+     * @return Page reply body
+     * @throws IOException When mock file cannot be read
+     */
+    private byte[] buildMovieListPage(String name, int page) throws IOException {
+        byte[] firstPage = readMock(name);
+        if (page == 1) {
+            return firstPage;
+        }
+
+        try {
+            JSONObject reply = new JSONObject(new String(firstPage, ResponseReader.UTF_8));
+            JSONArray results = reply.getJSONArray(KEY_RESULTS);
+            JSONArray pageResults = new JSONArray();
+            if (page <= reply.optInt(KEY_TOTAL_PAGES, 1)) {
+                for (int i = 0; i < results.length(); i++) {
+                    JSONObject movie = results.getJSONObject(i);
+                    movie.put(KEY_ID, movie.getInt(KEY_ID) + (page - 1) * PAGE_ID_OFFSET);
+                    pageResults.put(movie);
+                }
+            }
+            reply.put(KEY_PAGE, page);
+            reply.put(KEY_RESULTS, pageResults);
+            return reply.toString().getBytes(ResponseReader.UTF_8);
+        } catch (JSONException je) {
+            throw new IOException("Invalid mock movie list " + name, je);
+        }
+    }
+
+    private byte[] buildMovieDetail(String movieId) throws IOException {
+        String detail = "{\"id\":" + movieId
+                + ",\"videos\":" + new String(readMock(MOCK_VIDEOS), ResponseReader.UTF_8)
+                + ",\"reviews\":" + new String(readMock(MOCK_REVIEWS), ResponseReader.UTF_8)
+                + "}";
+        return detail.getBytes(ResponseReader.UTF_8);
+    }
+
+    private byte[] readMock(String name) throws IOException {
+        InputStream in = mJsonSource.open(name);
+        try {
+            return ResponseReader.readBytes(in, in.available());
+        } finally {
+            in.close();
+        }
+    }
+
+    private static Response respond(Request request, NetworkProfile profile, int code, byte[] body)
+            throws IOException {
+        simulateDelay(profile.nextDelayMs(body.length));
+
+        Response.Builder builder = new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(code)
+                .message(code == HttpURLConnection.HTTP_OK ? "OK" : "Error")
+                .body(ResponseBody.create(MEDIA_TYPE_JSON, body));
+
+        if (code == 429) {
+            builder.header("Retry-After", RETRY_AFTER_SECONDS);
+        }
+        return builder.build();
+    }
+
+    private static void simulateDelay(long delayMs) throws IOException {
+        if (delayMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(delayMs);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Request cancelled");
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.network;
+
+import java.util.Random;
+
+/**
+ * Simulated network conditions for offline transports.
+ * Random decisions use seeded generator, so that benchmark runs are repeatable.
+ */
+public class NetworkProfile {
+
+    // No delays, no errors
+    public static final NetworkProfile IDEAL = new NetworkProfile(0, 0, 0, 0, 0, 0);
+    // Typical mobile connection
+    public static final NetworkProfile MOBILE = new NetworkProfile(150, 100, 100 * 1024, 0, 0, 1);
+    // Slow connection with occasional failures and rate limiting
+    public static final NetworkProfile FLAKY = new NetworkProfile(400, 600, 20 * 1024, 0.1, 0.05, 1);
+
+    private final long mLatencyMs;
+    private final long mJitterMs;
+    private final long mBandwidthBytesPerSec;
+    private final double mErrorRate;
+    private final double mRateLimitRate;
+    private final Random mRandom;
+
+    /**
+     * Creates network profile
+     *
+     * @param latencyMs             Base round trip latency
+     * @param jitterMs              Maximum random latency added to base latency
+     * @param bandwidthBytesPerSec  Download bandwidth, 0 for unlimited
+     * @param errorRate             Probability of failed request (connection error or HTTP 503)
+     * @param rateLimitRate         Probability of HTTP 429 response
+     * @param seed                  Seed of random generator
+     */
+    public NetworkProfile(long latencyMs, long jitterMs, long bandwidthBytesPerSec,
+                          double errorRate, double rateLimitRate, long seed) {
+        mLatencyMs = latencyMs;
+        mJitterMs = jitterMs;
+        mBandwidthBytesPerSec = bandwidthBytesPerSec;
+        mErrorRate = errorRate;
+        mRateLimitRate = rateLimitRate;
+        mRandom = new Random(seed);
+    }
+
+    /**
+     * Outcome of one simulated request
+     */
+    public enum Outcome { OK, CONNECTION_ERROR, SERVER_ERROR, RATE_LIMITED }
+
+    /**
+     * Draws outcome of next request
+     */
+    public synchronized Outcome nextOutcome() {
+        double r = mRandom.nextDouble();
+        if (r < mErrorRate / 2) {
+            return Outcome.CONNECTION_ERROR;
+        } else if (r < mErrorRate) {
+            return Outcome.SERVER_ERROR;
+        } else if (r < mErrorRate + mRateLimitRate) {
+            return Outcome.RATE_LIMITED;
+        }
+        return Outcome.OK;
+    }
+
+    /**
+     * Returns simulated time needed to deliver response of given size
+     *
+     * @param bodyBytes Response body size
+     * @return Delay in milliseconds
+     */
+    public synchronized long nextDelayMs(long bodyBytes) {
+        long delay = mLatencyMs;
+        if (mJitterMs > 0) {
+            delay += (long) (mRandom.nextDouble() * mJitterMs);
+        }
+        if (mBandwidthBytesPerSec > 0) {
+            delay += bodyBytes * 1000 / mBandwidthBytesPerSec;
+        }
+        return delay;
+    }
+}
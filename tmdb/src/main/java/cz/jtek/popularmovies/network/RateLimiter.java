@@ -0,0 +1,238 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.network;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.InterruptedIOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Client side token bucket scheduler for TMDb API requests.
+ * Requests take one token each; when the bucket is empty, requests are queued in order
+ * of arrival until tokens are refilled.
+ * Budget reported by the API (X-RateLimit-* headers) and 429 Retry-After responses
+ * are taken into account, so request bursts are slowed down instead of failing.
+ */
+public final class RateLimiter {
+
+    @SuppressWarnings("unused")
+    private static final String TAG = RateLimiter.class.getSimpleName();
+
+    // TMDb API allows bursts of 40 requests per 10 seconds
+    public static final int DEFAULT_CAPACITY = 40;
+    public static final long DEFAULT_REFILL_PERIOD_MS = 10000;
+
+    // Used when 429 response does not contain usable Retry-After header
+    private static final long DEFAULT_RETRY_AFTER_MS = 1000;
+    private static final long MAX_RETRY_AFTER_MS = 60000;
+
+    private static final String HTTP_DATE_FORMAT = "EEE, dd MMM yyyy HH:mm:ss zzz";
+
+    private static final RateLimiter sInstance =
+            new RateLimiter(DEFAULT_CAPACITY, DEFAULT_REFILL_PERIOD_MS);
+
+    private final int mCapacity;
+    private final double mTokensPerMs;
+
+    private double mTokens;
+    private long mLastRefillAt;
+
+    // Time before which no request may be sent (server requested back off)
+    private long mBlockedUntil;
+
+    // Statistics
+    private long mDelayedCount;
+    private long mRateLimitedCount;
+
+    /**
+     * Creates token bucket
+     *
+     * @param capacity          Maximum burst size
+     * @param refillPeriodMs    Time in which empty bucket gets completely refilled
+     */
+    public RateLimiter(int capacity, long refillPeriodMs) {
+        if (capacity <= 0 || refillPeriodMs <= 0) {
+            throw new IllegalArgumentException("Capacity and refill period must be positive");
+        }
+        mCapacity = capacity;
+        mTokensPerMs = (double) capacity / refillPeriodMs;
+        mTokens = capacity;
+        mLastRefillAt = now();
+    }
+
+    @NonNull
+    public static RateLimiter getInstance() { return sInstance; }
+
+    /**
+     * Waits until request may be sent and takes one token
+     *
+     * @throws InterruptedIOException When calling thread is interrupted while waiting
+     */
+    public void acquire() throws InterruptedIOException {
+        long waitMs = reserve();
+        if (waitMs <= 0) {
+            return;
+        }
+
+        try {
+            Thread.sleep(waitMs);
+        } catch (InterruptedException ie) {
+            // Request is not sent, its slot goes to the following requests
+            release();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for request slot");
+        }
+    }
+
+    /**
+     * Reserves one token. Token may be reserved in advance (bucket goes negative), so
+     * waiting requests are served in order of arrival. Refill starts again only after
+     * server requested back off, so requests queued behind it keep the refill rate spacing.
+     *
+     * @return Time in milliseconds the caller has to wait before sending the request
+     */
+    synchronized long reserve() {
+        long now = now();
+        refill(now);
+
+        long waitMs = Math.max(0, mLastRefillAt - now);
+        if (mTokens < 1) {
+            waitMs += (long) Math.ceil((1 - mTokens) / mTokensPerMs);
+        }
+        mTokens -= 1;
+
+        if (mBlockedUntil > now) {
+            waitMs = Math.max(waitMs, mBlockedUntil - now);
+        }
+
+        if (waitMs > 0) {
+            mDelayedCount++;
+        }
+        return waitMs;
+    }
+
+    /**
+     * Returns token of reservation which was not used
+     */
+    synchronized void release() {
+        mTokens = Math.min(mCapacity, mTokens + 1);
+    }
+
+    /**
+     * Synchronizes bucket with request budget reported by the API
+     *
+     * @param remainingHeader   X-RateLimit-Remaining header value
+     * @param resetHeader       X-RateLimit-Reset header value (epoch seconds)
+     */
+    public synchronized void onBudgetReported(@Nullable String remainingHeader,
+                                              @Nullable String resetHeader) {
+        if (remainingHeader == null) {
+            return;
+        }
+
+        try {
+            int remaining = Integer.parseInt(remainingHeader.trim());
+            refill(now());
+            // Never trust local estimate more than the server
+            if (remaining < mTokens) {
+                mTokens = remaining;
+            }
+
+            if (remaining <= 0 && resetHeader != null) {
+                // Reset time is wall clock time, bucket uses monotonic clock
+                long resetInMs = Long.parseLong(resetHeader.trim()) * 1000 - System.currentTimeMillis();
+                if (resetInMs > 0 && resetInMs <= MAX_RETRY_AFTER_MS) {
+                    mBlockedUntil = Math.max(mBlockedUntil, now() + resetInMs);
+                }
+            }
+        } catch (NumberFormatException nfe) {
+            // Ignore malformed headers
+        }
+    }
+
+    /**
+     * Handles 429 Too Many Requests response. All further requests are held back
+     * for the time requested by the server.
+     *
+     * @param retryAfterHeader Retry-After header value, either seconds or HTTP date
+     * @return Back off time in milliseconds
+     */
+    public synchronized long onRateLimited(@Nullable String retryAfterHeader) {
+        long backOffMs = parseRetryAfter(retryAfterHeader, System.currentTimeMillis());
+        long now = now();
+
+        mRateLimitedCount++;
+        mTokens = Math.min(mTokens, 0);
+        mLastRefillAt = Math.max(mLastRefillAt, now + backOffMs);
+        mBlockedUntil = Math.max(mBlockedUntil, now + backOffMs);
+        return backOffMs;
+    }
+
+    /**
+     * Parses Retry-After header value
+     *
+     * @param retryAfter    Header value, either delay in seconds or HTTP date
+     * @param currentTimeMs Current wall clock time
+     * @return Delay in milliseconds
+     */
+    static long parseRetryAfter(@Nullable String retryAfter, long currentTimeMs) {
+        if (retryAfter == null || retryAfter.trim().length() == 0) {
+            return DEFAULT_RETRY_AFTER_MS;
+        }
+
+        long delayMs;
+        try {
+            delayMs = Long.parseLong(retryAfter.trim()) * 1000;
+        } catch (NumberFormatException nfe) {
+            SimpleDateFormat dateFormat = new SimpleDateFormat(HTTP_DATE_FORMAT, Locale.US);
+            dateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+            try {
+                delayMs = dateFormat.parse(retryAfter.trim()).getTime() - currentTimeMs;
+            } catch (ParseException pe) {
+                delayMs = DEFAULT_RETRY_AFTER_MS;
+            }
+        }
+
+        return Math.min(Math.max(delayMs, 0), MAX_RETRY_AFTER_MS);
+    }
+
+    private void refill(long now) {
+        if (now > mLastRefillAt) {
+            mTokens = Math.min(mCapacity, mTokens + (now - mLastRefillAt) * mTokensPerMs);
+            mLastRefillAt = now;
+        }
+    }
+
+    private static long now() {
+        return System.nanoTime() / 1000000;
+    }
+
+    /**
+     * @return Number of requests which had to wait for a slot
+     */
+    public synchronized long getDelayedCount() { return mDelayedCount; }
+
+    /**
+     * @return Number of 429 responses received
+     */
+    public synchronized long getRateLimitedCount() { return mRateLimitedCount; }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.network;
+
+import android.support.annotation.NonNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+
+import cz.jtek.popularmovies.utilities.TmdbLog;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Record / replay transport.
+ * In record mode responses of the delegate transport are stored to directory, in replay
+ * mode the stored responses are served without any network access. Recordings are keyed
+ * by request URL without API key, so they can be shared.
+ */
+public class RecordReplayTransport implements Transport {
+
+    @SuppressWarnings("unused")
+    private static final String TAG = RecordReplayTransport.class.getSimpleName();
+
+    public enum Mode { RECORD, REPLAY }
+
+    // Response headers kept in recordings
+    private static final String[] RECORDED_HEADERS = {
+            "Content-Type", "Content-Encoding", "Cache-Control", "ETag", "Last-Modified"
+    };
+
+    private static final int RECORDING_FORMAT_VERSION = 1;
+
+    private final File mDirectory;
+    private final Mode mMode;
+    private final Transport mDelegate;
+
+    /**
+     * Creates record / replay transport
+     *
+     * @param directory Recordings directory
+     * @param mode      Record or replay mode
+     * @param delegate  Transport whose responses are recorded, not used in replay mode
+     */
+    public RecordReplayTransport(@NonNull File directory, @NonNull Mode mode,
+                                 @NonNull Transport delegate) {
+        mDirectory = directory;
+        mMode = mode;
+        mDelegate = delegate;
+
+        if (!mDirectory.exists() && !mDirectory.mkdirs()) {
+            TmdbLog.e(TAG, "Cannot create recordings directory " + mDirectory);
+        }
+    }
+
+    @NonNull
+    @Override
+    public Response execute(@NonNull Interceptor.Chain chain) throws IOException {
+        Request request = chain.request();
+        File file = recordingFile(request);
+
+        if (mMode == Mode.REPLAY) {
+            return replay(request, file);
+        }
+
+        Response response = mDelegate.execute(chain);
+        if (response.code() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            // Conditional response depends on client cache state, keep full recording
+            return response;
+        }
+        return record(response, file);
+    }
+
+    private File recordingFile(Request request) {
+        String key = ResponseCache.keyFor(request.url().url());
+        // File name safe form of the key
+        return new File(mDirectory, key.replaceAll("[^A-Za-z0-9._-]", "_"));
+    }
+
+    private Response record(Response response, File file) throws IOException {
+        ResponseBody body = response.body();
+        byte[] bytes = body != null ? body.bytes() : new byte[0];
+        MediaType contentType = body != null ? body.contentType() : null;
+
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            out.writeInt(RECORDING_FORMAT_VERSION);
+            out.writeInt(response.code());
+            out.writeUTF(response.message());
+            for (String name : RECORDED_HEADERS) {
+                String value = response.header(name);
+                out.writeUTF(value != null ? value : "");
+            }
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        } finally {
+            out.close();
+        }
+
+        // Body was consumed, pass on a copy
+        return response.newBuilder()
+                .body(ResponseBody.create(contentType, bytes))
+                .build();
+    }
+
+    private Response replay(Request request, File file) throws IOException {
+        DataInputStream in;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        } catch (FileNotFoundException fnfe) {
+            throw new IOException("No recording for " + request.url().encodedPath());
+        }
+
+        try {
+            if (in.readInt() != RECORDING_FORMAT_VERSION) {
+                throw new IOException("Unsupported recording format " + file);
+            }
+
+            Response.Builder builder = new Response.Builder()
+                    .request(request)
+                    .protocol(Protocol.HTTP_1_1)
+                    .code(in.readInt())
+                    .message(in.readUTF());
+
+            MediaType contentType = MockTmdbTransport.MEDIA_TYPE_JSON;
+            for (String name : RECORDED_HEADERS) {
+                String value = in.readUTF();
+                if (value.length() > 0) {
+                    builder.header(name, value);
+                    if (name.equals("Content-Type")) {
+                        contentType = MediaType.parse(value);
+                    }
+                }
+            }
+
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            return builder.body(ResponseBody.create(contentType, bytes)).build();
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * @return true if the transport serves recorded responses only
+     */
+    public boolean isReplaying() { return mMode == Mode.REPLAY; }
+}
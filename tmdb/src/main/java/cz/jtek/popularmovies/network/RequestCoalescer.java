@@ -0,0 +1,160 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.network;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Single-flight request coalescing.
+ * Concurrent calls with the same key share one execution and receive the same result.
+ * Each caller waits independently - interrupted caller stops waiting on its own, shared
+ * execution is cancelled only when there are no callers left waiting for it.
+ */
+public final class RequestCoalescer {
+
+    @SuppressWarnings("unused")
+    private static final String TAG = RequestCoalescer.class.getSimpleName();
+
+    private static final RequestCoalescer sInstance = new RequestCoalescer();
+
+    // Shared executions run on their own threads, so that no caller owns them
+    private final ExecutorService mExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+        private int mThreadCount;
+
+        @Override
+        public synchronized Thread newThread(@NonNull Runnable runnable) {
+            Thread thread = new Thread(runnable, TAG + " #" + (++mThreadCount));
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final Map<String, Flight<?>> mInFlight = new HashMap<>();
+
+    // Statistics
+    private long mExecutionCount;
+    private long mCoalescedCount;
+
+    /**
+     * One shared execution and the number of callers waiting for it
+     */
+    private static class Flight<V> {
+        final FutureTask<V> mTask;
+        int mWaiters;
+
+        Flight(FutureTask<V> task) { mTask = task; }
+    }
+
+    private RequestCoalescer() {}
+
+    @NonNull
+    public static RequestCoalescer getInstance() { return sInstance; }
+
+    /**
+     * Executes callable, or joins already running execution with the same key
+     *
+     * @param key       Request key, e.g. URL
+     * @param callable  Request to execute
+     * @param <V>       Result type
+     * @return Shared result
+     * @throws IOException Thrown by the request, or InterruptedIOException when the calling
+     *                     thread was interrupted while waiting
+     */
+    public <V> V execute(@NonNull final String key, @NonNull Callable<V> callable) throws IOException {
+        final Flight<V> flight;
+
+        synchronized (this) {
+            @SuppressWarnings("unchecked")
+            Flight<V> running = (Flight<V>) mInFlight.get(key);
+
+            if (running != null) {
+                mCoalescedCount++;
+                flight = running;
+            } else {
+                mExecutionCount++;
+                flight = new Flight<>(new FutureTask<V>(callable) {
+                    @Override
+                    protected void done() {
+                        removeFlight(key, this);
+                    }
+                });
+                mInFlight.put(key, flight);
+                mExecutor.execute(flight.mTask);
+            }
+            flight.mWaiters++;
+        }
+
+        boolean abandoned = false;
+        try {
+            return flight.mTask.get();
+        } catch (InterruptedException ie) {
+            abandoned = true;
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Request cancelled: " + key);
+        } catch (CancellationException ce) {
+            throw new InterruptedIOException("Request cancelled: " + key);
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        } finally {
+            synchronized (this) {
+                flight.mWaiters--;
+                if (abandoned && flight.mWaiters == 0 && !flight.mTask.isDone()) {
+                    // Nobody is interested in the result any more
+                    flight.mTask.cancel(true);
+                    removeFlight(key, flight.mTask);
+                }
+            }
+        }
+    }
+
+    private synchronized void removeFlight(String key, FutureTask<?> task) {
+        Flight<?> flight = mInFlight.get(key);
+        if (flight != null && flight.mTask == task) {
+            mInFlight.remove(key);
+        }
+    }
+
+    /**
+     * @return Number of executions actually started
+     */
+    public synchronized long getExecutionCount() { return mExecutionCount; }
+
+    /**
+     * @return Number of calls which joined already running execution
+     */
+    public synchronized long getCoalescedCount() { return mCoalescedCount; }
+}
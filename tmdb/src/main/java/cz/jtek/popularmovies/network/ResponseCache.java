@@ -0,0 +1,472 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.network;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import cz.jtek.popularmovies.utilities.TmdbLog;
+
+/**
+ * On-disk cache of TMDb API responses.
+ * Entries are keyed by request URL with API key removed, honor Cache-Control max-age
+ * and keep ETag / Last-Modified validators for conditional revalidation.
+ * Total size is capped, least recently used entries are evicted first.
+ *
+ * Parsed results of cached bodies are kept in a small memory cache, so a fresh hit or
+ * 304 Not Modified response can skip JSON parsing as well. Each body may be parsed by
+ * several parsers, results are kept by parser key.
+ */
+public final class ResponseCache {
+
+    @SuppressWarnings("unused")
+    private static final String TAG = ResponseCache.class.getSimpleName();
+
+    public static final long DEFAULT_MAX_SIZE_BYTES = 2 * 1024 * 1024;
+
+    // Query parameters which are never part of cache key
+    private static final String[] STRIPPED_QUERY_PARAMS = { "api_key" };
+
+    private static final int ENTRY_FORMAT_VERSION = 1;
+    private static final int MAX_PARSED_ENTRIES = 16;
+
+    private static ResponseCache sInstance;
+
+    private final File mDirectory;
+    private final long mMaxSizeBytes;
+    private long mSizeBytes;
+
+    // File name -> file size, in access order (least recently used first)
+    private final LinkedHashMap<String, Long> mIndex = new LinkedHashMap<>(16, 0.75f, true);
+
+    // Cache key -> parsed results of the body with given store time
+    private final LinkedHashMap<String, ParsedEntry> mParsed =
+            new LinkedHashMap<String, ParsedEntry>(MAX_PARSED_ENTRIES, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ParsedEntry> eldest) {
+                    return size() > MAX_PARSED_ENTRIES;
+                }
+            };
+
+    // Statistics
+    private long mHitCount;
+    private long mRevalidatedCount;
+    private long mMissCount;
+
+    /**
+     * Cached response body together with its caching metadata
+     */
+    public static class Entry {
+        final String mKey;
+        final String mETag;
+        final String mLastModified;
+        final long mExpiresAt;
+        final long mStoredAt;
+        final byte[] mBody;
+
+        Entry(String key, String eTag, String lastModified, long expiresAt, long storedAt, byte[] body) {
+            mKey = key;
+            mETag = eTag;
+            mLastModified = lastModified;
+            mExpiresAt = expiresAt;
+            mStoredAt = storedAt;
+            mBody = body;
+        }
+
+        public String getETag() { return mETag; }
+        public String getLastModified() { return mLastModified; }
+        public byte[] getBody() { return mBody; }
+
+        // Store time identifies body version, used for parsed result lookup
+        public long getStoredAt() { return mStoredAt; }
+
+        public boolean isFresh(long now) { return now < mExpiresAt; }
+
+        public boolean hasValidator() { return mETag != null || mLastModified != null; }
+    }
+
+    private static class ParsedEntry {
+        final long mStoredAt;
+        // Parser key -> parse result
+        final HashMap<String, Object> mResults = new HashMap<>(2);
+
+        ParsedEntry(long storedAt) {
+            mStoredAt = storedAt;
+        }
+    }
+
+    // Shared instance is created by init(), tests use their own instances
+    ResponseCache(File directory, long maxSizeBytes) {
+        mDirectory = directory;
+        mMaxSizeBytes = maxSizeBytes;
+        loadIndex();
+    }
+
+    /**
+     * Initializes shared response cache. Until called, responses are not cached.
+     *
+     * @param directory     Cache directory
+     * @param maxSizeBytes  Maximum total size of cached entries
+     */
+    public static synchronized void init(@NonNull File directory, long maxSizeBytes) {
+        if (sInstance == null) {
+            sInstance = new ResponseCache(directory, maxSizeBytes);
+        }
+    }
+
+    /**
+     * @return Shared response cache, null if not initialized
+     */
+    @Nullable
+    public static synchronized ResponseCache getInstance() { return sInstance; }
+
+    /**
+     * Creates cache key from request URL. API key is removed so that the cache does not
+     * depend on (or store) the token.
+     *
+     * @param url Request URL
+     * @return Cache key
+     */
+    @NonNull
+    public static String keyFor(@NonNull URL url) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(url.getHost()).append(url.getPath());
+
+        String query = url.getQuery();
+        if (query != null) {
+            char separator = '?';
+            for (String param : query.split("&")) {
+                if (isStrippedParam(param)) { continue; }
+                sb.append(separator).append(param);
+                separator = '&';
+            }
+        }
+        return sb.toString();
+    }
+
+    private static boolean isStrippedParam(String param) {
+        for (String name : STRIPPED_QUERY_PARAMS) {
+            if (param.equals(name) || param.startsWith(name + "=")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parses max-age value from Cache-Control header
+     *
+     * @param cacheControl  Cache-Control header value
+     * @return max-age in seconds, 0 if response must be revalidated, -1 if it must not be stored
+     */
+    public static long parseMaxAge(@Nullable String cacheControl) {
+        if (cacheControl == null) {
+            return 0;
+        }
+
+        long maxAge = 0;
+        for (String directive : cacheControl.toLowerCase(Locale.US).split(",")) {
+            directive = directive.trim();
+            if (directive.equals("no-store")) {
+                return -1;
+            } else if (directive.equals("no-cache")) {
+                maxAge = 0;
+                break;
+            } else if (directive.startsWith("max-age=")) {
+                try {
+                    maxAge = Long.parseLong(directive.substring("max-age=".length()));
+                } catch (NumberFormatException nfe) {
+                    maxAge = 0;
+                }
+            }
+        }
+        return maxAge;
+    }
+
+    /**
+     * Returns cached entry for given key
+     *
+     * @param key Cache key
+     * @return Cached entry, null if not present
+     */
+    @Nullable
+    public synchronized Entry get(@NonNull String key) {
+        String fileName = fileNameFor(key);
+        if (mIndex.get(fileName) == null) {
+            return null;
+        }
+
+        File file = new File(mDirectory, fileName);
+        Entry entry = readEntry(file);
+        if (entry == null || !key.equals(entry.mKey)) {
+            // Corrupted entry or hash collision
+            removeFile(fileName);
+            return null;
+        }
+
+        // Persist recency for index rebuild on next start
+        //noinspection ResultOfMethodCallIgnored
+        file.setLastModified(System.currentTimeMillis());
+        return entry;
+    }
+
+    /**
+     * Stores response body
+     *
+     * @param key           Cache key
+     * @param eTag          ETag response header, may be null
+     * @param lastModified  Last-Modified response header, may be null
+     * @param maxAgeSeconds Freshness lifetime in seconds
+     * @param body          Response body
+     * @return Stored entry
+     */
+    @NonNull
+    public synchronized Entry put(@NonNull String key, @Nullable String eTag,
+                                  @Nullable String lastModified, long maxAgeSeconds,
+                                  @NonNull byte[] body) {
+        long now = System.currentTimeMillis();
+        Entry entry = new Entry(key, eTag, lastModified, now + maxAgeSeconds * 1000, now, body);
+        writeEntry(entry);
+        mParsed.remove(key);
+        return entry;
+    }
+
+    /**
+     * Refreshes entry after 304 Not Modified response. Body and its parsed result are kept.
+     *
+     * @param entry         Revalidated entry
+     * @param maxAgeSeconds New freshness lifetime in seconds
+     * @return Updated entry
+     */
+    @NonNull
+    public synchronized Entry refresh(@NonNull Entry entry, long maxAgeSeconds) {
+        Entry refreshed = new Entry(entry.mKey, entry.mETag, entry.mLastModified,
+                System.currentTimeMillis() + maxAgeSeconds * 1000, entry.mStoredAt, entry.mBody);
+        writeEntry(refreshed);
+        return refreshed;
+    }
+
+    /**
+     * Returns result previously stored for exactly this body version and parser
+     *
+     * @param entry     Cached entry
+     * @param parserKey Identifies parser, parsers with the same key produce the same result
+     * @return Parsed result, null if the body was not parsed by this parser yet
+     */
+    @Nullable
+    public synchronized Object getParsed(@NonNull Entry entry, @NonNull String parserKey) {
+        ParsedEntry parsed = mParsed.get(entry.mKey);
+        if (parsed != null && parsed.mStoredAt == entry.mStoredAt) {
+            return parsed.mResults.get(parserKey);
+        }
+        return null;
+    }
+
+    /**
+     * Keeps parsed result of cached body. Result is shared between callers and must not
+     * be modified.
+     *
+     * @param entry     Cached entry
+     * @param parserKey Identifies parser which produced the result
+     * @param result    Parsed result
+     */
+    public synchronized void putParsed(@NonNull Entry entry, @NonNull String parserKey,
+                                       @NonNull Object result) {
+        ParsedEntry parsed = mParsed.get(entry.mKey);
+        if (parsed == null || parsed.mStoredAt != entry.mStoredAt) {
+            // Results of previous body version are dropped
+            parsed = new ParsedEntry(entry.mStoredAt);
+            mParsed.put(entry.mKey, parsed);
+        }
+        parsed.mResults.put(parserKey, result);
+    }
+
+    // Statistics
+    public synchronized void recordHit() { mHitCount++; }
+    public synchronized void recordRevalidated() { mRevalidatedCount++; }
+    public synchronized void recordMiss() { mMissCount++; }
+
+    public synchronized long getHitCount() { return mHitCount; }
+    public synchronized long getRevalidatedCount() { return mRevalidatedCount; }
+    public synchronized long getMissCount() { return mMissCount; }
+    public synchronized long getSize() { return mSizeBytes; }
+    public long getMaxSize() { return mMaxSizeBytes; }
+
+    /**
+     * Removes all cached entries
+     */
+    public synchronized void clear() {
+        for (String fileName : mIndex.keySet()) {
+            //noinspection ResultOfMethodCallIgnored
+            new File(mDirectory, fileName).delete();
+        }
+        mIndex.clear();
+        mParsed.clear();
+        mSizeBytes = 0;
+    }
+
+    private void loadIndex() {
+        if (!mDirectory.exists() && !mDirectory.mkdirs()) {
+            TmdbLog.e(TAG, "Cannot create cache directory " + mDirectory);
+            return;
+        }
+
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        // Oldest access first, to get access ordered index
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File f1, File f2) {
+                long diff = f1.lastModified() - f2.lastModified();
+                return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+            }
+        });
+
+        for (File file : files) {
+            mIndex.put(file.getName(), file.length());
+            mSizeBytes += file.length();
+        }
+        trimToSize();
+    }
+
+    private void writeEntry(Entry entry) {
+        String fileName = fileNameFor(entry.mKey);
+        File file = new File(mDirectory, fileName);
+
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            out.writeInt(ENTRY_FORMAT_VERSION);
+            out.writeUTF(entry.mKey);
+            out.writeUTF(entry.mETag != null ? entry.mETag : "");
+            out.writeUTF(entry.mLastModified != null ? entry.mLastModified : "");
+            out.writeLong(entry.mExpiresAt);
+            out.writeLong(entry.mStoredAt);
+            out.writeInt(entry.mBody.length);
+            out.write(entry.mBody);
+        } catch (IOException iex) {
+            TmdbLog.e(TAG, "IOException writing cache entry.");
+            closeQuietly(out);
+            out = null;
+            removeFile(fileName);
+            return;
+        } finally {
+            closeQuietly(out);
+        }
+
+        Long previousSize = mIndex.put(fileName, file.length());
+        if (previousSize != null) {
+            mSizeBytes -= previousSize;
+        }
+        mSizeBytes += file.length();
+        trimToSize();
+    }
+
+    private Entry readEntry(File file) {
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != ENTRY_FORMAT_VERSION) {
+                return null;
+            }
+            String key = in.readUTF();
+            String eTag = in.readUTF();
+            String lastModified = in.readUTF();
+            long expiresAt = in.readLong();
+            long storedAt = in.readLong();
+            byte[] body = new byte[in.readInt()];
+            in.readFully(body);
+
+            return new Entry(key,
+                    eTag.length() > 0 ? eTag : null,
+                    lastModified.length() > 0 ? lastModified : null,
+                    expiresAt, storedAt, body);
+        } catch (IOException iex) {
+            TmdbLog.e(TAG, "IOException reading cache entry.");
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    private void trimToSize() {
+        Iterator<Map.Entry<String, Long>> iterator = mIndex.entrySet().iterator();
+        while (mSizeBytes > mMaxSizeBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            mSizeBytes -= eldest.getValue();
+            //noinspection ResultOfMethodCallIgnored
+            new File(mDirectory, eldest.getKey()).delete();
+            iterator.remove();
+        }
+    }
+
+    private void removeFile(String fileName) {
+        Long size = mIndex.remove(fileName);
+        if (size != null) {
+            mSizeBytes -= size;
+        }
+        //noinspection ResultOfMethodCallIgnored
+        new File(mDirectory, fileName).delete();
+    }
+
+    private static String fileNameFor(String key) {
+        try {
+            MessageDigest md5 = MessageDigest.getInstance("MD5");
+            byte[] digest = md5.digest(key.getBytes(ResponseReader.UTF_8));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(String.format(Locale.US, "%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+                // Nothing to do
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.network;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Byte level response body reader.
+ * Whole body is read into a single byte buffer (pre-sized from Content-Length when known)
+ * and decoded from UTF-8 exactly once.
+ */
+public final class ResponseReader {
+
+    public static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Initial buffer size used when content length is unknown
+    private static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+
+    // Do not trust announced content length beyond this value when pre-sizing
+    private static final int MAX_PRESIZED_BUFFER = 4 * 1024 * 1024;
+
+    private ResponseReader() {}
+
+    /**
+     * Reads whole input stream into byte array. Stream is not closed.
+     *
+     * @param in             Input stream to read
+     * @param contentLength  Expected body length, -1 if unknown
+     * @return Body bytes
+     * @throws IOException Related to stream reading
+     */
+    public static byte[] readBytes(InputStream in, long contentLength) throws IOException {
+        int capacity = (contentLength > 0 && contentLength <= MAX_PRESIZED_BUFFER)
+                ? (int) contentLength
+                : DEFAULT_BUFFER_SIZE;
+
+        byte[] buffer = new byte[capacity];
+        int length = 0;
+        int readLen;
+
+        while (true) {
+            if (length == buffer.length) {
+                // Content length was exact, check for end of stream before growing the buffer
+                int next = in.read();
+                if (next == -1) { break; }
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                buffer[length++] = (byte) next;
+            }
+
+            readLen = in.read(buffer, length, buffer.length - length);
+            if (readLen == -1) { break; }
+            length += readLen;
+        }
+
+        return length == buffer.length ? buffer : Arrays.copyOf(buffer, length);
+    }
+
+    /**
+     * Reads whole input stream and decodes it as UTF-8 string. Stream is not closed.
+     *
+     * @param in             Input stream to read
+     * @param contentLength  Expected body length, -1 if unknown
+     * @return Decoded body, null if body is empty
+     * @throws IOException Related to stream reading
+     */
+    public static String readString(InputStream in, long contentLength) throws IOException {
+        byte[] bytes = readBytes(in, contentLength);
+        if (bytes.length == 0) {
+            return null;
+        }
+        return new String(bytes, UTF_8);
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.network;
+
+import android.support.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Retry and hedging policy of idempotent API requests.
+ * Failed attempts are retried after exponential backoff with full jitter. When hedging is
+ * enabled, second attempt is sent if the first one does not answer within observed
+ * 95th percentile of endpoint latency, and the faster answer is used.
+ */
+public class RetryPolicy {
+
+    /**
+     * API endpoints with separately configurable policies
+     */
+    public enum Endpoint { CONFIG, MOVIE_LIST, MOVIE_DETAIL, VIDEOS, REVIEWS }
+
+    // Number of latency samples kept for percentile estimate
+    private static final int LATENCY_WINDOW = 64;
+    // Hedging starts only after enough samples were collected
+    private static final int MIN_LATENCY_SAMPLES = 10;
+    // Hedged request is never sent sooner than this
+    private static final long MIN_HEDGE_DELAY_MS = 100;
+
+    private static final Random sRandom = new Random();
+
+    private static final Map<Endpoint, RetryPolicy> sPolicies = new EnumMap<>(Endpoint.class);
+
+    static {
+        // Configuration is small and mostly served from cache, no hedging needed
+        sPolicies.put(Endpoint.CONFIG, new RetryPolicy(3, 500, 4000, false));
+        sPolicies.put(Endpoint.MOVIE_LIST, new RetryPolicy(3, 500, 4000, true));
+        sPolicies.put(Endpoint.MOVIE_DETAIL, new RetryPolicy(3, 500, 4000, true));
+        sPolicies.put(Endpoint.VIDEOS, new RetryPolicy(2, 500, 2000, true));
+        sPolicies.put(Endpoint.REVIEWS, new RetryPolicy(2, 500, 2000, true));
+    }
+
+    private final int mMaxAttempts;
+    private final long mBaseDelayMs;
+    private final long mMaxDelayMs;
+    private final boolean mHedgingEnabled;
+
+    // Ring buffer of recent attempt latencies
+    private final long[] mLatencies = new long[LATENCY_WINDOW];
+    private int mLatencyCount;
+    private int mLatencyIndex;
+
+    /**
+     * Creates retry policy
+     *
+     * @param maxAttempts       Maximum number of attempts including the first one
+     * @param baseDelayMs       Backoff delay before the first retry
+     * @param maxDelayMs        Backoff delay cap
+     * @param hedgingEnabled    Whether hedged requests are sent for slow attempts
+     */
+    public RetryPolicy(int maxAttempts, long baseDelayMs, long maxDelayMs, boolean hedgingEnabled) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("At least one attempt is required");
+        }
+        if (baseDelayMs < 0 || maxDelayMs < baseDelayMs) {
+            throw new IllegalArgumentException("Invalid backoff delays");
+        }
+        mMaxAttempts = maxAttempts;
+        mBaseDelayMs = baseDelayMs;
+        mMaxDelayMs = maxDelayMs;
+        mHedgingEnabled = hedgingEnabled;
+    }
+
+    /**
+     * Returns policy used for given endpoint
+     */
+    @NonNull
+    public static synchronized RetryPolicy forEndpoint(@NonNull Endpoint endpoint) {
+        return sPolicies.get(endpoint);
+    }
+
+    /**
+     * Replaces policy used for given endpoint
+     */
+    public static synchronized void setPolicy(@NonNull Endpoint endpoint, @NonNull RetryPolicy policy) {
+        sPolicies.put(endpoint, policy);
+    }
+
+    public int getMaxAttempts() { return mMaxAttempts; }
+
+    public boolean isHedgingEnabled() { return mHedgingEnabled; }
+
+    /**
+     * Returns jittered backoff delay before next attempt
+     *
+     * @param attempt Number of already failed attempts (1 for the first retry)
+     * @return Delay in milliseconds
+     */
+    public long getBackoffDelayMs(int attempt) {
+        // Exponential growth capped by max delay, full jitter spreads out retry storms
+        int shift = Math.min(Math.max(attempt - 1, 0), 30);
+        long ceiling = Math.min(mMaxDelayMs, mBaseDelayMs << shift);
+        if (ceiling <= 0) {
+            return 0;
+        }
+        synchronized (sRandom) {
+            return (long) (sRandom.nextDouble() * ceiling);
+        }
+    }
+
+    /**
+     * Records latency of successful attempt
+     *
+     * @param latencyMs Time from request start to response headers
+     */
+    public synchronized void recordLatency(long latencyMs) {
+        mLatencies[mLatencyIndex] = latencyMs;
+        mLatencyIndex = (mLatencyIndex + 1) % LATENCY_WINDOW;
+        if (mLatencyCount < LATENCY_WINDOW) {
+            mLatencyCount++;
+        }
+    }
+
+    /**
+     * Returns delay after which hedged request should be sent
+     *
+     * @return Delay in milliseconds, -1 if hedging is disabled or latency is not known yet
+     */
+    public synchronized long getHedgeDelayMs() {
+        if (!mHedgingEnabled || mLatencyCount < MIN_LATENCY_SAMPLES) {
+            return -1;
+        }
+
+        long[] samples = Arrays.copyOf(mLatencies, mLatencyCount);
+        Arrays.sort(samples);
+        int p95Index = (int) Math.ceil(0.95 * samples.length) - 1;
+        return Math.max(MIN_HEDGE_DELAY_MS, samples[p95Index]);
+    }
+}
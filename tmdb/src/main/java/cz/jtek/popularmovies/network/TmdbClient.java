@@ -0,0 +1,672 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.network;
+
+import android.support.annotation.NonNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import cz.jtek.popularmovies.TmdbData;
+import cz.jtek.popularmovies.utilities.TmdbJsonUtils;
+import cz.jtek.popularmovies.utilities.TmdbLog;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * TMDb API client: URL building, request execution through shared HTTP client with response
+ * cache, rate limiting, retries and request coalescing, and streaming response parsing.
+ * Client has no Android dependency, API key is passed by the caller.
+ */
+public final class TmdbClient {
+
+    @SuppressWarnings("unused")
+    private static final String TAG = TmdbClient.class.getSimpleName();
+
+    /*
+     Relevant TMDb API docs:
+     Configuration - https://developers.themoviedb.org/3/configuration/get-api-configuration
+     Popular movies - https://developers.themoviedb.org/3/movies/get-popular-movies
+     Top rated movies - https://developers.themoviedb.org/3/movies/get-top-rated-movies
+     */
+
+    private static final String TMDB_API_AUTHORITY = "api.themoviedb.org";
+    private static final String API_SCHEME = "https";
+
+    private static final String API_PATH_VERSION = "3";
+    private static final String API_PATH_CONFIGURATION = "configuration";
+    private static final String API_PATH_MOVIE = "movie";
+    private static final String API_PATH_POPULAR = "popular";
+    private static final String API_PATH_TOP_RATED = "top_rated";
+    private static final String API_PATH_VIDEOS = "videos";
+    private static final String API_PATH_REVIEWS = "reviews";
+
+    private static final String API_PARAM_API_KEY = "api_key";
+    private static final String API_PARAM_PAGE = "page";
+    private static final String API_PARAM_APPEND_TO_RESPONSE = "append_to_response";
+
+    private static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+    private static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+    private static final String HEADER_CACHE_CONTROL = "Cache-Control";
+    private static final String HEADER_ETAG = "ETag";
+    private static final String HEADER_LAST_MODIFIED = "Last-Modified";
+    private static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+    private static final String HEADER_IF_MODIFIED_SINCE = "If-Modified-Since";
+    private static final String HEADER_RETRY_AFTER = "Retry-After";
+    private static final String HEADER_RATE_LIMIT_REMAINING = "X-RateLimit-Remaining";
+    private static final String HEADER_RATE_LIMIT_RESET = "X-RateLimit-Reset";
+
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final int MAX_RATE_LIMIT_RETRIES = 3;
+
+    // Movie lists, see buildMovieListUrl()
+    public static final String MOVIE_LIST_POPULAR = API_PATH_POPULAR;
+    public static final String MOVIE_LIST_TOP_RATED = API_PATH_TOP_RATED;
+    // Number of movies on one movie list page
+    public static final int MOVIE_LIST_PAGE_SIZE = 20;
+
+    private TmdbClient() {}
+
+    /**
+     * Creates URL builder of TMDb API v3 path
+     *
+     * @param apiKey        TMDb API key
+     * @param pathSegments  Path segments following API version
+     * @return URL builder
+     */
+    private static HttpUrl.Builder newApiUrlBuilder(String apiKey, String... pathSegments) {
+        HttpUrl.Builder urlBuilder = new HttpUrl.Builder()
+                .scheme(API_SCHEME)
+                .host(TMDB_API_AUTHORITY)
+                .addPathSegment(API_PATH_VERSION);
+        for (String segment : pathSegments) {
+            urlBuilder.addPathSegment(segment);
+        }
+        return urlBuilder.addQueryParameter(API_PARAM_API_KEY, apiKey);
+    }
+
+    /**
+     * Creates valid TMDb API /configuration URL for network requests
+     *
+     * @param apiKey TMDb API key
+     * @return TMDb API configuration URL
+     */
+    public static URL buildConfigurationUrl(String apiKey) {
+        return newApiUrlBuilder(apiKey, API_PATH_CONFIGURATION).build().url();
+    }
+
+    /**
+     * Creates valid TMDb API /movie/popular or /movie/top_rated URL for network requests
+     *
+     * @param apiKey    TMDb API key
+     * @param list      Movie list, MOVIE_LIST_POPULAR or MOVIE_LIST_TOP_RATED
+     * @param page      Results page, values below 1 request the first page
+     * @return TMDb API movie list URL
+     */
+    public static URL buildMovieListUrl(String apiKey, String list, int page) {
+        if (!MOVIE_LIST_POPULAR.equals(list) && !MOVIE_LIST_TOP_RATED.equals(list)) {
+            throw new IllegalArgumentException("Unknown movie list " + list);
+        }
+
+        return newApiUrlBuilder(apiKey, API_PATH_MOVIE, list)
+                .addQueryParameter(API_PARAM_PAGE, String.valueOf(Math.max(page, 1)))
+                .build().url();
+    }
+
+    /**
+     * Creates valid TMDb API /movie/[movieId]/videos URL for network requests
+     *
+     * @param apiKey    TMDb API key
+     * @param movieId   Movie id to use in URL
+     * @return TMDb movie videos URL
+     */
+    public static URL buildMovieVideosUrl(String apiKey, int movieId) {
+        return newApiUrlBuilder(apiKey, API_PATH_MOVIE, String.valueOf(movieId), API_PATH_VIDEOS)
+                .build().url();
+    }
+
+    /**
+     * Creates valid TMDb API /movie/[movieId] URL with videos and reviews appended
+     * to the response, so the whole detail screen is loaded by a single request
+     *
+     * @param apiKey    TMDb API key
+     * @param movieId   Movie id to use in URL
+     * @return TMDb movie detail URL
+     */
+    public static URL buildMovieDetailUrl(String apiKey, int movieId) {
+        return newApiUrlBuilder(apiKey, API_PATH_MOVIE, String.valueOf(movieId))
+                .addQueryParameter(API_PARAM_APPEND_TO_RESPONSE,
+                        API_PATH_VIDEOS + "," + API_PATH_REVIEWS)
+                .build().url();
+    }
+
+    /**
+     * Creates valid TMDb API /movie/[movieId]/reviews URL for network requests
+     *
+     * @param apiKey    TMDb API key
+     * @param movieId   Movie id to use in URL
+     * @return TMDb movie reviews URL
+     */
+    public static URL buildMovieReviewsUrl(String apiKey, int movieId) {
+        return newApiUrlBuilder(apiKey, API_PATH_MOVIE, String.valueOf(movieId), API_PATH_REVIEWS)
+                .build().url();
+    }
+
+    /**
+     * Parser converting API response stream to result object.
+     * Stream is decoded response body, it may still be downloading while being parsed.
+     * Parser must not close the stream.
+     *
+     * @param <T> Result type
+     */
+    public interface ResponseParser<T> {
+        TmdbJsonUtils.TmdbJsonResult<T> parse(InputStream in);
+
+        /**
+         * Concurrent requests of one URL and cached parse results are shared by parsers
+         * with equal keys. Parsers producing different results from the same response
+         * (e.g. configured by a filter) have to return different keys.
+         *
+         * @return Key of parse results
+         */
+        @NonNull
+        String getKey();
+    }
+
+    /**
+     * Parser of /configuration response
+     */
+    public static final ResponseParser<TmdbData.Config> CONFIG_PARSER =
+            new ResponseParser<TmdbData.Config>() {
+                @Override
+                public TmdbJsonUtils.TmdbJsonResult<TmdbData.Config> parse(InputStream in) {
+                    return TmdbJsonUtils.getConfigFromStream(in);
+                }
+
+                @NonNull
+                @Override
+                public String getKey() { return "config"; }
+            };
+
+    /**
+     * Parser of movie list page response
+     */
+    public static final ResponseParser<ArrayList<TmdbData.Movie>> MOVIE_LIST_PARSER =
+            new ResponseParser<ArrayList<TmdbData.Movie>>() {
+                @Override
+                public TmdbJsonUtils.TmdbJsonResult<ArrayList<TmdbData.Movie>> parse(InputStream in) {
+                    return TmdbJsonUtils.getMovieListFromStream(in);
+                }
+
+                @NonNull
+                @Override
+                public String getKey() { return "movie_list"; }
+            };
+
+    /**
+     * Response, either served from response cache or live from network
+     */
+    private static class FetchedResponse {
+        // Cache entry holding the body, set for live response once its body is stored
+        ResponseCache.Entry mCacheEntry;
+        // Live network response, null when served from cache
+        final Response mResponse;
+        final String mCacheKey;
+        final long mMaxAge;
+
+        FetchedResponse(ResponseCache.Entry cacheEntry) {
+            mCacheEntry = cacheEntry;
+            mResponse = null;
+            mCacheKey = null;
+            mMaxAge = 0;
+        }
+
+        FetchedResponse(Response response, String cacheKey, long maxAge) {
+            mCacheEntry = null;
+            mResponse = response;
+            mCacheKey = cacheKey;
+            mMaxAge = maxAge;
+        }
+
+        /**
+         * @return true if live response should be stored to response cache
+         */
+        boolean isCacheable() {
+            if (mResponse == null || mCacheKey == null
+                    || mResponse.code() != HttpURLConnection.HTTP_OK) {
+                return false;
+            }
+            // Store only responses which are either fresh for a while or can be revalidated
+            return mMaxAge > 0 || (mMaxAge == 0
+                    && (mResponse.header(HEADER_ETAG) != null
+                    || mResponse.header(HEADER_LAST_MODIFIED) != null));
+        }
+
+        /**
+         * Stores live response body to response cache
+         *
+         * @param body Whole decoded body
+         * @return Stored cache entry, null if cache is not initialized
+         */
+        ResponseCache.Entry store(byte[] body) {
+            ResponseCache cache = ResponseCache.getInstance();
+            if (cache == null) {
+                return null;
+            }
+            mCacheEntry = cache.put(mCacheKey, mResponse.header(HEADER_ETAG),
+                    mResponse.header(HEADER_LAST_MODIFIED), mMaxAge, body);
+            return mCacheEntry;
+        }
+
+        void close() {
+            if (mResponse != null) {
+                mResponse.close();
+            }
+        }
+    }
+
+    /**
+     * Creates GET request builder for shared pooled HTTP client, so connections are kept alive
+     * and reused between requests.
+     * Compressed response is requested explicitly, decoding is done by decodeResponseBody().
+     *
+     * @param url The URL to fetch the HTTP response from.
+     * @return Request builder
+     */
+    private static Request.Builder newGetRequestBuilder(URL url) {
+        return new Request.Builder()
+                .url(url)
+                .header(HEADER_ACCEPT_ENCODING, DecodingInputStream.ACCEPT_ENCODING)
+                .get();
+    }
+
+    /**
+     * Sends request through shared HTTP client.
+     * Failed attempts (network errors, 5xx responses) are retried according to endpoint
+     * retry policy with jittered exponential backoff.
+     * Error responses are returned as well, to be processed later with JSON parsing utilities.
+     *
+     * @param request Request to send, has to be idempotent
+     * @return HTTP response, has to be closed by caller
+     * @throws IOException Related to network communication
+     */
+    private static Response executeRequest(Request request) throws IOException {
+        RetryPolicy policy = RetryPolicy.forEndpoint(getEndpoint(request.url().encodedPath()));
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                Response response = executeRateLimitedRequest(request, policy);
+                if (!isRetryableStatus(response.code()) || attempt >= policy.getMaxAttempts()) {
+                    return response;
+                }
+                TmdbLog.w(TAG, "Request failed with HTTP " + response.code() + ", attempt " + attempt);
+                response.close();
+            } catch (IOException iex) {
+                if (!isRetryableException(iex) || attempt >= policy.getMaxAttempts()) {
+                    throw iex;
+                }
+                TmdbLog.w(TAG, "Request failed with " + iex.getClass().getSimpleName() + ", attempt " + attempt);
+            }
+
+            // Wait before next attempt
+            try {
+                Thread.sleep(policy.getBackoffDelayMs(attempt));
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Request cancelled");
+            }
+        }
+    }
+
+    /**
+     * Sends request scheduled by rate limiter; 429 Too Many Requests responses are retried
+     * after the delay requested by the server.
+     *
+     * @param request   Request to send
+     * @param policy    Endpoint retry policy
+     * @return HTTP response, has to be closed by caller
+     * @throws IOException Related to network communication
+     */
+    private static Response executeRateLimitedRequest(Request request, RetryPolicy policy)
+            throws IOException {
+        final RateLimiter rateLimiter = RateLimiter.getInstance();
+
+        for (int attempt = 0; ; attempt++) {
+            if (Thread.interrupted()) {
+                // All callers waiting for this request are gone
+                throw new InterruptedIOException("Request cancelled");
+            }
+
+            // Wait for free slot in API request budget
+            rateLimiter.acquire();
+
+            Response response = sendRequest(request, policy, new HedgedCall.HedgeListener() {
+                @Override
+                public void onHedge() throws IOException {
+                    // Hedged request counts against request budget as well
+                    rateLimiter.acquire();
+                }
+            });
+            rateLimiter.onBudgetReported(response.header(HEADER_RATE_LIMIT_REMAINING),
+                    response.header(HEADER_RATE_LIMIT_RESET));
+
+            if (response.code() != HTTP_TOO_MANY_REQUESTS || attempt >= MAX_RATE_LIMIT_RETRIES) {
+                return response;
+            }
+
+            // Back off as requested, following requests are held back as well
+            long backOffMs = rateLimiter.onRateLimited(response.header(HEADER_RETRY_AFTER));
+            TmdbLog.w(TAG, "Request rate limited, retrying in " + backOffMs + " ms");
+            response.close();
+        }
+    }
+
+    /**
+     * Sends single request, hedged when the endpoint policy allows it and its latency
+     * is already known
+     *
+     * @param request       Request to send
+     * @param policy        Endpoint retry policy
+     * @param hedgeListener Listener invoked before hedged request is sent
+     * @return HTTP response, has to be closed by caller
+     * @throws IOException Related to network communication
+     */
+    private static Response sendRequest(Request request, RetryPolicy policy,
+                                        HedgedCall.HedgeListener hedgeListener) throws IOException {
+        OkHttpClient client = TmdbHttpClient.getInstance();
+        long hedgeDelayMs = policy.getHedgeDelayMs();
+        long startedAt = elapsedRealtime();
+
+        Response response;
+        if (hedgeDelayMs > 0) {
+            response = new HedgedCall(client, request).execute(hedgeDelayMs, hedgeListener);
+        } else {
+            response = client.newCall(request).execute();
+        }
+
+        if (response.isSuccessful()) {
+            policy.recordLatency(elapsedRealtime() - startedAt);
+        }
+        return response;
+    }
+
+    /**
+     * @return Monotonic clock time in milliseconds
+     */
+    private static long elapsedRealtime() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    /**
+     * Determines API endpoint from request path
+     *
+     * @param path URL path
+     * @return API endpoint
+     */
+    private static RetryPolicy.Endpoint getEndpoint(String path) {
+        if (path.endsWith("/" + API_PATH_CONFIGURATION)) {
+            return RetryPolicy.Endpoint.CONFIG;
+        } else if (path.endsWith("/" + API_PATH_VIDEOS)) {
+            return RetryPolicy.Endpoint.VIDEOS;
+        } else if (path.endsWith("/" + API_PATH_REVIEWS)) {
+            return RetryPolicy.Endpoint.REVIEWS;
+        } else if (path.matches(".*/" + API_PATH_MOVIE + "/\\d+")) {
+            return RetryPolicy.Endpoint.MOVIE_DETAIL;
+        }
+        return RetryPolicy.Endpoint.MOVIE_LIST;
+    }
+
+    /**
+     * Server errors which may disappear on next attempt
+     */
+    static boolean isRetryableStatus(int code) {
+        return code == HttpURLConnection.HTTP_INTERNAL_ERROR
+                || code == HttpURLConnection.HTTP_BAD_GATEWAY
+                || code == HttpURLConnection.HTTP_UNAVAILABLE
+                || code == HttpURLConnection.HTTP_GATEWAY_TIMEOUT;
+    }
+
+    /**
+     * Network errors worth retrying - everything except cancellation
+     */
+    private static boolean isRetryableException(IOException iex) {
+        if (iex instanceof SocketTimeoutException) {
+            // Socket timeout is InterruptedIOException as well, but it is not a cancellation
+            return true;
+        }
+        return !(iex instanceof InterruptedIOException) && !Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * Wraps response body with decoder matching its Content-Encoding.
+     * Compressed and uncompressed byte counts are recorded when the stream is closed.
+     *
+     * @param response  HTTP response
+     * @param body      Response body
+     * @return Decoded response body stream
+     * @throws IOException On invalid compressed stream
+     */
+    private static DecodingInputStream decodeResponseBody(Response response, ResponseBody body)
+            throws IOException {
+        return DecodingInputStream.wrap(body.byteStream(),
+                response.header(HEADER_CONTENT_ENCODING),
+                response.request().url().encodedPath());
+    }
+
+    /**
+     * Fetches response, using response cache when initialized.
+     * Fresh cached responses are returned without network request, stale ones are
+     * revalidated with If-None-Match / If-Modified-Since.
+     * Body of live response is left unread, caller has to close returned response.
+     *
+     * @param url The URL to fetch the HTTP response from.
+     * @return Fetched response
+     * @throws IOException Related to network communication
+     */
+    private static FetchedResponse fetchResponse(URL url) throws IOException {
+        ResponseCache cache = ResponseCache.getInstance();
+        String cacheKey = null;
+        ResponseCache.Entry cached = null;
+
+        if (cache != null) {
+            cacheKey = ResponseCache.keyFor(url);
+            cached = cache.get(cacheKey);
+
+            if (cached != null && cached.isFresh(System.currentTimeMillis())) {
+                cache.recordHit();
+                return new FetchedResponse(cached);
+            }
+        }
+
+        Request.Builder requestBuilder = newGetRequestBuilder(url);
+        if (cached != null) {
+            if (cached.getETag() != null) {
+                requestBuilder.header(HEADER_IF_NONE_MATCH, cached.getETag());
+            }
+            if (cached.getLastModified() != null) {
+                requestBuilder.header(HEADER_IF_MODIFIED_SINCE, cached.getLastModified());
+            }
+        }
+
+        Response response = executeRequest(requestBuilder.build());
+        long maxAge = ResponseCache.parseMaxAge(response.header(HEADER_CACHE_CONTROL));
+
+        if (cached != null && response.code() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+            // Cached body is still valid, no download needed
+            response.close();
+            cache.recordRevalidated();
+            return new FetchedResponse(cache.refresh(cached, Math.max(maxAge, 0)));
+        }
+
+        if (cache != null) {
+            cache.recordMiss();
+        }
+        return new FetchedResponse(response, cacheKey, maxAge);
+    }
+
+    /**
+     * This method returns parsed result of the HTTP response.
+     * When response comes from cache (fresh or revalidated with 304 Not Modified) and
+     * the same body was parsed before, previous parse result is returned without parsing.
+     * Concurrent requests for the same URL with the same parser key share one network call
+     * and one parse result.
+     * Results of such calls are shared and must not be modified by the caller.
+     *
+     * @param url       The URL to fetch the HTTP response from.
+     * @param parser    Response parser
+     * @param <T>       Result type
+     * @return Parse result
+     * @throws IOException Related to network and stream reading
+     */
+    public static <T> TmdbJsonUtils.TmdbJsonResult<T> getParsedResponseFromHttpUrl(
+            final URL url, final ResponseParser<T> parser) throws IOException {
+        String requestKey = ResponseCache.keyFor(url) + "#" + parser.getKey();
+
+        return RequestCoalescer.getInstance().execute(requestKey,
+                new Callable<TmdbJsonUtils.TmdbJsonResult<T>>() {
+                    @Override
+                    public TmdbJsonUtils.TmdbJsonResult<T> call() throws IOException {
+                        return fetchAndParseResponse(url, parser);
+                    }
+                });
+    }
+
+    /**
+     * Fetches and parses response, reusing previous parse result of unchanged cached body
+     * by a parser with the same key.
+     * Live response is parsed straight from the network stream while it is downloading.
+     * Cacheable body is captured during parsing and stored to response cache afterwards.
+     *
+     * @param url       The URL to fetch the HTTP response from.
+     * @param parser    Response parser
+     * @param <T>       Result type
+     * @return Parse result
+     * @throws IOException Related to network and stream reading
+     */
+    private static <T> TmdbJsonUtils.TmdbJsonResult<T> fetchAndParseResponse(
+            URL url, ResponseParser<T> parser) throws IOException {
+        FetchedResponse fetched = fetchResponse(url);
+        ResponseCache cache = ResponseCache.getInstance();
+        ResponseCache.Entry entry = fetched.mCacheEntry;
+        String parserKey = parser.getKey();
+        TmdbJsonUtils.TmdbJsonResult<T> result;
+
+        try {
+            if (entry != null) {
+                // Results are kept by parser key, so the result has this parser's type
+                @SuppressWarnings("unchecked")
+                TmdbJsonUtils.TmdbJsonResult<T> parsed =
+                        (TmdbJsonUtils.TmdbJsonResult<T>) cache.getParsed(entry, parserKey);
+                if (parsed != null) {
+                    return parsed;
+                }
+
+                result = parser.parse(new ByteArrayInputStream(entry.getBody()));
+            } else {
+                result = parseResponseBody(fetched, parser);
+                // Set when live body was stored to response cache
+                entry = fetched.mCacheEntry;
+            }
+        } finally {
+            fetched.close();
+        }
+
+        if (cache != null && entry != null && result.getException() == null) {
+            cache.putParsed(entry, parserKey, result);
+        }
+        return result;
+    }
+
+    /**
+     * Parses live response body while it is being downloaded
+     *
+     * @param fetched   Live response
+     * @param parser    Response parser
+     * @param <T>       Result type
+     * @return Parse result
+     * @throws IOException Related to network and stream reading
+     */
+    private static <T> TmdbJsonUtils.TmdbJsonResult<T> parseResponseBody(
+            FetchedResponse fetched, ResponseParser<T> parser) throws IOException {
+        ResponseBody body = fetched.mResponse.body();
+        if (body == null) {
+            return parser.parse(new ByteArrayInputStream(new byte[0]));
+        }
+
+        DecodingInputStream in = decodeResponseBody(fetched.mResponse, body);
+        try {
+            if (!fetched.isCacheable()) {
+                return parser.parse(in);
+            }
+
+            long contentLength = in.isCompressed() ? -1 : body.contentLength();
+            CapturingInputStream capturing = new CapturingInputStream(in, contentLength);
+
+            TmdbJsonUtils.TmdbJsonResult<T> result = parser.parse(capturing);
+
+            // Body which could not be parsed (e.g. truncated) is not worth caching
+            if (result.getException() == null) {
+                // Parser stops at the end of JSON value, the rest of the body belongs to cache too
+                capturing.drain();
+                fetched.store(capturing.getBytes());
+            }
+            return result;
+        } finally {
+            in.close();
+        }
+    }
+
+    // All movie detail requests share one parser key, so that they are coalesced together
+    private static final ResponseParser<TmdbData.MovieDetail> MOVIE_DETAIL_PARSER =
+            new ResponseParser<TmdbData.MovieDetail>() {
+                @Override
+                public TmdbJsonUtils.TmdbJsonResult<TmdbData.MovieDetail> parse(InputStream in) {
+                    return TmdbJsonUtils.getMovieDetailFromStream(in);
+                }
+
+                @NonNull
+                @Override
+                public String getKey() { return "movie_detail"; }
+            };
+
+    /**
+     * Loads movie detail with videos and reviews by single API request.
+     * Concurrent callers (e.g. video and review fragments of one detail screen) share
+     * the request and its parse result, which must not be modified.
+     *
+     * @param apiKey    TMDb API key
+     * @param movieId   Movie id
+     * @return Parse result
+     * @throws IOException Related to network and stream reading
+     */
+    public static TmdbJsonUtils.TmdbJsonResult<TmdbData.MovieDetail> getMovieDetail(
+            String apiKey, int movieId) throws IOException {
+        return getParsedResponseFromHttpUrl(buildMovieDetailUrl(apiKey, movieId),
+                MOVIE_DETAIL_PARSER);
+    }
+}
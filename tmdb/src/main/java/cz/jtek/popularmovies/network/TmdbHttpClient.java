@@ -0,0 +1,146 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.network;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Response;
+
+/**
+ * Shared HTTP client for all TMDb API requests.
+ * Single client instance keeps one connection pool, so consecutive requests to
+ * api.themoviedb.org reuse already established TCP/TLS connections (and are multiplexed
+ * over one HTTP/2 connection where server supports it).
+ */
+public final class TmdbHttpClient {
+
+    @SuppressWarnings("unused")
+    private static final String TAG = TmdbHttpClient.class.getSimpleName();
+
+    // Default timeouts
+    public static final long DEFAULT_CONNECT_TIMEOUT_MS = 10000;
+    public static final long DEFAULT_READ_TIMEOUT_MS = 15000;
+
+    // Connection pool settings
+    private static final int POOL_MAX_IDLE_CONNECTIONS = 5;
+    private static final long POOL_KEEP_ALIVE_MINUTES = 5;
+
+    private static final List<Interceptor> sNetworkInterceptors = new ArrayList<>();
+
+    private static long sConnectTimeoutMs = DEFAULT_CONNECT_TIMEOUT_MS;
+    private static long sReadTimeoutMs = DEFAULT_READ_TIMEOUT_MS;
+
+    private static OkHttpClient sClient;
+
+    // Transport delivering requests, real HTTP by default
+    private static volatile Transport sTransport = Transport.HTTP;
+
+    private TmdbHttpClient() {}
+
+    /**
+     * Returns shared client instance, creating it on first use
+     *
+     * @return Shared OkHttp client
+     */
+    @NonNull
+    public static synchronized OkHttpClient getInstance() {
+        if (sClient == null) {
+            OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                    .connectionPool(new ConnectionPool(POOL_MAX_IDLE_CONNECTIONS,
+                            POOL_KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                    .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                    .connectTimeout(sConnectTimeoutMs, TimeUnit.MILLISECONDS)
+                    .readTimeout(sReadTimeoutMs, TimeUnit.MILLISECONDS)
+                    .retryOnConnectionFailure(true)
+                    // Requests are handed over to current transport
+                    .addInterceptor(new Interceptor() {
+                        @Override
+                        public Response intercept(@NonNull Chain chain) throws IOException {
+                            return sTransport.execute(chain);
+                        }
+                    });
+
+            for (Interceptor interceptor : sNetworkInterceptors) {
+                builder.addNetworkInterceptor(interceptor);
+            }
+
+            sClient = builder.build();
+        }
+        return sClient;
+    }
+
+    /**
+     * Sets connect and read timeouts. Client is rebuilt from the current instance,
+     * so the connection pool and dispatcher are kept.
+     *
+     * @param connectTimeoutMs  Connect timeout in milliseconds
+     * @param readTimeoutMs     Read timeout in milliseconds
+     */
+    public static synchronized void setTimeouts(long connectTimeoutMs, long readTimeoutMs) {
+        if (connectTimeoutMs < 0 || readTimeoutMs < 0) {
+            throw new IllegalArgumentException("Timeouts cannot be negative");
+        }
+
+        sConnectTimeoutMs = connectTimeoutMs;
+        sReadTimeoutMs = readTimeoutMs;
+
+        if (sClient != null) {
+            sClient = sClient.newBuilder()
+                    .connectTimeout(connectTimeoutMs, TimeUnit.MILLISECONDS)
+                    .readTimeout(readTimeoutMs, TimeUnit.MILLISECONDS)
+                    .build();
+        }
+    }
+
+    /**
+     * Replaces transport delivering API requests, e.g. by offline mock server
+     *
+     * @param transport Transport to use
+     */
+    public static void setTransport(@NonNull Transport transport) {
+        sTransport = transport;
+    }
+
+    @NonNull
+    public static Transport getTransport() { return sTransport; }
+
+    /**
+     * Registers network interceptor (e.g. Stetho inspector in debug builds)
+     * Should be called before the first request is sent.
+     *
+     * @param interceptor Network interceptor to add
+     */
+    public static synchronized void addNetworkInterceptor(@NonNull Interceptor interceptor) {
+        sNetworkInterceptors.add(interceptor);
+
+        if (sClient != null) {
+            sClient = sClient.newBuilder()
+                    .addNetworkInterceptor(interceptor)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.network;
+
+/**
+ * Per-request and cumulative response transfer statistics.
+ * Compressed bytes are counted as received from the network, uncompressed bytes
+ * as handed over to the caller after decoding.
+ */
+public final class TransferStats {
+
+    private static long sRequestCount;
+    private static long sTotalCompressedBytes;
+    private static long sTotalUncompressedBytes;
+
+    private static Listener sListener;
+
+    /**
+     * Receives statistics of every finished response
+     */
+    public interface Listener {
+        void onResponseTransferred(String label, String contentEncoding,
+                                   long compressedBytes, long uncompressedBytes);
+    }
+
+    private TransferStats() {}
+
+    /**
+     * Records transfer of one response body
+     *
+     * @param label             Request label (e.g. URL path)
+     * @param contentEncoding   Response Content-Encoding, null for identity
+     * @param compressedBytes   Number of bytes received from network
+     * @param uncompressedBytes Number of bytes after decoding
+     */
+    static void record(String label, String contentEncoding,
+                       long compressedBytes, long uncompressedBytes) {
+        Listener listener;
+
+        synchronized (TransferStats.class) {
+            sRequestCount++;
+            sTotalCompressedBytes += compressedBytes;
+            sTotalUncompressedBytes += uncompressedBytes;
+            listener = sListener;
+        }
+
+        if (listener != null) {
+            listener.onResponseTransferred(label, contentEncoding, compressedBytes, uncompressedBytes);
+        }
+    }
+
+    public static synchronized void setListener(Listener listener) { sListener = listener; }
+
+    public static synchronized long getRequestCount() { return sRequestCount; }
+    public static synchronized long getTotalCompressedBytes() { return sTotalCompressedBytes; }
+    public static synchronized long getTotalUncompressedBytes() { return sTotalUncompressedBytes; }
+
+    /**
+     * Resets cumulative counters
+     */
+    public static synchronized void reset() {
+        sRequestCount = 0;
+        sTotalCompressedBytes = 0;
+        sTotalUncompressedBytes = 0;
+    }
+}
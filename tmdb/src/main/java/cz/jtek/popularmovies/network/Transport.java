@@ -0,0 +1,53 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.network;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+/**
+ * Transport delivering API requests.
+ * Transport is plugged into the shared HTTP client below cache, retry and rate limiting
+ * layers, so the whole load path works the same with real or simulated network.
+ */
+public interface Transport {
+
+    /**
+     * Delivers request and returns response
+     *
+     * @param chain OkHttp interceptor chain, proceeding with it sends the request to network
+     * @return Response
+     * @throws IOException Related to network communication
+     */
+    @NonNull
+    Response execute(@NonNull Interceptor.Chain chain) throws IOException;
+
+    /**
+     * Real HTTP transport
+     */
+    Transport HTTP = new Transport() {
+        @NonNull
+        @Override
+        public Response execute(@NonNull Interceptor.Chain chain) throws IOException {
+            return chain.proceed(chain.request());
+        }
+    };
+}
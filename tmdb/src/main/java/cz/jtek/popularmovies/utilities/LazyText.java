@@ -0,0 +1,183 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.utilities;
+
+import cz.jtek.popularmovies.network.ResponseReader;
+
+/**
+ * Text value kept as encoded JSON string bytes (UTF-8, with escape sequences) until
+ * it is accessed for the first time. Large texts which are rarely displayed, like movie
+ * overviews in the poster grid, are never decoded to String unless the user opens them.
+ * Instances are thread safe, decoded text replaces the encoded bytes.
+ */
+public final class LazyText {
+
+    private static final int REPLACEMENT_CHARACTER = 0xFFFD;
+
+    // Encoded JSON string content without quotes, null once decoded
+    private byte[] mEncoded;
+    private boolean mEscaped;
+    private String mText;
+
+    private LazyText(byte[] encoded, boolean escaped, String text) {
+        mEncoded = encoded;
+        mEscaped = escaped;
+        mText = text;
+    }
+
+    /**
+     * @param text Already decoded text
+     * @return Lazy text instance, null for null text
+     */
+    public static LazyText of(String text) {
+        return text != null ? new LazyText(null, false, text) : null;
+    }
+
+    /**
+     * @param encoded   JSON string content without quotes, array is retained
+     * @param escaped   true if content contains escape sequences
+     * @return Lazy text decoded on first access
+     */
+    public static LazyText fromEncoded(byte[] encoded, boolean escaped) {
+        return new LazyText(encoded, escaped, null);
+    }
+
+    /**
+     * @return Encoded JSON string content, null if text was already decoded
+     */
+    public synchronized byte[] getEncoded() { return mEncoded; }
+
+    public synchronized boolean isEscaped() { return mEscaped; }
+
+    public synchronized boolean isDecoded() { return mText != null; }
+
+    @Override
+    public synchronized String toString() {
+        if (mText == null) {
+            mText = decode(mEncoded, 0, mEncoded.length, mEscaped);
+            // Encoded form is no longer needed
+            mEncoded = null;
+        }
+        return mText;
+    }
+
+    /**
+     * @return Decoded text of lazy text instance, null for null instance
+     */
+    public static String toString(LazyText text) {
+        return text != null ? text.toString() : null;
+    }
+
+    /**
+     * Decodes JSON string content
+     *
+     * @param encoded   Buffer with UTF-8 encoded JSON string content without quotes
+     * @param offset    Content offset
+     * @param length    Content length
+     * @param escaped   true if content contains escape sequences
+     * @return Decoded string
+     */
+    static String decode(byte[] encoded, int offset, int length, boolean escaped) {
+        if (!escaped) {
+            return new String(encoded, offset, length, ResponseReader.UTF_8);
+        }
+
+        // Unescaped content is never longer than escaped one
+        byte[] out = new byte[length];
+        int outLength = 0;
+        int end = offset + length;
+
+        for (int i = offset; i < end; i++) {
+            byte b = encoded[i];
+            if (b != '\\' || i + 1 == end) {
+                out[outLength++] = b;
+                continue;
+            }
+
+            byte escape = encoded[++i];
+            switch (escape) {
+                case 'n': out[outLength++] = '\n'; break;
+                case 't': out[outLength++] = '\t'; break;
+                case 'r': out[outLength++] = '\r'; break;
+                case 'b': out[outLength++] = '\b'; break;
+                case 'f': out[outLength++] = '\f'; break;
+                case 'u':
+                    int codePoint = parseHex4(encoded, i + 1, end);
+                    if (codePoint == -1) {
+                        // Invalid escape stands for itself
+                        out[outLength++] = escape;
+                        break;
+                    }
+                    i += 4;
+                    if (Character.isHighSurrogate((char) codePoint)) {
+                        // Characters outside of BMP are escaped as surrogate pair
+                        int low = (i + 2 < end && encoded[i + 1] == '\\' && encoded[i + 2] == 'u')
+                                ? parseHex4(encoded, i + 3, end) : -1;
+                        if (low != -1 && Character.isLowSurrogate((char) low)) {
+                            codePoint = Character.toCodePoint((char) codePoint, (char) low);
+                            i += 6;
+                        } else {
+                            codePoint = REPLACEMENT_CHARACTER;
+                        }
+                    } else if (Character.isLowSurrogate((char) codePoint)) {
+                        codePoint = REPLACEMENT_CHARACTER;
+                    }
+                    outLength = encodeUtf8(codePoint, out, outLength);
+                    break;
+                default:
+                    // Quote, backslash, slash and invalid escapes stand for themselves
+                    out[outLength++] = escape;
+            }
+        }
+
+        return new String(out, 0, outLength, ResponseReader.UTF_8);
+    }
+
+    private static int parseHex4(byte[] buffer, int offset, int end) {
+        if (offset + 4 > end) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = offset; i < offset + 4; i++) {
+            int digit = Character.digit(buffer[i], 16);
+            if (digit == -1) {
+                return -1;
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+
+    private static int encodeUtf8(int codePoint, byte[] out, int offset) {
+        if (codePoint < 0x80) {
+            out[offset++] = (byte) codePoint;
+        } else if (codePoint < 0x800) {
+            out[offset++] = (byte) (0xC0 | (codePoint >> 6));
+            out[offset++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else if (codePoint < 0x10000) {
+            out[offset++] = (byte) (0xE0 | (codePoint >> 12));
+            out[offset++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            out[offset++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else {
+            out[offset++] = (byte) (0xF0 | (codePoint >> 18));
+            out[offset++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+            out[offset++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            out[offset++] = (byte) (0x80 | (codePoint & 0x3F));
+        }
+        return offset;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.utilities;
+
+/**
+ * Cumulative statistics of projected JSON decoding.
+ * Materialized bytes are bytes of values decoded into model fields, deferred bytes are
+ * bytes of values kept encoded as LazyText, skipped bytes are everything else read from
+ * the stream: unused fields, field names and JSON syntax.
+ */
+public final class ParserStats {
+
+    private static long sParseCount;
+    private static long sTotalBytes;
+    private static long sMaterializedBytes;
+    private static long sDeferredBytes;
+    private static long sMaterializedFields;
+    private static long sSkippedFields;
+
+    private static Listener sListener;
+
+    /**
+     * Receives statistics of every finished parse
+     */
+    public interface Listener {
+        void onParsed(String label, long totalBytes, long materializedBytes, long deferredBytes,
+                      int materializedFields, int skippedFields);
+    }
+
+    private ParserStats() {}
+
+    /**
+     * Records one parsed response
+     *
+     * @param label                 Parse label (e.g. reply type)
+     * @param totalBytes            Number of bytes read from stream
+     * @param materializedBytes     Number of bytes decoded into model fields
+     * @param deferredBytes         Number of bytes kept encoded for lazy decoding
+     * @param materializedFields    Number of decoded values
+     * @param skippedFields         Number of skipped field values
+     */
+    static void record(String label, long totalBytes, long materializedBytes, long deferredBytes,
+                       int materializedFields, int skippedFields) {
+        Listener listener;
+
+        synchronized (ParserStats.class) {
+            sParseCount++;
+            sTotalBytes += totalBytes;
+            sMaterializedBytes += materializedBytes;
+            sDeferredBytes += deferredBytes;
+            sMaterializedFields += materializedFields;
+            sSkippedFields += skippedFields;
+            listener = sListener;
+        }
+
+        if (listener != null) {
+            listener.onParsed(label, totalBytes, materializedBytes, deferredBytes,
+                    materializedFields, skippedFields);
+        }
+    }
+
+    public static synchronized void setListener(Listener listener) { sListener = listener; }
+
+    public static synchronized long getParseCount() { return sParseCount; }
+    public static synchronized long getTotalBytes() { return sTotalBytes; }
+    public static synchronized long getMaterializedBytes() { return sMaterializedBytes; }
+    public static synchronized long getDeferredBytes() { return sDeferredBytes; }
+    public static synchronized long getSkippedBytes() {
+        return sTotalBytes - sMaterializedBytes - sDeferredBytes;
+    }
+    public static synchronized long getMaterializedFields() { return sMaterializedFields; }
+    public static synchronized long getSkippedFields() { return sSkippedFields; }
+
+    /**
+     * Resets cumulative counters
+     */
+    public static synchronized void reset() {
+        sParseCount = 0;
+        sTotalBytes = 0;
+        sMaterializedBytes = 0;
+        sDeferredBytes = 0;
+        sMaterializedFields = 0;
+        sSkippedFields = 0;
+    }
+}
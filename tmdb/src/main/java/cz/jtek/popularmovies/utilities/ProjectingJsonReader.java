@@ -0,0 +1,755 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.utilities;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import cz.jtek.popularmovies.network.ResponseReader;
+
+/**
+ * Streaming UTF-8 JSON reader decoding only projected object fields.
+ * Each model declares a Projection of the fields it reads. Field names are matched
+ * against projection as raw bytes and values of all other fields are skipped at byte
+ * level, without being decoded to strings or numbers.
+ * String values can also be read as LazyText, keeping their encoded bytes until first use.
+ * Values can also be deferred: their encoded bytes are kept until the caller decides to
+ * decode or drop them, e.g. fields which precede a filter field of the object.
+ * Bytes read from the stream, bytes of materialized values and bytes of deferred values
+ * are counted and recorded to ParserStats by finish().
+ */
+public class ProjectingJsonReader {
+
+    /**
+     * JSON token types
+     */
+    public enum Token {
+        BEGIN_ARRAY, END_ARRAY, BEGIN_OBJECT, END_OBJECT, NAME,
+        STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+    }
+
+    /**
+     * Set of object field names a model decodes
+     */
+    public static final class Projection {
+        private final String[] mFields;
+        private final byte[][] mEncodedFields;
+
+        public Projection(String... fields) {
+            mFields = fields.clone();
+            mEncodedFields = new byte[fields.length][];
+            for (int i = 0; i < fields.length; i++) {
+                mEncodedFields[i] = fields[i].getBytes(ResponseReader.UTF_8);
+            }
+        }
+
+        public boolean contains(String name) { return match(name) != null; }
+
+        public String[] getFields() { return mFields.clone(); }
+
+        private String match(String name) {
+            for (String field : mFields) {
+                if (field.equals(name)) { return field; }
+            }
+            return null;
+        }
+
+        // Returns projected field name constant matching encoded name, no allocation
+        private String match(byte[] encoded, int length) {
+            for (int i = 0; i < mEncodedFields.length; i++) {
+                byte[] field = mEncodedFields[i];
+                if (field.length != length) { continue; }
+                int j = 0;
+                while (j < length && field[j] == encoded[j]) { j++; }
+                if (j == length) { return mFields[i]; }
+            }
+            return null;
+        }
+    }
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    // Lexical scopes
+    private static final int SCOPE_EMPTY_DOCUMENT = 0;
+    private static final int SCOPE_NONEMPTY_DOCUMENT = 1;
+    private static final int SCOPE_EMPTY_ARRAY = 2;
+    private static final int SCOPE_NONEMPTY_ARRAY = 3;
+    private static final int SCOPE_EMPTY_OBJECT = 4;
+    private static final int SCOPE_DANGLING_NAME = 5;
+    private static final int SCOPE_NONEMPTY_OBJECT = 6;
+
+    private final InputStream mIn;
+    private final String mLabel;
+
+    private final byte[] mBuffer = new byte[BUFFER_SIZE];
+    private int mPos;
+    private int mLimit;
+    private long mTotalBytes;
+
+    private int[] mStack = new int[32];
+    private int mStackSize;
+    private Token mPeeked;
+
+    // Content of last read string or literal
+    private byte[] mScratch = new byte[256];
+    private int mScratchLength;
+    private boolean mScratchEscaped;
+
+    // Encoded values deferred by deferValue(), three ints (offset, length, flags) per slot
+    private static final int DEFERRED_STRING = 1;
+    private static final int DEFERRED_ESCAPED = 2;
+    private static final int DEFERRED_NULL = 4;
+    private byte[] mDeferred = new byte[256];
+    private int mDeferredLength;
+    private int[] mDeferredSlots = new int[3 * 8];
+    private int mDeferredCount;
+
+    private long mMaterializedBytes;
+    private long mDeferredBytes;
+    private int mMaterializedFields;
+    private int mSkippedFields;
+    private boolean mFinished;
+
+    /**
+     * @param in        UTF-8 JSON stream, it is not closed by finish()
+     * @param label     Label used for parser statistics
+     */
+    public ProjectingJsonReader(InputStream in, String label) {
+        mIn = in;
+        mLabel = label;
+        mStack[mStackSize++] = SCOPE_EMPTY_DOCUMENT;
+    }
+
+    public void beginObject() throws IOException {
+        expect(Token.BEGIN_OBJECT);
+        push(SCOPE_EMPTY_OBJECT);
+    }
+
+    public void endObject() throws IOException {
+        expect(Token.END_OBJECT);
+        mStackSize--;
+    }
+
+    public void beginArray() throws IOException {
+        expect(Token.BEGIN_ARRAY);
+        push(SCOPE_EMPTY_ARRAY);
+    }
+
+    public void endArray() throws IOException {
+        expect(Token.END_ARRAY);
+        mStackSize--;
+    }
+
+    /**
+     * @return true if current array or object has another element
+     * @throws IOException On stream reading or JSON syntax error
+     */
+    public boolean hasNext() throws IOException {
+        Token token = peek();
+        return token != Token.END_OBJECT && token != Token.END_ARRAY
+                && token != Token.END_DOCUMENT;
+    }
+
+    /**
+     * @return Type of next token without consuming it
+     * @throws IOException On stream reading or JSON syntax error
+     */
+    public Token peek() throws IOException {
+        if (mPeeked != null) {
+            return mPeeked;
+        }
+
+        int top = mStackSize - 1;
+        int c;
+
+        switch (mStack[top]) {
+            case SCOPE_EMPTY_ARRAY:
+                mStack[top] = SCOPE_NONEMPTY_ARRAY;
+                c = nextNonWhitespace();
+                mPeeked = (c == ']') ? Token.END_ARRAY : peekValue(c);
+                break;
+
+            case SCOPE_NONEMPTY_ARRAY:
+                c = nextNonWhitespace();
+                if (c == ']') {
+                    mPeeked = Token.END_ARRAY;
+                } else if (c == ',') {
+                    mPeeked = peekValue(nextNonWhitespace());
+                } else {
+                    throw syntaxError("Expected ',' or ']'");
+                }
+                break;
+
+            case SCOPE_EMPTY_OBJECT:
+            case SCOPE_NONEMPTY_OBJECT:
+                c = nextNonWhitespace();
+                if (c == '}') {
+                    mPeeked = Token.END_OBJECT;
+                    break;
+                }
+                if (mStack[top] == SCOPE_NONEMPTY_OBJECT) {
+                    if (c != ',') { throw syntaxError("Expected ',' or '}'"); }
+                    c = nextNonWhitespace();
+                }
+                if (c != '"') { throw syntaxError("Expected name"); }
+                mStack[top] = SCOPE_DANGLING_NAME;
+                mPeeked = Token.NAME;
+                break;
+
+            case SCOPE_DANGLING_NAME:
+                if (nextNonWhitespace() != ':') { throw syntaxError("Expected ':'"); }
+                mStack[top] = SCOPE_NONEMPTY_OBJECT;
+                mPeeked = peekValue(nextNonWhitespace());
+                break;
+
+            case SCOPE_EMPTY_DOCUMENT:
+                mStack[top] = SCOPE_NONEMPTY_DOCUMENT;
+                mPeeked = peekValue(nextNonWhitespace());
+                break;
+
+            default:
+                if (nextNonWhitespace() != -1) { throw syntaxError("Expected end of document"); }
+                mPeeked = Token.END_DOCUMENT;
+        }
+
+        return mPeeked;
+    }
+
+    // Opening brackets and quotes are consumed, first byte of literals is left in buffer
+    private Token peekValue(int c) throws IOException {
+        switch (c) {
+            case '{':
+                return Token.BEGIN_OBJECT;
+            case '[':
+                return Token.BEGIN_ARRAY;
+            case '"':
+                return Token.STRING;
+            case 't':
+            case 'f':
+                mPos--;
+                return Token.BOOLEAN;
+            case 'n':
+                mPos--;
+                return Token.NULL;
+            case -1:
+                throw new EOFException("Unexpected end of input");
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    mPos--;
+                    return Token.NUMBER;
+                }
+                throw syntaxError("Unexpected character");
+        }
+    }
+
+    public String nextName() throws IOException {
+        expect(Token.NAME);
+        readString();
+        return LazyText.decode(mScratch, 0, mScratchLength, mScratchEscaped);
+    }
+
+    /**
+     * Skips value of current field
+     *
+     * @throws IOException On stream reading or JSON syntax error
+     */
+    public void skipValue() throws IOException {
+        int depth = 0;
+        do {
+            Token token = peek();
+            if (depth == 0 && (token == Token.END_ARRAY || token == Token.END_OBJECT
+                    || token == Token.END_DOCUMENT)) {
+                throw new IllegalStateException("Expected a value but was " + token);
+            }
+            mPeeked = null;
+
+            switch (token) {
+                case BEGIN_ARRAY:
+                    push(SCOPE_EMPTY_ARRAY);
+                    depth++;
+                    break;
+                case BEGIN_OBJECT:
+                    push(SCOPE_EMPTY_OBJECT);
+                    depth++;
+                    break;
+                case END_ARRAY:
+                case END_OBJECT:
+                    mStackSize--;
+                    depth--;
+                    break;
+                case NAME:
+                case STRING:
+                    skipString();
+                    break;
+                default:
+                    skipLiteral();
+            }
+        } while (depth > 0);
+
+        mSkippedFields++;
+    }
+
+    /**
+     * Returns name of next projected field of current object.
+     * Fields outside of projection and fields with JSON null value are skipped.
+     *
+     * @param projection    Fields to decode
+     * @return Projection field name constant positioned at its value, null at the end
+     *         of the object
+     * @throws IOException On stream reading or JSON syntax error
+     */
+    public String nextField(Projection projection) throws IOException {
+        while (hasNext()) {
+            expect(Token.NAME);
+            readString();
+
+            String name = mScratchEscaped
+                    ? projection.match(LazyText.decode(mScratch, 0, mScratchLength, true))
+                    : projection.match(mScratch, mScratchLength);
+
+            if (name != null && peek() != Token.NULL) {
+                return name;
+            }
+            skipValue();
+        }
+        return null;
+    }
+
+    /**
+     * Skips all remaining fields of current object, e.g. when the object turned out
+     * to be filtered out. Caller still has to call endObject().
+     *
+     * @throws IOException On stream reading or JSON syntax error
+     */
+    public void skipRemainingFields() throws IOException {
+        while (hasNext()) {
+            expect(Token.NAME);
+            skipString();
+            skipValue();
+        }
+    }
+
+    /**
+     * @return String value (or number literal), JSON null is returned as null
+     * @throws IOException On stream reading or JSON syntax error
+     */
+    public String nextString() throws IOException {
+        Token token = peek();
+        if (token == Token.NULL) {
+            nextNull();
+            return null;
+        }
+        if (token == Token.NUMBER) {
+            return nextNumberLiteral();
+        }
+        expect(Token.STRING);
+        readString();
+        materialized(mScratchLength);
+        return LazyText.decode(mScratch, 0, mScratchLength, mScratchEscaped);
+    }
+
+    /**
+     * Reads short repeated string value (e.g. video type) as canonical pooled instance
+     *
+     * @param pool  String pool
+     * @return Canonical string, JSON null is returned as null
+     * @throws IOException On stream reading or JSON syntax error
+     */
+    public String nextPooledString(StringPool pool) throws IOException {
+        if (peek() == Token.NULL) {
+            nextNull();
+            return null;
+        }
+        expect(Token.STRING);
+        readString();
+        materialized(mScratchLength);
+        if (mScratchEscaped) {
+            return pool.intern(LazyText.decode(mScratch, 0, mScratchLength, true));
+        }
+        return pool.intern(mScratch, 0, mScratchLength);
+    }
+
+    /**
+     * Reads string value without decoding it
+     *
+     * @return Lazy text decoded on first access, JSON null is returned as null
+     * @throws IOException On stream reading or JSON syntax error
+     */
+    public LazyText nextLazyText() throws IOException {
+        if (peek() == Token.NULL) {
+            nextNull();
+            return null;
+        }
+        expect(Token.STRING);
+        readString();
+        mDeferredBytes += mScratchLength;
+        return LazyText.fromEncoded(Arrays.copyOf(mScratch, mScratchLength), mScratchEscaped);
+    }
+
+    public int nextInt() throws IOException {
+        return Integer.parseInt(nextNumberLiteral());
+    }
+
+    public long nextLong() throws IOException {
+        return Long.parseLong(nextNumberLiteral());
+    }
+
+    public double nextDouble() throws IOException {
+        return Double.parseDouble(nextNumberLiteral());
+    }
+
+    public boolean nextBoolean() throws IOException {
+        expect(Token.BOOLEAN);
+        String literal = readLiteral();
+        if (literal.equals("true")) { return true; }
+        if (literal.equals("false")) { return false; }
+        throw syntaxError("Expected boolean");
+    }
+
+    public void nextNull() throws IOException {
+        expect(Token.NULL);
+        if (!readLiteral().equals("null")) {
+            throw syntaxError("Expected null");
+        }
+    }
+
+    /**
+     * Keeps encoded value of current field without decoding it. The value is decoded later
+     * by one of deferred*() methods, or dropped by discardDeferred() without ever being
+     * turned into a string.
+     *
+     * @return Slot of deferred value, valid until clearDeferred() or discardDeferred()
+     * @throws IOException On stream reading or JSON syntax error
+     */
+    public int deferValue() throws IOException {
+        Token token = peek();
+        int flags;
+        if (token == Token.STRING) {
+            mPeeked = null;
+            readString();
+            flags = DEFERRED_STRING | (mScratchEscaped ? DEFERRED_ESCAPED : 0);
+        } else if (token == Token.NUMBER || token == Token.BOOLEAN || token == Token.NULL) {
+            mPeeked = null;
+            readLiteralBytes();
+            flags = (token == Token.NULL) ? DEFERRED_NULL : 0;
+        } else {
+            throw new IllegalStateException("Expected a string or literal but was " + token);
+        }
+
+        if (mDeferredLength + mScratchLength > mDeferred.length) {
+            mDeferred = Arrays.copyOf(mDeferred,
+                    Math.max(mDeferred.length * 2, mDeferredLength + mScratchLength));
+        }
+        System.arraycopy(mScratch, 0, mDeferred, mDeferredLength, mScratchLength);
+
+        int slot = mDeferredCount++;
+        if (slot * 3 + 3 > mDeferredSlots.length) {
+            mDeferredSlots = Arrays.copyOf(mDeferredSlots, mDeferredSlots.length * 2);
+        }
+        mDeferredSlots[slot * 3] = mDeferredLength;
+        mDeferredSlots[slot * 3 + 1] = mScratchLength;
+        mDeferredSlots[slot * 3 + 2] = flags;
+        mDeferredLength += mScratchLength;
+        return slot;
+    }
+
+    /**
+     * @param slot  Slot returned by deferValue()
+     * @return Deferred string value (or number literal), JSON null is returned as null
+     */
+    public String deferredString(int slot) {
+        int flags = deferredFlags(slot);
+        if ((flags & DEFERRED_NULL) != 0) {
+            return null;
+        }
+        int offset = mDeferredSlots[slot * 3];
+        int length = mDeferredSlots[slot * 3 + 1];
+        materialized(length);
+        return LazyText.decode(mDeferred, offset, length, (flags & DEFERRED_ESCAPED) != 0);
+    }
+
+    /**
+     * @param slot  Slot returned by deferValue()
+     * @param pool  String pool
+     * @return Canonical deferred string, JSON null is returned as null
+     */
+    public String deferredPooledString(int slot, StringPool pool) {
+        int flags = deferredFlags(slot);
+        if ((flags & DEFERRED_NULL) != 0) {
+            return null;
+        }
+        if ((flags & DEFERRED_STRING) == 0) {
+            throw new IllegalStateException("Expected STRING but was literal");
+        }
+        int offset = mDeferredSlots[slot * 3];
+        int length = mDeferredSlots[slot * 3 + 1];
+        materialized(length);
+        if ((flags & DEFERRED_ESCAPED) != 0) {
+            return pool.intern(LazyText.decode(mDeferred, offset, length, true));
+        }
+        return pool.intern(mDeferred, offset, length);
+    }
+
+    /**
+     * @param slot  Slot returned by deferValue()
+     * @return Lazy text of deferred string, JSON null is returned as null
+     */
+    public LazyText deferredLazyText(int slot) {
+        int flags = deferredFlags(slot);
+        if ((flags & DEFERRED_NULL) != 0) {
+            return null;
+        }
+        if ((flags & DEFERRED_STRING) == 0) {
+            throw new IllegalStateException("Expected STRING but was literal");
+        }
+        int offset = mDeferredSlots[slot * 3];
+        int length = mDeferredSlots[slot * 3 + 1];
+        mDeferredBytes += length;
+        return LazyText.fromEncoded(Arrays.copyOfRange(mDeferred, offset, offset + length),
+                (flags & DEFERRED_ESCAPED) != 0);
+    }
+
+    public int deferredInt(int slot) {
+        return Integer.parseInt(deferredNumberLiteral(slot));
+    }
+
+    public long deferredLong(int slot) {
+        return Long.parseLong(deferredNumberLiteral(slot));
+    }
+
+    public double deferredDouble(int slot) {
+        return Double.parseDouble(deferredNumberLiteral(slot));
+    }
+
+    public boolean deferredBoolean(int slot) {
+        int flags = deferredFlags(slot);
+        if ((flags & (DEFERRED_STRING | DEFERRED_NULL)) != 0) {
+            throw new IllegalStateException("Expected BOOLEAN");
+        }
+        String literal = deferredString(slot);
+        if (literal.equals("true")) { return true; }
+        if (literal.equals("false")) { return false; }
+        throw new IllegalStateException("Expected boolean but was " + literal);
+    }
+
+    /**
+     * Forgets all deferred values, after the caller decoded the ones it needs
+     */
+    public void clearDeferred() {
+        mDeferredLength = 0;
+        mDeferredCount = 0;
+    }
+
+    /**
+     * Drops all deferred values without decoding them, they are counted as skipped fields
+     */
+    public void discardDeferred() {
+        mSkippedFields += mDeferredCount;
+        clearDeferred();
+    }
+
+    // Numbers quoted as strings are accepted too
+    private String deferredNumberLiteral(int slot) {
+        if ((deferredFlags(slot) & DEFERRED_NULL) != 0) {
+            throw new IllegalStateException("Expected a number but was NULL");
+        }
+        return deferredString(slot);
+    }
+
+    private int deferredFlags(int slot) {
+        if (slot < 0 || slot >= mDeferredCount) {
+            throw new IllegalArgumentException("No deferred value in slot " + slot);
+        }
+        return mDeferredSlots[slot * 3 + 2];
+    }
+
+    // Numbers quoted as strings are accepted too
+    private String nextNumberLiteral() throws IOException {
+        Token token = peek();
+        String literal;
+        if (token == Token.NUMBER) {
+            mPeeked = null;
+            literal = readLiteral();
+        } else if (token == Token.STRING) {
+            mPeeked = null;
+            readString();
+            literal = LazyText.decode(mScratch, 0, mScratchLength, mScratchEscaped);
+        } else {
+            throw new IllegalStateException("Expected a number but was " + token);
+        }
+        materialized(mScratchLength);
+        return literal;
+    }
+
+    private void materialized(int bytes) {
+        mMaterializedBytes += bytes;
+        mMaterializedFields++;
+    }
+
+    private void expect(Token expected) throws IOException {
+        Token token = peek();
+        if (token != expected) {
+            throw new IllegalStateException("Expected " + expected + " but was " + token);
+        }
+        mPeeked = null;
+    }
+
+    private void push(int scope) {
+        if (mStackSize == mStack.length) {
+            mStack = Arrays.copyOf(mStack, mStack.length * 2);
+        }
+        mStack[mStackSize++] = scope;
+    }
+
+    private boolean fill() throws IOException {
+        if (mPos < mLimit) {
+            return true;
+        }
+        int readLen = mIn.read(mBuffer, 0, mBuffer.length);
+        if (readLen <= 0) {
+            return false;
+        }
+        mPos = 0;
+        mLimit = readLen;
+        mTotalBytes += readLen;
+        return true;
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        while (fill()) {
+            byte b = mBuffer[mPos++];
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                return b & 0xFF;
+            }
+        }
+        return -1;
+    }
+
+    private void appendScratch(int offset, int length) {
+        if (mScratchLength + length > mScratch.length) {
+            mScratch = Arrays.copyOf(mScratch,
+                    Math.max(mScratch.length * 2, mScratchLength + length));
+        }
+        System.arraycopy(mBuffer, offset, mScratch, mScratchLength, length);
+        mScratchLength += length;
+    }
+
+    // Reads encoded string content after opening quote to scratch buffer, consumes closing quote
+    private void readString() throws IOException {
+        mScratchLength = 0;
+        mScratchEscaped = false;
+
+        while (true) {
+            if (!fill()) { throw new EOFException("Unterminated string"); }
+
+            int start = mPos;
+            while (mPos < mLimit) {
+                byte b = mBuffer[mPos];
+                if (b == '"') {
+                    appendScratch(start, mPos - start);
+                    mPos++;
+                    return;
+                }
+                mPos++;
+                if (b == '\\') {
+                    // Escaped character is kept together with backslash, it may be a quote
+                    mScratchEscaped = true;
+                    appendScratch(start, mPos - start);
+                    if (!fill()) { throw new EOFException("Unterminated string"); }
+                    appendScratch(mPos, 1);
+                    mPos++;
+                    start = mPos;
+                }
+            }
+            appendScratch(start, mPos - start);
+        }
+    }
+
+    // Skips encoded string content after opening quote without copying it
+    private void skipString() throws IOException {
+        while (true) {
+            if (!fill()) { throw new EOFException("Unterminated string"); }
+
+            while (mPos < mLimit) {
+                byte b = mBuffer[mPos++];
+                if (b == '"') {
+                    return;
+                }
+                if (b == '\\') {
+                    if (!fill()) { throw new EOFException("Unterminated string"); }
+                    mPos++;
+                }
+            }
+        }
+    }
+
+    private static boolean isLiteralByte(byte b) {
+        return b != ',' && b != ']' && b != '}' && b != ':'
+                && b != ' ' && b != '\n' && b != '\r' && b != '\t';
+    }
+
+    // Reads number, boolean or null literal, it is ASCII only
+    private String readLiteral() throws IOException {
+        readLiteralBytes();
+        return new String(mScratch, 0, mScratchLength, ResponseReader.UTF_8);
+    }
+
+    // Reads literal to scratch buffer
+    private void readLiteralBytes() throws IOException {
+        mScratchLength = 0;
+        while (fill()) {
+            int start = mPos;
+            while (mPos < mLimit && isLiteralByte(mBuffer[mPos])) { mPos++; }
+            appendScratch(start, mPos - start);
+            if (mPos < mLimit) { break; }
+        }
+    }
+
+    private void skipLiteral() throws IOException {
+        while (fill()) {
+            while (mPos < mLimit && isLiteralByte(mBuffer[mPos])) { mPos++; }
+            if (mPos < mLimit) { break; }
+        }
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException("Malformed JSON: " + message + " at byte "
+                + (mTotalBytes - mLimit + mPos));
+    }
+
+    public long getMaterializedBytes() { return mMaterializedBytes; }
+
+    public long getDeferredBytes() { return mDeferredBytes; }
+
+    /**
+     * @return Bytes read from the stream so far, including read-ahead buffer
+     */
+    public long getTotalBytes() { return mTotalBytes; }
+
+    /**
+     * Records statistics of this parse, once. Underlying stream is left open for its owner.
+     */
+    public void finish() {
+        if (!mFinished) {
+            mFinished = true;
+            ParserStats.record(mLabel, mTotalBytes, mMaterializedBytes, mDeferredBytes,
+                    mMaterializedFields, mSkippedFields);
+        }
+    }
+}
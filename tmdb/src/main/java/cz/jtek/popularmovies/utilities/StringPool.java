@@ -0,0 +1,187 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.utilities;
+
+import cz.jtek.popularmovies.network.ResponseReader;
+
+/**
+ * Bounded pool of canonical instances of short, frequently repeated ASCII strings, like
+ * video site and type, language codes or poster base URL.
+ * Pool is a direct-mapped table, colliding entry replaces the previous one, so memory
+ * used by the pool is bounded while common values stay pooled.
+ * Strings can be looked up by their encoded bytes, so decoders get canonical instance
+ * without allocating a new String first.
+ */
+public final class StringPool {
+
+    // Longer values are unlikely to repeat
+    static final int MAX_POOLED_LENGTH = 64;
+
+    // Rough retained size of String instance with its character array, excluding characters
+    private static final int STRING_OVERHEAD_BYTES = 32;
+
+    private static final StringPool sShared = new StringPool(512);
+
+    private static final class Entry {
+        final byte[] mEncoded;
+        final String mValue;
+
+        Entry(byte[] encoded, String value) {
+            mEncoded = encoded;
+            mValue = value;
+        }
+    }
+
+    private final Entry[] mTable;
+    private final int mMask;
+
+    private long mHitCount;
+    private long mMissCount;
+    private long mSavedBytes;
+
+    /**
+     * @param capacity Number of pool slots, rounded up to power of two
+     */
+    public StringPool(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        mTable = new Entry[size];
+        mMask = size - 1;
+    }
+
+    /**
+     * @return Pool shared by JSON decoders and database cursor mapping
+     */
+    public static StringPool getShared() { return sShared; }
+
+    /**
+     * Returns canonical instance of ASCII string given by its bytes
+     *
+     * @param buffer    Buffer with encoded string
+     * @param offset    String offset
+     * @param length    String length in bytes
+     * @return Canonical string, or a new string if it cannot be pooled
+     */
+    public String intern(byte[] buffer, int offset, int length) {
+        if (length > MAX_POOLED_LENGTH) {
+            return new String(buffer, offset, length, ResponseReader.UTF_8);
+        }
+
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            byte b = buffer[i];
+            if (b < 0) {
+                // Only ASCII strings are pooled, byte and char hashes must be equal
+                return new String(buffer, offset, length, ResponseReader.UTF_8);
+            }
+            hash = 31 * hash + b;
+        }
+
+        synchronized (this) {
+            int slot = spread(hash) & mMask;
+            Entry entry = mTable[slot];
+            if (entry != null && equals(entry.mEncoded, buffer, offset, length)) {
+                recordHit(length);
+                return entry.mValue;
+            }
+
+            byte[] encoded = new byte[length];
+            System.arraycopy(buffer, offset, encoded, 0, length);
+            String value = new String(encoded, ResponseReader.UTF_8);
+            mTable[slot] = new Entry(encoded, value);
+            mMissCount++;
+            return value;
+        }
+    }
+
+    /**
+     * Returns canonical instance of string equal to given one
+     *
+     * @param value String to canonicalize, may be null
+     * @return Canonical string, or the given one if it cannot be pooled
+     */
+    public String intern(String value) {
+        if (value == null || value.length() > MAX_POOLED_LENGTH) {
+            return value;
+        }
+
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) >= 0x80) {
+                return value;
+            }
+        }
+
+        synchronized (this) {
+            // String.hashCode() of ASCII string equals hash of its bytes
+            int slot = spread(value.hashCode()) & mMask;
+            Entry entry = mTable[slot];
+            if (entry != null && entry.mValue.equals(value)) {
+                if (entry.mValue != value) {
+                    recordHit(length);
+                }
+                return entry.mValue;
+            }
+
+            byte[] encoded = new byte[length];
+            for (int i = 0; i < length; i++) {
+                encoded[i] = (byte) value.charAt(i);
+            }
+            mTable[slot] = new Entry(encoded, value);
+            mMissCount++;
+            return value;
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean equals(byte[] encoded, byte[] buffer, int offset, int length) {
+        if (encoded.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (encoded[i] != buffer[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void recordHit(int length) {
+        mHitCount++;
+        // Duplicate String instance with UTF-16 characters was not retained
+        mSavedBytes += STRING_OVERHEAD_BYTES + 2 * length;
+    }
+
+    public synchronized long getHitCount() { return mHitCount; }
+    public synchronized long getMissCount() { return mMissCount; }
+
+    /**
+     * @return Estimated bytes of duplicate strings which did not have to be retained
+     */
+    public synchronized long getSavedBytes() { return mSavedBytes; }
+
+    /**
+     * Resets statistics, pooled strings are kept
+     */
+    public synchronized void resetStats() {
+        mHitCount = 0;
+        mMissCount = 0;
+        mSavedBytes = 0;
+    }
+}
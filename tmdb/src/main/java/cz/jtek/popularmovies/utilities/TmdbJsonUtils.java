@@ -0,0 +1,444 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.utilities;
+
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import cz.jtek.popularmovies.TmdbData;
+
+/**
+ * TMDb API JSON parsing utilities
+ */
+public class TmdbJsonUtils {
+
+    @SuppressWarnings("unused")
+    private static final String TAG = TmdbJsonUtils.class.getSimpleName();
+
+    /**
+     * JSON result wrapper
+     * Allows returning either result or exception
+     *
+     * @param <T> Result type
+     */
+    public static class TmdbJsonResult<T> {
+        private final T result;
+        private final Exception exception;
+
+        TmdbJsonResult(T result, Exception exception) {
+            this.result = result;
+            this.exception = exception;
+        }
+
+        public T getResult() { return result; }
+
+        public Exception getException() { return exception; }
+
+        // Checks whether instance contains an exception
+        //public boolean hasException() { return exception != null; }
+    }
+
+    /**
+     * Parses TMDb API /configuration reply
+     *
+     * @param tmdbConfigJsonString  API JSON response string
+     */
+    public static  TmdbJsonResult<TmdbData.Config> getConfigFromJson(String tmdbConfigJsonString) {
+
+        TmdbData.Config config;
+
+        try {
+            JSONObject configJson = new JSONObject(tmdbConfigJsonString);
+
+            // Check whether TMDb API reports an error
+            if (TmdbData.Status.isPresent(configJson)) {
+                TmdbData.Status status = TmdbData.Status.fromJson(configJson);
+
+                TmdbLog.e(TAG, "TMDb status: " + status.getCode() + " (" + status.getMessage() + ")");
+                return new TmdbJsonResult<>(null,
+                        new TmdbData.TmdbStatusException(status.getCode(), status.getMessage()));
+            }
+
+            config = TmdbData.Config.fromJson(configJson);
+
+        } catch (JSONException ex) {
+            TmdbLog.e(TAG, "JSONException parsing API configuration reply");
+            return new TmdbJsonResult<>(null, ex);
+        }
+
+        return new TmdbJsonResult<>(config, null);
+    }
+
+    /**
+     * Parses TMDb API /movie reply
+     *
+     * @param tmdbMovieJsonString   API JSON response string
+     *
+     * @return TmdbJsonResult object with either list of Tmdb.Movie objects or exception
+     */
+    public static TmdbJsonResult<ArrayList<TmdbData.Movie>> getMovieListFromJson(String tmdbMovieJsonString) {
+
+        ArrayList<TmdbData.Movie> moviesList = new ArrayList<>();
+
+        try {
+            JSONObject movieJson = new JSONObject(tmdbMovieJsonString);
+
+            // Check whether TMDb API reports an error
+            if (TmdbData.Status.isPresent(movieJson)) {
+                TmdbData.Status status = TmdbData.Status.fromJson(movieJson);
+
+                TmdbLog.e(TAG, "TMDb status: " + status.getCode() + " (" + status.getMessage() + ")");
+                return new TmdbJsonResult<>(null,
+                        new TmdbData.TmdbStatusException(status.getCode(), status.getMessage()));
+            }
+
+            // Parsing returned data
+            if (movieJson.has(TmdbData.Movie.RESULTS)) {
+                JSONArray results = movieJson.getJSONArray(TmdbData.Movie.RESULTS);
+                moviesList = TmdbData.Movie.fromJson(results);
+            }
+
+        } catch (JSONException ex) {
+            TmdbLog.e(TAG, "JSONException parsing movies.");
+            return new TmdbJsonResult<>(null, ex);
+        }
+
+        return new TmdbJsonResult<>(moviesList, null);
+    }
+
+    /**
+     * Parses TMDb API /movie/{movie_id}/videos reply
+     *
+     * @param tmdbJson              API JSON response string
+     * @param filterType            Return only videos of this type
+     *
+     * @return TmdbJsonResult object with either list of Tmdb.Video objects or exception
+     */
+    public static TmdbJsonResult<ArrayList<TmdbData.Video>> getVideoListFromJson(String tmdbJson, String filterType) {
+
+        ArrayList<TmdbData.Video> videoList = new ArrayList<>();
+
+        try {
+            JSONObject videoJson = new JSONObject(tmdbJson);
+
+            // Check whether TMDb API reports an error
+            if (TmdbData.Status.isPresent(videoJson)) {
+                TmdbData.Status status = TmdbData.Status.fromJson(videoJson);
+
+                TmdbLog.e(TAG, "TMDb status: " + status.getCode() + " (" + status.getMessage() + ")");
+                return new TmdbJsonResult<>(null,
+                        new TmdbData.TmdbStatusException(status.getCode(), status.getMessage()));
+            }
+
+            // Parsing returned data
+            if (videoJson.has(TmdbData.Video.RESULTS)) {
+                JSONArray results = videoJson.getJSONArray(TmdbData.Video.RESULTS);
+                videoList = TmdbData.Video.fromJson(results, filterType);
+            }
+
+        } catch (JSONException ex) {
+            TmdbLog.e(TAG, "JSONException parsing movie videos.");
+            return new TmdbJsonResult<>(null, ex);
+        }
+
+        return new TmdbJsonResult<>(videoList, null);
+    }
+
+    /**
+     * Parses TMDb API /movie/{movie_id}/reviews reply
+     *
+     * @param tmdbJson              API JSON response string
+     *
+     * @return TmdbJsonResult object with either list of Tmdb.Review objects or exception
+     */
+    public static TmdbJsonResult<ArrayList<TmdbData.Review>> getReviewListFromJson(String tmdbJson) {
+
+        ArrayList<TmdbData.Review> reviewList = new ArrayList<>();
+
+        try {
+            JSONObject reviewJson = new JSONObject(tmdbJson);
+
+            // Check whether TMDb API reports an error
+            if (TmdbData.Status.isPresent(reviewJson)) {
+                TmdbData.Status status = TmdbData.Status.fromJson(reviewJson);
+
+                TmdbLog.e(TAG, "TMDb status: " + status.getCode() + " (" + status.getMessage() + ")");
+                return new TmdbJsonResult<>(null,
+                        new TmdbData.TmdbStatusException(status.getCode(), status.getMessage()));
+            }
+
+            // Parsing returned data
+            if (reviewJson.has(TmdbData.Review.RESULTS)) {
+                JSONArray results = reviewJson.getJSONArray(TmdbData.Review.RESULTS);
+                reviewList = TmdbData.Review.fromJson(results);
+            }
+
+        } catch (JSONException ex) {
+            TmdbLog.e(TAG, "JSONException parsing configuration.");
+            return new TmdbJsonResult<>(null, ex);
+        }
+
+        return new TmdbJsonResult<>(reviewList, null);
+    }
+
+    /**
+     * Parses TMDb API /movie/{movie_id}?append_to_response=videos,reviews reply
+     *
+     * @param tmdbJson              API JSON response string
+     *
+     * @return TmdbJsonResult object with either Tmdb.MovieDetail object or exception
+     */
+    public static TmdbJsonResult<TmdbData.MovieDetail> getMovieDetailFromJson(String tmdbJson) {
+
+        TmdbData.MovieDetail movieDetail;
+
+        try {
+            JSONObject detailJson = new JSONObject(tmdbJson);
+
+            // Check whether TMDb API reports an error
+            if (TmdbData.Status.isPresent(detailJson)) {
+                TmdbData.Status status = TmdbData.Status.fromJson(detailJson);
+
+                TmdbLog.e(TAG, "TMDb status: " + status.getCode() + " (" + status.getMessage() + ")");
+                return new TmdbJsonResult<>(null,
+                        new TmdbData.TmdbStatusException(status.getCode(), status.getMessage()));
+            }
+
+            movieDetail = TmdbData.MovieDetail.fromJson(detailJson);
+
+        } catch (JSONException ex) {
+            TmdbLog.e(TAG, "JSONException parsing movie detail.");
+            return new TmdbJsonResult<>(null, ex);
+        }
+
+        return new TmdbJsonResult<>(movieDetail, null);
+    }
+
+
+    /**
+     * Streaming reader of top level TMDb reply object
+     * Subclasses consume the fields they are interested in, other fields are skipped
+     *
+     * @param <T> Result type
+     */
+    private static abstract class EnvelopeReader<T> {
+        /**
+         * Reads value of top level field
+         *
+         * @param name      Field name
+         * @param reader    JSON stream reader positioned at the field value
+         * @return true if the value was consumed, false if it should be skipped
+         * @throws IOException On stream reading or JSON syntax error
+         */
+        abstract boolean readField(String name, ProjectingJsonReader reader) throws IOException;
+
+        abstract T getResult();
+    }
+
+    /**
+     * Parses TMDb API reply directly from input stream, without building intermediate
+     * String or DOM, so parsing can proceed while the body is still being downloaded.
+     * Stream is not closed.
+     *
+     * @param in            API JSON response stream
+     * @param what          Reply description for log messages and parser statistics
+     * @param envelope      Reader of top level fields
+     *
+     * @return TmdbJsonResult object with either result or exception
+     */
+    private static <T> TmdbJsonResult<T> parseStream(InputStream in, String what,
+                                                     EnvelopeReader<T> envelope) {
+        // Presence of status code means failed request, the same as in DOM parser
+        boolean hasStatus = false;
+        int statusCode = 0;
+        String statusMessage = null;
+
+        ProjectingJsonReader reader = new ProjectingJsonReader(in, what);
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (name.equals(TmdbData.Status.CODE)) {
+                    hasStatus = true;
+                    statusCode = reader.nextInt();
+                } else if (name.equals(TmdbData.Status.MSG)) {
+                    statusMessage = reader.nextString();
+                } else if (!envelope.readField(name, reader)) {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+        } catch (IOException | IllegalStateException | NumberFormatException ex) {
+            // JsonReader reports syntax errors as IOException and type mismatches
+            // as IllegalStateException
+            TmdbLog.e(TAG, "Exception parsing " + what + ".");
+            return new TmdbJsonResult<>(null, ex);
+        } finally {
+            reader.finish();
+        }
+
+        // Check whether TMDb API reports an error
+        if (hasStatus) {
+            TmdbLog.e(TAG, "TMDb status: " + statusCode + " (" + statusMessage + ")");
+            return new TmdbJsonResult<>(null,
+                    new TmdbData.TmdbStatusException(statusCode, statusMessage));
+        }
+
+        return new TmdbJsonResult<>(envelope.getResult(), null);
+    }
+
+    /**
+     * Parses TMDb API /configuration reply from stream
+     *
+     * @param in    API JSON response stream
+     */
+    public static TmdbJsonResult<TmdbData.Config> getConfigFromStream(InputStream in) {
+        return parseStream(in, "API configuration reply", new EnvelopeReader<TmdbData.Config>() {
+            private TmdbData.Config mConfig;
+
+            @Override
+            boolean readField(String name, ProjectingJsonReader reader) throws IOException {
+                if (!name.equals(TmdbData.Config.IMAGES)) { return false; }
+                mConfig = TmdbData.Config.fromJson(reader);
+                return true;
+            }
+
+            @Override
+            TmdbData.Config getResult() {
+                // Missing "images" object is reported the same way as by DOM parser
+                return mConfig != null ? mConfig : new TmdbData.Config();
+            }
+        });
+    }
+
+    /**
+     * Parses TMDb API /movie reply from stream
+     *
+     * @param in    API JSON response stream
+     *
+     * @return TmdbJsonResult object with either list of Tmdb.Movie objects or exception
+     */
+    public static TmdbJsonResult<ArrayList<TmdbData.Movie>> getMovieListFromStream(InputStream in) {
+        return parseStream(in, "movies", new EnvelopeReader<ArrayList<TmdbData.Movie>>() {
+            private ArrayList<TmdbData.Movie> mMovies = new ArrayList<>();
+
+            @Override
+            boolean readField(String name, ProjectingJsonReader reader) throws IOException {
+                if (!name.equals(TmdbData.Movie.RESULTS)) { return false; }
+                mMovies = TmdbData.Movie.fromJson(reader);
+                return true;
+            }
+
+            @Override
+            ArrayList<TmdbData.Movie> getResult() { return mMovies; }
+        });
+    }
+
+    /**
+     * Parses TMDb API /movie/{movie_id}/videos reply from stream
+     *
+     * @param in            API JSON response stream
+     * @param filterType    Return only videos of this type
+     *
+     * @return TmdbJsonResult object with either list of Tmdb.Video objects or exception
+     */
+    public static TmdbJsonResult<ArrayList<TmdbData.Video>> getVideoListFromStream(
+            InputStream in, String filterType) {
+        return getVideoListFromStream(in,
+                filterType != null ? TmdbData.Video.typeFilter(filterType) : null);
+    }
+
+    /**
+     * Parses TMDb API /movie/{movie_id}/videos reply from stream.
+     * Videos of other types are abandoned by the decoder as soon as their type is read.
+     *
+     * @param in            API JSON response stream
+     * @param filterTypes   Return only videos of any of these types, null for all videos
+     *
+     * @return TmdbJsonResult object with either list of Tmdb.Video objects or exception
+     */
+    public static TmdbJsonResult<ArrayList<TmdbData.Video>> getVideoListFromStream(
+            InputStream in, final Set<String> filterTypes) {
+        return parseStream(in, "movie videos", new EnvelopeReader<ArrayList<TmdbData.Video>>() {
+            private ArrayList<TmdbData.Video> mVideos = new ArrayList<>();
+
+            @Override
+            boolean readField(String name, ProjectingJsonReader reader) throws IOException {
+                if (!name.equals(TmdbData.Video.RESULTS)) { return false; }
+                mVideos = TmdbData.Video.fromJson(reader, filterTypes);
+                return true;
+            }
+
+            @Override
+            ArrayList<TmdbData.Video> getResult() { return mVideos; }
+        });
+    }
+
+    /**
+     * Parses TMDb API /movie/{movie_id}/reviews reply from stream
+     *
+     * @param in    API JSON response stream
+     *
+     * @return TmdbJsonResult object with either list of Tmdb.Review objects or exception
+     */
+    public static TmdbJsonResult<ArrayList<TmdbData.Review>> getReviewListFromStream(InputStream in) {
+        return parseStream(in, "movie reviews", new EnvelopeReader<ArrayList<TmdbData.Review>>() {
+            private ArrayList<TmdbData.Review> mReviews = new ArrayList<>();
+
+            @Override
+            boolean readField(String name, ProjectingJsonReader reader) throws IOException {
+                if (!name.equals(TmdbData.Review.RESULTS)) { return false; }
+                mReviews = TmdbData.Review.fromJson(reader);
+                return true;
+            }
+
+            @Override
+            ArrayList<TmdbData.Review> getResult() { return mReviews; }
+        });
+    }
+
+    /**
+     * Parses TMDb API /movie/{movie_id}?append_to_response=videos,reviews reply from stream
+     *
+     * @param in    API JSON response stream
+     *
+     * @return TmdbJsonResult object with either Tmdb.MovieDetail object or exception
+     */
+    public static TmdbJsonResult<TmdbData.MovieDetail> getMovieDetailFromStream(InputStream in) {
+        return parseStream(in, "movie detail", new EnvelopeReader<TmdbData.MovieDetail>() {
+            private final TmdbData.MovieDetail mDetail = new TmdbData.MovieDetail();
+
+            @Override
+            boolean readField(String name, ProjectingJsonReader reader) throws IOException {
+                return mDetail.readAppended(name, reader);
+            }
+
+            @Override
+            TmdbData.MovieDetail getResult() { return mDetail; }
+        });
+    }
+
+}
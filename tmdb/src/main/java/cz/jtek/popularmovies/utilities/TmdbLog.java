@@ -0,0 +1,77 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.utilities;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Logging of TMDb client library.
+ * Messages go to java.util.logging unless different sink is set, Android app routes them
+ * to logcat. Priorities have the same values as android.util.Log priorities.
+ */
+public final class TmdbLog {
+
+    public static final int DEBUG = 3;
+    public static final int INFO = 4;
+    public static final int WARN = 5;
+    public static final int ERROR = 6;
+
+    /**
+     * Receives logged messages
+     */
+    public interface Sink {
+        void log(int priority, String tag, String msg);
+    }
+
+    private static final Sink JAVA_LOGGING_SINK = new Sink() {
+        @Override
+        public void log(int priority, String tag, String msg) {
+            Level level;
+            switch (priority) {
+                case ERROR:
+                    level = Level.SEVERE;
+                    break;
+                case WARN:
+                    level = Level.WARNING;
+                    break;
+                case INFO:
+                    level = Level.INFO;
+                    break;
+                default:
+                    level = Level.FINE;
+            }
+            Logger.getLogger(tag).log(level, msg);
+        }
+    };
+
+    private static volatile Sink sSink = JAVA_LOGGING_SINK;
+
+    private TmdbLog() {}
+
+    /**
+     * Sets message sink
+     *
+     * @param sink Message sink, null restores java.util.logging sink
+     */
+    public static void setSink(Sink sink) { sSink = (sink != null) ? sink : JAVA_LOGGING_SINK; }
+
+    public static void d(String tag, String msg) { sSink.log(DEBUG, tag, msg); }
+    public static void i(String tag, String msg) { sSink.log(INFO, tag, msg); }
+    public static void w(String tag, String msg) { sSink.log(WARN, tag, msg); }
+    public static void e(String tag, String msg) { sSink.log(ERROR, tag, msg); }
+}
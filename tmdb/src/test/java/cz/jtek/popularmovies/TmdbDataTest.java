@@ -0,0 +1,220 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import cz.jtek.popularmovies.network.ResponseReader;
+import cz.jtek.popularmovies.utilities.ParserStats;
+import cz.jtek.popularmovies.utilities.ProjectingJsonReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TmdbDataTest {
+
+    private static final String LABEL = "test videos";
+
+    // TMDb sends "type" as the last field, unprojected "iso_639_1" is skipped always
+    private static final String VIDEOS = "["
+            + video("1", "Official Trailer", "Trailer") + ","
+            + video("2", "First Look", "Teaser") + ","
+            + video("3", "Opening Scene", "Clip") + ","
+            + "{\"id\":\"4\",\"key\":\"k4\",\"name\":\"No Type\",\"site\":\"YouTube\"},"
+            + video("5", "Final Trailer", "Trailer")
+            + "]";
+
+    private static String video(String id, String name, String type) {
+        return "{\"id\":\"" + id + "\",\"iso_639_1\":\"en\",\"key\":\"k" + id + "\",\"name\":\""
+                + name + "\",\"site\":\"YouTube\",\"type\":\"" + type + "\"}";
+    }
+
+    // Field counters of the last parse, recorded by ProjectingJsonReader.finish()
+    private int mMaterializedFields;
+    private int mSkippedFields;
+
+    private List<TmdbData.Video> readVideos(Set<String> filter) throws IOException {
+        ParserStats.setListener(new ParserStats.Listener() {
+            @Override
+            public void onParsed(String label, long totalBytes, long materializedBytes,
+                                 long deferredBytes, int materializedFields, int skippedFields) {
+                if (LABEL.equals(label)) {
+                    mMaterializedFields = materializedFields;
+                    mSkippedFields = skippedFields;
+                }
+            }
+        });
+
+        ProjectingJsonReader reader = new ProjectingJsonReader(
+                new ByteArrayInputStream(VIDEOS.getBytes(ResponseReader.UTF_8)), LABEL);
+        try {
+            return TmdbData.Video.fromJson(reader, filter);
+        } finally {
+            reader.finish();
+        }
+    }
+
+    private static ProjectingJsonReader reader(String json) {
+        return new ProjectingJsonReader(
+                new ByteArrayInputStream(json.getBytes(ResponseReader.UTF_8)), "test");
+    }
+
+    private static List<String> ids(List<TmdbData.Video> videos) {
+        List<String> ids = new ArrayList<>(videos.size());
+        for (TmdbData.Video video : videos) {
+            ids.add(video.getId());
+        }
+        return ids;
+    }
+
+    @After
+    public void tearDown() {
+        ParserStats.setListener(null);
+    }
+
+    @Test
+    public void filterKeepsOnlyMatchingVideos() throws IOException {
+        List<TmdbData.Video> videos = readVideos(TmdbData.Video.typeFilter("Trailer"));
+
+        assertEquals(2, videos.size());
+        TmdbData.Video last = videos.get(1);
+        assertEquals("5", last.getId());
+        assertEquals("k5", last.getKey());
+        assertEquals("Final Trailer", last.getName());
+        assertEquals("YouTube", last.getSite());
+        assertEquals("Trailer", last.getType());
+    }
+
+    @Test
+    public void rejectedVideosAreNotDecoded() throws IOException {
+        readVideos(TmdbData.Video.typeFilter("Trailer"));
+
+        // Accepted videos decode 5 fields, rejected ones only their type
+        assertEquals(2 * 5 + 2, mMaterializedFields);
+        // Unprojected field of 4 typed videos, 4 deferred fields of each rejected video
+        assertEquals(4 + 3 * 4, mSkippedFields);
+    }
+
+    @Test
+    public void multiTypeFilterKeepsAllItsTypes() throws IOException {
+        List<TmdbData.Video> videos = readVideos(TmdbData.Video.typeFilter("Trailer", "Teaser"));
+
+        assertEquals("[1, 2, 5]", ids(videos).toString());
+        assertEquals("Teaser", videos.get(1).getType());
+        assertEquals(3 * 5 + 1, mMaterializedFields);
+        assertEquals(4 + 2 * 4, mSkippedFields);
+    }
+
+    @Test
+    public void nullFilterKeepsAllVideos() throws IOException {
+        List<TmdbData.Video> videos = readVideos(null);
+
+        assertEquals("[1, 2, 3, 4, 5]", ids(videos).toString());
+        assertEquals(4 * 5 + 4, mMaterializedFields);
+        assertEquals(4, mSkippedFields);
+    }
+
+    // Stream decoder and DOM decoder generated for each model produce equal models,
+    // including escapes, non-ASCII text, nulls and unprojected fields
+
+    @Test
+    public void configDecodersAgree() throws IOException, JSONException {
+        String json = "{\"base_url\":\"http:\\/\\/image.tmdb.org\\/t\\/p\\/\","
+                + "\"secure_base_url\":\"https:\\/\\/image.tmdb.org\\/t\\/p\\/\","
+                + "\"poster_sizes\":[\"w92\",\"w185\"]}";
+
+        TmdbData.Config stream = TmdbData_ConfigCodec.readObject(reader(json));
+        TmdbData.Config dom = TmdbData_ConfigCodec.fromJson(new JSONObject(json));
+
+        assertEquals("https://image.tmdb.org/t/p/", stream.getSecureBaseUrl());
+        assertEquals(dom.getSecureBaseUrl(), stream.getSecureBaseUrl());
+    }
+
+    @Test
+    public void movieDecodersAgree() throws IOException, JSONException {
+        String[] jsons = {
+                "{\"id\":278,\"adult\":false,\"vote_average\":8.7,"
+                        + "\"title\":\"The \\\"Shawshank\\\" Redemption\",\"genre_ids\":[18,80],"
+                        + "\"poster_path\":\"\\/9O7gLzmreU0nGkIB6K3BsJbzvNv.jpg\","
+                        + "\"overview\":\"Framed in the 1940s \\u2014 Andy\\nDufresne \u00e9\","
+                        + "\"backdrop_path\":null,\"release_date\":\"1994-09-23\"}",
+                "{\"id\":1,\"title\":null,\"poster_path\":null,\"overview\":null,"
+                        + "\"vote_average\":0}"
+        };
+
+        for (String json : jsons) {
+            TmdbData.Movie stream = TmdbData_MovieCodec.readObject(reader(json));
+            TmdbData.Movie dom = TmdbData_MovieCodec.fromJson(new JSONObject(json));
+
+            assertEquals(dom.getId(), stream.getId());
+            assertEquals(dom.getVoteAverage(), stream.getVoteAverage(), 0);
+            assertEquals(dom.getTitle(), stream.getTitle());
+            assertEquals(dom.getPosterBaseUrl(), stream.getPosterBaseUrl());
+            assertEquals(dom.getPosterFile(), stream.getPosterFile());
+            assertEquals(dom.getOverview(), stream.getOverview());
+            assertEquals(dom.getReleaseDate(), stream.getReleaseDate());
+        }
+
+        TmdbData.Movie movie = TmdbData_MovieCodec.readObject(reader(jsons[0]));
+        assertEquals("The \"Shawshank\" Redemption", movie.getTitle());
+        assertEquals("Framed in the 1940s \u2014 Andy\nDufresne \u00e9", movie.getOverview());
+        TmdbData.Movie empty = TmdbData_MovieCodec.readObject(reader(jsons[1]));
+        assertNull(empty.getTitle());
+        assertNull(empty.getLazyOverview());
+    }
+
+    @Test
+    public void videoDecodersAgree() throws IOException, JSONException {
+        String json = video("5af9", "Trailer \\u0031 \u00e9", "Trailer");
+
+        TmdbData.Video stream = TmdbData_VideoCodec.readObject(reader(json), null);
+        TmdbData.Video dom = TmdbData_VideoCodec.fromJson(new JSONObject(json));
+
+        assertEquals("Trailer 1 \u00e9", stream.getName());
+        assertEquals(dom.getId(), stream.getId());
+        assertEquals(dom.getName(), stream.getName());
+        assertEquals(dom.getKey(), stream.getKey());
+        assertEquals(dom.getSite(), stream.getSite());
+        assertEquals(dom.getType(), stream.getType());
+    }
+
+    @Test
+    public void reviewDecodersAgree() throws IOException, JSONException {
+        String json = "{\"author\":\"Ren\u00e9\",\"id\":\"5723a329\","
+                + "\"content\":\"Two \\\"great\\\" hours,\\r\\n\\ttruly \\ud83c\\udfac\","
+                + "\"url\":\"https:\\/\\/www.themoviedb.org\\/review\\/5723a329\","
+                + "\"author_details\":{\"rating\":null}}";
+
+        TmdbData.Review stream = TmdbData_ReviewCodec.readObject(reader(json));
+        TmdbData.Review dom = TmdbData_ReviewCodec.fromJson(new JSONObject(json));
+
+        assertEquals("Two \"great\" hours,\r\n\ttruly \ud83c\udfac", stream.getContent());
+        assertEquals(dom.getId(), stream.getId());
+        assertEquals(dom.getAuthor(), stream.getAuthor());
+        assertEquals(dom.getContent(), stream.getContent());
+        assertEquals(dom.getUrl(), stream.getUrl());
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.network;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HedgedCallTest {
+
+    private static final long TIMEOUT_SECONDS = 5;
+    private static final long HEDGE_DELAY_MS = 50;
+    // Slow attempt answers well after the hedged one
+    private static final long SLOW_MS = 300;
+
+    private static final Request REQUEST = new Request.Builder()
+            .url("https://api.themoviedb.org/3/movie/popular?page=1")
+            .build();
+
+    /**
+     * Scripted answer of one attempt
+     */
+    private interface Attempt {
+        Response answer(Interceptor.Chain chain) throws IOException;
+    }
+
+    /**
+     * Answers n-th call by n-th attempt, primary call is the first one
+     */
+    private static OkHttpClient client(final Attempt... attempts) {
+        final AtomicInteger calls = new AtomicInteger();
+        return new OkHttpClient.Builder()
+                .addInterceptor(new Interceptor() {
+                    @Override
+                    public Response intercept(Chain chain) throws IOException {
+                        return attempts[calls.getAndIncrement()].answer(chain);
+                    }
+                })
+                .build();
+    }
+
+    private static Attempt answer(final long delayMs, final int code, final String body,
+                                  final CountDownLatch closed) {
+        return new Attempt() {
+            @Override
+            public Response answer(Interceptor.Chain chain) throws IOException {
+                sleep(delayMs);
+                return response(chain, code, body, closed);
+            }
+        };
+    }
+
+    private static Attempt failure(final long delayMs, final String message) {
+        return new Attempt() {
+            @Override
+            public Response answer(Interceptor.Chain chain) throws IOException {
+                sleep(delayMs);
+                throw new IOException(message);
+            }
+        };
+    }
+
+    /**
+     * Attempt which never answers, it fails once its call is cancelled
+     */
+    private static Attempt hanging(final CountDownLatch cancelled) {
+        return new Attempt() {
+            @Override
+            public Response answer(Interceptor.Chain chain) throws IOException {
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+                while (!chain.call().isCanceled()) {
+                    if (System.nanoTime() > deadline) {
+                        throw new IOException("Call was not cancelled");
+                    }
+                    sleep(1);
+                }
+                cancelled.countDown();
+                throw new IOException("Canceled");
+            }
+        };
+    }
+
+    private static Response response(Interceptor.Chain chain, int code, String body,
+                                     final CountDownLatch closed) {
+        Buffer buffer = new Buffer().writeUtf8(body);
+        final BufferedSource source = Okio.buffer(new ForwardingSource(buffer) {
+            @Override
+            public void close() throws IOException {
+                closed.countDown();
+                super.close();
+            }
+        });
+        final long length = buffer.size();
+
+        return new Response.Builder()
+                .request(chain.request())
+                .protocol(Protocol.HTTP_1_1)
+                .code(code)
+                .message("Test")
+                .body(new ResponseBody() {
+                    @Override
+                    public MediaType contentType() { return MockTmdbTransport.MEDIA_TYPE_JSON; }
+
+                    @Override
+                    public long contentLength() { return length; }
+
+                    @Override
+                    public BufferedSource source() { return source; }
+                })
+                .build();
+    }
+
+    private static void sleep(long delayMs) throws InterruptedIOException {
+        try {
+            Thread.sleep(delayMs);
+        } catch (InterruptedException ie) {
+            throw new InterruptedIOException();
+        }
+    }
+
+    private static void assertClosed(CountDownLatch closed) throws InterruptedException {
+        assertTrue("Response was not closed", closed.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    private static class CountingListener implements HedgedCall.HedgeListener {
+        int mHedges;
+
+        @Override
+        public void onHedge() {
+            mHedges++;
+        }
+    }
+
+    @Test
+    public void fastPrimaryIsNotHedged() throws Exception {
+        CountDownLatch closed = new CountDownLatch(1);
+        CountingListener listener = new CountingListener();
+
+        Response response = new HedgedCall(client(answer(0, 200, "primary", closed)), REQUEST)
+                .execute(SLOW_MS, listener);
+        assertEquals("primary", response.body().string());
+        assertEquals(0, listener.mHedges);
+    }
+
+    @Test
+    public void slowPrimaryIsCancelledWhenHedgeWins() throws Exception {
+        CountDownLatch cancelled = new CountDownLatch(1);
+        CountingListener listener = new CountingListener();
+
+        Response response = new HedgedCall(client(
+                hanging(cancelled),
+                answer(0, 200, "hedge", new CountDownLatch(1))), REQUEST)
+                .execute(HEDGE_DELAY_MS, listener);
+
+        assertEquals("hedge", response.body().string());
+        assertEquals(1, listener.mHedges);
+        assertTrue("Primary call was not cancelled",
+                cancelled.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void serverErrorWaitsForOtherAttempt() throws Exception {
+        CountDownLatch errorClosed = new CountDownLatch(1);
+
+        // Hedge answers 503 first, slow primary succeeds afterwards
+        Response response = new HedgedCall(client(
+                answer(SLOW_MS, 200, "primary", new CountDownLatch(1)),
+                answer(0, 503, "hedge", errorClosed)), REQUEST)
+                .execute(HEDGE_DELAY_MS, null);
+
+        assertEquals(200, response.code());
+        assertEquals("primary", response.body().string());
+        assertClosed(errorClosed);
+    }
+
+    @Test
+    public void serverErrorIsReturnedWhenOtherAttemptFails() throws Exception {
+        Response response = new HedgedCall(client(
+                failure(SLOW_MS, "primary"),
+                answer(0, 503, "hedge", new CountDownLatch(1))), REQUEST)
+                .execute(HEDGE_DELAY_MS, null);
+
+        assertEquals(503, response.code());
+        assertEquals("hedge", response.body().string());
+    }
+
+    @Test
+    public void bothServerErrorsReturnOneAndCloseOther() throws Exception {
+        CountDownLatch primaryClosed = new CountDownLatch(1);
+        CountDownLatch hedgeClosed = new CountDownLatch(1);
+
+        Response response = new HedgedCall(client(
+                answer(SLOW_MS, 502, "primary", primaryClosed),
+                answer(0, 503, "hedge", hedgeClosed)), REQUEST)
+                .execute(HEDGE_DELAY_MS, null);
+
+        // The later error response is returned, the held one is closed
+        assertEquals(502, response.code());
+        assertClosed(hedgeClosed);
+        assertEquals(1, primaryClosed.getCount());
+        response.close();
+    }
+
+    @Test
+    public void lastExceptionIsThrownWhenBothFail() throws Exception {
+        try {
+            new HedgedCall(client(failure(SLOW_MS, "primary"), failure(0, "hedge")), REQUEST)
+                    .execute(HEDGE_DELAY_MS, null);
+            fail("Failure was not reported");
+        } catch (IOException expected) {
+            assertEquals("primary", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void losingResponseIsClosed() throws Exception {
+        CountDownLatch primaryClosed = new CountDownLatch(1);
+        CountDownLatch hedgeClosed = new CountDownLatch(1);
+
+        Response response = new HedgedCall(client(
+                answer(SLOW_MS, 200, "primary", primaryClosed),
+                answer(0, 200, "hedge", hedgeClosed)), REQUEST)
+                .execute(HEDGE_DELAY_MS, null);
+
+        assertEquals("hedge", response.body().string());
+        // Primary answers after the winner was taken
+        assertClosed(primaryClosed);
+    }
+
+    @Test
+    public void interruptedCallerCancelsCalls() throws Exception {
+        CountDownLatch cancelled = new CountDownLatch(1);
+
+        Thread.currentThread().interrupt();
+        try {
+            new HedgedCall(client(hanging(cancelled)), REQUEST).execute(HEDGE_DELAY_MS, null);
+            fail("Interrupted caller kept waiting");
+        } catch (InterruptedIOException expected) {
+            // Interrupt status is kept for the caller
+            assertTrue(Thread.interrupted());
+        }
+        assertTrue("Primary call was not cancelled",
+                cancelled.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+}
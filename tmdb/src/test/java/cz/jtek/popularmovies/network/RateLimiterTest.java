@@ -0,0 +1,184 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.network;
+
+import org.junit.Test;
+
+import java.io.InterruptedIOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RateLimiterTest {
+
+    // Refill is slow enough not to interfere with the test
+    private static final long REFILL_PERIOD_MS = 1000000;
+
+    @Test(expected = IllegalArgumentException.class)
+    public void capacityMustBePositive() {
+        new RateLimiter(0, REFILL_PERIOD_MS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void refillPeriodMustBePositive() {
+        new RateLimiter(40, 0);
+    }
+
+    @Test
+    public void burstIsServedImmediately() {
+        RateLimiter limiter = new RateLimiter(3, REFILL_PERIOD_MS);
+
+        assertEquals(0, limiter.reserve());
+        assertEquals(0, limiter.reserve());
+        assertEquals(0, limiter.reserve());
+        assertEquals(0, limiter.getDelayedCount());
+    }
+
+    @Test
+    public void waitingRequestsAreQueued() {
+        // One token per 1000 s
+        RateLimiter limiter = new RateLimiter(1, REFILL_PERIOD_MS);
+        limiter.reserve();
+
+        long second = limiter.reserve();
+        long third = limiter.reserve();
+        assertTrue(second > REFILL_PERIOD_MS - 1000 && second <= REFILL_PERIOD_MS);
+        // Tokens are reserved in advance, each waiter gets its own slot
+        assertTrue(third > second + REFILL_PERIOD_MS - 1000);
+        assertEquals(2, limiter.getDelayedCount());
+    }
+
+    @Test
+    public void reportedBudgetLimitsBucket() {
+        RateLimiter limiter = new RateLimiter(40, REFILL_PERIOD_MS);
+        limiter.onBudgetReported("1", null);
+
+        assertEquals(0, limiter.reserve());
+        assertTrue(limiter.reserve() > 0);
+    }
+
+    @Test
+    public void largerReportedBudgetIsIgnored() {
+        RateLimiter limiter = new RateLimiter(1, REFILL_PERIOD_MS);
+        limiter.reserve();
+        limiter.onBudgetReported("40", null);
+
+        assertTrue(limiter.reserve() > 0);
+    }
+
+    @Test
+    public void exhaustedBudgetBlocksUntilReset() {
+        RateLimiter limiter = new RateLimiter(40, 1000);
+        long resetAt = System.currentTimeMillis() / 1000 + 10;
+        limiter.onBudgetReported(" 0 ", " " + resetAt + " ");
+
+        // Refill alone would allow request in 25 ms, server asked to wait until reset
+        long waitMs = limiter.reserve();
+        assertTrue(String.valueOf(waitMs), waitMs > 8000 && waitMs <= 10000);
+    }
+
+    @Test
+    public void malformedBudgetHeadersAreIgnored() {
+        RateLimiter limiter = new RateLimiter(40, REFILL_PERIOD_MS);
+        limiter.onBudgetReported(null, "0");
+        limiter.onBudgetReported("many", null);
+        limiter.onBudgetReported("0", "soon");
+        limiter.onBudgetReported("", "");
+
+        // Only the valid "0" remaining value of the third report is applied
+        long waitMs = limiter.reserve();
+        assertTrue(waitMs > 0 && waitMs <= REFILL_PERIOD_MS / 40);
+    }
+
+    @Test
+    public void rateLimitedResponseHoldsRequestsBack() {
+        RateLimiter limiter = new RateLimiter(40, 1000);
+
+        assertEquals(2000, limiter.onRateLimited("2"));
+        long waitMs = limiter.reserve();
+        assertTrue(String.valueOf(waitMs), waitMs > 1900 && waitMs <= 2000 + 25);
+        assertEquals(1, limiter.getRateLimitedCount());
+        assertEquals(1, limiter.getDelayedCount());
+    }
+
+    @Test
+    public void requestsQueuedAfterRateLimitKeepRefillSpacing() {
+        // One token per 250 ms
+        RateLimiter limiter = new RateLimiter(40, 10000);
+        for (int i = 0; i < 40; i++) {
+            limiter.reserve();
+        }
+        limiter.onRateLimited("10");
+
+        long previous = limiter.reserve();
+        assertTrue(String.valueOf(previous), previous > 9900 && previous <= 10000 + 250);
+        for (int i = 0; i < 8; i++) {
+            long waitMs = limiter.reserve();
+            // Each request waits for its own token, they are not released together
+            long spacing = waitMs - previous;
+            assertTrue(String.valueOf(spacing), spacing > 200 && spacing <= 250);
+            previous = waitMs;
+        }
+    }
+
+    @Test
+    public void parsesRetryAfter() {
+        long now = 1500000000000L;
+
+        assertEquals(1000, RateLimiter.parseRetryAfter(null, now));
+        assertEquals(1000, RateLimiter.parseRetryAfter("  ", now));
+        assertEquals(1000, RateLimiter.parseRetryAfter("later", now));
+        assertEquals(5000, RateLimiter.parseRetryAfter(" 5 ", now));
+        assertEquals(0, RateLimiter.parseRetryAfter("-3", now));
+        // Server requests are capped to one minute
+        assertEquals(60000, RateLimiter.parseRetryAfter("3600", now));
+    }
+
+    @Test
+    public void parsesRetryAfterDate() {
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        long now = 1500000000000L;
+
+        assertEquals(30000, RateLimiter.parseRetryAfter(format.format(new Date(now + 30000)), now));
+        assertEquals(0, RateLimiter.parseRetryAfter(format.format(new Date(now - 30000)), now));
+    }
+
+    @Test
+    public void interruptedWaitIsReported() {
+        RateLimiter limiter = new RateLimiter(1, REFILL_PERIOD_MS);
+        limiter.reserve();
+
+        Thread.currentThread().interrupt();
+        try {
+            limiter.acquire();
+            fail("Interrupted acquire kept waiting");
+        } catch (InterruptedIOException expected) {
+            // Interrupt status is kept for the caller
+            assertTrue(Thread.interrupted());
+        }
+
+        // Token of the abandoned request is given back, next request waits for one refill only
+        long waitMs = limiter.reserve();
+        assertTrue(String.valueOf(waitMs), waitMs > 0 && waitMs <= REFILL_PERIOD_MS);
+    }
+}
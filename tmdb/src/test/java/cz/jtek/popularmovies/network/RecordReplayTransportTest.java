@@ -0,0 +1,164 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.network;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RecordReplayTransportTest {
+
+    private static final String POPULAR = "{\"page\":1,\"total_pages\":2,\"results\":["
+            + "{\"id\":278,\"title\":\"The Shawshank Redemption\"},"
+            + "{\"id\":238,\"title\":\"The Godfather\"}]}";
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    // Mock server without delays and errors serving one movie list
+    private static final MockTmdbTransport MOCK = new MockTmdbTransport(
+            new MockTmdbTransport.JsonSource() {
+                @Override
+                public InputStream open(String name) throws IOException {
+                    if (!name.equals(MockTmdbTransport.MOCK_POPULAR)) {
+                        throw new IOException("Mock reply not found: " + name);
+                    }
+                    return new ByteArrayInputStream(POPULAR.getBytes(ResponseReader.UTF_8));
+                }
+            }, NetworkProfile.IDEAL);
+
+    private static Response get(final Transport transport, String url) throws IOException {
+        // Transport answers the request, nothing is sent to network
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(new Interceptor() {
+                    @Override
+                    public Response intercept(Chain chain) throws IOException {
+                        return transport.execute(chain);
+                    }
+                })
+                .build();
+        return client.newCall(new Request.Builder().url(url).build()).execute();
+    }
+
+    private static String popularUrl(String apiKey, int page) {
+        return "https://api.themoviedb.org/3/movie/popular?api_key=" + apiKey + "&page=" + page;
+    }
+
+    private static JSONArray results(String body) throws Exception {
+        return new JSONObject(body).getJSONArray("results");
+    }
+
+    @Test
+    public void recordedResponsesAreReplayed() throws Exception {
+        File directory = mFolder.newFolder("recordings");
+        final AtomicInteger delegated = new AtomicInteger();
+        Transport counting = new Transport() {
+            @Override
+            public Response execute(Interceptor.Chain chain) throws IOException {
+                delegated.incrementAndGet();
+                return MOCK.execute(chain);
+            }
+        };
+
+        RecordReplayTransport recorder =
+                new RecordReplayTransport(directory, RecordReplayTransport.Mode.RECORD, counting);
+        String recorded1 = get(recorder, popularUrl("SECRET", 1)).body().string();
+        String recorded2 = get(recorder, popularUrl("SECRET", 2)).body().string();
+        assertEquals(2, delegated.get());
+
+        // Replay never calls delegate, recordings are found without the API key
+        Transport failing = new Transport() {
+            @Override
+            public Response execute(Interceptor.Chain chain) throws IOException {
+                throw new IOException("Replay went to network");
+            }
+        };
+        RecordReplayTransport player =
+                new RecordReplayTransport(directory, RecordReplayTransport.Mode.REPLAY, failing);
+        assertTrue(player.isReplaying());
+
+        Response replayed = get(player, popularUrl("OTHER", 1));
+        assertEquals(HttpURLConnection.HTTP_OK, replayed.code());
+        assertEquals(MockTmdbTransport.MEDIA_TYPE_JSON, replayed.body().contentType());
+        assertEquals(recorded1, replayed.body().string());
+        assertEquals(recorded2, get(player, popularUrl("OTHER", 2)).body().string());
+
+        // Pages of mock movie list have distinct movies
+        assertEquals(278, results(recorded1).getJSONObject(0).getInt("id"));
+        assertEquals(278 + MockTmdbTransport.PAGE_ID_OFFSET,
+                results(recorded2).getJSONObject(0).getInt("id"));
+    }
+
+    @Test
+    public void errorResponseIsReplayed() throws Exception {
+        File directory = mFolder.newFolder("recordings");
+        String url = "https://api.themoviedb.org/3/movie/unknown/list?api_key=SECRET";
+
+        Response recorded = get(new RecordReplayTransport(directory,
+                RecordReplayTransport.Mode.RECORD, MOCK), url);
+        assertEquals(HttpURLConnection.HTTP_NOT_FOUND, recorded.code());
+        String body = recorded.body().string();
+
+        Response replayed = get(new RecordReplayTransport(directory,
+                RecordReplayTransport.Mode.REPLAY, MOCK), url);
+        assertEquals(HttpURLConnection.HTTP_NOT_FOUND, replayed.code());
+        assertEquals(body, replayed.body().string());
+        assertNull(replayed.header("ETag"));
+    }
+
+    @Test
+    public void missingRecordingFails() throws Exception {
+        RecordReplayTransport player = new RecordReplayTransport(mFolder.newFolder("empty"),
+                RecordReplayTransport.Mode.REPLAY, MOCK);
+        try {
+            get(player, popularUrl("SECRET", 1));
+            fail("Request without recording was answered");
+        } catch (IOException expected) {
+            assertEquals("No recording for /3/movie/popular", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void pagesPastTheEndAreEmpty() throws Exception {
+        JSONObject last = new JSONObject(get(MOCK, popularUrl("SECRET", 2)).body().string());
+        JSONObject past = new JSONObject(get(MOCK, popularUrl("SECRET", 3)).body().string());
+
+        assertEquals(2, last.getInt("page"));
+        assertEquals(2, last.getJSONArray("results").length());
+        assertEquals(3, past.getInt("page"));
+        assertEquals(0, past.getJSONArray("results").length());
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.network;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RequestCoalescerTest {
+
+    private static final long TIMEOUT_SECONDS = 5;
+
+    // Coalescer is a singleton, every test uses its own keys
+    private final RequestCoalescer mCoalescer = RequestCoalescer.getInstance();
+    private final ExecutorService mCallers = Executors.newCachedThreadPool();
+
+    private Future<Object> call(final String key, final Callable<Object> request) {
+        return mCallers.submit(new Callable<Object>() {
+            @Override
+            public Object call() throws IOException {
+                return mCoalescer.execute(key, request);
+            }
+        });
+    }
+
+    // Waits until given number of callers joined running execution
+    private void awaitCoalesced(long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (mCoalescer.getCoalescedCount() < expected) {
+            if (System.nanoTime() > deadline) {
+                fail("Callers did not join the execution");
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    private static void assertFailed(Future<Object> caller, String message) throws Exception {
+        try {
+            caller.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            fail("Failure was not delivered");
+        } catch (ExecutionException ee) {
+            assertTrue(ee.getCause() instanceof IOException);
+            assertEquals(message, ee.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void concurrentCallsShareExecution() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger executions = new AtomicInteger();
+        final Object result = new Object();
+        Callable<Object> request = new Callable<Object>() {
+            @Override
+            public Object call() throws InterruptedException {
+                executions.incrementAndGet();
+                release.await();
+                return result;
+            }
+        };
+
+        long executed = mCoalescer.getExecutionCount();
+        long coalesced = mCoalescer.getCoalescedCount();
+        Future<Object> first = call("shared", request);
+        Future<Object> second = call("shared", request);
+        Future<Object> third = call("shared", request);
+        awaitCoalesced(coalesced + 2);
+        release.countDown();
+
+        assertSame(result, first.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertSame(result, second.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertSame(result, third.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(1, executions.get());
+        assertEquals(executed + 1, mCoalescer.getExecutionCount());
+    }
+
+    @Test
+    public void differentKeysExecuteSeparately() throws Exception {
+        long executed = mCoalescer.getExecutionCount();
+
+        assertEquals("a", mCoalescer.execute("separate-a", new Callable<String>() {
+            @Override
+            public String call() { return "a"; }
+        }));
+        assertEquals("b", mCoalescer.execute("separate-b", new Callable<String>() {
+            @Override
+            public String call() { return "b"; }
+        }));
+        assertEquals(executed + 2, mCoalescer.getExecutionCount());
+    }
+
+    @Test
+    public void failureIsDeliveredToAllCallers() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        Callable<Object> request = new Callable<Object>() {
+            @Override
+            public Object call() throws IOException, InterruptedException {
+                release.await();
+                throw new IOException("HTTP 503");
+            }
+        };
+
+        long coalesced = mCoalescer.getCoalescedCount();
+        Future<Object> first = call("failing", request);
+        Future<Object> second = call("failing", request);
+        awaitCoalesced(coalesced + 1);
+        release.countDown();
+
+        assertFailed(first, "HTTP 503");
+        assertFailed(second, "HTTP 503");
+    }
+
+    @Test
+    public void runtimeExceptionIsRethrown() throws IOException {
+        try {
+            mCoalescer.execute("runtime", new Callable<Object>() {
+                @Override
+                public Object call() {
+                    throw new IllegalStateException("Malformed JSON");
+                }
+            });
+            fail("Exception was not rethrown");
+        } catch (IllegalStateException expected) {
+            assertEquals("Malformed JSON", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void checkedExceptionIsWrapped() {
+        try {
+            mCoalescer.execute("checked", new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    throw new Exception("Not an IOException");
+                }
+            });
+            fail("Exception was not rethrown");
+        } catch (IOException expected) {
+            assertEquals("Not an IOException", expected.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void abandonedExecutionIsCancelled() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        final Callable<Object> request = new Callable<Object>() {
+            @Override
+            public Object call() {
+                started.countDown();
+                try {
+                    Thread.sleep(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS * 2));
+                } catch (InterruptedException ie) {
+                    interrupted.countDown();
+                }
+                return null;
+            }
+        };
+
+        Future<Object> caller = call("abandoned", request);
+        assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        caller.cancel(true);
+
+        // The only waiting caller is gone, so is the request
+        assertTrue(interrupted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        // Following call starts a new execution
+        long executed = mCoalescer.getExecutionCount();
+        assertEquals("again", mCoalescer.execute("abandoned", new Callable<String>() {
+            @Override
+            public String call() { return "again"; }
+        }));
+        assertEquals(executed + 1, mCoalescer.getExecutionCount());
+    }
+
+    @Test
+    public void interruptedCallerGetsInterruptedIOException() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        Thread.currentThread().interrupt();
+        try {
+            mCoalescer.execute("interrupted", new Callable<Object>() {
+                @Override
+                public Object call() throws InterruptedException {
+                    release.await();
+                    return null;
+                }
+            });
+            fail("Interrupted caller kept waiting");
+        } catch (InterruptedIOException expected) {
+            // Interrupt status is kept for the caller
+            assertTrue(Thread.interrupted());
+        } finally {
+            release.countDown();
+        }
+    }
+}
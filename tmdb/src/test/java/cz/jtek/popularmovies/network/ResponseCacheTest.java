@@ -0,0 +1,245 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.network;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URL;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ResponseCacheTest {
+
+    private static final String POPULAR = "api.themoviedb.org/3/movie/popular?page=1";
+    private static final String TOP_RATED = "api.themoviedb.org/3/movie/top_rated?page=1";
+    private static final String CONFIG = "api.themoviedb.org/3/configuration";
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private File mDirectory;
+    private ResponseCache mCache;
+
+    @Before
+    public void createCache() throws IOException {
+        mDirectory = mFolder.newFolder("responses");
+        mCache = new ResponseCache(mDirectory, ResponseCache.DEFAULT_MAX_SIZE_BYTES);
+    }
+
+    private static byte[] body(String json) {
+        return json.getBytes(ResponseReader.UTF_8);
+    }
+
+    @Test
+    public void keyStripsApiKey() throws IOException {
+        assertEquals(POPULAR, ResponseCache.keyFor(
+                new URL("https://api.themoviedb.org/3/movie/popular?api_key=SECRET&page=1")));
+        assertEquals(POPULAR, ResponseCache.keyFor(
+                new URL("https://api.themoviedb.org/3/movie/popular?page=1&api_key=SECRET")));
+        assertEquals(CONFIG, ResponseCache.keyFor(
+                new URL("https://api.themoviedb.org/3/configuration?api_key=SECRET")));
+        assertEquals(CONFIG, ResponseCache.keyFor(
+                new URL("https://api.themoviedb.org/3/configuration?api_key")));
+        // Only exact parameter name is stripped
+        assertEquals(CONFIG + "?api_key_id=1", ResponseCache.keyFor(
+                new URL("https://api.themoviedb.org/3/configuration?api_key_id=1")));
+    }
+
+    @Test
+    public void parsesMaxAge() {
+        assertEquals(0, ResponseCache.parseMaxAge(null));
+        assertEquals(0, ResponseCache.parseMaxAge(""));
+        assertEquals(3600, ResponseCache.parseMaxAge("public, max-age=3600"));
+        assertEquals(60, ResponseCache.parseMaxAge("MAX-AGE=60"));
+        assertEquals(0, ResponseCache.parseMaxAge("max-age=60, no-cache"));
+        assertEquals(-1, ResponseCache.parseMaxAge("max-age=60, no-store"));
+        assertEquals(0, ResponseCache.parseMaxAge("max-age=soon"));
+        assertEquals(0, ResponseCache.parseMaxAge("max-age="));
+    }
+
+    @Test
+    public void storedEntryIsReadBack() {
+        long before = System.currentTimeMillis();
+        mCache.put(POPULAR, "\"abc\"", null, 60, body("{\"page\":1}"));
+
+        ResponseCache.Entry entry = mCache.get(POPULAR);
+        assertNotNull(entry);
+        assertEquals("\"abc\"", entry.getETag());
+        assertNull(entry.getLastModified());
+        assertTrue(entry.hasValidator());
+        assertArrayEquals(body("{\"page\":1}"), entry.getBody());
+        assertTrue(entry.getStoredAt() >= before);
+        assertTrue(entry.isFresh(entry.getStoredAt()));
+        assertFalse(entry.isFresh(entry.getStoredAt() + 60 * 1000));
+        assertNull(mCache.get(TOP_RATED));
+    }
+
+    @Test
+    public void emptyValidatorsAreNull() {
+        mCache.put(POPULAR, null, null, 0, new byte[0]);
+
+        ResponseCache.Entry entry = mCache.get(POPULAR);
+        assertNull(entry.getETag());
+        assertNull(entry.getLastModified());
+        assertFalse(entry.hasValidator());
+        assertEquals(0, entry.getBody().length);
+    }
+
+    @Test
+    public void entriesSurviveRestart() {
+        mCache.put(POPULAR, null, "Wed, 21 Oct 2015 07:28:00 GMT", 60, body("[1]"));
+        long size = mCache.getSize();
+
+        ResponseCache reopened = new ResponseCache(mDirectory, ResponseCache.DEFAULT_MAX_SIZE_BYTES);
+        assertEquals(size, reopened.getSize());
+        assertEquals("Wed, 21 Oct 2015 07:28:00 GMT", reopened.get(POPULAR).getLastModified());
+    }
+
+    @Test
+    public void refreshKeepsBodyVersion() {
+        ResponseCache.Entry stored = mCache.put(POPULAR, "\"v1\"", null, 0, body("[1]"));
+        Object result = new Object();
+        mCache.putParsed(stored, "parser", result);
+
+        ResponseCache.Entry refreshed = mCache.refresh(stored, 60);
+        assertEquals(stored.getStoredAt(), refreshed.getStoredAt());
+        assertTrue(refreshed.isFresh(System.currentTimeMillis()));
+        assertSame(stored.getBody(), refreshed.getBody());
+        // Parsed result of the body is still valid after 304 Not Modified
+        assertSame(result, mCache.getParsed(refreshed, "parser"));
+        assertEquals(stored.getStoredAt(), mCache.get(POPULAR).getStoredAt());
+    }
+
+    @Test
+    public void parsedResultsAreKeptPerParser() {
+        ResponseCache.Entry entry = mCache.put(POPULAR, null, null, 60, body("[1]"));
+        Object list = new Object();
+        Object detail = new Object();
+        mCache.putParsed(entry, "list", list);
+        mCache.putParsed(entry, "detail", detail);
+
+        assertSame(list, mCache.getParsed(entry, "list"));
+        assertSame(detail, mCache.getParsed(entry, "detail"));
+        assertNull(mCache.getParsed(entry, "other"));
+        assertNull(mCache.getParsed(mCache.put(TOP_RATED, null, null, 60, body("[2]")), "list"));
+    }
+
+    @Test
+    public void newBodyDropsParsedResults() throws InterruptedException {
+        ResponseCache.Entry first = mCache.put(POPULAR, null, null, 60, body("[1]"));
+        mCache.putParsed(first, "list", new Object());
+        // Store time identifies body version
+        Thread.sleep(2);
+        ResponseCache.Entry second = mCache.put(POPULAR, null, null, 60, body("[2]"));
+
+        assertNull(mCache.getParsed(second, "list"));
+        assertNull(mCache.getParsed(first, "list"));
+
+        // Stale entry does not see result of the current body
+        mCache.putParsed(second, "list", new Object());
+        assertNull(mCache.getParsed(first, "list"));
+    }
+
+    @Test
+    public void truncatedEntryIsDropped() throws IOException {
+        mCache.put(POPULAR, "\"abc\"", null, 60, body("{\"results\":[1,2,3]}"));
+        File[] files = mDirectory.listFiles();
+        assertEquals(1, files.length);
+        RandomAccessFile file = new RandomAccessFile(files[0], "rw");
+        try {
+            file.setLength(file.length() - 5);
+        } finally {
+            file.close();
+        }
+
+        assertNull(mCache.get(POPULAR));
+        assertEquals(0, mDirectory.listFiles().length);
+        assertEquals(0, mCache.getSize());
+    }
+
+    @Test
+    public void garbageEntryIsDropped() throws IOException {
+        mCache.put(POPULAR, null, null, 60, body("[1]"));
+        File[] files = mDirectory.listFiles();
+        RandomAccessFile file = new RandomAccessFile(files[0], "rw");
+        try {
+            // Unknown entry format version
+            file.writeInt(-1);
+        } finally {
+            file.close();
+        }
+
+        assertNull(mCache.get(POPULAR));
+        assertEquals(0, mDirectory.listFiles().length);
+    }
+
+    @Test
+    public void leastRecentlyUsedEntriesAreEvicted() throws IOException {
+        // Keys of the same length, so that all entries have the same size
+        String page1 = "api.themoviedb.org/3/movie/popular?page=1";
+        String page2 = "api.themoviedb.org/3/movie/popular?page=2";
+        String page3 = "api.themoviedb.org/3/movie/popular?page=3";
+        mCache.put(page1, null, null, 60, new byte[1000]);
+        long entrySize = mCache.getSize();
+
+        // Room for two entries
+        ResponseCache cache = new ResponseCache(mFolder.newFolder("small"), entrySize * 5 / 2);
+        cache.put(page1, null, null, 60, new byte[1000]);
+        cache.put(page2, null, null, 60, new byte[1000]);
+        assertNotNull(cache.get(page1));
+        cache.put(page3, null, null, 60, new byte[1000]);
+
+        assertNotNull(cache.get(page1));
+        assertNull(cache.get(page2));
+        assertNotNull(cache.get(page3));
+        assertEquals(2 * entrySize, cache.getSize());
+    }
+
+    @Test
+    public void oversizedEntryIsNotKept() throws IOException {
+        ResponseCache cache = new ResponseCache(mFolder.newFolder("tiny"), 100);
+        cache.put(POPULAR, null, null, 60, new byte[1000]);
+
+        assertNull(cache.get(POPULAR));
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void clearRemovesEverything() {
+        ResponseCache.Entry entry = mCache.put(POPULAR, null, null, 60, body("[1]"));
+        mCache.putParsed(entry, "list", new Object());
+        mCache.put(TOP_RATED, null, null, 60, body("[2]"));
+
+        mCache.clear();
+        assertEquals(0, mCache.getSize());
+        assertEquals(0, mDirectory.listFiles().length);
+        assertNull(mCache.get(POPULAR));
+        assertNull(mCache.getParsed(entry, "list"));
+    }
+}
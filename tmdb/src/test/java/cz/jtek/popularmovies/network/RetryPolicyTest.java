@@ -0,0 +1,106 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.network;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RetryPolicyTest {
+
+    private static final int SAMPLES = 1000;
+
+    @Test(expected = IllegalArgumentException.class)
+    public void attemptIsRequired() {
+        new RetryPolicy(0, 500, 4000, false);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void maxDelayCannotBeBelowBase() {
+        new RetryPolicy(3, 500, 400, false);
+    }
+
+    @Test
+    public void backoffStaysWithinJitterBounds() {
+        RetryPolicy policy = new RetryPolicy(5, 500, 4000, false);
+        long[] ceilings = { 500, 1000, 2000, 4000, 4000 };
+
+        for (int attempt = 1; attempt <= ceilings.length; attempt++) {
+            long min = Long.MAX_VALUE;
+            long max = 0;
+            for (int i = 0; i < SAMPLES; i++) {
+                long delay = policy.getBackoffDelayMs(attempt);
+                assertTrue(attempt + ": " + delay, delay >= 0 && delay < ceilings[attempt - 1]);
+                min = Math.min(min, delay);
+                max = Math.max(max, delay);
+            }
+            // Full jitter spreads delays over the whole range
+            assertTrue(attempt + ": " + min, min < ceilings[attempt - 1] / 4);
+            assertTrue(attempt + ": " + max, max > ceilings[attempt - 1] * 3 / 4);
+        }
+
+        // Large attempt numbers do not overflow the exponential growth
+        long delay = policy.getBackoffDelayMs(100);
+        assertTrue(String.valueOf(delay), delay >= 0 && delay < 4000);
+    }
+
+    @Test
+    public void zeroBaseDelayRetriesImmediately() {
+        assertEquals(0, new RetryPolicy(3, 0, 0, false).getBackoffDelayMs(2));
+    }
+
+    @Test
+    public void hedgeDelayNeedsLatencySamples() {
+        RetryPolicy policy = new RetryPolicy(3, 500, 4000, true);
+        for (int i = 0; i < 9; i++) {
+            policy.recordLatency(200);
+        }
+        assertEquals(-1, policy.getHedgeDelayMs());
+
+        policy.recordLatency(200);
+        assertEquals(200, policy.getHedgeDelayMs());
+    }
+
+    @Test
+    public void hedgeDelayIsLatencyPercentile() {
+        RetryPolicy policy = new RetryPolicy(3, 500, 4000, true);
+        for (int latency = 1; latency <= 20; latency++) {
+            policy.recordLatency(latency * 100);
+        }
+        // 95th percentile of 100..2000 ms
+        assertEquals(1900, policy.getHedgeDelayMs());
+    }
+
+    @Test
+    public void hedgeDelayHasLowerBound() {
+        RetryPolicy policy = new RetryPolicy(3, 500, 4000, true);
+        for (int i = 0; i < 10; i++) {
+            policy.recordLatency(5);
+        }
+        assertEquals(100, policy.getHedgeDelayMs());
+    }
+
+    @Test
+    public void hedgingCanBeDisabled() {
+        RetryPolicy policy = new RetryPolicy(3, 500, 4000, false);
+        for (int i = 0; i < 10; i++) {
+            policy.recordLatency(200);
+        }
+        assertEquals(-1, policy.getHedgeDelayMs());
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.network;
+
+import android.support.annotation.NonNull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import cz.jtek.popularmovies.TmdbData;
+import cz.jtek.popularmovies.utilities.TmdbJsonUtils;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class TmdbClientTest {
+
+    private static final long TIMEOUT_SECONDS = 5;
+    private static final String API_KEY = "test";
+    private static final String POPULAR = "{\"page\":1,\"total_pages\":1,\"results\":["
+            + "{\"id\":278,\"title\":\"The Shawshank Redemption\"}]}";
+
+    private final ExecutorService mCallers = Executors.newCachedThreadPool();
+    private final CountDownLatch mRelease = new CountDownLatch(1);
+    private final AtomicInteger mRequests = new AtomicInteger();
+    private Transport mSavedTransport;
+
+    // Parsers of the same class, told apart only by their keys
+    private static class KeyedParser implements TmdbClient.ResponseParser<ArrayList<TmdbData.Movie>> {
+        private final String mKey;
+
+        KeyedParser(String key) { mKey = key; }
+
+        @Override
+        public TmdbJsonUtils.TmdbJsonResult<ArrayList<TmdbData.Movie>> parse(InputStream in) {
+            return TmdbJsonUtils.getMovieListFromStream(in);
+        }
+
+        @NonNull
+        @Override
+        public String getKey() { return mKey; }
+    }
+
+    @Before
+    public void setUp() {
+        mSavedTransport = TmdbHttpClient.getTransport();
+        // Holds every request until released, so that concurrent calls overlap
+        TmdbHttpClient.setTransport(new Transport() {
+            @NonNull
+            @Override
+            public Response execute(@NonNull Interceptor.Chain chain) throws IOException {
+                mRequests.incrementAndGet();
+                try {
+                    if (!mRelease.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                        throw new IOException("Request was not released");
+                    }
+                } catch (InterruptedException ie) {
+                    throw new IOException(ie);
+                }
+                return new Response.Builder()
+                        .request(chain.request())
+                        .protocol(Protocol.HTTP_1_1)
+                        .code(HttpURLConnection.HTTP_OK)
+                        .message("OK")
+                        .body(ResponseBody.create(MediaType.parse("application/json"), POPULAR))
+                        .build();
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        mRelease.countDown();
+        mCallers.shutdownNow();
+        TmdbHttpClient.setTransport(mSavedTransport);
+    }
+
+    private Future<TmdbJsonUtils.TmdbJsonResult<ArrayList<TmdbData.Movie>>> load(
+            final URL url, final TmdbClient.ResponseParser<ArrayList<TmdbData.Movie>> parser) {
+        return mCallers.submit(new Callable<TmdbJsonUtils.TmdbJsonResult<ArrayList<TmdbData.Movie>>>() {
+            @Override
+            public TmdbJsonUtils.TmdbJsonResult<ArrayList<TmdbData.Movie>> call() throws IOException {
+                return TmdbClient.getParsedResponseFromHttpUrl(url, parser);
+            }
+        });
+    }
+
+    private void awaitRequests(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (mRequests.get() < expected) {
+            if (System.nanoTime() > deadline) {
+                fail("Requests were not sent");
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    private static void awaitCoalesced(long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (RequestCoalescer.getInstance().getCoalescedCount() < expected) {
+            if (System.nanoTime() > deadline) {
+                fail("Caller did not join the request");
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    public void parsersWithEqualKeysShareRequest() throws Exception {
+        // Coalescer is a singleton, every test uses its own page
+        URL url = TmdbClient.buildMovieListUrl(API_KEY, TmdbClient.MOVIE_LIST_POPULAR, 1);
+        long coalesced = RequestCoalescer.getInstance().getCoalescedCount();
+
+        Future<TmdbJsonUtils.TmdbJsonResult<ArrayList<TmdbData.Movie>>> first =
+                load(url, new KeyedParser("shared"));
+        awaitRequests(1);
+        Future<TmdbJsonUtils.TmdbJsonResult<ArrayList<TmdbData.Movie>>> second =
+                load(url, new KeyedParser("shared"));
+        awaitCoalesced(coalesced + 1);
+        mRelease.countDown();
+
+        assertSame(first.get(TIMEOUT_SECONDS, TimeUnit.SECONDS),
+                second.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(1, mRequests.get());
+    }
+
+    @Test
+    public void parsersWithDifferentKeysAreNotShared() throws Exception {
+        URL url = TmdbClient.buildMovieListUrl(API_KEY, TmdbClient.MOVIE_LIST_POPULAR, 2);
+
+        Future<TmdbJsonUtils.TmdbJsonResult<ArrayList<TmdbData.Movie>>> first =
+                load(url, new KeyedParser("first"));
+        Future<TmdbJsonUtils.TmdbJsonResult<ArrayList<TmdbData.Movie>>> second =
+                load(url, new KeyedParser("second"));
+        // Both requests are sent even though parsers are of the same class
+        awaitRequests(2);
+        mRelease.countDown();
+
+        TmdbJsonUtils.TmdbJsonResult<ArrayList<TmdbData.Movie>> firstResult =
+                first.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        TmdbJsonUtils.TmdbJsonResult<ArrayList<TmdbData.Movie>> secondResult =
+                second.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotSame(firstResult, secondResult);
+        assertEquals(278, secondResult.getResult().get(0).getId());
+        assertEquals(2, mRequests.get());
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.utilities;
+
+import org.junit.Test;
+
+import cz.jtek.popularmovies.network.ResponseReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LazyTextTest {
+
+    private static LazyText encoded(String content) {
+        return LazyText.fromEncoded(content.getBytes(ResponseReader.UTF_8), content.indexOf('\\') >= 0);
+    }
+
+    private static String decode(String content) {
+        byte[] bytes = content.getBytes(ResponseReader.UTF_8);
+        return LazyText.decode(bytes, 0, bytes.length, true);
+    }
+
+    @Test
+    public void nullTextStaysNull() {
+        assertNull(LazyText.of(null));
+        assertNull(LazyText.toString(null));
+    }
+
+    @Test
+    public void decodedTextIsKept() {
+        LazyText text = LazyText.of("Overview");
+
+        assertTrue(text.isDecoded());
+        assertNull(text.getEncoded());
+        assertEquals("Overview", text.toString());
+    }
+
+    @Test
+    public void encodedTextIsDecodedOnce() {
+        LazyText text = encoded("Tyler \\\"Durden\\\"");
+        assertFalse(text.isDecoded());
+        assertNotNull(text.getEncoded());
+
+        String decoded = text.toString();
+        assertEquals("Tyler \"Durden\"", decoded);
+        assertTrue(text.isDecoded());
+        // Encoded bytes are released, the same string is returned afterwards
+        assertNull(text.getEncoded());
+        assertSame(decoded, text.toString());
+    }
+
+    @Test
+    public void unescapedContentIsPlainUtf8() {
+        assertEquals("\u010cesk\u00fd film \\n", LazyText.toString(
+                LazyText.fromEncoded("\u010cesk\u00fd film \\n".getBytes(ResponseReader.UTF_8), false)));
+    }
+
+    @Test
+    public void decodesSimpleEscapes() {
+        assertEquals("\" \\ / \b \f \n \r \t", decode("\\\" \\\\ \\/ \\b \\f \\n \\r \\t"));
+    }
+
+    @Test
+    public void decodesUnicodeEscapes() {
+        assertEquals("A\u00e9\u20ac\u0000", decode("\\u0041\\u00E9\\u20ac\\u0000"));
+    }
+
+    @Test
+    public void decodesSurrogatePair() {
+        assertEquals("film \ud83c\udfac!", decode("film \\uD83C\\uDFAC!"));
+    }
+
+    @Test
+    public void replacesUnpairedSurrogates() {
+        // High surrogate without low one, low surrogate alone, high surrogate followed by BMP char
+        assertEquals("\ufffdx", decode("\\ud83cx"));
+        assertEquals("\ufffd", decode("\\udfac"));
+        assertEquals("\ufffd\u00e9", decode("\\ud83c\\u00e9"));
+        assertEquals("\ufffd", decode("\\ud83c"));
+    }
+
+    @Test
+    public void invalidEscapesStandForThemselves() {
+        assertEquals("q", decode("\\q"));
+        assertEquals("u12G4", decode("\\u12G4"));
+        // Escape truncated at the end of content
+        assertEquals("u12", decode("\\u12"));
+        assertEquals("end\\", decode("end\\"));
+    }
+
+    @Test
+    public void decodesSlice() {
+        byte[] buffer = "xx\\ta\\nyy".getBytes(ResponseReader.UTF_8);
+
+        assertEquals("\ta\n", LazyText.decode(buffer, 2, 5, true));
+        assertEquals("\\ta", LazyText.decode(buffer, 2, 3, false));
+    }
+}
@@ -0,0 +1,383 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.utilities;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import cz.jtek.popularmovies.network.ResponseReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ProjectingJsonReaderTest {
+
+    private static final ProjectingJsonReader.Projection PROJECTION =
+            new ProjectingJsonReader.Projection("id", "title", "overview");
+
+    private static ProjectingJsonReader reader(String json) {
+        return new ProjectingJsonReader(
+                new ByteArrayInputStream(json.getBytes(ResponseReader.UTF_8)), "test");
+    }
+
+    // Returns projected fields of single object as name=value pairs
+    private static List<String> readProjected(String json) throws IOException {
+        List<String> fields = new ArrayList<>();
+        ProjectingJsonReader reader = reader(json);
+        reader.beginObject();
+        String name;
+        while ((name = reader.nextField(PROJECTION)) != null) {
+            fields.add(name + "=" + reader.nextString());
+        }
+        reader.endObject();
+        assertEquals(ProjectingJsonReader.Token.END_DOCUMENT, reader.peek());
+        return fields;
+    }
+
+    @Test
+    public void nextFieldSkipsUnknownFields() throws IOException {
+        List<String> fields = readProjected("{\"adult\":false,\"id\":550,"
+                + "\"genre_ids\":[18,{\"nested\":[1,\"]\"]}],\"title\":\"Fight Club\","
+                + "\"backdrop\":{\"path\":\"/x.jpg\",\"sizes\":[]},\"popularity\":-1.5e3}");
+
+        assertEquals(Arrays.asList("id=550", "title=Fight Club"), fields);
+    }
+
+    @Test
+    public void nextFieldSkipsNullValues() throws IOException {
+        List<String> fields = readProjected("{\"id\":1,\"title\":null,\"overview\":\"text\"}");
+
+        assertEquals(Arrays.asList("id=1", "overview=text"), fields);
+    }
+
+    @Test
+    public void nextFieldMatchesEscapedName() throws IOException {
+        List<String> fields = readProjected("{\"ti\\u0074le\":\"Up\"}");
+
+        assertEquals(Arrays.asList("title=Up"), fields);
+    }
+
+    @Test
+    public void nextFieldReturnsProjectionConstant() throws IOException {
+        ProjectingJsonReader reader = reader("{\"title\":\"x\"}");
+        reader.beginObject();
+
+        assertSame(PROJECTION.getFields()[1], reader.nextField(PROJECTION));
+    }
+
+    @Test
+    public void readsValueTypes() throws IOException {
+        ProjectingJsonReader reader = reader(" [ 42 , -7000000000 , 7.25 , true , false , null , \"17\" ] ");
+        reader.beginArray();
+        assertEquals(42, reader.nextInt());
+        assertEquals(-7000000000L, reader.nextLong());
+        assertEquals(7.25, reader.nextDouble(), 0);
+        assertTrue(reader.nextBoolean());
+        assertFalse(reader.nextBoolean());
+        assertNull(reader.nextString());
+        // Numbers quoted as strings are accepted
+        assertEquals(17, reader.nextInt());
+        assertFalse(reader.hasNext());
+        reader.endArray();
+    }
+
+    @Test
+    public void nullValues() throws IOException {
+        ProjectingJsonReader reader = reader("[null,null,null]");
+        StringPool pool = new StringPool(16);
+        reader.beginArray();
+        assertNull(reader.nextString());
+        assertNull(reader.nextPooledString(pool));
+        assertNull(reader.nextLazyText());
+        reader.endArray();
+    }
+
+    @Test
+    public void decodesEscapes() throws IOException {
+        ProjectingJsonReader reader = reader(
+                "[\"quote \\\" backslash \\\\ slash \\/ \\b\\f\\n\\r\\t \\u00e9\\u20AC\"]");
+        reader.beginArray();
+
+        assertEquals("quote \" backslash \\ slash / \b\f\n\r\t \u00e9\u20ac", reader.nextString());
+    }
+
+    @Test
+    public void decodesSurrogatePairsAndRawUtf8() throws IOException {
+        ProjectingJsonReader reader = reader("[\"\\ud83c\\udfac\", \"\ud83c\udfac \u010de\u0161tina\"]");
+        reader.beginArray();
+
+        assertEquals("\ud83c\udfac", reader.nextString());
+        assertEquals("\ud83c\udfac \u010de\u0161tina", reader.nextString());
+    }
+
+    @Test
+    public void replacesUnpairedSurrogates() throws IOException {
+        ProjectingJsonReader reader = reader("[\"\\ud83c!\", \"\\udfac\"]");
+        reader.beginArray();
+
+        assertEquals("\ufffd!", reader.nextString());
+        assertEquals("\ufffd", reader.nextString());
+    }
+
+    @Test
+    public void readsStringsAcrossBufferBoundary() throws IOException {
+        // Escape sequences are split by the 8 KiB read buffer at various offsets
+        StringBuilder json = new StringBuilder("[");
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 4000; i++) {
+            json.append(i % 2 == 0 ? "\\\"" : "\\u00e9");
+            expected.append(i % 2 == 0 ? '"' : '\u00e9');
+        }
+        json.append("\",1]");
+        json.insert(1, '"');
+
+        ProjectingJsonReader reader = reader(json.toString());
+        reader.beginArray();
+        assertEquals(expected.toString(), reader.nextString());
+        assertEquals(1, reader.nextInt());
+        reader.endArray();
+    }
+
+    @Test
+    public void lazyTextIsDecodedOnAccess() throws IOException {
+        ProjectingJsonReader reader = reader("[\"line\\nbreak\",\"plain\"]");
+        reader.beginArray();
+        LazyText escaped = reader.nextLazyText();
+        LazyText plain = reader.nextLazyText();
+
+        assertFalse(escaped.isDecoded());
+        assertTrue(escaped.isEscaped());
+        assertFalse(plain.isEscaped());
+        assertEquals("line\nbreak", escaped.toString());
+        assertEquals("plain", plain.toString());
+        assertEquals(0, reader.getMaterializedBytes());
+        assertEquals("line\\nbreak".length() + "plain".length(), reader.getDeferredBytes());
+    }
+
+    @Test
+    public void pooledStringsAreCanonical() throws IOException {
+        StringPool pool = new StringPool(16);
+        ProjectingJsonReader reader = reader("[\"Trailer\",\"Trailer\",\"Tr\\u0061iler\"]");
+        reader.beginArray();
+        String first = reader.nextPooledString(pool);
+
+        assertSame(first, reader.nextPooledString(pool));
+        assertSame(first, reader.nextPooledString(pool));
+    }
+
+    @Test
+    public void deferredValuesAreDecodedLater() throws IOException {
+        ProjectingJsonReader reader = reader(
+                "[\"a\\tb\", 12, -3.5, true, null, \"Clip\", \"lazy\", \"99\"]");
+        StringPool pool = new StringPool(16);
+        reader.beginArray();
+        int text = reader.deferValue();
+        int number = reader.deferValue();
+        int fraction = reader.deferValue();
+        int flag = reader.deferValue();
+        int none = reader.deferValue();
+        int pooled = reader.deferValue();
+        int lazy = reader.deferValue();
+        int quoted = reader.deferValue();
+        reader.endArray();
+        assertEquals(0, reader.getMaterializedBytes());
+
+        assertEquals("a\tb", reader.deferredString(text));
+        assertEquals(12, reader.deferredInt(number));
+        assertEquals(12L, reader.deferredLong(number));
+        assertEquals(-3.5, reader.deferredDouble(fraction), 0);
+        assertTrue(reader.deferredBoolean(flag));
+        assertNull(reader.deferredString(none));
+        assertNull(reader.deferredLazyText(none));
+        assertSame(pool.intern("Clip"), reader.deferredPooledString(pooled, pool));
+        assertEquals("lazy", reader.deferredLazyText(lazy).toString());
+        assertEquals(99, reader.deferredInt(quoted));
+    }
+
+    @Test
+    public void clearedSlotsAreReused() throws IOException {
+        ProjectingJsonReader reader = reader("[\"first\",\"second\"]");
+        reader.beginArray();
+        int slot = reader.deferValue();
+        reader.clearDeferred();
+
+        assertEquals(slot, reader.deferValue());
+        assertEquals("second", reader.deferredString(slot));
+    }
+
+    @Test
+    public void discardedValuesAreNeverMaterialized() throws IOException {
+        ProjectingJsonReader reader = reader("{\"name\":\"Some long video name\",\"type\":\"Clip\"}");
+        reader.beginObject();
+        reader.nextName();
+        reader.deferValue();
+        reader.discardDeferred();
+        reader.skipRemainingFields();
+        reader.endObject();
+
+        assertEquals(0, reader.getMaterializedBytes());
+        try {
+            reader.deferredString(0);
+            fail("Discarded slot must not be readable");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void deferValueRejectsObjects() throws IOException {
+        ProjectingJsonReader reader = reader("[{}]");
+        reader.beginArray();
+        reader.deferValue();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void deferredIntRejectsNull() throws IOException {
+        ProjectingJsonReader reader = reader("[null]");
+        reader.beginArray();
+        reader.deferredInt(reader.deferValue());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void deferredBooleanRejectsString() throws IOException {
+        ProjectingJsonReader reader = reader("[\"true\"]");
+        reader.beginArray();
+        reader.deferredBoolean(reader.deferValue());
+    }
+
+    @Test
+    public void malformedInputIsReported() throws IOException {
+        String[] malformed = {
+                "{\"id\" 1}",
+                "{\"id\":1 \"title\":\"x\"}",
+                "{id:1}",
+                "[1 2]",
+                "[#]",
+                "{\"id\":1}}",
+        };
+        for (String json : malformed) {
+            try {
+                ProjectingJsonReader reader = reader(json);
+                reader.skipValue();
+                reader.peek();
+                fail("Malformed JSON accepted: " + json);
+            } catch (IOException expected) {
+                // Expected
+            }
+        }
+    }
+
+    @Test
+    public void syntaxErrorReportsPosition() throws IOException {
+        ProjectingJsonReader reader = reader("{\"id\":1 x}");
+        reader.beginObject();
+        reader.nextField(PROJECTION);
+        reader.nextInt();
+        try {
+            reader.hasNext();
+            fail("Malformed JSON accepted");
+        } catch (IOException iex) {
+            assertEquals("Malformed JSON: Expected ',' or '}' at byte 9", iex.getMessage());
+        }
+    }
+
+    @Test
+    public void invalidLiteralsAreRejected() throws IOException {
+        ProjectingJsonReader reader = reader("[nul, tru]");
+        reader.beginArray();
+        try {
+            reader.nextNull();
+            fail("Invalid null accepted");
+        } catch (IOException expected) {
+            // Expected
+        }
+        try {
+            reader.nextBoolean();
+            fail("Invalid boolean accepted");
+        } catch (IOException expected) {
+            // Expected
+        }
+    }
+
+    @Test(expected = EOFException.class)
+    public void truncatedStringIsReported() throws IOException {
+        ProjectingJsonReader reader = reader("{\"title\":\"Fight Cl");
+        reader.beginObject();
+        reader.nextField(PROJECTION);
+        reader.nextString();
+    }
+
+    @Test(expected = EOFException.class)
+    public void truncatedEscapeIsReported() throws IOException {
+        ProjectingJsonReader reader = reader("[\"abc\\");
+        reader.beginArray();
+        reader.nextString();
+    }
+
+    @Test(expected = EOFException.class)
+    public void truncatedSkippedValueIsReported() throws IOException {
+        ProjectingJsonReader reader = reader("{\"unknown\":\"abc");
+        reader.beginObject();
+        reader.nextField(PROJECTION);
+    }
+
+    @Test(expected = EOFException.class)
+    public void truncatedBeforeValueIsReported() throws IOException {
+        ProjectingJsonReader reader = reader("{\"id\":");
+        reader.beginObject();
+        reader.nextField(PROJECTION);
+    }
+
+    @Test
+    public void truncatedObjectIsReported() throws IOException {
+        ProjectingJsonReader reader = reader("{\"id\":1,\"title\":\"x\"");
+        reader.beginObject();
+        assertEquals("id", reader.nextField(PROJECTION));
+        assertEquals(1, reader.nextInt());
+        assertEquals("title", reader.nextField(PROJECTION));
+        assertEquals("x", reader.nextString());
+        try {
+            reader.nextField(PROJECTION);
+            fail("Truncated object accepted");
+        } catch (IOException expected) {
+            // Expected
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void skipValueAtEndOfObjectFails() throws IOException {
+        ProjectingJsonReader reader = reader("{}");
+        reader.beginObject();
+        reader.skipValue();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void unexpectedTokenFails() throws IOException {
+        ProjectingJsonReader reader = reader("[\"x\"]");
+        reader.beginObject();
+    }
+}
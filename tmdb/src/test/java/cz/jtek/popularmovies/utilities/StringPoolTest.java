@@ -0,0 +1,138 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.utilities;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import cz.jtek.popularmovies.network.ResponseReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class StringPoolTest {
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(ResponseReader.UTF_8);
+    }
+
+    @Test
+    public void bytesAreInternedToCanonicalInstance() {
+        StringPool pool = new StringPool(16);
+        byte[] buffer = bytes("[\"YouTube\",\"YouTube\"]");
+
+        String first = pool.intern(buffer, 2, 7);
+        String second = pool.intern(buffer, 12, 7);
+
+        assertEquals("YouTube", first);
+        assertSame(first, second);
+        assertEquals(1, pool.getMissCount());
+        assertEquals(1, pool.getHitCount());
+    }
+
+    @Test
+    public void stringsAndBytesShareInstances() {
+        StringPool pool = new StringPool(16);
+        String trailer = new String("Trailer");
+
+        assertSame(trailer, pool.intern(trailer));
+        assertSame(trailer, pool.intern(bytes("Trailer"), 0, 7));
+        assertSame(trailer, pool.intern(new String("Trailer")));
+    }
+
+    @Test
+    public void internOfCanonicalInstanceIsNotHit() {
+        StringPool pool = new StringPool(16);
+        String site = pool.intern("YouTube");
+
+        assertSame(site, pool.intern(site));
+        assertEquals(0, pool.getHitCount());
+    }
+
+    @Test
+    public void nullIsNotPooled() {
+        assertNull(new StringPool(16).intern(null));
+    }
+
+    @Test
+    public void nonAsciiIsNotPooled() {
+        StringPool pool = new StringPool(16);
+        String value = "Uk\u00e1zka";
+
+        assertNotSame(pool.intern(bytes(value), 0, bytes(value).length),
+                pool.intern(bytes(value), 0, bytes(value).length));
+        assertSame(value, pool.intern(value));
+        assertEquals(value, pool.intern(bytes(value), 0, bytes(value).length));
+        assertEquals(0, pool.getHitCount());
+        assertEquals(0, pool.getMissCount());
+    }
+
+    @Test
+    public void longValuesAreNotPooled() {
+        StringPool pool = new StringPool(16);
+        char[] chars = new char[StringPool.MAX_POOLED_LENGTH + 1];
+        Arrays.fill(chars, 'x');
+        String value = new String(chars);
+
+        assertNotSame(pool.intern(bytes(value), 0, chars.length),
+                pool.intern(bytes(value), 0, chars.length));
+        assertSame(value, pool.intern(value));
+        assertEquals(0, pool.getMissCount());
+    }
+
+    @Test
+    public void emptyStringIsPooled() {
+        StringPool pool = new StringPool(16);
+
+        assertSame(pool.intern(""), pool.intern(new byte[0], 0, 0));
+    }
+
+    @Test
+    public void collidingValueReplacesSlot() {
+        StringPool pool = new StringPool(16);
+        // Both strings have the same hash code, they share pool slot
+        String first = pool.intern(new String("Aa"));
+        pool.intern("BB");
+
+        String again = pool.intern(bytes("Aa"), 0, 2);
+        assertEquals(first, again);
+        assertNotSame(first, again);
+        assertEquals(3, pool.getMissCount());
+        assertEquals(0, pool.getHitCount());
+    }
+
+    @Test
+    public void statisticsAreReset() {
+        StringPool pool = new StringPool(16);
+        pool.intern("Featurette");
+        pool.intern(bytes("Featurette"), 0, 10);
+
+        assertEquals(1, pool.getHitCount());
+        assertEquals(32 + 2 * 10, pool.getSavedBytes());
+
+        String canonical = pool.intern("Featurette");
+        pool.resetStats();
+        assertEquals(0, pool.getHitCount());
+        assertEquals(0, pool.getMissCount());
+        assertEquals(0, pool.getSavedBytes());
+        // Pooled values are kept
+        assertSame(canonical, pool.intern(bytes("Featurette"), 0, 10));
+    }
+}
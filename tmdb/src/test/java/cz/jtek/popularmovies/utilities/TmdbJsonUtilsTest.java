@@ -0,0 +1,79 @@
+/*
+ * Copyright 2018 Jaroslav Groman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.jtek.popularmovies.utilities;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+
+import cz.jtek.popularmovies.TmdbData;
+import cz.jtek.popularmovies.network.ResponseReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TmdbJsonUtilsTest {
+
+    private static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(ResponseReader.UTF_8));
+    }
+
+    private static void assertStatusError(TmdbJsonUtils.TmdbJsonResult<?> result, String expected) {
+        assertNull(result.getResult());
+        assertTrue(result.getException() instanceof TmdbData.TmdbStatusException);
+        assertEquals(expected, result.getException().getMessage());
+    }
+
+    @Test
+    public void statusWithMessageIsError() {
+        String json = "{\"status_code\":7,\"status_message\":\"Invalid API key\"}";
+
+        assertStatusError(TmdbJsonUtils.getMovieListFromStream(stream(json)),
+                "TMDb status: 7 (Invalid API key)");
+        assertStatusError(TmdbJsonUtils.getMovieListFromJson(json),
+                "TMDb status: 7 (Invalid API key)");
+    }
+
+    @Test
+    public void statusCodeWithoutMessageIsError() {
+        // Stream parser reports the same error as DOM parser, which checks status code only
+        String json = "{\"status_code\":34,\"page\":1,\"results\":[]}";
+
+        assertStatusError(TmdbJsonUtils.getMovieListFromStream(stream(json)),
+                "TMDb status: 34 (null)");
+        assertStatusError(TmdbJsonUtils.getMovieListFromJson(json),
+                "TMDb status: 34 (null)");
+        assertStatusError(TmdbJsonUtils.getConfigFromStream(stream("{\"status_code\":7}")),
+                "TMDb status: 7 (null)");
+        assertStatusError(TmdbJsonUtils.getMovieDetailFromStream(stream("{\"status_code\":34}")),
+                "TMDb status: 34 (null)");
+    }
+
+    @Test
+    public void replyWithoutStatusIsParsed() {
+        TmdbJsonUtils.TmdbJsonResult<ArrayList<TmdbData.Movie>> result =
+                TmdbJsonUtils.getMovieListFromStream(stream(
+                        "{\"page\":1,\"results\":[{\"id\":278,\"title\":\"The Shawshank Redemption\"}]}"));
+
+        assertNull(result.getException());
+        assertEquals(1, result.getResult().size());
+        assertEquals(278, result.getResult().get(0).getId());
+    }
+}